@@ -0,0 +1,184 @@
+/**
+ * Filename:  ForeignKeyLookupBenchmark.java
+ * Author:  Team SpellTest
+ * Date:  24 May 2019
+ *
+ * Purpose:  Instrumented benchmark for the foreign key indexes added in database version 2 (see
+ * Migrations.AddForeignKeyIndexes).  It grows the word table from ten thousand to a million rows and, at
+ * each size, times looking up the words in a list and the lists for a user - the same queries the
+ * DataStore class runs.  With the indexes, the time per lookup should stay roughly flat as the tables
+ * grow.  For comparison, it also times a few of the word lookups with the index turned off (NOT INDEXED),
+ * which is what every lookup cost before version 2.
+ *
+ * The timings are written to the log (tag "LookupBenchmark").  The benchmark uses its own database file,
+ * which is deleted afterwards.
+ */
+
+package com.example.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.example.database.DatabaseSchema.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class ForeignKeyLookupBenchmark {
+
+    //Class variables
+    private static final String TAG = "LookupBenchmark";
+    private static final String DATABASE_NAME = "lookup_benchmark.db";
+    private static final int[] WORD_COUNTS = {10000, 100000, 1000000};  //Table sizes to time the lookups at.
+    private static final int WORDS_PER_LIST = 50;
+    private static final int LISTS_PER_USER = 20;
+    private static final int LOOKUPS = 2000;            //Indexed lookups timed at each size (of each kind).
+    private static final int SCANS = 20;                //Unindexed lookups timed at each size.
+    private static final int MAX_SLOWDOWN = 4;          //The largest table may be at most this much slower than the smallest.
+
+    //SQL for the lookups, as run by DataStore.getWords() and DataStore.getSpellingLists().
+    private static final String WORD_LOOKUP = "SELECT " + WordTable.Cols.ID + ", " + WordTable.Cols.LIST_ID + ", " +
+            WordTable.Cols.SPELLING + " FROM " + WordTable.NAME + " %s WHERE " + WordTable.Cols.LIST_ID + "=?" +
+            " ORDER BY " + WordTable.Cols.ID;
+    private static final String LIST_LOOKUP = "SELECT " + SpellingListTable.Cols.ID + ", " + SpellingListTable.Cols.NAME +
+            ", " + SpellingListTable.Cols.USER_ID + ", " + SpellingListTable.Cols.WORD_ORDER + " FROM " +
+            SpellingListTable.NAME + " WHERE " + SpellingListTable.Cols.USER_ID + "=?";
+
+    //Instance variables
+    private Context mContext;
+    private DatabaseHelper mHelper;
+    private SQLiteDatabase mDb;
+    private final Random mRandom = new Random(1);
+    private long mUserId;                               //User the lists are being added to.
+    private long mListId;                               //List the words are being added to.
+    private int mListCount = 0;                         //Lists added so far.
+    private long mFirstListId;                          //Id of the first list added.
+    private long mFirstUserId;                          //Id of the first user added.
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        mContext.deleteDatabase(DATABASE_NAME);
+        mHelper = new DatabaseHelper(mContext, DATABASE_NAME);
+        mDb = mHelper.getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        mHelper.close();
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    /**
+     * The benchmark itself.
+     */
+    @Test
+    public void lookupTimeStaysFlatAsTablesGrow() {
+
+        double[] wordLookupTimes = new double[WORD_COUNTS.length];
+        int wordCount = 0;
+
+        for (int size = 0; size < WORD_COUNTS.length; size++) {
+            addWords(WORD_COUNTS[size] - wordCount);
+            wordCount = WORD_COUNTS[size];
+
+            //Time the lookups (the best of three runs, so a stray garbage collection doesn't count).
+            double wordTime = Double.MAX_VALUE;
+            double listTime = Double.MAX_VALUE;
+            for (int run = 0; run < 3; run++) {
+                wordTime = Math.min(wordTime, timeLookups(String.format(WORD_LOOKUP, ""), mFirstListId, mListId, LOOKUPS));
+                listTime = Math.min(listTime, timeLookups(LIST_LOOKUP, mFirstUserId, mUserId, LOOKUPS));
+            }
+            double scanTime = timeLookups(String.format(WORD_LOOKUP, "NOT INDEXED"), mFirstListId, mListId, SCANS);
+            wordLookupTimes[size] = wordTime;
+
+            Log.i(TAG, String.format(Locale.US, "%,d words in %,d lists:  words in a list %.1f us, " +
+                    "lists for a user %.1f us (without the index:  %.1f us)", wordCount, mListCount,
+                    wordTime, listTime, scanTime));
+        }
+
+        double slowdown = wordLookupTimes[WORD_COUNTS.length - 1] / wordLookupTimes[0];
+        assertTrue("Lookups got " + slowdown + " times slower", slowdown < MAX_SLOWDOWN);
+    }
+
+    /**
+     * Private method to add words to the database, in lists of WORDS_PER_LIST words, with LISTS_PER_USER
+     * lists for each user.  Everything is added in one transaction.
+     * @param count the number of words to add.
+     */
+    private void addWords(int count) {
+
+        SQLiteStatement addUser = mDb.compileStatement("INSERT INTO " + UserTable.NAME + " (" +
+                UserTable.Cols.FIRST_NAME + ", " + UserTable.Cols.LAST_NAME + ") VALUES ('Test', 'User')");
+        SQLiteStatement addList = mDb.compileStatement("INSERT INTO " + SpellingListTable.NAME + " (" +
+                SpellingListTable.Cols.NAME + ", " + SpellingListTable.Cols.USER_ID + ") VALUES ('List', ?)");
+        SQLiteStatement addWord = mDb.compileStatement("INSERT INTO " + WordTable.NAME + " (" +
+                WordTable.Cols.LIST_ID + ", " + WordTable.Cols.SPELLING + ") VALUES (?, ?)");
+
+        mDb.beginTransaction();
+        try {
+            for (int i = 0; i < count; i++) {
+                if (i % WORDS_PER_LIST == 0) {
+                    if (mListCount % LISTS_PER_USER == 0) {
+                        mUserId = addUser.executeInsert();
+                        if (mListCount == 0) mFirstUserId = mUserId;
+                    }
+                    addList.bindLong(1, mUserId);
+                    mListId = addList.executeInsert();
+                    if (mListCount++ == 0) mFirstListId = mListId;
+                }
+                addWord.bindLong(1, mListId);
+                addWord.bindString(2, "word" + i);
+                addWord.executeInsert();
+            }
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+            addUser.close();
+            addList.close();
+            addWord.close();
+        }
+    }
+
+    /**
+     * Private method to time a number of lookups, each for a random id, reading every row they return.
+     * @param sql the query (with a single ? argument for the id).
+     * @param firstId the smallest id to look up.
+     * @param lastId the largest id to look up.
+     * @param lookups the number of lookups to make.
+     * @return the average time per lookup, in microseconds.
+     */
+    private double timeLookups(String sql, long firstId, long lastId, int lookups) {
+
+        String[] args = new String[1];
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < lookups; i++) {
+            args[0] = Long.toString(firstId + mRandom.nextInt((int) (lastId - firstId + 1)));
+            Cursor cursor = mDb.rawQuery(sql, args);
+            try {
+                while (cursor.moveToNext()) {
+                    cursor.getLong(0);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return (SystemClock.elapsedRealtimeNanos() - start) / 1000.0 / lookups;
+    }
+}
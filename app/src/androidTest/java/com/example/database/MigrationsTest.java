@@ -0,0 +1,286 @@
+/**
+ * Filename:  MigrationsTest.java
+ * Author:  Team SpellTest
+ * Date:  24 May 2019
+ *
+ * Purpose:  Instrumented tests for the database upgrade steps (see the Migrations class).  A version 1
+ * database (as the first release of the app built it) is upgraded one step at a time, and checked after
+ * each step, so a step that breaks the schema or loses data is caught before it ships.  The tests use an
+ * in-memory database, so they never touch the app's own one.
+ */
+
+package com.example.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.database.DatabaseSchema.*;
+import com.example.spelltest.PhoneticKey;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class MigrationsTest {
+
+    //Instance variables
+    private SQLiteDatabase mDb;                         //The database being upgraded (in memory).
+
+    /**
+     * Method run before each test, to build a version 1 database.
+     */
+    @Before
+    public void setUp() {
+        mDb = SQLiteDatabase.create(null);
+        mDb.setForeignKeyConstraintsEnabled(true);
+        new DatabaseHelper(InstrumentationRegistry.getTargetContext(), null).createBaseVersion(mDb);
+    }
+
+    @After
+    public void tearDown() {
+        mDb.close();
+    }
+
+    /**
+     * Each step should run on its own, on the database the step before it left, and leave a database that
+     * passes SQLite's own checks.
+     */
+    @Test
+    public void eachStepRunsOnItsOwn() {
+        for (int version = Migrations.BASE_VERSION + 1; version <= Migrations.LATEST_VERSION; version++) {
+            Migrations.migrate(mDb, version - 1, version);
+            assertEquals("after version " + version, "ok",
+                    DatabaseUtils.stringForQuery(mDb, "PRAGMA integrity_check", null));
+            Cursor cursor = mDb.rawQuery("PRAGMA foreign_key_check", null);
+            try {
+                assertEquals("after version " + version, 0, cursor.getCount());
+            } finally {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * A step that has already run should never be run again, so upgrading an up-to-date database does nothing.
+     */
+    @Test
+    public void upgradingToTheSameVersionDoesNothing() {
+        Migrations.migrate(mDb, Migrations.BASE_VERSION, Migrations.LATEST_VERSION);
+        String schema = getSchema();
+        Migrations.migrate(mDb, Migrations.LATEST_VERSION, Migrations.LATEST_VERSION);
+        assertEquals(schema, getSchema());
+    }
+
+    /**
+     * Upgrading should keep everything already in the database, and fill in the new tables and columns
+     * from it.
+     */
+    @Test
+    public void upgradeKeepsExistingData() {
+
+        //Add a test result to the version 1 database (which already has a user, a list and four words).
+        long listId = DatabaseUtils.longForQuery(mDb, "SELECT MIN(" + SpellingListTable.Cols.ID + ") FROM " +
+                SpellingListTable.NAME, null);
+        ContentValues stat = new ContentValues();
+        stat.put(SpellingListStatTable.Cols.LIST_ID, listId);
+        stat.put(SpellingListStatTable.Cols.DATE, 1000L);
+        stat.put(SpellingListStatTable.Cols.ELAPSED_TIME, 60000L);
+        stat.put(SpellingListStatTable.Cols.NUMBER_CORRECT, 3);
+        stat.put(SpellingListStatTable.Cols.NUMBER_INCORRECT, 1);
+        mDb.insert(SpellingListStatTable.NAME, null, stat);
+
+        Migrations.migrate(mDb, Migrations.BASE_VERSION, Migrations.LATEST_VERSION);
+
+        //The words are still there, with their phonetic keys filled in.
+        Cursor cursor = mDb.rawQuery("SELECT " + WordTable.Cols.SPELLING + ", " + WordTable.Cols.PHONETIC_KEY +
+                " FROM " + WordTable.NAME + " ORDER BY " + WordTable.Cols.ID, null);
+        try {
+            assertEquals(4, cursor.getCount());
+            while (cursor.moveToNext()) {
+                assertEquals(PhoneticKey.encode(cursor.getString(0)), cursor.getString(1));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        //The test result is counted in the summaries, and in the user's stats.
+        assertEquals(1, DatabaseUtils.queryNumEntries(mDb, SpellingListStatTable.NAME));
+        assertEquals(1, DatabaseUtils.longForQuery(mDb, "SELECT " + UserStatTable.Cols.TOTAL_TESTS_TAKEN +
+                " FROM " + UserStatTable.NAME, null));
+        assertEquals(3, DatabaseUtils.longForQuery(mDb, "SELECT " + ListSummaryTable.Cols.TOTAL_CORRECT +
+                " FROM " + ListSummaryTable.NAME + " WHERE " + ListSummaryTable.Cols.LIST_ID + "=?",
+                new String[] { Long.toString(listId) }));
+    }
+
+    /**
+     * The version 12 attempt trigger should keep the same totals as the version 5 one did, including when a
+     * word moves to another user's list, and for attempts at a word that has been deleted.
+     */
+    @Test
+    public void attemptStatsAreTheSameAsBefore() {
+
+        //A database with the version 5 trigger (version 11 is the last one that has it).
+        SQLiteDatabase old = SQLiteDatabase.create(null);
+        try {
+            new DatabaseHelper(InstrumentationRegistry.getTargetContext(), null).createBaseVersion(old);
+            Migrations.migrate(old, Migrations.BASE_VERSION, 11);
+            Migrations.migrate(mDb, Migrations.BASE_VERSION, Migrations.LATEST_VERSION);
+            addAttempts(old);
+            addAttempts(mDb);
+
+            String[] queries = {
+                    "SELECT " + WordStatTable.Cols.WORD_ID + ", " + WordStatTable.Cols.ATTEMPT_COUNT + ", " +
+                            WordStatTable.Cols.CORRECT_COUNT + ", " + WordStatTable.Cols.OVERALL_ACCURACY +
+                            " FROM " + WordStatTable.NAME + " ORDER BY 1",
+                    "SELECT " + UserStatTable.Cols.USER_ID + ", " + UserStatTable.Cols.ATTEMPT_COUNT + ", " +
+                            UserStatTable.Cols.CORRECT_COUNT + ", " + UserStatTable.Cols.OVERALL_ACCURACY + ", " +
+                            UserStatTable.Cols.TOTAL_TESTS_TAKEN + " FROM " + UserStatTable.NAME + " ORDER BY 1",
+                    "SELECT us." + UserStatTable.Cols.USER_ID + ", ws." + WordStatTable.Cols.WORD_ID + ", uws." +
+                            UserWordStatTable.Cols.ATTEMPT_COUNT + ", uws." + UserWordStatTable.Cols.CORRECT_COUNT +
+                            ", uws." + UserWordStatTable.Cols.USER_WORD_ACCURACY + " FROM " + UserWordStatTable.NAME +
+                            " uws JOIN " + UserStatTable.NAME + " us ON us." + UserStatTable.Cols.ID + " = uws." +
+                            UserWordStatTable.Cols.USER_STAT_ID + " JOIN " + WordStatTable.NAME + " ws ON ws." +
+                            WordStatTable.Cols.ID + " = uws." + UserWordStatTable.Cols.WORD_STAT_ID + " ORDER BY 1, 2"
+            };
+            for (String query : queries) {
+                String expected = getRows(old, query);
+                assertTrue(query, expected.length() > 0);
+                assertEquals(query, expected, getRows(mDb, query));
+            }
+        } finally {
+            old.close();
+        }
+    }
+
+    /**
+     * The lookups on foreign keys should be answered from their indexes, rather than by scanning the tables.
+     */
+    @Test
+    public void foreignKeyLookupsUseIndexes() {
+        Migrations.migrate(mDb, Migrations.BASE_VERSION, Migrations.LATEST_VERSION);
+
+        assertUsesIndex("SELECT " + WordTable.Cols.ID + ", " + WordTable.Cols.LIST_ID + ", " + WordTable.Cols.SPELLING +
+                " FROM " + WordTable.NAME + " WHERE " + WordTable.Cols.LIST_ID + "=? ORDER BY " + WordTable.Cols.ID,
+                "COVERING INDEX " + WordTable.INDEX_LIST_ID);
+        assertUsesIndex("SELECT " + SpellingListTable.Cols.ID + ", " + SpellingListTable.Cols.NAME + ", " +
+                SpellingListTable.Cols.USER_ID + ", " + SpellingListTable.Cols.WORD_ORDER +
+                " FROM " + SpellingListTable.NAME + " WHERE " + SpellingListTable.Cols.USER_ID + "=?",
+                "COVERING INDEX " + SpellingListTable.INDEX_USER_ID);
+        assertUsesIndex("SELECT * FROM " + SpellingListStatTable.NAME +
+                " WHERE " + SpellingListStatTable.Cols.LIST_ID + "=?",
+                "INDEX " + SpellingListStatTable.INDEX_LIST_ID);
+    }
+
+    /**
+     * Private method to add a second user (with a list of three words), and then the same made-up word
+     * attempts to a database.  Half way through, a word moves to the second user's list and another word is
+     * deleted, and some attempts are at a word that doesn't exist.
+     * @param db the database.
+     */
+    private static void addAttempts(SQLiteDatabase db) {
+
+        ContentValues values = new ContentValues();
+        values.put(UserTable.Cols.FIRST_NAME, "Second");
+        values.put(UserTable.Cols.LAST_NAME, "User");
+        long userId = db.insert(UserTable.NAME, null, values);
+        values.clear();
+        values.put(SpellingListTable.Cols.NAME, "Second list");
+        values.put(SpellingListTable.Cols.USER_ID, userId);
+        long listId = db.insert(SpellingListTable.NAME, null, values);
+        for (String spelling : new String[] {"which", "witch", "weird"}) {
+            values.clear();
+            values.put(WordTable.Cols.LIST_ID, listId);
+            values.put(WordTable.Cols.SPELLING, spelling);
+            db.insert(WordTable.NAME, null, values);
+        }
+
+        Cursor cursor = db.rawQuery("SELECT " + WordTable.Cols.ID + " FROM " + WordTable.NAME + " ORDER BY 1", null);
+        long[] wordIds = new long[cursor.getCount() + 1];
+        try {
+            for (int i = 0; cursor.moveToNext(); i++) wordIds[i] = cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+        wordIds[wordIds.length - 1] = wordIds[wordIds.length - 2] + 100;       //A word that doesn't exist.
+
+        Random random = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            if (i == 100) {
+                db.execSQL("UPDATE " + WordTable.NAME + " SET " + WordTable.Cols.LIST_ID + " = " + listId +
+                        " WHERE " + WordTable.Cols.ID + " = " + wordIds[0]);
+                db.execSQL("DELETE FROM " + WordTable.NAME + " WHERE " + WordTable.Cols.ID + " = " + wordIds[1]);
+            }
+            values.clear();
+            values.put(WordAttemptTable.Cols.SESSION_ID, i / 10);
+            values.put(WordAttemptTable.Cols.WORD_ID, wordIds[random.nextInt(wordIds.length)]);
+            values.put(WordAttemptTable.Cols.CORRECT, random.nextInt(3) != 0 ? 1 : 0);
+            values.put(WordAttemptTable.Cols.RESPONSE_TIME, 1000);
+            values.put(WordAttemptTable.Cols.TIMESTAMP, i);
+            db.insert(WordAttemptTable.NAME, null, values);
+        }
+    }
+
+    /**
+     * Private method to read every row of a query into a single string.
+     */
+    private static String getRows(SQLiteDatabase db, String sql) {
+        Cursor cursor = db.rawQuery(sql, null);
+        StringBuilder rows = new StringBuilder();
+        try {
+            while (cursor.moveToNext()) {
+                for (int i = 0; i < cursor.getColumnCount(); i++) {
+                    rows.append(cursor.getString(i)).append(i + 1 < cursor.getColumnCount() ? ", " : "\n");
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return rows.toString();
+    }
+
+    /**
+     * Private method to check that SQLite plans to answer a query with a particular index.
+     * @param sql the query (with a single ? argument).
+     * @param index how the plan should use the index (eg "COVERING INDEX word_list_id_index").
+     */
+    private void assertUsesIndex(String sql, String index) {
+        Cursor cursor = mDb.rawQuery("EXPLAIN QUERY PLAN " + sql, new String[] { "1" });
+        StringBuilder plan = new StringBuilder();
+        try {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(detail)).append('\n');
+            }
+        } finally {
+            cursor.close();
+        }
+        assertTrue(plan.toString(), plan.indexOf("USING " + index) >= 0);
+    }
+
+    /**
+     * Private method to get the whole schema (every table, index and trigger) as a single string.
+     */
+    private String getSchema() {
+        Cursor cursor = mDb.rawQuery("SELECT sql FROM sqlite_master WHERE sql IS NOT NULL ORDER BY name", null);
+        StringBuilder schema = new StringBuilder();
+        try {
+            while (cursor.moveToNext()) {
+                schema.append(cursor.getString(0)).append(";\n");
+            }
+        } finally {
+            cursor.close();
+        }
+        return schema.toString();
+    }
+}
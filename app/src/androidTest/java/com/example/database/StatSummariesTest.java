@@ -0,0 +1,191 @@
+/**
+ * Filename:  StatSummariesTest.java
+ * Author:  Team SpellTest
+ * Date:  28 May 2019
+ *
+ * Purpose:  Instrumented tests for the summary tables (see the StatSummaries class).  Stats are recorded
+ * the way the DataStore records them (the stat, then the summary statements), and the summaries are checked
+ * with countMismatches().  Then the summaries are corrupted, and the checker should find each bad row and
+ * rebuild() should put them right.  The tests use an in-memory database, so they never touch the app's own
+ * one.
+ */
+
+package com.example.database;
+
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.database.DatabaseSchema.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4.class)
+public class StatSummariesTest {
+
+    //Instance variables
+    private SQLiteDatabase mDb;                         //The database (in memory, at the latest version).
+    private long mUserId;                               //The user from the version 1 database.
+    private long mListId;                               //The user's list from the version 1 database.
+    private long mOtherListId;                          //A second list belonging to the same user.
+    private long mOrphanListId;                         //A list with no user.
+
+    /**
+     * Method run before each test, to build an up-to-date database with three lists.
+     */
+    @Before
+    public void setUp() {
+        mDb = SQLiteDatabase.create(null);
+        mDb.setForeignKeyConstraintsEnabled(true);
+        new DatabaseHelper(InstrumentationRegistry.getTargetContext(), null).createBaseVersion(mDb);
+        Migrations.migrate(mDb, Migrations.BASE_VERSION, Migrations.LATEST_VERSION);
+
+        mListId = DatabaseUtils.longForQuery(mDb, "SELECT MIN(" + SpellingListTable.Cols.ID + ") FROM " +
+                SpellingListTable.NAME, null);
+        mUserId = DatabaseUtils.longForQuery(mDb, "SELECT " + SpellingListTable.Cols.USER_ID + " FROM " +
+                SpellingListTable.NAME + " WHERE " + SpellingListTable.Cols.ID + " = " + mListId, null);
+        mOtherListId = addList("Other list", mUserId);
+        mOrphanListId = addList("Orphan list", null);
+    }
+
+    @After
+    public void tearDown() {
+        mDb.close();
+    }
+
+    /**
+     * The totals kept as each stat is recorded should match the totals calculated from scratch.
+     */
+    @Test
+    public void recordedStatsMatch() {
+        addStats();
+        assertEquals(0, StatSummaries.countMismatches(mDb));
+
+        //Both of the user's lists are counted towards the user, and the list with no user isn't.
+        assertEquals(3, getCount(ListSummaryTable.NAME));
+        assertEquals(1, getCount(UserSummaryTable.NAME));
+        assertEquals(5, DatabaseUtils.longForQuery(mDb, "SELECT " + UserSummaryTable.Cols.TEST_COUNT +
+                " FROM " + UserSummaryTable.NAME + " WHERE " + UserSummaryTable.Cols.USER_ID + " = " + mUserId, null));
+        assertEquals(17, DatabaseUtils.longForQuery(mDb, "SELECT " + UserSummaryTable.Cols.TOTAL_CORRECT +
+                " FROM " + UserSummaryTable.NAME, null));
+    }
+
+    /**
+     * Each kind of bad row (wrong totals, a row with no stats behind it, and a missing row) should be
+     * counted, and rebuilding should fix them all.
+     */
+    @Test
+    public void corruptRowsAreFoundAndRebuilt() {
+        addStats();
+
+        mDb.execSQL("UPDATE " + ListSummaryTable.NAME + " SET " + ListSummaryTable.Cols.TEST_COUNT + " = " +
+                ListSummaryTable.Cols.TEST_COUNT + " + 5 WHERE " + ListSummaryTable.Cols.LIST_ID + " = " + mListId);
+        assertEquals(1, StatSummaries.countMismatches(mDb));
+        mDb.execSQL("UPDATE " + ListSummaryTable.NAME + " SET " + ListSummaryTable.Cols.BEST_SCORE + " = 0.5" +
+                " WHERE " + ListSummaryTable.Cols.LIST_ID + " = " + mOtherListId);
+        assertEquals(2, StatSummaries.countMismatches(mDb));
+        mDb.execSQL("INSERT INTO " + ListSummaryTable.NAME + " (" + ListSummaryTable.Cols.LIST_ID + ") VALUES (" +
+                (mOrphanListId + 100) + ")");
+        assertEquals(3, StatSummaries.countMismatches(mDb));
+        mDb.execSQL("DELETE FROM " + UserSummaryTable.NAME);
+        assertEquals(4, StatSummaries.countMismatches(mDb));
+
+        mDb.beginTransaction();
+        try {
+            StatSummaries.rebuild(mDb);
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+        assertEquals(0, StatSummaries.countMismatches(mDb));
+        assertEquals(3, getCount(ListSummaryTable.NAME));
+        assertEquals(1, getCount(UserSummaryTable.NAME));
+    }
+
+    /**
+     * Private method to record some stats:  three on the user's first list, two on their other list and
+     * one on the list with no user.
+     */
+    private void addStats() {
+        addStat(mListId, 3, 1, 60000);
+        addStat(mListId, 4, 0, 45000);
+        addStat(mListId, 2, 2, 90000);
+        addStat(mOtherListId, 5, 5, 120000);
+        addStat(mOtherListId, 3, 0, 30000);
+        addStat(mOrphanListId, 1, 9, 10000);
+    }
+
+    /**
+     * Private method to record a stat, and add it to the summaries, the same way as the DataStore does.
+     */
+    private void addStat(long listId, int numberCorrect, int numberIncorrect, long elapsedTime) {
+        ContentValues stat = new ContentValues();
+        stat.put(SpellingListStatTable.Cols.LIST_ID, listId);
+        stat.put(SpellingListStatTable.Cols.DATE, 1000L);
+        stat.put(SpellingListStatTable.Cols.ELAPSED_TIME, elapsedTime);
+        stat.put(SpellingListStatTable.Cols.NUMBER_CORRECT, numberCorrect);
+        stat.put(SpellingListStatTable.Cols.NUMBER_INCORRECT, numberIncorrect);
+        mDb.insert(SpellingListStatTable.NAME, null, stat);
+
+        double score = StatSummaries.score(numberCorrect, numberIncorrect);
+        addToSummary(StatSummaries.SQL_INSERT_LIST, StatSummaries.SQL_UPDATE_LIST, listId, numberCorrect,
+                numberIncorrect, score, elapsedTime);
+        addToSummary(StatSummaries.SQL_INSERT_USER, StatSummaries.SQL_UPDATE_USER, listId, numberCorrect,
+                numberIncorrect, score, elapsedTime);
+    }
+
+    /**
+     * Private method to add a stat to one summary table:  create the row if it isn't there, then update it.
+     */
+    private void addToSummary(String insert, String update, long listId, int numberCorrect, int numberIncorrect,
+                              double score, long elapsedTime) {
+        SQLiteStatement statement = mDb.compileStatement(insert);
+        try {
+            statement.bindLong(1, listId);
+            statement.execute();
+        } finally {
+            statement.close();
+        }
+        statement = mDb.compileStatement(update);
+        try {
+            statement.bindLong(1, numberCorrect);
+            statement.bindLong(2, numberIncorrect);
+            statement.bindDouble(3, score);
+            statement.bindDouble(4, score);
+            statement.bindLong(5, elapsedTime);
+            statement.bindLong(6, listId);
+            statement.execute();
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Private method to add a spelling list.
+     * @param name the list's name.
+     * @param userId the id of the user it belongs to (or null for none).
+     * @return the new list's id.
+     */
+    private long addList(String name, Long userId) {
+        ContentValues values = new ContentValues();
+        values.put(SpellingListTable.Cols.NAME, name);
+        if (userId == null) {
+            values.putNull(SpellingListTable.Cols.USER_ID);
+        } else {
+            values.put(SpellingListTable.Cols.USER_ID, userId);
+        }
+        return mDb.insert(SpellingListTable.NAME, null, values);
+    }
+
+    private long getCount(String table) {
+        return DatabaseUtils.queryNumEntries(mDb, table);
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Filename:  AttemptLogBenchmark.java
+ * Author:  Team SpellTest
+ * Date:  25 May 2019
+ *
+ * Purpose:  Instrumented benchmark for writing the word attempt log.  It writes two million attempts the
+ * way AsyncDataStore does:  each attempt is added to an AttemptRingBuffer, and the buffer is drained in
+ * batches of 256, each written in one transaction with DataStore.putWordAttempts().  The rate is measured
+ * for every quarter of a million attempts, so it shows whether writes keep up as the table (and its
+ * indexes) grow, and not just how fast the first batches go.
+ *
+ * The results are written to the log (tag "AttemptLogBench").
+ */
+
+package com.example.spelltest;
+
+import android.database.DatabaseUtils;
+import android.os.SystemClock;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.example.database.DatabaseSchema;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class AttemptLogBenchmark {
+
+    //Class variables
+    private static final String TAG = "AttemptLogBench";
+    private static final String DATABASE_NAME = "attempt_log_benchmark.db";
+    private static final int ATTEMPT_COUNT = 2000000;   //Attempts written in total.
+    private static final int REPORT_EVERY = 250000;     //Attempts written between each report of the rate.
+    private static final int BATCH_SIZE = 256;          //Attempts written per transaction (as AsyncDataStore does).
+    private static final int LIST_COUNT = 20;
+    private static final int WORDS_PER_LIST = 50;
+    private static final int MIN_RATE_KEPT = 2;         //The last rate may be at most this many times slower than the first.
+
+    //Instance variables
+    private BenchmarkDatabase mDatabase;
+    private final ArrayList<Objects.Word> mWords = new ArrayList<>();
+    private final Random mRandom = new Random(1);
+
+    @Before
+    public void setUp() {
+        mDatabase = new BenchmarkDatabase(DATABASE_NAME, true);
+        for (int i = 0; i < LIST_COUNT; i++) {
+            mWords.addAll(mDatabase.addList(WORDS_PER_LIST));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+    }
+
+    /**
+     * The benchmark itself.
+     */
+    @Test
+    public void writeRateHoldsUp() {
+
+        DataStore store = mDatabase.getDataStore();
+        AttemptRingBuffer buffer = new AttemptRingBuffer(BATCH_SIZE);
+        Objects.WordAttempt[] batch = new Objects.WordAttempt[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch[i] = new Objects.WordAttempt(DataStore.NULL_ROW_ID, 0, DataStore.NULL_ROW_ID, null, false, 0, 0);
+        }
+
+        double firstRate = 0;
+        double lastRate = 0;
+        long sessionId = System.currentTimeMillis();
+        long start = SystemClock.elapsedRealtimeNanos();
+        int reported = 0;                               //Attempts written at the last report.
+
+        for (int written = 0; written < ATTEMPT_COUNT; ) {
+
+            //Record a batch of answers, and write them out.
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                Objects.Word word = mWords.get(mRandom.nextInt(mWords.size()));
+                boolean correct = mRandom.nextInt(3) != 0;
+                buffer.add(sessionId, word.id, correct ? word.spelling : word.spelling + "e", correct,
+                        correct ? 0 : 1, AnswerGrader.ERROR_NONE, 2000, sessionId + written + i);
+            }
+            int count;
+            while ((count = buffer.drain(batch)) > 0) {
+                store.putWordAttempts(batch, count);
+                written += count;
+            }
+
+            //Report the rate every so often.
+            if (written - reported >= REPORT_EVERY || written >= ATTEMPT_COUNT) {
+                long now = SystemClock.elapsedRealtimeNanos();
+                lastRate = (written - reported) * 1e9 / (now - start);
+                if (firstRate == 0) firstRate = lastRate;
+                Log.i(TAG, String.format(Locale.US, "%,d attempts written:  %,.0f attempts/s", written, lastRate));
+                start = now;
+                reported = written;
+                sessionId++;
+            }
+        }
+
+        assertEquals(reported, DatabaseUtils.queryNumEntries(mDatabase.getDatabase(),
+                DatabaseSchema.WordAttemptTable.NAME));
+        assertTrue("Writes slowed from " + firstRate + " to " + lastRate + " attempts/s",
+                lastRate * MIN_RATE_KEPT > firstRate);
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Filename:  BenchmarkDatabase.java
+ * Author:  Team SpellTest
+ * Date:  24 May 2019
+ *
+ * Purpose:  This class sets up a DataStore on a database of its own for the instrumented benchmarks, so that
+ * they never touch the app's own database, and fills it with made-up users, lists and words.  The database
+ * file is deleted again by close().
+ */
+
+package com.example.spelltest;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.test.InstrumentationRegistry;
+
+import com.example.database.DatabaseHelper;
+
+import java.util.ArrayList;
+
+public class BenchmarkDatabase {
+
+    //Instance variables
+    private final Context mContext;
+    private final String mName;                         //Name of the database file.
+    private final DatabaseHelper mHelper;
+    private final DataStore mDataStore;
+    private long mUserId = DataStore.NULL_ROW_ID;       //The user the lists belong to.
+
+    /**
+     * Class constructor.  Any database left over from an earlier run is deleted first.
+     * @param name the name of the database file.
+     * @param writeAheadLog true to open the database in write-ahead-log mode (as the app does), false to
+     *                      use the default rollback journal.
+     */
+    public BenchmarkDatabase(String name, boolean writeAheadLog) {
+        mContext = InstrumentationRegistry.getTargetContext();
+        mName = name;
+        mContext.deleteDatabase(name);
+        mHelper = new DatabaseHelper(mContext, name);
+        mHelper.setWriteAheadLoggingEnabled(writeAheadLog);
+        mDataStore = new DataStore(mHelper);
+    }
+
+    public DataStore getDataStore() {
+        return mDataStore;
+    }
+
+    public SQLiteDatabase getDatabase() {
+        return mHelper.getWritableDatabase();
+    }
+
+    public long getUserId() {
+        return mUserId;
+    }
+
+    /**
+     * Public method to add a spelling list of made-up words, owned by the benchmark's user.
+     * @param wordCount the number of words in the list.
+     * @return the words, with their ids filled in.
+     */
+    public ArrayList<Objects.Word> addList(int wordCount) {
+
+        if (mUserId == DataStore.NULL_ROW_ID) {
+            mUserId = mDataStore.putUser(new Objects.User(DataStore.NULL_ROW_ID, "Benchmark", "User"));
+        }
+
+        ArrayList<Objects.Word> words = new ArrayList<>(wordCount);
+        for (int i = 0; i < wordCount; i++) {
+            words.add(new Objects.Word(DataStore.NULL_ROW_ID, DataStore.NULL_ROW_ID, "word" + i));
+        }
+        mDataStore.putSpellingList(new Objects.SpellingList(DataStore.NULL_ROW_ID, "Benchmark", mUserId), words, null);
+        return words;
+    }
+
+    /**
+     * Public method to close the database and delete it.
+     */
+    public void close() {
+        mHelper.close();
+        mContext.deleteDatabase(mName);
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Filename:  ConcurrentReadBenchmark.java
+ * Author:  Team SpellTest
+ * Date:  24 May 2019
+ *
+ * Purpose:  Instrumented benchmark for opening the database in write-ahead-log mode.  A writer thread keeps
+ * writing word attempts and test results (as the end of a test does), while 1, 2, 4 ... reader threads
+ * (up to the number of cores) run stats queries (as the stats and list screens do).  It measures how many
+ * reads and writes get done a second, first in write-ahead-log mode and then with the default rollback
+ * journal for comparison.  In write-ahead-log mode, reads go to separate pooled connections and don't wait
+ * for the writer, so reads a second should go up with the number of readers, and the writer should keep
+ * going at the same time.
+ *
+ * The results are written to the log (tag "ConcurrentReadBench").
+ */
+
+package com.example.spelltest;
+
+import android.os.SystemClock;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class ConcurrentReadBenchmark {
+
+    //Class variables
+    private static final String TAG = "ConcurrentReadBench";
+    private static final String DATABASE_NAME = "concurrent_read_benchmark.db";
+    private static final int LIST_COUNT = 20;
+    private static final int WORDS_PER_LIST = 100;
+    private static final int HISTORY_SIZE = 100000;     //Word attempts in the database before timing starts.
+    private static final int BATCH_SIZE = 64;           //Word attempts written per transaction.
+    private static final long RUN_TIME = 2000;          //Time (in ms) each combination is run for.
+
+    //Instance variables
+    private final Random mRandom = new Random(1);
+    private ArrayList<ArrayList<Objects.Word>> mLists;  //The words in each list.
+
+    /**
+     * The benchmark itself.
+     */
+    @Test
+    public void readersScaleWhileWriterIsActive() throws InterruptedException {
+
+        int maxReaders = Math.max(2, Runtime.getRuntime().availableProcessors());
+        for (boolean writeAheadLog : new boolean[] {true, false}) {
+
+            BenchmarkDatabase database = new BenchmarkDatabase(DATABASE_NAME, writeAheadLog);
+            try {
+                fill(database);
+                for (int readers = 1; readers <= maxReaders; readers *= 2) {
+                    long[] counts = run(database, readers);
+                    Log.i(TAG, String.format(Locale.US, "%s, %d readers:  %,.0f reads/s, %,.0f attempts written/s",
+                            writeAheadLog ? "Write-ahead log" : "Rollback journal", readers,
+                            counts[0] * 1000.0 / RUN_TIME, counts[1] * 1000.0 / RUN_TIME));
+
+                    //Neither side should be shut out by the other.
+                    if (writeAheadLog) {
+                        assertTrue("No reads done", counts[0] > 0);
+                        assertTrue("No writes done", counts[1] > 0);
+                    }
+                }
+            } finally {
+                database.close();
+            }
+        }
+    }
+
+    /**
+     * Private method to add the lists, and a history of word attempts at their words.
+     * @param database the database.
+     */
+    private void fill(BenchmarkDatabase database) {
+
+        mLists = new ArrayList<>(LIST_COUNT);
+        for (int i = 0; i < LIST_COUNT; i++) {
+            mLists.add(database.addList(WORDS_PER_LIST));
+        }
+
+        Objects.WordAttempt[] batch = newBatch();
+        for (int written = 0; written < HISTORY_SIZE; written += BATCH_SIZE) {
+            fillBatch(batch);
+            database.getDataStore().putWordAttempts(batch, BATCH_SIZE);
+        }
+    }
+
+    /**
+     * Private method to run the readers and the writer together for RUN_TIME.
+     * @param database the database.
+     * @param readers the number of reader threads.
+     * @return the number of reads done, and the number of word attempts written.
+     */
+    private long[] run(final BenchmarkDatabase database, int readers) throws InterruptedException {
+
+        final DataStore store = database.getDataStore();
+        final long end = SystemClock.elapsedRealtime() + RUN_TIME;
+        final AtomicLong reads = new AtomicLong();
+        final AtomicLong writes = new AtomicLong();
+
+        //The writer - batches of attempts, and a test result after every few batches.
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Objects.WordAttempt[] batch = newBatch();
+                int batches = 0;
+                while (SystemClock.elapsedRealtime() < end) {
+                    fillBatch(batch);
+                    store.putWordAttempts(batch, BATCH_SIZE);
+                    writes.addAndGet(BATCH_SIZE);
+                    if (++batches % 4 == 0) {
+                        long listId = mLists.get(0).get(0).list_id;
+                        store.putSpellingListStat(new Objects.SpellingListStat(DataStore.NULL_ROW_ID, listId,
+                                System.currentTimeMillis(), 60000, 15, 5));
+                    }
+                }
+            }
+        });
+
+        //The readers - the stats for a whole list, and for one user and word.
+        Thread[] threads = new Thread[readers];
+        for (int i = 0; i < readers; i++) {
+            final Random random = new Random(i);
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long count = 0;
+                    while (SystemClock.elapsedRealtime() < end) {
+                        ArrayList<Objects.Word> words = mLists.get(random.nextInt(LIST_COUNT));
+                        store.getWordStats(words.get(0).list_id);
+                        store.getUserWordStat(database.getUserId(), words.get(random.nextInt(words.size())).id);
+                        count += 2;
+                    }
+                    reads.addAndGet(count);
+                }
+            });
+        }
+
+        writer.start();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        writer.join();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return new long[] {reads.get(), writes.get()};
+    }
+
+    /**
+     * Private method to create a batch of attempt objects.
+     */
+    private static Objects.WordAttempt[] newBatch() {
+        Objects.WordAttempt[] batch = new Objects.WordAttempt[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch[i] = new Objects.WordAttempt(DataStore.NULL_ROW_ID, 0, DataStore.NULL_ROW_ID, null, false, 0, 0);
+        }
+        return batch;
+    }
+
+    /**
+     * Private method to fill a batch with attempts at random words.  About two thirds are right.
+     */
+    private void fillBatch(Objects.WordAttempt[] batch) {
+        long now = System.currentTimeMillis();
+        for (Objects.WordAttempt attempt : batch) {
+            ArrayList<Objects.Word> words = mLists.get(mRandom.nextInt(LIST_COUNT));
+            Objects.Word word = words.get(mRandom.nextInt(words.size()));
+            attempt.sessionId = now;
+            attempt.wordId = word.id;
+            attempt.correct = mRandom.nextInt(3) != 0;
+            attempt.typedText = attempt.correct ? word.spelling : word.spelling + "e";
+            attempt.responseTime = 2000;
+            attempt.timestamp = now;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Filename:  CursorMappingBenchmark.java
+ * Author:  Team SpellTest
+ * Date:  24 May 2019
+ *
+ * Purpose:  Instrumented microbenchmark for reading words out of a cursor.  It reads a list of 100,000 words
+ * four ways:
+ *   - the original way, looking up each column index by name on every row and creating a Word for each,
+ *   - DataStore.getWords() into a new ArrayList (column indexes looked up once per cursor),
+ *   - DataStore.getWords() into an ArrayList from the last read, re-using its Word objects, and
+ *   - DataStore.forEachWord(), which fills in a single Word object for every row.
+ * All four run the same query, so the difference is just the cost of turning rows into objects.
+ *
+ * The results are written to the log (tag "CursorMappingBench").
+ */
+
+package com.example.spelltest;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.example.database.DatabaseSchema;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class CursorMappingBenchmark {
+
+    //Class variables
+    private static final String TAG = "CursorMappingBench";
+    private static final String DATABASE_NAME = "cursor_mapping_benchmark.db";
+    private static final int WORD_COUNT = 100000;
+    private static final int RUNS = 5;                  //Timed runs of each way (the fastest is reported).
+
+    //The query DataStore runs for the words in a list.
+    private static final String SQL_GET_WORDS = "SELECT " + DatabaseSchema.WordTable.Cols.ID + ", " +
+            DatabaseSchema.WordTable.Cols.LIST_ID + ", " + DatabaseSchema.WordTable.Cols.SPELLING + " FROM " +
+            DatabaseSchema.WordTable.NAME + " WHERE " + DatabaseSchema.WordTable.Cols.LIST_ID + "=?" +
+            " ORDER BY " + DatabaseSchema.WordTable.Cols.ID;
+
+    //Instance variables
+    private BenchmarkDatabase mDatabase;
+    private long mListId;
+    private int mCount;                                 //Words read by the last run (so the work can't be skipped).
+
+    @Before
+    public void setUp() {
+        mDatabase = new BenchmarkDatabase(DATABASE_NAME, true);
+        mListId = mDatabase.addList(WORD_COUNT).get(0).list_id;
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+    }
+
+    /**
+     * The benchmark itself.
+     */
+    @Test
+    public void compareMappings() {
+
+        final DataStore store = mDatabase.getDataStore();
+        final SQLiteDatabase db = mDatabase.getDatabase();
+        final ArrayList<Objects.Word> reused = new ArrayList<>();
+
+        time("Column indexes looked up on every row", new Runnable() {
+            @Override
+            public void run() {
+                mCount = readWordsByName(db).size();
+            }
+        });
+        time("getWords() into a new list", new Runnable() {
+            @Override
+            public void run() {
+                mCount = store.getWords(mListId, new ArrayList<Objects.Word>()).size();
+            }
+        });
+        time("getWords() re-using the Word objects", new Runnable() {
+            @Override
+            public void run() {
+                mCount = store.getWords(mListId, reused).size();
+            }
+        });
+        time("forEachWord()", new Runnable() {
+            @Override
+            public void run() {
+                mCount = 0;
+                store.forEachWord(mListId, new DataStore.WordVisitor() {
+                    @Override
+                    public void visit(Objects.Word word) {
+                        mCount++;
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Private method to time one way of reading the words, and log the result.
+     * @param name the name of the method (for the log).
+     * @param read reads the words once.
+     */
+    private void time(String name, Runnable read) {
+
+        read.run();                                     //Untimed, to warm up.
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            read.run();
+            best = Math.min(best, SystemClock.elapsedRealtimeNanos() - start);
+            assertEquals(name, WORD_COUNT, mCount);
+        }
+        Log.i(TAG, String.format(Locale.US, "%s:  %,.0f words/s (%.0f ns each)", name,
+                WORD_COUNT * 1e9 / best, (double) best / WORD_COUNT));
+    }
+
+    /**
+     * Private method to read the words the way DataStore originally did, looking up each column index by
+     * name on every row and creating a new Word object for each one.
+     * @param db the database.
+     * @return the words.
+     */
+    private ArrayList<Objects.Word> readWordsByName(SQLiteDatabase db) {
+
+        ArrayList<Objects.Word> output = new ArrayList<>();
+        Cursor cursor = db.rawQuery(SQL_GET_WORDS, new String[] { Long.toString(mListId) });
+        try {
+            cursor.moveToFirst();
+            while (!cursor.isAfterLast()) {
+                int columnIndexId = cursor.getColumnIndex(DatabaseSchema.WordTable.Cols.ID);
+                int columnIndexSpelling = cursor.getColumnIndex(DatabaseSchema.WordTable.Cols.SPELLING);
+                int columnIndexListId = cursor.getColumnIndex(DatabaseSchema.WordTable.Cols.LIST_ID);
+                output.add(new Objects.Word(cursor.getLong(columnIndexId), cursor.getLong(columnIndexListId),
+                        cursor.getString(columnIndexSpelling)));
+                cursor.moveToNext();
+            }
+        } finally {
+            cursor.close();
+        }
+        return output;
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * Filename:  StatementCacheBenchmark.java
+ * Author:  Team SpellTest
+ * Date:  25 May 2019
+ *
+ * Purpose:  Instrumented benchmark for binding query arguments instead of building them into the SQL.  It
+ * runs the lookups behind DataStore.getWords(), getSpellingList() and countWords() over and over, for a
+ * different list each time, two ways:
+ *   - the original way, with the list id concatenated into the SQL, so every call is a new SQL string
+ *     that SQLite has to parse and plan again, and
+ *   - the way DataStore does it now, with a ? placeholder and a bound argument.  The cursor queries then
+ *     re-use the prepared statement SQLite keeps for each connection, and the word count re-uses the
+ *     statement compiled once by a StatementCache.
+ * The lookups are run on the database directly, because DataStore keeps the words and lists it has read
+ * in its own caches, which would hide the cost of the queries.
+ *
+ * The results are written to the log (tag "StatementCacheBench").
+ */
+
+package com.example.spelltest;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.example.database.DatabaseSchema.SpellingListTable;
+import com.example.database.DatabaseSchema.WordTable;
+import com.example.database.StatementCache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class StatementCacheBenchmark {
+
+    //Class variables
+    private static final String TAG = "StatementCacheBench";
+    private static final String DATABASE_NAME = "statement_cache_benchmark.db";
+    private static final int LIST_COUNT = 500;
+    private static final int WORDS_PER_LIST = 20;
+    private static final int CALLS = 10000;             //Lookups timed for each way (cycling through the lists).
+    private static final int RUNS = 3;                  //Timed runs of each way (the fastest is reported).
+
+    //The lookups, as DataStore runs them.  The concatenated versions have the list id added to the end.
+    private static final String SQL_GET_WORDS = "SELECT " + WordTable.Cols.ID + ", " + WordTable.Cols.LIST_ID +
+            ", " + WordTable.Cols.SPELLING + " FROM " + WordTable.NAME + " WHERE " + WordTable.Cols.LIST_ID + "=";
+    private static final String SQL_GET_SPELLING_LIST = "SELECT " + SpellingListTable.Cols.ID + ", " +
+            SpellingListTable.Cols.NAME + ", " + SpellingListTable.Cols.USER_ID + ", " +
+            SpellingListTable.Cols.WORD_ORDER + " FROM " + SpellingListTable.NAME + " WHERE " +
+            SpellingListTable.Cols.ID + "=";
+    private static final String SQL_COUNT_WORDS = "SELECT COUNT(*) FROM " + WordTable.NAME + " WHERE " +
+            WordTable.Cols.LIST_ID + "=";
+
+    //Instance variables
+    private BenchmarkDatabase mDatabase;
+    private long[] mListIds;
+    private long mRows;                                 //Rows read by the last run (so the work can't be skipped).
+
+    @Before
+    public void setUp() {
+        mDatabase = new BenchmarkDatabase(DATABASE_NAME, true);
+        mListIds = new long[LIST_COUNT];
+        for (int i = 0; i < LIST_COUNT; i++) {
+            mListIds[i] = mDatabase.addList(WORDS_PER_LIST).get(0).list_id;
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+    }
+
+    /**
+     * The benchmark itself.
+     */
+    @Test
+    public void boundArgumentsSkipThePrepare() {
+
+        SQLiteDatabase db = mDatabase.getDatabase();
+        StatementCache statements = new StatementCache(db);
+        long concatenatedTotal = 0;
+        long boundTotal = 0;
+
+        try {
+            for (String sql : new String[] {SQL_GET_WORDS, SQL_GET_SPELLING_LIST}) {
+                long concatenated = Long.MAX_VALUE;
+                long bound = Long.MAX_VALUE;
+                for (int run = 0; run < RUNS; run++) {
+                    concatenated = Math.min(concatenated, timeQuery(db, sql, false));
+                    assertEquals(expectedRows(sql), mRows);
+                    bound = Math.min(bound, timeQuery(db, sql, true));
+                    assertEquals(expectedRows(sql), mRows);
+                }
+                log(sql == SQL_GET_WORDS ? "Words in a list" : "Spelling list", concatenated, bound);
+                concatenatedTotal += concatenated;
+                boundTotal += bound;
+            }
+
+            long concatenated = Long.MAX_VALUE;
+            long bound = Long.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                concatenated = Math.min(concatenated, timeCount(db, null));
+                assertEquals((long) CALLS * WORDS_PER_LIST, mRows);
+                bound = Math.min(bound, timeCount(db, statements));
+                assertEquals((long) CALLS * WORDS_PER_LIST, mRows);
+            }
+            log("Word count", concatenated, bound);
+            concatenatedTotal += concatenated;
+            boundTotal += bound;
+        } finally {
+            statements.close();
+        }
+
+        assertTrue("Bound arguments were slower", boundTotal < concatenatedTotal);
+    }
+
+    /**
+     * Private method to time a cursor query for each list in turn.
+     * @param db the database.
+     * @param sql the query, without the list id.
+     * @param bind true to bind the list id, false to add it to the SQL.
+     * @return the time taken, in nanoseconds.
+     */
+    private long timeQuery(SQLiteDatabase db, String sql, boolean bind) {
+
+        String boundSql = sql + "?";
+        String[] args = new String[1];
+        long rows = 0;
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < CALLS; i++) {
+            long listId = mListIds[i % LIST_COUNT];
+            Cursor cursor;
+            if (bind) {
+                args[0] = Long.toString(listId);
+                cursor = db.rawQuery(boundSql, args);
+            } else {
+                cursor = db.rawQuery(sql + listId, null);
+            }
+            try {
+                while (cursor.moveToNext()) {
+                    cursor.getLong(0);
+                    rows++;
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        long time = SystemClock.elapsedRealtimeNanos() - start;
+        mRows = rows;
+        return time;
+    }
+
+    /**
+     * Private method to time counting the words in each list in turn.
+     * @param db the database.
+     * @param statements the statement cache to use, or null to compile a new statement (with the list id
+     *                   added to the SQL) for every call, as the original code did.
+     * @return the time taken, in nanoseconds.
+     */
+    private long timeCount(SQLiteDatabase db, StatementCache statements) {
+
+        long rows = 0;
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < CALLS; i++) {
+            long listId = mListIds[i % LIST_COUNT];
+            if (statements != null) {
+                SQLiteStatement statement = statements.get(SQL_COUNT_WORDS + "?");
+                synchronized (statement) {
+                    statement.bindLong(1, listId);
+                    rows += statement.simpleQueryForLong();
+                }
+            } else {
+                SQLiteStatement statement = db.compileStatement(SQL_COUNT_WORDS + listId);
+                try {
+                    rows += statement.simpleQueryForLong();
+                } finally {
+                    statement.close();
+                }
+            }
+        }
+        long time = SystemClock.elapsedRealtimeNanos() - start;
+        mRows = rows;
+        return time;
+    }
+
+    /**
+     * Private method to work out how many rows a run of a query should read.
+     */
+    private static long expectedRows(String sql) {
+        return (sql == SQL_GET_WORDS) ? (long) CALLS * WORDS_PER_LIST : CALLS;
+    }
+
+    private static void log(String name, long concatenated, long bound) {
+        Log.i(TAG, String.format(Locale.US, "%s:  concatenated %.1f us a call, bound %.1f us a call (%.1fx)",
+                name, concatenated / 1000.0 / CALLS, bound / 1000.0 / CALLS, (double) concatenated / bound));
+    }
+}
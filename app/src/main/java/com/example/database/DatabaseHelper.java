@@ -26,17 +26,17 @@ import com.example.spelltest.DataStore;
 public class DatabaseHelper extends SQLiteOpenHelper {
 
     //Private static variables
-    private static final int VERSION = 1;                           //Database version
+    private static final int VERSION = Migrations.LATEST_VERSION;   //Database version (see the Migrations class)
     private static final String DATABASE_NAME = "spellTest.db";     //Database name on device
     private static final String COMMA = ", ";                       //Comma (used in SQL inserts / queries
 
-    //Public static variables for difficulty (not implemented in this version of app)
+    //Public static variables for difficulty (words are sorted into these by the DifficultyCalibrator class)
     public static final String DIFFICULTY_EASY = "Easy";
     public static final String DIFFICULTY_MEDIUM = "Medium";
     public static final String DIFFICULTY_HARD = "Hard";
 
-    //Private member variables for difficulty (not used for this app).
-    //Note that this file will assign "real" ID's to these values at application startup
+    //Private member variables for difficulty.
+    //Note that this file will assign "real" ID's to these values when the database is opened
     private long id_difficulty_easy = DataStore.NULL_ROW_ID;
     private long id_difficulty_medium = DataStore.NULL_ROW_ID;
     private long id_difficulty_hard = DataStore.NULL_ROW_ID;
@@ -47,65 +47,43 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @param context The context to which this database is attached.
      */
     public DatabaseHelper (Context context){
+        this(context, DATABASE_NAME);
+    }
 
-        //Call super version of constructor.  This method will call onCreate() if the database cannot be located.
-        //So, after this call, we can assume that the database exists.
-        super (context, DATABASE_NAME, null, VERSION);
-
-        /**
-         * When the database is created, we assign values to the difficulty id's.  However, if the
-         * application database is already created at startup, we enter this code to pull the correct
-         * ID values from the database./
-         */
-        if (id_difficulty_easy == DataStore.NULL_ROW_ID){
-            //Get access to the database to seach for ID's
-            SQLiteDatabase db = getReadableDatabase();
-
-            //Search for the difficulty name (ie "Easy") and put the single result into a Cursor.
-            Cursor cursor = db.query(
-                    DifficultyTable.NAME,
-                    null,
-                    DifficultyTable.Cols.DESCRIPTION + "=" + "'" + DIFFICULTY_EASY + "'",
-                    null,
-                    null,
-                    null,
-                    null
-            );
-
-            //Extract the (single) value we want from the cursor.
-            cursor.moveToFirst();
-            id_difficulty_easy = cursor.getInt(0);
-
-            //Search for the difficulty name (ie "Medium") and put the single result into a Cursor.
-            cursor = db.query(
-                    DifficultyTable.NAME,
-                    null,
-                    DifficultyTable.Cols.DESCRIPTION + "=" + "'" + DIFFICULTY_MEDIUM + "'",
-                    null,
-                    null,
-                    null,
-                    null
-            );
-
-            //Extract the (single) value we want from the cursor.
-            cursor.moveToFirst();
-            id_difficulty_medium = cursor.getInt(0);
-
-            //Search for the difficulty name (ie "Medium") and put the single result into a Cursor.
-            cursor = db.query(
-                    DifficultyTable.NAME,
-                    null,
-                    DifficultyTable.Cols.DESCRIPTION + "=" + "'" + DIFFICULTY_HARD + "'",
-                    null,
-                    null,
-                    null,
-                    null
-            );
-
-            //Extract the (single) value we want from the cursor
-            cursor.moveToFirst();
-            id_difficulty_hard = cursor.getInt(0);
-        }
+    /**
+     * Class constructor for a database with a different name.  This is used by the instrumented tests and
+     * benchmarks, so that they never touch the app's own database.
+     * @param context The context to which this database is attached.
+     * @param name The name of the database file.
+     */
+    public DatabaseHelper (Context context, String name){
+
+        //Call super version of constructor.  This doesn't open the database yet - that happens the first time
+        //it is used, which is when onCreate() is called if the database cannot be located (or onUpgrade(), if
+        //it is out of date), and then onOpen(), which looks up the difficulty ids.
+        super (context, name, null, VERSION);
+
+        //Open the database in write-ahead-log mode.  This lets reads run at the same time as a write
+        //(and at the same time as each other, on separate pooled connections), instead of every reader
+        //and writer blocking each other as they do with the default rollback journal.
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /**
+     * The following public methods return the ids of the Easy, Medium and Hard rows of the difficulty
+     * table (see DifficultyCalibrator, which sorts the words into them).  They are only valid once the
+     * database has been opened.
+     */
+    public long getEasyDifficultyId() {
+        return id_difficulty_easy;
+    }
+
+    public long getMediumDifficultyId() {
+        return id_difficulty_medium;
+    }
+
+    public long getHardDifficultyId() {
+        return id_difficulty_hard;
     }
 
     /**
@@ -118,6 +96,21 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     @Override
     public void onCreate(SQLiteDatabase sqLiteDatabase) {
 
+        //Build the original (version 1) database, and then bring it up to date by running all of the upgrade steps.
+        createBaseVersion(sqLiteDatabase);
+        Migrations.migrate(sqLiteDatabase, Migrations.BASE_VERSION, VERSION);
+    }
+
+    /**
+     * Method that builds the original (version 1) database - the tables, and the basic data in them.
+     * Every later version is reached from this one by the steps in the Migrations class.  This is kept
+     * separate from onCreate() so that the tests can build a version 1 database and upgrade it a step at
+     * a time.
+     *
+     * @param sqLiteDatabase  the empty database to build.
+     */
+    void createBaseVersion(SQLiteDatabase sqLiteDatabase) {
+
         //Create the user name table
         sqLiteDatabase.execSQL("create table " + UserTable.NAME + "(" +
                 UserTable.Cols.ID + " integer primary key autoincrement, " +
@@ -225,7 +218,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     /**
      * Called by the class constructor if the database version passed to the constructor does not
      * match the database version in memory.  This allows us to upgrade the database if needed.
-     * Since this is the very first iteration of the application, we will leave this blank.
+     * The actual upgrade steps live in the Migrations class, and are run in order.
      *
      *
      * @param sqLiteDatabase
@@ -234,7 +227,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      */
     @Override
     public void onUpgrade(SQLiteDatabase sqLiteDatabase, int i, int i1) {
-
+        Migrations.migrate(sqLiteDatabase, i, i1);
     }
 
     /**
@@ -251,4 +244,44 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.setForeignKeyConstraintsEnabled(true);
 
     }
+
+    /**
+     * Method that is called by the Android OS once the database has been opened (and created or upgraded,
+     * if needed).  If the database was just created, onCreate() has already assigned the difficulty ids.
+     * Otherwise we pull them from the database here, with a single query for all three.
+     *
+     * @param db is a reference to the open database.
+     */
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        if (id_difficulty_easy != DataStore.NULL_ROW_ID) return;
+
+        Cursor cursor = db.query(
+                DifficultyTable.NAME,
+                new String[] { DifficultyTable.Cols.ID, DifficultyTable.Cols.DESCRIPTION },
+                DifficultyTable.Cols.DESCRIPTION + " IN (?, ?, ?)",
+                new String[] { DIFFICULTY_EASY, DIFFICULTY_MEDIUM, DIFFICULTY_HARD },
+                null,
+                null,
+                null
+        );
+
+        //Match each row up with its difficulty.
+        try {
+            while (cursor.moveToNext()) {
+                long id = cursor.getLong(0);
+                String description = cursor.getString(1);
+                if (DIFFICULTY_EASY.equals(description)) {
+                    id_difficulty_easy = id;
+                } else if (DIFFICULTY_MEDIUM.equals(description)) {
+                    id_difficulty_medium = id;
+                } else if (DIFFICULTY_HARD.equals(description)) {
+                    id_difficulty_hard = id;
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+    }
 }
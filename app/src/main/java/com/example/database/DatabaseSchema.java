@@ -30,6 +30,8 @@ public class DatabaseSchema {
 
     public static final class WordTable {
         public static final String NAME = "word";
+        public static final String INDEX_LIST_ID = "word_list_id_index";
+        public static final String INDEX_PHONETIC_KEY = "word_phonetic_key_index";
 
         public static final class Cols {
             public static final String ID = "word_id";
@@ -39,6 +41,7 @@ public class DatabaseSchema {
             public static final String EXAMPLE_SENTENCE = "example_sentence";
             public static final String DIFFICULTY_ID = "difficulty_id";
             public static final String TYPE = "type";
+            public static final String PHONETIC_KEY = "phonetic_key";
         }
     }
 
@@ -53,6 +56,7 @@ public class DatabaseSchema {
 
     public static final class SpellingListTable {
         public static final String NAME = "spellingList";
+        public static final String INDEX_USER_ID = "spellingList_user_id_index";
 
         public static final class Cols {
             public static final String ID = "spelling_list_id";
@@ -60,11 +64,13 @@ public class DatabaseSchema {
             public static final String NAME = "name";
             public static final String TYPE = "type";
             public static final String DIFFICULTY_ID = "difficulty_id";
+            public static final String WORD_ORDER = "word_order";
         }
     }
 
     public static final class SpellingListStatTable {
         public static final String NAME = "spellingListStats";
+        public static final String INDEX_LIST_ID = "spellingListStats_list_id_index";
 
         public static final class Cols {
             public static final String ID = "spelling_list_stat_id";
@@ -73,44 +79,145 @@ public class DatabaseSchema {
             public static final String ELAPSED_TIME = "elapsed_time";
             public static final String NUMBER_CORRECT = "numberCorrect";
             public static final String NUMBER_INCORRECT = "numberIncorrect";
+            public static final String ABILITY = "ability";
+            public static final String ABILITY_STANDARD_ERROR = "ability_standard_error";
+            public static final String CREDIT = "credit";
 
         }
     }
 
+    public static final class WordAttemptTable {
+        public static final String NAME = "word_attempt";
+        public static final String INDEX_WORD_ID = "word_attempt_word_id_index";
+        public static final String INDEX_WORD_PHONETIC_KEY = "word_attempt_word_phonetic_key_index";
+        public static final String INDEX_UNKEYED = "word_attempt_unkeyed_index";
 
+        public static final class Cols {
+            public static final String ID = "attempt_id";
+            public static final String SESSION_ID = "session_id";
+            public static final String WORD_ID = "word_id";
+            public static final String TYPED_TEXT = "typed_text";
+            public static final String CORRECT = "correct";
+            public static final String RESPONSE_TIME = "response_time";
+            public static final String TIMESTAMP = "timestamp";
+            public static final String EDIT_DISTANCE = "edit_distance";
+            public static final String ERROR_TYPE = "error_type";
+            public static final String PHONETIC_KEY = "phonetic_key";
+        }
+    }
+
+    public static final class ListSummaryTable {
+        public static final String NAME = "list_summary";
+
+        public static final class Cols {
+            public static final String LIST_ID = "list_id";
+            public static final String TEST_COUNT = "test_count";
+            public static final String TOTAL_CORRECT = "total_correct";
+            public static final String TOTAL_INCORRECT = "total_incorrect";
+            public static final String BEST_SCORE = "best_score";
+            public static final String SCORE_SUM = "score_sum";
+            public static final String TOTAL_ELAPSED_TIME = "total_elapsed_time";
+        }
+    }
+
+    public static final class UserSummaryTable {
+        public static final String NAME = "user_summary";
+
+        public static final class Cols {
+            public static final String USER_ID = "user_id";
+            public static final String TEST_COUNT = "test_count";
+            public static final String TOTAL_CORRECT = "total_correct";
+            public static final String TOTAL_INCORRECT = "total_incorrect";
+            public static final String BEST_SCORE = "best_score";
+            public static final String SCORE_SUM = "score_sum";
+            public static final String TOTAL_ELAPSED_TIME = "total_elapsed_time";
+        }
+    }
+
+    public static final class UserStatTable {
+        public static final String NAME = "user_stat";
+        public static final String INDEX_USER_ID = "user_stat_user_id_index";
+
+        public static final class Cols {
+            public static final String ID = "user_stat_id";
+            public static final String USER_ID = "user_id";
+            public static final String OVERALL_ACCURACY = "overall_accuracy";
+            public static final String TOTAL_TESTS_TAKEN = "total_tests_taken";
+            public static final String ATTEMPT_COUNT = "attempt_count";
+            public static final String CORRECT_COUNT = "correct_count";
+        }
+    }
+
+    public static final class UserWordStatTable {
+        public static final String NAME = "user_word_stat";
+        public static final String INDEX_USER_WORD = "user_word_stat_user_word_index";
+
+        public static final class Cols {
+            public static final String ID = "user_word_stat_id";
+            public static final String USER_STAT_ID = "user_stat_id";
+            public static final String WORD_STAT_ID = "word_stat_id";
+            public static final String USER_WORD_ACCURACY = "user_word_accuracy";
+            public static final String ATTEMPT_COUNT = "attempt_count";
+            public static final String CORRECT_COUNT = "correct_count";
+        }
+    }
+
+    public static final class WordStatTable {
+        public static final String NAME = "word_stat";
+        public static final String INDEX_WORD_ID = "word_stat_word_id_index";
+
+        public static final class Cols {
+            public static final String ID = "word_stat_id";
+            public static final String WORD_ID = "word_id";
+            public static final String OVERALL_ACCURACY = "overall_accuracy";
+            public static final String ATTEMPT_COUNT = "attempt_count";
+            public static final String CORRECT_COUNT = "correct_count";
+            public static final String USER_ID = "user_id";     //Owner of the word when it was last attempted.
+        }
+    }
+
+    public static final class ReviewScheduleTable {
+        public static final String NAME = "review_schedule";
+        public static final String INDEX_USER_WORD = "review_schedule_user_word_index";
+        public static final String INDEX_USER_DUE_TIME = "review_schedule_user_due_time_index";
+
+        public static final class Cols {
+            public static final String ID = "review_schedule_id";
+            public static final String USER_ID = "user_id";
+            public static final String WORD_ID = "word_id";
+            public static final String DUE_TIME = "due_time";
+            public static final String EASE_FACTOR = "ease_factor";
+            public static final String INTERVAL_DAYS = "interval_days";
+            public static final String REPETITIONS = "repetitions";
+        }
+    }
+
+    public static final class LetterConfusionTable {
+        public static final String NAME = "letter_confusion";
+        public static final String INDEX_USER_CONFUSION = "letter_confusion_user_confusion_index";
+
+        public static final class Cols {
+            public static final String ID = "letter_confusion_id";
+            public static final String USER_ID = "user_id";
+            public static final String CONFUSION = "confusion";
+            public static final String CONFUSION_COUNT = "confusion_count";
+        }
+    }
+
+    public static final class ReportProgressTable {
+        public static final String NAME = "report_progress";
+
+        public static final class Cols {
+            public static final String REPORT = "report";
+            public static final String LAST_ATTEMPT_ID = "last_attempt_id";
+        }
+    }
+
+    //Names of the triggers that keep the stat tables above up to date.
+    public static final String TRIGGER_ATTEMPT_STATS = "word_attempt_update_stats";
+    public static final String TRIGGER_TEST_STATS = "spellingListStats_update_user_stat";
 
-    /**
-     public static final class UserStatTable {
-     public static final String NAME = "user_stat";
-
-     public static final class Cols {
-     public static final String ID = "user_stat_id";
-     public static final String USER_ID = "user_id";
-     public static final String OVERALL_ACCURACY = "overall_accuracy";
-     public static final String TOTAL_TESTS_TAKEN = "total_tests_taken";
-     }
-     }
-
-     public static final class UserWordStatTable {
-     public static final String NAME = "user_word_stat";
-
-     public static final class Cols {
-     public static final String ID = "user_word_stat_id";
-     public static final String USER_STAT_ID = "user_stat_id";
-     public static final String WORD_STAT_ID = "word_stat_id";
-     public static final String USER_WORD_ACCURACY = "user_word_accuracy";
-     }
-     }
-
-     public static final class WordStatTable {
-     public static final String NAME = "word_stat";
-
-     public static final class Cols {
-     public static final String ID = "word_stat_id";
-     public static final String WORD_ID = "word_id";
-     public static final String OVERALL_ACCURACY = "overall_accuracy";
-     }
-     }
-     **/
+    //Name of the trigger that removes a word's review schedule when the word is deleted.
+    public static final String TRIGGER_DELETE_REVIEW_SCHEDULE = "word_delete_review_schedule";
 
 }
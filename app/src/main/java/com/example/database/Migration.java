@@ -0,0 +1,47 @@
+/**
+ *
+ * Filename:  Migration.java
+ * Author:  Team SpellTest
+ * Date:  22 April 2019
+ *
+ * Purpose:  This class represents a single step in the upgrade path of the application database.
+ * Each step moves the database from one version to the next (ie from version - 1 to version).
+ * The DatabaseHelper class runs the steps listed in the Migrations class, in order, whenever it
+ * creates or upgrades the database.  Keeping each step in its own class means that each one can
+ * be run (and checked) on its own.
+ */
+
+package com.example.database;
+
+import android.database.sqlite.SQLiteDatabase;
+
+public abstract class Migration {
+
+    //Instance variables
+    private final int mVersion;         //The database version this step upgrades the database to.
+
+    /**
+     * Class constructor.
+     * @param version the database version that this step upgrades the database to.
+     */
+    protected Migration(int version) {
+        mVersion = version;
+    }
+
+    /**
+     * Public method to get the version that this step upgrades the database to.
+     * @return the database version after this step has run.
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Method that performs the upgrade.  This is called inside the transaction that the
+     * SQLiteOpenHelper class opens for onCreate / onUpgrade, so a failure in any step rolls back
+     * the whole upgrade.
+     *
+     * @param db the database to upgrade.  On entry, it is at version getVersion() - 1.
+     */
+    public abstract void migrate(SQLiteDatabase db);
+}
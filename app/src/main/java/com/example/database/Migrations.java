@@ -0,0 +1,607 @@
+/**
+ *
+ * Filename:  Migrations.java
+ * Author:  Team SpellTest
+ * Date:  22 April 2019
+ *
+ * Purpose:  This class holds the ordered list of database upgrade steps (see the Migration class).
+ * Version 1 of the database is the schema built by DatabaseHelper.onCreate(); every later version
+ * is reached by running the steps in this list, in order.  To change the schema, add a new step to
+ * the end of the list - never edit a step that has already shipped.
+ */
+
+package com.example.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.database.DatabaseSchema.*;
+import com.example.spelltest.PhoneticKey;
+
+public class Migrations {
+
+    //The version of the schema created by DatabaseHelper.onCreate(), before any steps are run.
+    public static final int BASE_VERSION = 1;
+
+    /**
+     * Version 2:  add indexes on the foreign keys we search on.  Without these, looking up the words
+     * in a list, the lists for a user or the stats for a list means scanning the whole table.  The
+     * word and spelling list indexes also include the columns those queries read, so the lookups can
+     * be answered from the index alone.
+     */
+    static final class AddForeignKeyIndexes extends Migration {
+
+        AddForeignKeyIndexes() {
+            super(2);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + WordTable.INDEX_LIST_ID + " ON " + WordTable.NAME + "(" +
+                    WordTable.Cols.LIST_ID + ", " +
+                    WordTable.Cols.ID + ", " +
+                    WordTable.Cols.SPELLING +
+                    ")");
+
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + SpellingListTable.INDEX_USER_ID + " ON " + SpellingListTable.NAME + "(" +
+                    SpellingListTable.Cols.USER_ID + ", " +
+                    SpellingListTable.Cols.ID + ", " +
+                    SpellingListTable.Cols.NAME +
+                    ")");
+
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + SpellingListStatTable.INDEX_LIST_ID + " ON " + SpellingListStatTable.NAME + "(" +
+                    SpellingListStatTable.Cols.LIST_ID +
+                    ")");
+        }
+    }
+
+    /**
+     * Version 3:  add the per-list and per-user summary tables (see the StatSummaries class), and fill
+     * them in from the stats already in the database.
+     */
+    static final class AddStatSummaries extends Migration {
+
+        AddStatSummaries() {
+            super(3);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            StatSummaries.create(db);
+            StatSummaries.rebuild(db);
+        }
+    }
+
+    /**
+     * Version 4:  add the word attempt log - one row for every word answered in a test.  The log is
+     * append-only, and rows are never updated or deleted.  There is deliberately no foreign key on the
+     * word id (so deleting a word doesn't have to touch its history), and only one index, to keep
+     * inserts cheap.
+     */
+    static final class AddWordAttempts extends Migration {
+
+        AddWordAttempts() {
+            super(4);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + WordAttemptTable.NAME + "(" +
+                    WordAttemptTable.Cols.ID + " INTEGER PRIMARY KEY, " +
+                    WordAttemptTable.Cols.SESSION_ID + " INTEGER NOT NULL, " +
+                    WordAttemptTable.Cols.WORD_ID + " INTEGER NOT NULL, " +
+                    WordAttemptTable.Cols.TYPED_TEXT + " TEXT, " +
+                    WordAttemptTable.Cols.CORRECT + " INTEGER NOT NULL, " +
+                    WordAttemptTable.Cols.RESPONSE_TIME + " INTEGER NOT NULL, " +
+                    WordAttemptTable.Cols.TIMESTAMP + " INTEGER NOT NULL" +
+                    ")");
+
+            db.execSQL("CREATE INDEX " + WordAttemptTable.INDEX_WORD_ID + " ON " + WordAttemptTable.NAME + "(" +
+                    WordAttemptTable.Cols.WORD_ID +
+                    ")");
+        }
+    }
+
+    /**
+     * Version 5:  add the user, word and user-word accuracy tables.  These are kept up to date by
+     * triggers, which add each new word attempt (and each new test) to the running totals as it is
+     * inserted, so reading a user's or a word's accuracy never means scanning the attempt log.  Any
+     * history already in the database is added up once, here.
+     *
+     * There are no foreign keys on these tables - they only hold totals calculated from other tables.
+     */
+    static final class AddAccuracyStats extends Migration {
+
+        //Counter columns (the same in all three tables).
+        private static final String ATTEMPTS = WordStatTable.Cols.ATTEMPT_COUNT;
+        private static final String CORRECT = WordStatTable.Cols.CORRECT_COUNT;
+
+        //The id of the user who owns the word in a new word attempt (for use inside the trigger).
+        private static final String USER_OF_NEW_WORD = "(SELECT l." + SpellingListTable.Cols.USER_ID +
+                " FROM " + WordTable.NAME + " w JOIN " + SpellingListTable.NAME + " l" +
+                " ON w." + WordTable.Cols.LIST_ID + " = l." + SpellingListTable.Cols.ID +
+                " WHERE w." + WordTable.Cols.ID + " = NEW." + WordAttemptTable.Cols.WORD_ID + ")";
+
+        //The id of the user who owns the list in a new spelling list stat (for use inside the trigger).
+        private static final String USER_OF_NEW_LIST = "(SELECT " + SpellingListTable.Cols.USER_ID +
+                " FROM " + SpellingListTable.NAME +
+                " WHERE " + SpellingListTable.Cols.ID + " = NEW." + SpellingListStatTable.Cols.LIST_ID + ")";
+
+        //Joins every word attempt to the user who owns the word (for the one-off totals).
+        private static final String ATTEMPTS_WITH_USER = WordAttemptTable.NAME + " a" +
+                " JOIN " + WordTable.NAME + " w ON a." + WordAttemptTable.Cols.WORD_ID + " = w." + WordTable.Cols.ID +
+                " JOIN " + SpellingListTable.NAME + " l ON w." + WordTable.Cols.LIST_ID + " = l." + SpellingListTable.Cols.ID;
+
+        //Totals over a group of word attempts, in the order: attempts, correct, accuracy.
+        private static final String TOTALS = "COUNT(*), SUM(a." + WordAttemptTable.Cols.CORRECT + "), " +
+                "CAST(SUM(a." + WordAttemptTable.Cols.CORRECT + ") AS REAL) / COUNT(*)";
+
+        AddAccuracyStats() {
+            super(5);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            createTables(db);
+            addHistory(db);
+            createTriggers(db);
+        }
+
+        /**
+         * Private method to create the tables, each with a unique index on the key it is looked up by.
+         * @param db the database.
+         */
+        private void createTables(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + UserStatTable.NAME + "(" +
+                    UserStatTable.Cols.ID + " INTEGER PRIMARY KEY, " +
+                    UserStatTable.Cols.USER_ID + " INTEGER NOT NULL, " +
+                    UserStatTable.Cols.OVERALL_ACCURACY + " REAL NOT NULL DEFAULT 0, " +
+                    UserStatTable.Cols.TOTAL_TESTS_TAKEN + " INTEGER NOT NULL DEFAULT 0, " +
+                    counterColumns() +
+                    ")");
+            db.execSQL("CREATE UNIQUE INDEX " + UserStatTable.INDEX_USER_ID + " ON " + UserStatTable.NAME + "(" +
+                    UserStatTable.Cols.USER_ID +
+                    ")");
+
+            db.execSQL("CREATE TABLE " + WordStatTable.NAME + "(" +
+                    WordStatTable.Cols.ID + " INTEGER PRIMARY KEY, " +
+                    WordStatTable.Cols.WORD_ID + " INTEGER NOT NULL, " +
+                    WordStatTable.Cols.OVERALL_ACCURACY + " REAL NOT NULL DEFAULT 0, " +
+                    counterColumns() +
+                    ")");
+            db.execSQL("CREATE UNIQUE INDEX " + WordStatTable.INDEX_WORD_ID + " ON " + WordStatTable.NAME + "(" +
+                    WordStatTable.Cols.WORD_ID +
+                    ")");
+
+            db.execSQL("CREATE TABLE " + UserWordStatTable.NAME + "(" +
+                    UserWordStatTable.Cols.ID + " INTEGER PRIMARY KEY, " +
+                    UserWordStatTable.Cols.USER_STAT_ID + " INTEGER NOT NULL, " +
+                    UserWordStatTable.Cols.WORD_STAT_ID + " INTEGER NOT NULL, " +
+                    UserWordStatTable.Cols.USER_WORD_ACCURACY + " REAL NOT NULL DEFAULT 0, " +
+                    counterColumns() +
+                    ")");
+            db.execSQL("CREATE UNIQUE INDEX " + UserWordStatTable.INDEX_USER_WORD + " ON " + UserWordStatTable.NAME + "(" +
+                    UserWordStatTable.Cols.USER_STAT_ID + ", " +
+                    UserWordStatTable.Cols.WORD_STAT_ID +
+                    ")");
+        }
+
+        /**
+         * Private method to add up the attempts and tests already in the database.
+         * @param db the database.
+         */
+        private void addHistory(SQLiteDatabase db) {
+
+            //Per-word totals.
+            db.execSQL("INSERT INTO " + WordStatTable.NAME + " (" +
+                    WordStatTable.Cols.WORD_ID + ", " + ATTEMPTS + ", " + CORRECT + ", " + WordStatTable.Cols.OVERALL_ACCURACY + ")" +
+                    " SELECT a." + WordAttemptTable.Cols.WORD_ID + ", " + TOTALS +
+                    " FROM " + WordAttemptTable.NAME + " a" +
+                    " GROUP BY a." + WordAttemptTable.Cols.WORD_ID);
+
+            //Per-user totals - first the attempts, then the number of tests.
+            db.execSQL("INSERT INTO " + UserStatTable.NAME + " (" +
+                    UserStatTable.Cols.USER_ID + ", " + ATTEMPTS + ", " + CORRECT + ", " + UserStatTable.Cols.OVERALL_ACCURACY + ")" +
+                    " SELECT l." + SpellingListTable.Cols.USER_ID + ", " + TOTALS +
+                    " FROM " + ATTEMPTS_WITH_USER +
+                    " GROUP BY l." + SpellingListTable.Cols.USER_ID);
+            db.execSQL("INSERT OR IGNORE INTO " + UserStatTable.NAME + " (" + UserStatTable.Cols.USER_ID + ")" +
+                    " SELECT DISTINCT l." + SpellingListTable.Cols.USER_ID +
+                    " FROM " + SpellingListStatTable.NAME + " s JOIN " + SpellingListTable.NAME + " l" +
+                    " ON s." + SpellingListStatTable.Cols.LIST_ID + " = l." + SpellingListTable.Cols.ID);
+            db.execSQL("UPDATE " + UserStatTable.NAME + " SET " + UserStatTable.Cols.TOTAL_TESTS_TAKEN + " = (" +
+                    "SELECT COUNT(*) FROM " + SpellingListStatTable.NAME + " s JOIN " + SpellingListTable.NAME + " l" +
+                    " ON s." + SpellingListStatTable.Cols.LIST_ID + " = l." + SpellingListTable.Cols.ID +
+                    " WHERE l." + SpellingListTable.Cols.USER_ID + " = " + UserStatTable.NAME + "." + UserStatTable.Cols.USER_ID + ")");
+
+            //Per-user, per-word totals.
+            db.execSQL("INSERT INTO " + UserWordStatTable.NAME + " (" +
+                    UserWordStatTable.Cols.USER_STAT_ID + ", " + UserWordStatTable.Cols.WORD_STAT_ID + ", " +
+                    ATTEMPTS + ", " + CORRECT + ", " + UserWordStatTable.Cols.USER_WORD_ACCURACY + ")" +
+                    " SELECT us." + UserStatTable.Cols.ID + ", ws." + WordStatTable.Cols.ID + ", " + TOTALS +
+                    " FROM " + ATTEMPTS_WITH_USER +
+                    " JOIN " + UserStatTable.NAME + " us ON us." + UserStatTable.Cols.USER_ID + " = l." + SpellingListTable.Cols.USER_ID +
+                    " JOIN " + WordStatTable.NAME + " ws ON ws." + WordStatTable.Cols.WORD_ID + " = a." + WordAttemptTable.Cols.WORD_ID +
+                    " GROUP BY us." + UserStatTable.Cols.ID + ", ws." + WordStatTable.Cols.ID);
+        }
+
+        /**
+         * Private method to create the triggers that keep the totals up to date.  For each table, the row
+         * is created if it isn't there yet, and then the new attempt (or test) is added to it.
+         * @param db the database.
+         */
+        private void createTriggers(SQLiteDatabase db) {
+
+            String newWordId = "NEW." + WordAttemptTable.Cols.WORD_ID;
+
+            db.execSQL("CREATE TRIGGER " + DatabaseSchema.TRIGGER_ATTEMPT_STATS +
+                    " AFTER INSERT ON " + WordAttemptTable.NAME + " BEGIN " +
+
+                    //Word totals.
+                    "INSERT OR IGNORE INTO " + WordStatTable.NAME + " (" + WordStatTable.Cols.WORD_ID + ") VALUES (" + newWordId + "); " +
+                    "UPDATE " + WordStatTable.NAME + " SET " + addAttempt(WordStatTable.Cols.OVERALL_ACCURACY) +
+                    " WHERE " + WordStatTable.Cols.WORD_ID + " = " + newWordId + "; " +
+
+                    //User totals.  (If the word has been deleted, there's no user to update.)
+                    "INSERT OR IGNORE INTO " + UserStatTable.NAME + " (" + UserStatTable.Cols.USER_ID + ")" +
+                    " SELECT " + USER_OF_NEW_WORD + " WHERE " + USER_OF_NEW_WORD + " IS NOT NULL; " +
+                    "UPDATE " + UserStatTable.NAME + " SET " + addAttempt(UserStatTable.Cols.OVERALL_ACCURACY) +
+                    " WHERE " + UserStatTable.Cols.USER_ID + " = " + USER_OF_NEW_WORD + "; " +
+
+                    //User-word totals.
+                    "INSERT OR IGNORE INTO " + UserWordStatTable.NAME + " (" +
+                    UserWordStatTable.Cols.USER_STAT_ID + ", " + UserWordStatTable.Cols.WORD_STAT_ID + ")" +
+                    " SELECT us." + UserStatTable.Cols.ID + ", ws." + WordStatTable.Cols.ID +
+                    " FROM " + UserStatTable.NAME + " us, " + WordStatTable.NAME + " ws" +
+                    " WHERE us." + UserStatTable.Cols.USER_ID + " = " + USER_OF_NEW_WORD +
+                    " AND ws." + WordStatTable.Cols.WORD_ID + " = " + newWordId + "; " +
+                    "UPDATE " + UserWordStatTable.NAME + " SET " + addAttempt(UserWordStatTable.Cols.USER_WORD_ACCURACY) +
+                    " WHERE " + UserWordStatTable.Cols.USER_STAT_ID + " = (SELECT " + UserStatTable.Cols.ID +
+                    " FROM " + UserStatTable.NAME + " WHERE " + UserStatTable.Cols.USER_ID + " = " + USER_OF_NEW_WORD + ")" +
+                    " AND " + UserWordStatTable.Cols.WORD_STAT_ID + " = (SELECT " + WordStatTable.Cols.ID +
+                    " FROM " + WordStatTable.NAME + " WHERE " + WordStatTable.Cols.WORD_ID + " = " + newWordId + "); " +
+                    "END");
+
+            db.execSQL("CREATE TRIGGER " + DatabaseSchema.TRIGGER_TEST_STATS +
+                    " AFTER INSERT ON " + SpellingListStatTable.NAME + " BEGIN " +
+                    "INSERT OR IGNORE INTO " + UserStatTable.NAME + " (" + UserStatTable.Cols.USER_ID + ")" +
+                    " SELECT " + USER_OF_NEW_LIST + " WHERE " + USER_OF_NEW_LIST + " IS NOT NULL; " +
+                    "UPDATE " + UserStatTable.NAME + " SET " + UserStatTable.Cols.TOTAL_TESTS_TAKEN + " = " +
+                    UserStatTable.Cols.TOTAL_TESTS_TAKEN + " + 1" +
+                    " WHERE " + UserStatTable.Cols.USER_ID + " = " + USER_OF_NEW_LIST + "; " +
+                    "END");
+        }
+
+        /**
+         * Private method to build the counter column definitions shared by all three tables.
+         * @return the column definitions.
+         */
+        private static String counterColumns() {
+            return ATTEMPTS + " INTEGER NOT NULL DEFAULT 0, " +
+                    CORRECT + " INTEGER NOT NULL DEFAULT 0";
+        }
+
+        /**
+         * Private method to build the SET clause that adds the new attempt (NEW) to a row.  Every
+         * expression in a SET clause sees the values from before the update, so the accuracy is worked
+         * out from the old counts plus the new attempt.
+         * @param accuracyColumn the name of the table's accuracy column.
+         * @return the SET clause.
+         */
+        private static String addAttempt(String accuracyColumn) {
+            String newCorrect = "NEW." + WordAttemptTable.Cols.CORRECT;
+            return ATTEMPTS + " = " + ATTEMPTS + " + 1, " +
+                    CORRECT + " = " + CORRECT + " + " + newCorrect + ", " +
+                    accuracyColumn + " = CAST(" + CORRECT + " + " + newCorrect + " AS REAL) / (" + ATTEMPTS + " + 1)";
+        }
+    }
+
+    /**
+     * Version 6:  add the word order column to the spelling list table (see the WordOrder class).  Existing
+     * lists get 0 (shuffled), which is how every list was tested before.  The user_id index is rebuilt to
+     * include the new column, so lists can still be read from the index alone.
+     */
+    static final class AddWordOrder extends Migration {
+
+        AddWordOrder() {
+            super(6);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("ALTER TABLE " + SpellingListTable.NAME + " ADD COLUMN " +
+                    SpellingListTable.Cols.WORD_ORDER + " INTEGER NOT NULL DEFAULT 0");
+
+            db.execSQL("DROP INDEX IF EXISTS " + SpellingListTable.INDEX_USER_ID);
+            db.execSQL("CREATE INDEX " + SpellingListTable.INDEX_USER_ID + " ON " + SpellingListTable.NAME + "(" +
+                    SpellingListTable.Cols.USER_ID + ", " +
+                    SpellingListTable.Cols.ID + ", " +
+                    SpellingListTable.Cols.NAME + ", " +
+                    SpellingListTable.Cols.WORD_ORDER +
+                    ")");
+        }
+    }
+
+    /**
+     * Version 7:  add the review schedule table (see the ReviewQueue class).  Each row holds the next
+     * review time and the SM-2 ease factor / interval for one user's word.  A row is only added once a
+     * word has been reviewed - words without one are new, and always due.
+     *
+     * There are two indexes:  (user_id, word_id) to find the rows for a list's words, and
+     * (user_id, due_time) to find (or count) a user's due words without looking at any others.  A
+     * trigger removes a word's row when the word is deleted.
+     */
+    static final class AddReviewSchedule extends Migration {
+
+        AddReviewSchedule() {
+            super(7);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + ReviewScheduleTable.NAME + "(" +
+                    ReviewScheduleTable.Cols.ID + " INTEGER PRIMARY KEY, " +
+                    ReviewScheduleTable.Cols.USER_ID + " INTEGER NOT NULL, " +
+                    ReviewScheduleTable.Cols.WORD_ID + " INTEGER NOT NULL, " +
+                    ReviewScheduleTable.Cols.DUE_TIME + " INTEGER NOT NULL, " +
+                    ReviewScheduleTable.Cols.EASE_FACTOR + " REAL NOT NULL, " +
+                    ReviewScheduleTable.Cols.INTERVAL_DAYS + " INTEGER NOT NULL, " +
+                    ReviewScheduleTable.Cols.REPETITIONS + " INTEGER NOT NULL" +
+                    ")");
+
+            db.execSQL("CREATE UNIQUE INDEX " + ReviewScheduleTable.INDEX_USER_WORD + " ON " + ReviewScheduleTable.NAME + "(" +
+                    ReviewScheduleTable.Cols.USER_ID + ", " +
+                    ReviewScheduleTable.Cols.WORD_ID +
+                    ")");
+            db.execSQL("CREATE INDEX " + ReviewScheduleTable.INDEX_USER_DUE_TIME + " ON " + ReviewScheduleTable.NAME + "(" +
+                    ReviewScheduleTable.Cols.USER_ID + ", " +
+                    ReviewScheduleTable.Cols.DUE_TIME +
+                    ")");
+
+            //Note that this doesn't fire when a word is re-written with INSERT OR REPLACE (SQLite only runs
+            //delete triggers for REPLACE when recursive triggers are on), so editing a word keeps its schedule.
+            db.execSQL("CREATE TRIGGER " + DatabaseSchema.TRIGGER_DELETE_REVIEW_SCHEDULE +
+                    " AFTER DELETE ON " + WordTable.NAME + " BEGIN " +
+                    "DELETE FROM " + ReviewScheduleTable.NAME +
+                    " WHERE " + ReviewScheduleTable.Cols.WORD_ID + " = OLD." + WordTable.Cols.ID + "; " +
+                    "END");
+        }
+    }
+
+    /**
+     * Version 8:  add the ability estimate (and its standard error) to the spelling list stat table, for
+     * adaptive tests (see the AdaptiveTest class).  These are NULL for every other kind of test.
+     */
+    static final class AddAbilityEstimates extends Migration {
+
+        AddAbilityEstimates() {
+            super(8);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("ALTER TABLE " + SpellingListStatTable.NAME + " ADD COLUMN " +
+                    SpellingListStatTable.Cols.ABILITY + " REAL");
+            db.execSQL("ALTER TABLE " + SpellingListStatTable.NAME + " ADD COLUMN " +
+                    SpellingListStatTable.Cols.ABILITY_STANDARD_ERROR + " REAL");
+        }
+    }
+
+    /**
+     * Version 9:  add the answer grades (see the AnswerGrader class) - the edit distance and kind of error
+     * for each word attempt, and the total partial credit for each test.  Attempts already in the log are
+     * left as NULL here, and graded later in the background (see AsyncDataStore.gradeAttempts()), since
+     * grading needs the spellings and could take a while for a long history.
+     */
+    static final class AddAnswerGrades extends Migration {
+
+        AddAnswerGrades() {
+            super(9);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("ALTER TABLE " + WordAttemptTable.NAME + " ADD COLUMN " +
+                    WordAttemptTable.Cols.EDIT_DISTANCE + " INTEGER");
+            db.execSQL("ALTER TABLE " + WordAttemptTable.NAME + " ADD COLUMN " +
+                    WordAttemptTable.Cols.ERROR_TYPE + " INTEGER");
+            db.execSQL("ALTER TABLE " + SpellingListStatTable.NAME + " ADD COLUMN " +
+                    SpellingListStatTable.Cols.CREDIT + " REAL");
+        }
+    }
+
+    /**
+     * Version 10:  add the phonetic key (see the PhoneticKey class) to each word and each word attempt, so
+     * that answers that sound like the word can be found and counted from an index.
+     *
+     * The word keys are worked out here (there aren't many words).  The attempt log could be very long, so
+     * its keys are left as NULL and filled in later in the background, along with the grades (see
+     * DataStore.gradeAttempts()).  A partial index holds just the attempts without a key, so that finding
+     * the next ones to fill in never scans the rest of the log - and once they're all done, it's empty.
+     *
+     * The (word_id, phonetic_key, correct) index replaces the old word_id index, which is a prefix of it.
+     * New attempts are always written with their key, so they don't go into the partial index either, and
+     * an insert still only updates one index.
+     */
+    static final class AddPhoneticKeys extends Migration {
+
+        AddPhoneticKeys() {
+            super(10);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("ALTER TABLE " + WordTable.NAME + " ADD COLUMN " + WordTable.Cols.PHONETIC_KEY + " TEXT");
+            db.execSQL("ALTER TABLE " + WordAttemptTable.NAME + " ADD COLUMN " + WordAttemptTable.Cols.PHONETIC_KEY + " TEXT");
+
+            //Work out the key of every word.
+            SQLiteStatement statement = db.compileStatement("UPDATE " + WordTable.NAME +
+                    " SET " + WordTable.Cols.PHONETIC_KEY + "=? WHERE " + WordTable.Cols.ID + "=?");
+            Cursor cursor = db.query(WordTable.NAME, new String[] {WordTable.Cols.ID, WordTable.Cols.SPELLING},
+                    null, null, null, null, null);
+            try {
+                while (cursor.moveToNext()) {
+                    statement.bindString(1, PhoneticKey.encode(cursor.getString(1)));
+                    statement.bindLong(2, cursor.getLong(0));
+                    statement.executeUpdateDelete();
+                }
+            } finally {
+                cursor.close();
+                statement.close();
+            }
+
+            db.execSQL("CREATE INDEX " + WordTable.INDEX_PHONETIC_KEY + " ON " + WordTable.NAME + "(" +
+                    WordTable.Cols.PHONETIC_KEY +
+                    ")");
+
+            db.execSQL("DROP INDEX IF EXISTS " + WordAttemptTable.INDEX_WORD_ID);
+            db.execSQL("CREATE INDEX " + WordAttemptTable.INDEX_WORD_PHONETIC_KEY + " ON " + WordAttemptTable.NAME + "(" +
+                    WordAttemptTable.Cols.WORD_ID + ", " +
+                    WordAttemptTable.Cols.PHONETIC_KEY + ", " +
+                    WordAttemptTable.Cols.CORRECT +
+                    ")");
+            db.execSQL("CREATE INDEX " + WordAttemptTable.INDEX_UNKEYED + " ON " + WordAttemptTable.NAME + "(" +
+                    WordAttemptTable.Cols.ID +
+                    ") WHERE " + WordAttemptTable.Cols.PHONETIC_KEY + " IS NULL");
+        }
+    }
+
+    /**
+     * Version 11:  add the letter confusion counts (see the ConfusionAnalyzer class) - how often each user
+     * (and all users together, under user id 0) made each kind of mistake - and the report progress table,
+     * which holds the last attempt each report has been brought up to date with.  Both start out empty:  the
+     * first refresh reads the whole attempt log, and later ones only the attempts after that.
+     */
+    static final class AddLetterConfusions extends Migration {
+
+        AddLetterConfusions() {
+            super(11);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + LetterConfusionTable.NAME + "(" +
+                    LetterConfusionTable.Cols.ID + " INTEGER PRIMARY KEY, " +
+                    LetterConfusionTable.Cols.USER_ID + " INTEGER NOT NULL, " +
+                    LetterConfusionTable.Cols.CONFUSION + " INTEGER NOT NULL, " +
+                    LetterConfusionTable.Cols.CONFUSION_COUNT + " INTEGER NOT NULL" +
+                    ")");
+
+            db.execSQL("CREATE UNIQUE INDEX " + LetterConfusionTable.INDEX_USER_CONFUSION + " ON " + LetterConfusionTable.NAME + "(" +
+                    LetterConfusionTable.Cols.USER_ID + ", " +
+                    LetterConfusionTable.Cols.CONFUSION +
+                    ")");
+
+            db.execSQL("CREATE TABLE " + ReportProgressTable.NAME + "(" +
+                    ReportProgressTable.Cols.REPORT + " TEXT PRIMARY KEY, " +
+                    ReportProgressTable.Cols.LAST_ATTEMPT_ID + " INTEGER NOT NULL" +
+                    ")");
+        }
+    }
+
+    /**
+     * Version 12:  look up the owner of the word only once for each new word attempt.  The version 5 trigger
+     * found the user by joining the word to its spelling list in every statement that needed it - about six
+     * times for each attempt.  The word stat row now keeps the id of the user who owns the word:  the
+     * trigger looks it up once, while it updates the word totals, and the user and user-word statements read
+     * it back from the word stat row (a lookup on its unique word_id index).  The owner is refreshed on every
+     * attempt, so it stays right if the word moves to another list, and it is NULL if the word has been
+     * deleted, in which case (as before) only the word totals are updated.
+     */
+    static final class AddWordStatOwners extends Migration {
+
+        AddWordStatOwners() {
+            super(12);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("ALTER TABLE " + WordStatTable.NAME + " ADD COLUMN " + WordStatTable.Cols.USER_ID + " INTEGER");
+
+            //Fill in the owners of the words already attempted.
+            db.execSQL("UPDATE " + WordStatTable.NAME + " SET " + WordStatTable.Cols.USER_ID + " = (SELECT l." +
+                    SpellingListTable.Cols.USER_ID + " FROM " + WordTable.NAME + " w JOIN " + SpellingListTable.NAME + " l" +
+                    " ON w." + WordTable.Cols.LIST_ID + " = l." + SpellingListTable.Cols.ID +
+                    " WHERE w." + WordTable.Cols.ID + " = " + WordStatTable.NAME + "." + WordStatTable.Cols.WORD_ID + ")");
+
+            String newWordId = "NEW." + WordAttemptTable.Cols.WORD_ID;
+            String userOfNewWord = "(SELECT l." + SpellingListTable.Cols.USER_ID +
+                    " FROM " + WordTable.NAME + " w JOIN " + SpellingListTable.NAME + " l" +
+                    " ON w." + WordTable.Cols.LIST_ID + " = l." + SpellingListTable.Cols.ID +
+                    " WHERE w." + WordTable.Cols.ID + " = " + newWordId + ")";
+            String wordStatOfNewWord = " FROM " + WordStatTable.NAME + " ws WHERE ws." + WordStatTable.Cols.WORD_ID +
+                    " = " + newWordId;
+            String userStatOfNewWord = "(SELECT us." + UserStatTable.Cols.ID + " FROM " + UserStatTable.NAME + " us" +
+                    " WHERE us." + UserStatTable.Cols.USER_ID + " = (SELECT ws." + WordStatTable.Cols.USER_ID +
+                    wordStatOfNewWord + "))";
+
+            db.execSQL("DROP TRIGGER IF EXISTS " + DatabaseSchema.TRIGGER_ATTEMPT_STATS);
+            db.execSQL("CREATE TRIGGER " + DatabaseSchema.TRIGGER_ATTEMPT_STATS +
+                    " AFTER INSERT ON " + WordAttemptTable.NAME + " BEGIN " +
+
+                    //Word totals, and the owner of the word (the only time it is looked up).
+                    "INSERT OR IGNORE INTO " + WordStatTable.NAME + " (" + WordStatTable.Cols.WORD_ID + ") VALUES (" + newWordId + "); " +
+                    "UPDATE " + WordStatTable.NAME + " SET " + AddAccuracyStats.addAttempt(WordStatTable.Cols.OVERALL_ACCURACY) + ", " +
+                    WordStatTable.Cols.USER_ID + " = " + userOfNewWord +
+                    " WHERE " + WordStatTable.Cols.WORD_ID + " = " + newWordId + "; " +
+
+                    //User totals.  (If the word has been deleted, there's no user to update.)
+                    "INSERT OR IGNORE INTO " + UserStatTable.NAME + " (" + UserStatTable.Cols.USER_ID + ")" +
+                    " SELECT ws." + WordStatTable.Cols.USER_ID + wordStatOfNewWord +
+                    " AND ws." + WordStatTable.Cols.USER_ID + " IS NOT NULL; " +
+                    "UPDATE " + UserStatTable.NAME + " SET " + AddAccuracyStats.addAttempt(UserStatTable.Cols.OVERALL_ACCURACY) +
+                    " WHERE " + UserStatTable.Cols.USER_ID + " = (SELECT ws." + WordStatTable.Cols.USER_ID + wordStatOfNewWord + "); " +
+
+                    //User-word totals.
+                    "INSERT OR IGNORE INTO " + UserWordStatTable.NAME + " (" +
+                    UserWordStatTable.Cols.USER_STAT_ID + ", " + UserWordStatTable.Cols.WORD_STAT_ID + ")" +
+                    " SELECT us." + UserStatTable.Cols.ID + ", ws." + WordStatTable.Cols.ID +
+                    " FROM " + WordStatTable.NAME + " ws JOIN " + UserStatTable.NAME + " us" +
+                    " ON us." + UserStatTable.Cols.USER_ID + " = ws." + WordStatTable.Cols.USER_ID +
+                    " WHERE ws." + WordStatTable.Cols.WORD_ID + " = " + newWordId + "; " +
+                    "UPDATE " + UserWordStatTable.NAME + " SET " + AddAccuracyStats.addAttempt(UserWordStatTable.Cols.USER_WORD_ACCURACY) +
+                    " WHERE " + UserWordStatTable.Cols.USER_STAT_ID + " = " + userStatOfNewWord +
+                    " AND " + UserWordStatTable.Cols.WORD_STAT_ID + " = (SELECT ws." + WordStatTable.Cols.ID +
+                    wordStatOfNewWord + "); " +
+                    "END");
+        }
+    }
+
+    //All of the upgrade steps, in order.  The step at position i upgrades the database to version BASE_VERSION + i + 1.
+    private static final Migration[] ALL = {
+            new AddForeignKeyIndexes(),
+            new AddStatSummaries(),
+            new AddWordAttempts(),
+            new AddAccuracyStats(),
+            new AddWordOrder(),
+            new AddReviewSchedule(),
+            new AddAbilityEstimates(),
+            new AddAnswerGrades(),
+            new AddPhoneticKeys(),
+            new AddLetterConfusions(),
+            new AddWordStatOwners(),
+    };
+
+    //The current version of the database (ie the version after all steps have been run).
+    public static final int LATEST_VERSION = BASE_VERSION + ALL.length;
+
+    /**
+     * Public method to upgrade a database from one version to another, by running each of the steps
+     * in between.
+     *
+     * @param db the database to upgrade.
+     * @param oldVersion the current version of the database.
+     * @param newVersion the version to upgrade to.
+     */
+    public static void migrate(SQLiteDatabase db, int oldVersion, int newVersion) {
+
+        //Step through the list, running every step whose version falls in (oldVersion, newVersion].
+        for (Migration migration : ALL) {
+            int version = migration.getVersion();
+            if (version > oldVersion && version <= newVersion) {
+                migration.migrate(db);
+            }
+        }
+    }
+}
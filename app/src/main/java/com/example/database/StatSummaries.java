@@ -0,0 +1,186 @@
+/**
+ *
+ * Filename:  StatSummaries.java
+ * Author:  Team SpellTest
+ * Date:  06 May 2019
+ *
+ * Purpose:  This class holds the SQL for the per-list and per-user summary tables.  Each row of a
+ * summary table holds running totals for every test taken on a spelling list (or by a user):  the
+ * number of tests, the number of words spelled correctly / incorrectly, the best score, the sum of
+ * the scores (for the mean) and the total time taken.  Reading a summary is then a single row
+ * lookup, rather than a scan of every stat.
+ *
+ * The summaries are kept up to date by the DataStore class, which adds each new stat to the totals
+ * in the same transaction that writes the stat.  The rebuild() method recalculates them from scratch,
+ * and countMismatches() checks them against the stats table.
+ *
+ * A test's score is the fraction (0 - 1) of its words that were spelled correctly.
+ */
+
+package com.example.database;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.database.DatabaseSchema.*;
+
+public class StatSummaries {
+
+    //The score of a single test, as an SQL expression over the stats table.
+    private static final String SCORE = "CAST(" + SpellingListStatTable.Cols.NUMBER_CORRECT + " AS REAL) / MAX(" +
+            SpellingListStatTable.Cols.NUMBER_CORRECT + " + " + SpellingListStatTable.Cols.NUMBER_INCORRECT + ", 1)";
+
+    //The totals calculated from scratch, for each list and each user.  Columns are in summary table order,
+    //and are named to match the summary tables (with the key named "id") so the two can be compared.
+    private static final String TOTALS = "COUNT(*) AS test_count, " +
+            "SUM(" + SpellingListStatTable.Cols.NUMBER_CORRECT + ") AS total_correct, " +
+            "SUM(" + SpellingListStatTable.Cols.NUMBER_INCORRECT + ") AS total_incorrect, " +
+            "MAX(" + SCORE + ") AS best_score, " +
+            "SUM(" + SCORE + ") AS score_sum, " +
+            "SUM(" + SpellingListStatTable.Cols.ELAPSED_TIME + ") AS total_elapsed_time";
+    private static final String LIST_TOTALS = "SELECT " + SpellingListStatTable.Cols.LIST_ID + " AS id, " + TOTALS +
+            " FROM " + SpellingListStatTable.NAME +
+            " GROUP BY " + SpellingListStatTable.Cols.LIST_ID;
+    private static final String USER_TOTALS = "SELECT l." + SpellingListTable.Cols.USER_ID + " AS id, " + TOTALS +
+            " FROM " + SpellingListStatTable.NAME + " s JOIN " + SpellingListTable.NAME + " l" +
+            " ON s." + SpellingListStatTable.Cols.LIST_ID + " = l." + SpellingListTable.Cols.ID +
+            " WHERE l." + SpellingListTable.Cols.USER_ID + " IS NOT NULL" +
+            " GROUP BY l." + SpellingListTable.Cols.USER_ID;
+
+    //Statements used by DataStore to add a new stat to the summaries.  For each summary, the row is
+    //created (if it isn't there yet) and then updated.  The arguments for the UPDATE statements are
+    //numberCorrect, numberIncorrect, score, score, elapsedTime and the spelling list id.
+    public static final String SQL_INSERT_LIST = "INSERT OR IGNORE INTO " + ListSummaryTable.NAME +
+            " (" + ListSummaryTable.Cols.LIST_ID + ") VALUES (?)";
+    public static final String SQL_UPDATE_LIST = "UPDATE " + ListSummaryTable.NAME + " SET " +
+            addTotals() + " WHERE " + ListSummaryTable.Cols.LIST_ID + " = ?";
+    public static final String SQL_INSERT_USER = "INSERT OR IGNORE INTO " + UserSummaryTable.NAME +
+            " (" + UserSummaryTable.Cols.USER_ID + ") " + selectUserOfList();
+    public static final String SQL_UPDATE_USER = "UPDATE " + UserSummaryTable.NAME + " SET " +
+            addTotals() + " WHERE " + UserSummaryTable.Cols.USER_ID + " = (" + selectUserOfList() + ")";
+
+    /**
+     * Public method to work out the score of a single test.  This must give exactly the same result
+     * as the SCORE expression used when the summaries are rebuilt.
+     * @param numberCorrect the number of words spelled correctly.
+     * @param numberIncorrect the number of words spelled incorrectly.
+     * @return the score, from 0 to 1.
+     */
+    public static double score(int numberCorrect, int numberIncorrect) {
+        return (double) numberCorrect / Math.max(numberCorrect + numberIncorrect, 1);
+    }
+
+    /**
+     * Public method to create the summary tables.  There are no foreign keys on these tables - they
+     * only hold data calculated from other tables, and can always be rebuilt.
+     * @param db the database.
+     */
+    public static void create(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + ListSummaryTable.NAME + "(" +
+                ListSummaryTable.Cols.LIST_ID + " INTEGER PRIMARY KEY, " +
+                totalsColumns() +
+                ")");
+
+        db.execSQL("CREATE TABLE " + UserSummaryTable.NAME + "(" +
+                UserSummaryTable.Cols.USER_ID + " INTEGER PRIMARY KEY, " +
+                totalsColumns() +
+                ")");
+    }
+
+    /**
+     * Public method to recalculate both summary tables from scratch, from the stats table.  This
+     * should be called inside a transaction, so the tables are never seen half-built.
+     * @param db the database.
+     */
+    public static void rebuild(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + ListSummaryTable.NAME);
+        db.execSQL("DELETE FROM " + UserSummaryTable.NAME);
+        db.execSQL("INSERT INTO " + ListSummaryTable.NAME + " " + LIST_TOTALS);
+        db.execSQL("INSERT INTO " + UserSummaryTable.NAME + " " + USER_TOTALS);
+    }
+
+    /**
+     * Public method to check the summary tables against the stats table.  A summary row counts as a
+     * mismatch if any of its totals differ from the totals calculated from scratch, if it has no stats
+     * behind it, or if it is missing altogether.  Scores are compared with a small tolerance, since
+     * adding them up in a different order can change the last few bits.
+     *
+     * @param db the database.
+     * @return the number of mismatched rows across both tables.  This should be zero.
+     */
+    public static long countMismatches(SQLiteDatabase db) {
+        return countMismatches(db, ListSummaryTable.NAME, ListSummaryTable.Cols.LIST_ID, LIST_TOTALS) +
+                countMismatches(db, UserSummaryTable.NAME, UserSummaryTable.Cols.USER_ID, USER_TOTALS);
+    }
+
+    /**
+     * Private method to check one summary table.
+     * @param db the database.
+     * @param table the name of the summary table.
+     * @param key the name of the table's key column.
+     * @param totals the query that calculates the table's contents from scratch.
+     * @return the number of mismatched rows.
+     */
+    private static long countMismatches(SQLiteDatabase db, String table, String key, String totals) {
+
+        String calculated = "(" + totals + ")";
+
+        //Rows that are wrong, or shouldn't be there at all...
+        long wrong = DatabaseUtils.longForQuery(db,
+                "SELECT COUNT(*) FROM " + table + " s LEFT JOIN " + calculated + " c ON s." + key + " = c.id" +
+                        " WHERE c.id IS NULL" +
+                        " OR s.test_count != c.test_count" +
+                        " OR s.total_correct != c.total_correct" +
+                        " OR s.total_incorrect != c.total_incorrect" +
+                        " OR s.total_elapsed_time != c.total_elapsed_time" +
+                        " OR ABS(s.best_score - c.best_score) > 1e-9" +
+                        " OR ABS(s.score_sum - c.score_sum) > 1e-6",
+                null);
+
+        //...plus rows that are missing.
+        long missing = DatabaseUtils.longForQuery(db,
+                "SELECT COUNT(*) FROM " + calculated + " c LEFT JOIN " + table + " s ON s." + key + " = c.id" +
+                        " WHERE s." + key + " IS NULL",
+                null);
+
+        return wrong + missing;
+    }
+
+    /**
+     * Private method to build the column definitions shared by both summary tables.
+     * @return the column definitions.
+     */
+    private static String totalsColumns() {
+        return ListSummaryTable.Cols.TEST_COUNT + " INTEGER NOT NULL DEFAULT 0, " +
+                ListSummaryTable.Cols.TOTAL_CORRECT + " INTEGER NOT NULL DEFAULT 0, " +
+                ListSummaryTable.Cols.TOTAL_INCORRECT + " INTEGER NOT NULL DEFAULT 0, " +
+                ListSummaryTable.Cols.BEST_SCORE + " REAL NOT NULL DEFAULT 0, " +
+                ListSummaryTable.Cols.SCORE_SUM + " REAL NOT NULL DEFAULT 0, " +
+                ListSummaryTable.Cols.TOTAL_ELAPSED_TIME + " INTEGER NOT NULL DEFAULT 0";
+    }
+
+    /**
+     * Private method to build the SET clause that adds one stat to a summary row.
+     * @return the SET clause.
+     */
+    private static String addTotals() {
+        return ListSummaryTable.Cols.TEST_COUNT + " = " + ListSummaryTable.Cols.TEST_COUNT + " + 1, " +
+                ListSummaryTable.Cols.TOTAL_CORRECT + " = " + ListSummaryTable.Cols.TOTAL_CORRECT + " + ?, " +
+                ListSummaryTable.Cols.TOTAL_INCORRECT + " = " + ListSummaryTable.Cols.TOTAL_INCORRECT + " + ?, " +
+                ListSummaryTable.Cols.BEST_SCORE + " = MAX(" + ListSummaryTable.Cols.BEST_SCORE + ", ?), " +
+                ListSummaryTable.Cols.SCORE_SUM + " = " + ListSummaryTable.Cols.SCORE_SUM + " + ?, " +
+                ListSummaryTable.Cols.TOTAL_ELAPSED_TIME + " = " + ListSummaryTable.Cols.TOTAL_ELAPSED_TIME + " + ?";
+    }
+
+    /**
+     * Private method to build a query for the user id of a spelling list (the list id is a ? argument).
+     * A list with no user gives no row, so its stats aren't added to any user's summary (inserting a
+     * NULL key would make up a new row instead).
+     * @return the query.
+     */
+    private static String selectUserOfList() {
+        return "SELECT " + SpellingListTable.Cols.USER_ID + " FROM " + SpellingListTable.NAME +
+                " WHERE " + SpellingListTable.Cols.ID + " = ?" +
+                " AND " + SpellingListTable.Cols.USER_ID + " IS NOT NULL";
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ *
+ * Filename:  StatementCache.java
+ * Author:  Team SpellTest
+ * Date:  03 May 2019
+ *
+ * Purpose:  This class holds compiled SQL statements for a single database, so that statements
+ * that are run over and over (eg counting the words in a list, or deleting a word) are only
+ * compiled once.  Statements are compiled the first time they are asked for, and re-used after
+ * that - callers just bind new argument values each time.
+ *
+ * A SQLiteStatement holds its bound arguments, so two threads can't safely use the same statement
+ * at once.  Callers must synchronize on the statement while they bind its arguments and run it.
+ */
+
+package com.example.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.HashMap;
+
+public class StatementCache {
+
+    //Instance variables
+    private final SQLiteDatabase mDataBase;                 //The database the statements belong to.
+    private final HashMap<String, SQLiteStatement> mStatements = new HashMap<>();  //Compiled statements, by SQL.
+
+    /**
+     * Class constructor.
+     * @param db the database the statements will be run against.
+     */
+    public StatementCache(SQLiteDatabase db) {
+        mDataBase = db;
+    }
+
+    /**
+     * Public method to get the compiled statement for a piece of SQL, compiling it if this is the first
+     * time it has been asked for.  The SQL should use ? placeholders for all of its values, so that the
+     * same statement can be re-used for every call.
+     *
+     * @param sql the SQL for the statement.
+     * @return the compiled statement.  Synchronize on this while using it.
+     */
+    public synchronized SQLiteStatement get(String sql) {
+        SQLiteStatement statement = mStatements.get(sql);
+        if (statement == null) {
+            statement = mDataBase.compileStatement(sql);
+            mStatements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Public method to release all of the compiled statements.  The cache can still be used afterwards;
+     * statements will just be compiled again.
+     */
+    public synchronized void close() {
+        for (SQLiteStatement statement : mStatements.values()) {
+            statement.close();
+        }
+        mStatements.clear();
+    }
+}
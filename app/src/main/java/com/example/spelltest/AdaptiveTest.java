@@ -0,0 +1,252 @@
+/**
+ * Filename:  AdaptiveTest.java
+ * Author:  Team SpellTest
+ * Date:  15 May 2019
+ *
+ * Purpose:  This class is the word source for adaptive tests (see WordOrder.ADAPTIVE).  Rather than
+ * testing every word in the list, it estimates the user's spelling level as the answers come in, always
+ * picks the word that will tell it the most about that level, and stops as soon as the estimate is good
+ * enough.  On a long list this takes a fraction of the words a full test would.
+ *
+ * It uses the Rasch model:  each word has a difficulty b, the user has an ability a (both on the same
+ * scale, centred on 0), and the chance of the user spelling the word correctly is 1 / (1 + e^(b - a)).
+ *   - A word's difficulty comes from how often it has been spelled correctly by everybody (the word_stat
+ *     table), pulled towards 0 while there are only a few attempts.
+ *   - The user's ability is estimated on a fixed grid of values:  we start with a standard normal prior,
+ *     and multiply in the chance of each answer as it comes in.  The estimate is the mean of the result,
+ *     and its standard error is the standard deviation.
+ *   - The most informative word is the one whose difficulty is closest to the current estimate (where
+ *     the chance of a correct answer is nearest 50%).  The words are sorted by difficulty up front, so
+ *     this is a binary search plus a hop to the nearest untested word on each side (the tested words are
+ *     skipped over using the same trick as a union-find, so each hop is close to constant time).
+ *   - The test stops once the standard error drops to the target (after a minimum number of words), or
+ *     when the words run out.
+ *
+ * Nothing is created per word.  Like TestSession, this class is not thread-safe.
+ */
+
+package com.example.spelltest;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+public class AdaptiveTest implements TestSession.WordSource, TestSession.AnswerListener {
+
+    //Class variables
+    public static final double DEFAULT_TARGET_STANDARD_ERROR = 0.4;    //Stop once the estimate is this good...
+    public static final int DEFAULT_MINIMUM_WORDS = 5;                  //...but never before this many words.
+    private static final double PRIOR_ATTEMPTS = 2;        //Difficulty estimates are shrunk towards 0 as if the word had this many extra attempts, half correct.
+    private static final double MAX_ABILITY = 5;           //The ability grid runs from -MAX_ABILITY to +MAX_ABILITY...
+    private static final int GRID_SIZE = 81;               //...in this many steps.
+
+    //The ability grid, and the standard normal prior over it (shared, and never changed).
+    private static final double[] GRID = new double[GRID_SIZE];
+    private static final double[] PRIOR = new double[GRID_SIZE];
+    static {
+        for (int i = 0; i < GRID_SIZE; i++) {
+            GRID[i] = -MAX_ABILITY + 2 * MAX_ABILITY * i / (GRID_SIZE - 1);
+            PRIOR[i] = Math.exp(-GRID[i] * GRID[i] / 2);
+        }
+    }
+
+    //Instance variables
+    private final Objects.Word[] mWords;            //The words, sorted by difficulty (easiest first).
+    private final double[] mDifficulties;           //The difficulty of each word (same index as mWords).
+    private final int[] mUntestedAbove;             //Points towards the nearest untested word at or above each index (mWords.length if none).
+    private final int[] mUntestedBelow;             //Points towards the nearest untested word at or below each index, plus 1 (0 if none).
+    private final double[] mPosterior = new double[GRID_SIZE];     //Current (unnormalised) belief about the user's ability.
+    private final double mTargetStandardError;      //Stop once the standard error drops to this.
+    private final int mMinimumWords;                //Never stop before this many words have been answered.
+    private int mRemaining;                         //Number of words not tested yet.
+    private double mCurrentDifficulty;              //Difficulty of the word last handed out.
+    private int mAnswered = 0;                      //Number of words answered.
+    private double mAbility = 0;                    //Current ability estimate.
+    private double mStandardError = 1;              //Standard error of the estimate.
+
+    /**
+     * Class constructor.
+     * @param words the words in the spelling list.
+     * @param wordStats the stats for the words (from DataStore.getWordStats()).  Words without stats
+     *                  are given a difficulty of 0 (ie average).
+     * @param targetStandardError stop once the standard error of the ability estimate drops to this.
+     * @param minimumWords never stop before this many words have been answered.
+     */
+    public AdaptiveTest(List<Objects.Word> words, List<Objects.WordStat> wordStats,
+                        double targetStandardError, int minimumWords) {
+
+        int count = words.size();
+        mWords = new Objects.Word[count];
+        mDifficulties = new double[count];
+        mUntestedAbove = new int[count + 1];
+        mUntestedBelow = new int[count + 1];
+        mTargetStandardError = targetStandardError;
+        mMinimumWords = minimumWords;
+        mRemaining = count;
+
+        //Work out each word's difficulty from its stats.
+        HashMap<Long, Objects.WordStat> byWordId = new HashMap<>(wordStats.size() * 2);
+        for (Objects.WordStat stat : wordStats) {
+            byWordId.put(stat.wordId, stat);
+        }
+        final double[] difficulties = new double[count];
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            Objects.WordStat stat = byWordId.get(words.get(i).id);
+            difficulties[i] = (stat == null) ? 0 : difficulty(stat.attemptCount, stat.correctCount);
+            order[i] = i;
+        }
+
+        //Sort the words by difficulty.
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(difficulties[a], difficulties[b]);
+            }
+        });
+        for (int i = 0; i < count; i++) {
+            mWords[i] = words.get(order[i]);
+            mDifficulties[i] = difficulties[order[i]];
+        }
+
+        //To start with, every word is untested, so each index points at itself.
+        for (int i = 0; i <= count; i++) {
+            mUntestedAbove[i] = i;
+            mUntestedBelow[i] = i;
+        }
+
+        System.arraycopy(PRIOR, 0, mPosterior, 0, GRID_SIZE);
+    }
+
+    /**
+     * Public static method to work out a word's difficulty from its attempts.
+     * @param attemptCount the number of times the word has been attempted.
+     * @param correctCount the number of those attempts that were correct.
+     * @return the difficulty (the log-odds of getting the word wrong).  0 is average.
+     */
+    public static double difficulty(int attemptCount, int correctCount) {
+        double correct = correctCount + PRIOR_ATTEMPTS / 2;
+        double wrong = (attemptCount - correctCount) + PRIOR_ATTEMPTS / 2;
+        return Math.log(wrong / correct);
+    }
+
+    /**
+     * Method to take the most informative word left, or null if the test is over.
+     * @return the next word, or null if the estimate is good enough (or there are no words left).
+     */
+    @Override
+    public Objects.Word nextWord() {
+
+        if (mRemaining == 0 || (mAnswered >= mMinimumWords && mStandardError <= mTargetStandardError)) {
+            return null;
+        }
+
+        //Find where the current ability estimate falls in the sorted difficulties, and then the nearest
+        //untested word on either side of that.
+        int position = Arrays.binarySearch(mDifficulties, mAbility);
+        if (position < 0) position = -position - 1;
+        int above = findUntestedAbove(position);
+        int below = findUntestedBelow(position) - 1;
+
+        //Pick whichever of the two is closer (there's always at least one).
+        int best;
+        if (above == mWords.length) {
+            best = below;
+        } else if (below < 0) {
+            best = above;
+        } else {
+            best = (mDifficulties[above] - mAbility < mAbility - mDifficulties[below]) ? above : below;
+        }
+
+        //Mark it as tested (so searches skip over it from now on), and hand it out.
+        mUntestedAbove[best] = best + 1;
+        mUntestedBelow[best + 1] = best;
+        mRemaining--;
+        mCurrentDifficulty = mDifficulties[best];
+        return mWords[best];
+    }
+
+    /**
+     * Method called by the test session when the word last handed out has been answered.  The answer
+     * is used to update the ability estimate.
+     */
+    @Override
+    public void onAnswer(Objects.Word word, boolean correct, long responseTime, long timestamp) {
+
+        //Multiply in the chance of this answer at each ability on the grid, and work out the new mean and
+        //standard deviation as we go.
+        double total = 0;
+        double sum = 0;
+        double sumOfSquares = 0;
+        for (int i = 0; i < GRID_SIZE; i++) {
+            double pCorrect = 1 / (1 + Math.exp(mCurrentDifficulty - GRID[i]));
+            double p = mPosterior[i] * (correct ? pCorrect : 1 - pCorrect);
+            mPosterior[i] = p;
+            total += p;
+            sum += p * GRID[i];
+            sumOfSquares += p * GRID[i] * GRID[i];
+        }
+
+        //Rescale, so the numbers don't get too small after a long test.
+        for (int i = 0; i < GRID_SIZE; i++) {
+            mPosterior[i] /= total;
+        }
+
+        mAbility = sum / total;
+        mStandardError = Math.sqrt(Math.max(0, sumOfSquares / total - mAbility * mAbility));
+        mAnswered++;
+    }
+
+    /**
+     * Private method to find the nearest untested word at or above an index.  Tested words point further
+     * up; the pointers are shortened as we go, so later searches skip straight past them.
+     * @param index the index to start from.
+     * @return the index of the word, or mWords.length if there are no untested words that high.
+     */
+    private int findUntestedAbove(int index) {
+        while (mUntestedAbove[index] != index) {
+            mUntestedAbove[index] = mUntestedAbove[mUntestedAbove[index]];
+            index = mUntestedAbove[index];
+        }
+        return index;
+    }
+
+    /**
+     * Private method to find the nearest untested word below an index.  This works the same way as
+     * findUntestedAbove(), except that everything is shifted up by one (so 0 can mean "none").
+     * @param index the index to start from (ie the word at index - 1 is checked first).
+     * @return the index of the word plus 1, or 0 if there are no untested words that low.
+     */
+    private int findUntestedBelow(int index) {
+        while (mUntestedBelow[index] != index) {
+            mUntestedBelow[index] = mUntestedBelow[mUntestedBelow[index]];
+            index = mUntestedBelow[index];
+        }
+        return index;
+    }
+
+    /**
+     * Public method to get the current ability estimate.
+     * @return the estimate (on the same scale as the word difficulties).
+     */
+    public double getAbility() {
+        return mAbility;
+    }
+
+    /**
+     * Public method to get the standard error of the current ability estimate.
+     * @return the standard error.
+     */
+    public double getStandardError() {
+        return mStandardError;
+    }
+
+    /**
+     * Public method to get the number of words answered so far.
+     * @return the number of words answered.
+     */
+    public int getWordsAnswered() {
+        return mAnswered;
+    }
+}
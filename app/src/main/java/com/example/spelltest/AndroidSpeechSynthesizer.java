@@ -0,0 +1,145 @@
+/**
+ * Filename:  AndroidSpeechSynthesizer.java
+ * Author:  Team SpellTest
+ * Date:  17 May 2019
+ *
+ * Purpose:  This class is the SpeechSynthesizer used on the device.  It wraps an Android TextToSpeech
+ * object (which must already be initialized), and uses synthesizeToFile() to write each word to a file
+ * for the AudioCache.  synthesizeToFile() only queues the work, so each call waits for the engine to
+ * report that the file is done.
+ *
+ * Calls are handled one at a time.  The language and speech rate are settings of the whole engine, so
+ * they are only changed when a call asks for different ones.  The engine only has one utterance progress
+ * listener, so progress reports for anything else (eg words spoken with speak()) are passed on to a
+ * listener given to the constructor.
+ */
+
+package com.example.spelltest;
+
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.util.Log;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AndroidSpeechSynthesizer implements SpeechSynthesizer {
+
+    //Class variables
+    private static final String TAG = "AndroidSpeechSynthesizer";   //Tag for app log entries.
+    private static final String UTTERANCE_PREFIX = "cache-";        //Start of the utterance id for each file.
+    private static final long TIMEOUT = 10000;                      //Give up on a file after this long (in ms).
+
+    //Instance variables
+    private final TextToSpeech mTextToSpeech;           //The text-to-speech engine.
+    private final UtteranceProgressListener mOtherListener;     //Hears about utterances that aren't ours (can be null).
+    private Locale mLocale = null;                      //The language the engine was last set to.
+    private float mRate = Float.NaN;                    //The speech rate the engine was last set to.
+    private int mUtteranceCount = 0;                    //Number of files asked for (used to make the utterance ids).
+    private volatile String mUtteranceId = null;        //Utterance id of the file being written.
+    private volatile CountDownLatch mDone = null;       //Released when the file being written is finished.
+    private volatile boolean mSuccess = false;          //True if the file being written was finished without errors.
+
+    /**
+     * Class constructor.  This takes over the engine's utterance progress listener.
+     * @param textToSpeech the text-to-speech engine.  It must already be initialized.
+     * @param otherListener hears about all of the engine's other utterances (can be null).
+     */
+    public AndroidSpeechSynthesizer(TextToSpeech textToSpeech, UtteranceProgressListener otherListener) {
+        mTextToSpeech = textToSpeech;
+        mOtherListener = otherListener;
+        mTextToSpeech.setOnUtteranceProgressListener(new UtteranceProgressListener() {
+            @Override
+            public void onStart(String utteranceId) {
+                if (!isOurs(utteranceId) && mOtherListener != null) mOtherListener.onStart(utteranceId);
+            }
+
+            @Override
+            public void onDone(String utteranceId) {
+                if (isOurs(utteranceId)) {
+                    finished(utteranceId, true);
+                } else if (mOtherListener != null) {
+                    mOtherListener.onDone(utteranceId);
+                }
+            }
+
+            @Override
+            public void onError(String utteranceId) {
+                if (isOurs(utteranceId)) {
+                    finished(utteranceId, false);
+                } else if (mOtherListener != null) {
+                    mOtherListener.onError(utteranceId);
+                }
+            }
+
+            //Called (on API 23 and up) if the file is dropped from the engine's queue, eg when a word is
+            //spoken live with QUEUE_FLUSH while the file is waiting.
+            @Override
+            public void onStop(String utteranceId, boolean interrupted) {
+                if (isOurs(utteranceId)) {
+                    finished(utteranceId, false);
+                } else if (mOtherListener != null) {
+                    mOtherListener.onStop(utteranceId, interrupted);
+                }
+            }
+        });
+    }
+
+    @Override
+    public synchronized boolean synthesize(String text, Locale locale, float rate, File output) {
+
+        if (!locale.equals(mLocale)) {
+            mTextToSpeech.setLanguage(locale);
+            mLocale = locale;
+        }
+        if (rate != mRate) {
+            mTextToSpeech.setSpeechRate(rate);
+            mRate = rate;
+        }
+
+        //Queue the file, and wait for the engine to finish it.
+        CountDownLatch done = new CountDownLatch(1);
+        mSuccess = false;
+        mDone = done;
+        mUtteranceId = UTTERANCE_PREFIX + (++mUtteranceCount);
+        if (mTextToSpeech.synthesizeToFile(text, null, output, mUtteranceId) != TextToSpeech.SUCCESS) {
+            return false;
+        }
+
+        try {
+            if (!done.await(TIMEOUT, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "Timed out synthesizing \"" + text + "\"");
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return mSuccess;
+    }
+
+    /**
+     * Private method to check whether an utterance is one of our files.
+     * @param utteranceId the id of the utterance.
+     * @return true if it is.
+     */
+    private static boolean isOurs(String utteranceId) {
+        return utteranceId != null && utteranceId.startsWith(UTTERANCE_PREFIX);
+    }
+
+    /**
+     * Private method called (on one of the engine's threads) when one of our utterances is finished.
+     * Files that have already been given up on are ignored.
+     * @param utteranceId the id of the utterance.
+     * @param success true if it finished without errors.
+     */
+    private void finished(String utteranceId, boolean success) {
+        CountDownLatch done = mDone;
+        if (done != null && utteranceId != null && utteranceId.equals(mUtteranceId)) {
+            mSuccess = success;
+            done.countDown();
+        }
+    }
+}
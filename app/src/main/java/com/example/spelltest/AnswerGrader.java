@@ -0,0 +1,406 @@
+/**
+ * Filename:  AnswerGrader.java
+ * Author:  Team SpellTest
+ * Date:  20 May 2019
+ *
+ * Purpose:  This class grades a typed answer against the correct spelling, so that a near miss (eg two
+ * letters swapped) can be told apart from a blank or unrelated answer.  The grade is the edit distance
+ * between the two - the number of letters that have to be inserted, deleted, changed or swapped with the
+ * letter next to them (the "optimal string alignment" distance) - ignoring case.  Answers that are more
+ * than maxDistance() edits away are simply graded as wrong, without working out how far away they are.
+ *
+ * The distance is worked out with Hyyro's bit-parallel algorithm:  each column of the usual edit distance
+ * table is kept as bit vectors (one bit per letter of the spelling), so each letter of the answer costs a
+ * handful of 64-bit operations, whatever the length of the word.  Spellings longer than 64 letters fall
+ * back to the usual table, one row at a time.  For near misses, the table is then filled in and traced
+ * back to classify the errors (insertions, deletions, substitutions and transpositions).  Where each error
+ * is can be read back too (see getEditType() and the methods after it), which the ConfusionAnalyzer class
+ * uses to find the letters users mix up.
+ *
+ * A grader doesn't create any objects once it has warmed up (its work arrays only grow), so a single one
+ * can grade the whole attempt history cheaply.  It is not thread-safe - each thread needs its own - and the
+ * details of the last grade are kept until the next one.  There is no Android code here.
+ */
+
+package com.example.spelltest;
+
+public class AnswerGrader {
+
+    //Class variables
+    public static final int UNGRADED = -1;              //Edit distance of an attempt that hasn't been graded.
+    private static final int WORD_BITS = 64;            //Longest spelling handled by the bit-parallel matcher.
+    private static final int LETTERS_PER_ERROR = 5;     //One more error is allowed for each this many letters.
+
+    //Error types (what kind of mistake an answer has).
+    public static final int ERROR_NONE = 0;             //The answer is correct.
+    public static final int ERROR_INSERTION = 1;        //Only extra letters were typed.
+    public static final int ERROR_DELETION = 2;         //Only letters were left out.
+    public static final int ERROR_SUBSTITUTION = 3;     //Only wrong letters were typed.
+    public static final int ERROR_TRANSPOSITION = 4;    //Only pairs of letters were swapped.
+    public static final int ERROR_MIXED = 5;            //More than one kind of mistake.
+    public static final int ERROR_UNRELATED = 6;        //Too far from the spelling to count as a near miss.
+
+    //Instance variables
+    private final long[] mAsciiMasks = new long[128];   //For each ASCII letter, the positions it appears at in the spelling.
+    private int[] mTable = new int[0];                  //Edit distance table (or rows), grown as needed.
+    private int mDistance = UNGRADED;                   //Edit distance of the last answer (maxDistance + 1 if it was too far).
+    private int mMaxDistance = 0;                       //Largest distance that counted as a near miss for the last answer.
+    private int mLength = 0;                            //Length of the last spelling.
+    private int mInsertions = 0;                        //Number of each kind of error in the last answer.
+    private int mDeletions = 0;
+    private int mSubstitutions = 0;
+    private int mTranspositions = 0;
+    private int[] mEditTypes = new int[0];              //Kind of each error in the last answer (an ERROR_ value)...
+    private int[] mEditAnswerPositions = new int[0];    //...where it is in the answer...
+    private int[] mEditSpellingPositions = new int[0];  //...and where it is in the spelling, in order along the word.
+
+    /**
+     * Public static method to get the most errors an answer can have and still count as a near miss.
+     * @param length the length of the spelling.
+     * @return the largest distance that gets partial credit.
+     */
+    public static int maxDistance(int length) {
+        return 1 + length / LETTERS_PER_ERROR;
+    }
+
+    /**
+     * Public static method to work out the partial credit for an answer.
+     * @param distance the edit distance of the answer (more than maxDistance() if it was too far).
+     * @param length the length of the spelling.
+     * @return 1 for a correct answer, 0 for one that isn't a near miss, and in between for near misses
+     *         (losing 1 / length for each error).
+     */
+    public static double credit(int distance, int length) {
+        if (distance == 0) return 1;
+        if (distance < 0 || distance > maxDistance(length)) return 0;
+        return Math.max(0, 1 - (double) distance / length);
+    }
+
+    /**
+     * Public method to grade an answer.  The details can then be read with the getters below.
+     * @param answer what the user typed (already trimmed).
+     * @param spelling the correct spelling.
+     * @return the edit distance, or maxDistance() + 1 if the answer is further away than that.
+     */
+    public int grade(CharSequence answer, CharSequence spelling) {
+
+        mLength = spelling.length();
+        mMaxDistance = maxDistance(mLength);
+        mDistance = distance(answer, spelling, mMaxDistance);
+        mInsertions = 0;
+        mDeletions = 0;
+        mSubstitutions = 0;
+        mTranspositions = 0;
+        if (mDistance > 0 && mDistance <= mMaxDistance) classify(answer, spelling);
+        return mDistance;
+    }
+
+    /**
+     * Public method to work out the edit distance between two strings (ignoring case), up to a limit.
+     * @param answer the first string.
+     * @param spelling the second string.
+     * @param bound the largest distance of interest.
+     * @return the distance, or bound + 1 if it is more than bound.
+     */
+    public int distance(CharSequence answer, CharSequence spelling, int bound) {
+
+        int n = answer.length();
+        int m = spelling.length();
+
+        //The distance is at least the difference in length.
+        if (Math.abs(n - m) > bound) return bound + 1;
+        if (m == 0) return n;
+        if (n == 0) return m;
+        return (m <= WORD_BITS) ? bitParallelDistance(answer, spelling, bound) : rowDistance(answer, spelling, bound);
+    }
+
+    /**
+     * Private method to work out the edit distance with Hyyro's bit-parallel algorithm (for spellings of up
+     * to 64 letters).  Bit j of each vector is row j + 1 of the current column of the table (the column for
+     * the answer letters seen so far):  vp / vn say where a row is one more / one less than the row above,
+     * and d0 where the diagonal step is free.  The score is the bottom row, ie the distance from the whole
+     * spelling to the answer so far.
+     */
+    private int bitParallelDistance(CharSequence answer, CharSequence spelling, int bound) {
+
+        int n = answer.length();
+        int m = spelling.length();
+
+        //Mark where each ASCII letter is in the spelling.  Other letters are looked up when they're needed.
+        for (int j = 0; j < m; j++) {
+            char c = lower(spelling.charAt(j));
+            if (c < mAsciiMasks.length) mAsciiMasks[c] |= 1L << j;
+        }
+
+        long last = 1L << (m - 1);
+        long vp = (m == WORD_BITS) ? -1L : last | (last - 1);
+        long vn = 0;
+        long d0 = 0;
+        long previousMatches = 0;
+        int score = m;
+        for (int i = 0; i < n; i++) {
+            char c = lower(answer.charAt(i));
+            long matches = (c < mAsciiMasks.length) ? mAsciiMasks[c] : matchMask(spelling, c);
+
+            //A swapped pair is free on the diagonal two steps back (this is the only change from the
+            //plain Levenshtein version).
+            long transpositions = (((~d0) & matches) << 1) & previousMatches;
+            d0 = (((matches & vp) + vp) ^ vp) | matches | vn | transpositions;
+            long hp = vn | ~(d0 | vp);
+            long hn = d0 & vp;
+            if ((hp & last) != 0) {
+                score++;
+            } else if ((hn & last) != 0) {
+                score--;
+            }
+            long x = (hp << 1) | 1;
+            vn = x & d0;
+            vp = (hn << 1) | ~(x | d0);
+            previousMatches = matches;
+
+            //Each letter left can bring the score down by at most one, so give up once it can't get back
+            //under the bound.
+            if (score - (n - i - 1) > bound) {
+                score = bound + 1;
+                break;
+            }
+        }
+
+        //Clear the masks for next time.
+        for (int j = 0; j < m; j++) {
+            char c = lower(spelling.charAt(j));
+            if (c < mAsciiMasks.length) mAsciiMasks[c] = 0;
+        }
+        return Math.min(score, bound + 1);
+    }
+
+    /**
+     * Private method to find where a (non-ASCII) letter is in the spelling.
+     * @return a mask with bit j set if letter j of the spelling matches.
+     */
+    private static long matchMask(CharSequence spelling, char c) {
+        long mask = 0;
+        for (int j = spelling.length() - 1; j >= 0; j--) {
+            mask <<= 1;
+            if (lower(spelling.charAt(j)) == c) mask |= 1;
+        }
+        return mask;
+    }
+
+    /**
+     * Private method to work out the edit distance the usual way, keeping just the last three rows of the
+     * table (for spellings too long for bitParallelDistance()).  Only the band of the table within bound of
+     * the diagonal is filled in (a path that leaves it costs more than bound), with bound + 1 just either
+     * side of it.
+     */
+    private int rowDistance(CharSequence answer, CharSequence spelling, int bound) {
+
+        int n = answer.length();
+        int m = spelling.length();
+        int width = m + 1;
+        ensureTable(3 * width);
+        int[] table = mTable;
+
+        for (int j = 0; j <= m; j++) table[j] = j;
+        int previousMinimum = Integer.MAX_VALUE;
+        for (int i = 1; i <= n; i++) {
+            int row = (i % 3) * width;
+            int above = ((i - 1) % 3) * width;
+            int twoAbove = ((i + 1) % 3) * width;
+            char a = lower(answer.charAt(i - 1));
+            int low = Math.max(1, i - bound);
+            int high = Math.min(m, i + bound);
+            table[row] = i;
+            table[row + low - 1] = (low > 1) ? bound + 1 : i;
+            if (high < m) table[row + high + 1] = bound + 1;
+            int minimum = (low > 1) ? bound + 1 : i;
+            for (int j = low; j <= high; j++) {
+                char s = lower(spelling.charAt(j - 1));
+                int cost = Math.min(table[above + j - 1] + (a == s ? 0 : 1),
+                        Math.min(table[above + j], table[row + j - 1]) + 1);
+                if (i > 1 && j > 1 && a == lower(spelling.charAt(j - 2)) && lower(answer.charAt(i - 2)) == s) {
+                    cost = Math.min(cost, table[twoAbove + j - 2] + 1);
+                }
+                table[row + j] = cost;
+                minimum = Math.min(minimum, cost);
+            }
+
+            //Once two rows in a row are over the bound, every later row is too.
+            if (minimum > bound && previousMinimum > bound) return bound + 1;
+            previousMinimum = minimum;
+        }
+        return Math.min(table[(n % 3) * width + m], bound + 1);
+    }
+
+    /**
+     * Private method to fill in the table for a near miss and trace back through it, counting each kind of
+     * error.  Matches are preferred, then swaps, changes, extra letters and missing letters.  As in
+     * rowDistance(), only the band within mMaxDistance of the diagonal is filled in (the traceback never
+     * leaves it, and the values just outside it are too big to be picked).
+     */
+    private void classify(CharSequence answer, CharSequence spelling) {
+
+        int n = answer.length();
+        int m = spelling.length();
+        int width = m + 1;
+        ensureTable((n + 1) * width);
+        int[] table = mTable;
+
+        int bound = mMaxDistance;
+        for (int j = 0; j <= m; j++) table[j] = j;
+        for (int i = 1; i <= n; i++) {
+            char a = lower(answer.charAt(i - 1));
+            int low = Math.max(1, i - bound);
+            int high = Math.min(m, i + bound);
+            table[i * width] = i;
+            if (low > 1) table[i * width + low - 1] = bound + 1;
+            if (high < m) table[i * width + high + 1] = bound + 1;
+            for (int j = low; j <= high; j++) {
+                char s = lower(spelling.charAt(j - 1));
+                int cost = Math.min(table[(i - 1) * width + j - 1] + (a == s ? 0 : 1),
+                        Math.min(table[(i - 1) * width + j], table[i * width + j - 1]) + 1);
+                if (i > 1 && j > 1 && a == lower(spelling.charAt(j - 2)) && lower(answer.charAt(i - 2)) == s) {
+                    cost = Math.min(cost, table[(i - 2) * width + j - 2] + 1);
+                }
+                table[i * width + j] = cost;
+            }
+        }
+
+        //The traceback finds the errors from the end of the word backwards, so they're stored from the end of
+        //the edit arrays (there is one for each unit of distance).
+        if (mEditTypes.length < mDistance) {
+            mEditTypes = new int[mDistance];
+            mEditAnswerPositions = new int[mDistance];
+            mEditSpellingPositions = new int[mDistance];
+        }
+        int edit = mDistance;
+        int i = n;
+        int j = m;
+        while (i > 0 || j > 0) {
+            int here = table[i * width + j];
+            if (i > 0 && j > 0 && lower(answer.charAt(i - 1)) == lower(spelling.charAt(j - 1)) &&
+                    here == table[(i - 1) * width + j - 1]) {
+                i--;
+                j--;
+            } else if (i > 1 && j > 1 && lower(answer.charAt(i - 1)) == lower(spelling.charAt(j - 2)) &&
+                    lower(answer.charAt(i - 2)) == lower(spelling.charAt(j - 1)) &&
+                    here == table[(i - 2) * width + j - 2] + 1) {
+                mTranspositions++;
+                i -= 2;
+                j -= 2;
+                addEdit(--edit, ERROR_TRANSPOSITION, i, j);
+            } else if (i > 0 && j > 0 && here == table[(i - 1) * width + j - 1] + 1) {
+                mSubstitutions++;
+                i--;
+                j--;
+                addEdit(--edit, ERROR_SUBSTITUTION, i, j);
+            } else if (i > 0 && here == table[(i - 1) * width + j] + 1) {
+                mInsertions++;
+                i--;
+                addEdit(--edit, ERROR_INSERTION, i, j);
+            } else {
+                mDeletions++;
+                j--;
+                addEdit(--edit, ERROR_DELETION, i, j);
+            }
+        }
+    }
+
+    /**
+     * Private method to record where an error is.
+     * @param edit the error number.
+     * @param type the kind of error (an ERROR_ value).
+     * @param answerPosition where it is in the answer (for an insertion, the extra letter; for a deletion,
+     *                       the letter after the missing one).
+     * @param spellingPosition where it is in the spelling (for a deletion, the missing letter; for an
+     *                         insertion, the letter after the extra one).
+     */
+    private void addEdit(int edit, int type, int answerPosition, int spellingPosition) {
+        mEditTypes[edit] = type;
+        mEditAnswerPositions[edit] = answerPosition;
+        mEditSpellingPositions[edit] = spellingPosition;
+    }
+
+    /**
+     * Private method to make sure the table has room for a number of entries.
+     */
+    private void ensureTable(int size) {
+        if (mTable.length < size) mTable = new int[Math.max(size, mTable.length * 2)];
+    }
+
+    /**
+     * Private static method to fold the case of a letter.
+     */
+    private static char lower(char c) {
+        return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : (c < 128) ? c : Character.toLowerCase(c);
+    }
+
+    /**
+     * The following public methods return the details of the last grade.
+     */
+    public int getDistance() {
+        return mDistance;
+    }
+
+    public int getMaxDistance() {
+        return mMaxDistance;
+    }
+
+    public int getInsertions() {
+        return mInsertions;
+    }
+
+    public int getDeletions() {
+        return mDeletions;
+    }
+
+    public int getSubstitutions() {
+        return mSubstitutions;
+    }
+
+    public int getTranspositions() {
+        return mTranspositions;
+    }
+
+    /**
+     * The following public methods return the errors in the last answer one at a time, in order along the
+     * word.  They are only valid for a near miss, where there are getDistance() of them.  A transposition
+     * is at the first letter of the swapped pair.
+     * @param edit the error number, from 0 to getDistance() - 1.
+     */
+    public int getEditType(int edit) {
+        return mEditTypes[edit];
+    }
+
+    public int getEditAnswerPosition(int edit) {
+        return mEditAnswerPositions[edit];
+    }
+
+    public int getEditSpellingPosition(int edit) {
+        return mEditSpellingPositions[edit];
+    }
+
+    /**
+     * Public method to get the partial credit for the last answer (see credit()).
+     * @return the credit, from 0 to 1.
+     */
+    public double getCredit() {
+        return credit(mDistance, mLength);
+    }
+
+    /**
+     * Public method to get the kind of mistake in the last answer.
+     * @return one of the ERROR_ values.
+     */
+    public int getErrorType() {
+        if (mDistance == 0) return ERROR_NONE;
+        if (mDistance > mMaxDistance) return ERROR_UNRELATED;
+
+        //Only one kind of mistake (the others are all zero)?
+        if (mDeletions + mSubstitutions + mTranspositions == 0) return ERROR_INSERTION;
+        if (mInsertions + mSubstitutions + mTranspositions == 0) return ERROR_DELETION;
+        if (mInsertions + mDeletions + mTranspositions == 0) return ERROR_SUBSTITUTION;
+        if (mInsertions + mDeletions + mSubstitutions == 0) return ERROR_TRANSPOSITION;
+        return ERROR_MIXED;
+    }
+}
@@ -0,0 +1,1136 @@
+/**
+ * Filename:  AsyncDataStore.java
+ * Author:  Team SpellTest
+ * Date:  20 April 2019
+ *
+ * Purpose:  This singleton class is the access point that activities, adapters and dialog boxes use
+ * to read and write persistent data.  It sits on top of the DataStore class and runs every
+ * DataStore method on background threads, so that no database work is done on the main (UI)
+ * thread.  Each method returns a Future for the result, and (optionally) hands the result back to
+ * the caller through a DataCallback that is always run on the main thread.
+ *
+ * All writes go through a single writer thread, so they are applied one at a time and in the
+ * order they were requested.  Reads go to a small pool of reader threads.  Since the database is
+ * opened in write-ahead-log mode, SQLite gives each reader its own pooled connection, so reads
+ * (such as stats queries) run in parallel with each other and with the writer instead of waiting
+ * for it.  The DataStore itself is created lazily, on a background thread, the first time a
+ * request comes in (or ahead of time, by open()).
+ */
+
+package com.example.spelltest;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class AsyncDataStore {
+
+    //Class variables
+    private static AsyncDataStore sAsyncDataStore;              //A private reference to the single instance of this class.
+    private static final String TAG = "AsyncDataStore";         //Tag for app log entries (ie for debugging).
+    private static final int READ_QUEUE_CAPACITY = 64;          //Maximum number of reads waiting for a reader thread.
+    private static final int MAX_READERS = 4;                   //Upper limit on the number of reader threads.
+    private static final String WRITER_THREAD_NAME = "DataStore-writer";    //Thread names (show up in traces / ANR reports).
+    private static final String READER_THREAD_NAME = "DataStore-reader-";
+    private static final int WORD_FLUSH_THRESHOLD = 20;         //Write buffered word edits once this many are waiting...
+    private static final long WORD_FLUSH_DELAY = 2000;          //...or this long (in ms) after the first one, whichever comes first.
+    private static final int ATTEMPT_BATCH_SIZE = 256;          //Maximum number of word attempts written per transaction.
+    private static final int ATTEMPT_FLUSH_THRESHOLD = 32;      //Write recorded word attempts once this many are waiting...
+    private static final long ATTEMPT_FLUSH_DELAY = 2000;       //...or this long (in ms) after the first one, whichever comes first.
+
+    //Instance variables
+    private final Context mContext;                             //Application context, used to open the database.
+    private final ThreadPoolExecutor mWriteExecutor;            //The single writer thread - all writes go through here.
+    private final ThreadPoolExecutor mReadExecutor;             //The pool of reader threads.
+    private final Handler mMainHandler;                         //Handler used to deliver results back on the main thread.
+    private DataStore mDataStore;                               //The underlying DataStore (created on first use).
+    private final WordWriteBuffer mWordBuffer = new WordWriteBuffer();  //Word edits waiting to be written.
+    private boolean mWordFlushScheduled = false;                //True if the word flush timer is running (main thread only).
+    private final AttemptRingBuffer mAttemptBuffer = new AttemptRingBuffer(ATTEMPT_BATCH_SIZE);    //Word attempts waiting to be written.
+    private final AtomicBoolean mAttemptFlushQueued = new AtomicBoolean(false);    //True if an attempt flush is waiting for the writer.
+    private boolean mAttemptFlushScheduled = false;             //True if the attempt flush timer is running (main thread only).
+    private final Objects.WordAttempt[] mAttemptBatch = new Objects.WordAttempt[ATTEMPT_BATCH_SIZE];  //Batch array (writer thread only).
+    private final AtomicBoolean mCalibrating = new AtomicBoolean(false);   //True while a difficulty calibration is running.
+    private final AtomicBoolean mGrading = new AtomicBoolean(false);       //True while the attempt history is being graded.
+    private final AnswerGrader mGrader = new AnswerGrader();               //Grades old attempts (writer thread only).
+    private final AtomicBoolean mAnalyzing = new AtomicBoolean(false);     //True while the letter confusions are being updated.
+
+    //Timer used to write out buffered word edits a short time after they were made.
+    private final Runnable mWordFlushTimer = new Runnable() {
+        @Override
+        public void run() {
+            mWordFlushScheduled = false;
+            flushWords(null);
+        }
+    };
+
+    //Timer used to write out recorded word attempts a short time after they were made.
+    private final Runnable mAttemptFlushTimer = new Runnable() {
+        @Override
+        public void run() {
+            mAttemptFlushScheduled = false;
+            flushAttempts(null);
+        }
+    };
+
+    //Writer task that drains the attempt buffer, one batch (and one transaction) at a time, until it is empty.
+    private final Callable<Integer> mAttemptFlushTask = new Callable<Integer>() {
+        @Override
+        public Integer call() {
+
+            //Clear the flag first, so that any attempt recorded from now on queues another flush.
+            mAttemptFlushQueued.set(false);
+
+            int total = 0;
+            int count;
+            while ((count = mAttemptBuffer.drain(mAttemptBatch)) > 0) {
+
+                //Write the batch.  If the write fails, the attempts go back into the buffer.
+                boolean success = false;
+                try {
+                    getDataStore().putWordAttempts(mAttemptBatch, count);
+                    success = true;
+                } finally {
+                    if (!success) mAttemptBuffer.restore(mAttemptBatch, count);
+                }
+                total += count;
+            }
+            return total;
+        }
+    };
+
+    /**
+     * Class constructor.  We have made this private to preclude other classes from calling the
+     * constructor directly.  Instead, calling classes will need to use the newInstance() method
+     * to obtain a reference to the (single) instance of this class.
+     * @param context is the Context to which the database instance will be attached.
+     */
+    private AsyncDataStore(Context context) {
+
+        //Hang on to the application context (not the activity!) so we don't leak activities.
+        mContext = context.getApplicationContext();
+
+        //Create the executors.  There is exactly one writer thread, and one reader thread per core (up to
+        //a small limit).  The writer's queue has no limit, so every write is taken (and none is ever run on
+        //the thread that asked for it, which would break the single writer).  The readers' queue is bounded,
+        //and a read that doesn't fit fails rather than being run on the calling thread.
+        int readers = Math.max(1, Math.min(MAX_READERS, Runtime.getRuntime().availableProcessors()));
+        mWriteExecutor = newExecutor(1, WRITER_THREAD_NAME, new LinkedBlockingQueue<Runnable>());
+        mReadExecutor = newExecutor(readers, READER_THREAD_NAME, new ArrayBlockingQueue<Runnable>(READ_QUEUE_CAPACITY));
+
+        //Results are always handed back on the main thread.
+        mMainHandler = new Handler(Looper.getMainLooper());
+
+        //Create the objects for the attempt batch array once, up front - they are re-used for every batch.
+        for (int i = 0; i < mAttemptBatch.length; i++) {
+            mAttemptBatch[i] = new Objects.WordAttempt(DataStore.NULL_ROW_ID, 0, DataStore.NULL_ROW_ID, null, false, 0, 0);
+        }
+    }
+
+    /**
+     * Private method to create one of the database executors.  If the queue of waiting requests is
+     * bounded and fills up, the request is never run on the calling thread (which could be the main
+     * thread, or a reader asking for a write) - its Future fails instead (see DataTask).
+     *
+     * @param threads the number of threads in the executor.
+     * @param name the name (or name prefix, if there is more than one thread) of the threads.
+     * @param queue the queue of requests waiting for a thread.
+     * @return the new executor.
+     */
+    private static ThreadPoolExecutor newExecutor(final int threads, final String name, BlockingQueue<Runnable> queue) {
+        return new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                queue,
+                new ThreadFactory() {
+                    private int mCount = 0;
+
+                    @Override
+                    public synchronized Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, threads == 1 ? name : name + (++mCount));
+                        thread.setPriority(Thread.NORM_PRIORITY - 1);
+                        return thread;
+                    }
+                },
+                new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                        Log.e(TAG, "Too many requests waiting for " + name + ", request dropped");
+                        ((DataTask<?>) r).fail(new RejectedExecutionException("Too many requests waiting for " + name));
+                    }
+                });
+    }
+
+    /**
+     * Private class for the requests queued on the executors.  It is a plain FutureTask, except that it
+     * can be failed from outside, which is how a request that can't be queued is reported back.
+     */
+    private static class DataTask<T> extends FutureTask<T> {
+
+        DataTask(Callable<T> callable) {
+            super(callable);
+        }
+
+        /**
+         * Method to fail the request without running it.
+         * @param e the exception that waiting for the result will throw.
+         */
+        void fail(Throwable e) {
+            setException(e);
+        }
+    }
+
+    /**
+     * Method used to obtain the single instance of this class.
+     *
+     * @param context  the Context to which this database instance will be attached.
+     * @return a reference to the single instance of this class.
+     */
+    public static synchronized AsyncDataStore newInstance(Context context) {
+
+        //If an instance of this class hasn't been created yet, create it.
+        if (sAsyncDataStore == null) {
+            sAsyncDataStore = new AsyncDataStore(context);
+        }
+
+        //Now that we know an instance of the class has been created, return a reference to it.
+        return sAsyncDataStore;
+    }
+
+    /**
+     * Private method to get the underlying DataStore.  This must only be called from one of the
+     * executor threads, since the first call opens (and, if needed, upgrades) the database.
+     * @return the DataStore instance.
+     */
+    private synchronized DataStore getDataStore() {
+        if (mDataStore == null) {
+            mDataStore = DataStore.newInstance(mContext);
+            mDataStore.setWordWriteBuffer(mWordBuffer);
+        }
+        return mDataStore;
+    }
+
+    /**
+     * Private convenience method used by all of the public methods that only read from the database.
+     * @param task the database work to do.
+     * @param callback the callback to run on the main thread with the result.  This can be null.
+     * @return a Future that can be used to wait for (or cancel) the result.
+     */
+    private <T> Future<T> read(Callable<T> task, DataCallback<T> callback) {
+        return submit(mReadExecutor, task, callback);
+    }
+
+    /**
+     * Private convenience method used by all of the public methods that change the database.
+     * @param task the database work to do.
+     * @param callback the callback to run on the main thread with the result.  This can be null.
+     * @return a Future that can be used to wait for (or cancel) the result.
+     */
+    private <T> Future<T> write(Callable<T> task, DataCallback<T> callback) {
+        return submit(mWriteExecutor, task, callback);
+    }
+
+    /**
+     * Private convenience method used by read() and write().  It queues the task on one of the
+     * database executors and, once the task is done, posts the result back to the main thread
+     * through the callback (if there is one).
+     *
+     * @param executor the executor to run the task on.
+     * @param task the database work to do.
+     * @param callback the callback to run on the main thread with the result.  This can be null.
+     * @return a Future that can be used to wait for (or cancel) the result.
+     */
+    private <T> Future<T> submit(ThreadPoolExecutor executor, final Callable<T> task, final DataCallback<T> callback) {
+
+        DataTask<T> future = new DataTask<>(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+
+                //Do the database work.
+                final T result;
+                try {
+                    result = task.call();
+                } catch (Exception e) {
+                    Log.e(TAG, "Database task failed", e);
+                    throw e;
+                }
+
+                //Hand the result back on the main thread.
+                if (callback != null) {
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onResult(result);
+                        }
+                    });
+                }
+                return result;
+            }
+        });
+
+        executor.execute(future);
+        return future;
+    }
+
+    /**
+     * Private method to wrap a progress listener so that its reports are delivered on the main thread.
+     * @param listener the listener to wrap.  This can be null.
+     * @return a listener that can be called from the database thread, or null if listener is null.
+     */
+    private DataStore.ProgressListener onMainThread(final DataStore.ProgressListener listener) {
+        if (listener == null) return null;
+        return new DataStore.ProgressListener() {
+            @Override
+            public void onProgress(final int done, final int total) {
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onProgress(done, total);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Public method to open the database ahead of time (creating or upgrading it if needed), so that the
+     * first real request doesn't have to wait for it.  The splash screen calls this at startup.  Requests
+     * made while the database is being opened simply wait for it.
+     * @param callback called on the main thread with the time (in ms) taken to open the database (about 0
+     *                 if it was already open).  This can be null.
+     * @return a Future for the same time.
+     */
+    public Future<Long> open(DataCallback<Long> callback) {
+        return write(new Callable<Long>() {
+            @Override
+            public Long call() {
+                long start = SystemClock.elapsedRealtime();
+                getDataStore();
+                return SystemClock.elapsedRealtime() - start;
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to extract all users from the database.
+     * @param callback called on the main thread with an ArrayList of all users.
+     * @return a Future for the same ArrayList.
+     */
+    public Future<ArrayList<Objects.User>> getAllUsers(DataCallback<ArrayList<Objects.User>> callback) {
+        return read(new Callable<ArrayList<Objects.User>>() {
+            @Override
+            public ArrayList<Objects.User> call() {
+                return getDataStore().getAllUsers();
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to get all spelling lists assigned to a specific user.
+     * @param userId is the id of the user for which spelling lists are being searched.
+     * @param callback called on the main thread with the user's spelling lists.
+     * @return a Future for the same ArrayList.
+     */
+    public Future<ArrayList<Objects.SpellingList>> getSpellingLists(final long userId,
+            DataCallback<ArrayList<Objects.SpellingList>> callback) {
+        return read(new Callable<ArrayList<Objects.SpellingList>>() {
+            @Override
+            public ArrayList<Objects.SpellingList> call() {
+                return getDataStore().getSpellingLists(userId);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to get all the words in a single spelling list.
+     * @param spellingListId the id of the spelling list for which words are needed.
+     * @param callback called on the main thread with the words in the list.
+     * @return a Future for the same ArrayList.
+     */
+    public Future<ArrayList<Objects.Word>> getWords(final long spellingListId,
+            DataCallback<ArrayList<Objects.Word>> callback) {
+        return read(new Callable<ArrayList<Objects.Word>>() {
+            @Override
+            public ArrayList<Objects.Word> call() {
+                return getDataStore().getWords(spellingListId);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to get all the words in a single spelling list, with the words the user is weakest at first.
+     * @param spellingListId the id of the spelling list.
+     * @param userId the id of the user taking the test.
+     * @param callback called on the main thread with the words.
+     * @return a Future for the same words.
+     */
+    public Future<ArrayList<Objects.Word>> getWordsWeakestFirst(final long spellingListId, final long userId,
+            DataCallback<ArrayList<Objects.Word>> callback) {
+        return read(new Callable<ArrayList<Objects.Word>>() {
+            @Override
+            public ArrayList<Objects.Word> call() {
+                return getDataStore().getWordsWeakestFirst(spellingListId, userId);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to count the words in a single spelling list.
+     * @param spellingListId the id of the spelling list.
+     * @param callback called on the main thread with the number of words in the list.
+     * @return a Future for the same count.
+     */
+    public Future<Integer> countWords(final long spellingListId, DataCallback<Integer> callback) {
+        return read(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return getDataStore().countWords(spellingListId);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to get one page of the words in a spelling list, keyed by the last word id of the previous page.
+     * @param spellingListId the id of the spelling list.
+     * @param afterWordId only words with an id greater than this are returned.  Use NULL_ROW_ID for the first page.
+     * @param limit the maximum number of words to return.
+     * @param callback called on the main thread with the page of words.
+     * @return a Future for the same page of words.
+     */
+    public Future<ArrayList<Objects.Word>> getWordsAfter(final long spellingListId, final long afterWordId,
+            final int limit, DataCallback<ArrayList<Objects.Word>> callback) {
+        return read(new Callable<ArrayList<Objects.Word>>() {
+            @Override
+            public ArrayList<Objects.Word> call() {
+                return getDataStore().getWordsAfter(spellingListId, afterWordId, limit);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to get one page of the words in a spelling list, starting at a position in the list.
+     * @param spellingListId the id of the spelling list.
+     * @param offset the position in the list of the first word to return.
+     * @param limit the maximum number of words to return.
+     * @param callback called on the main thread with the page of words.
+     * @return a Future for the same page of words.
+     */
+    public Future<ArrayList<Objects.Word>> getWordsAt(final long spellingListId, final int offset,
+            final int limit, DataCallback<ArrayList<Objects.Word>> callback) {
+        return read(new Callable<ArrayList<Objects.Word>>() {
+            @Override
+            public ArrayList<Objects.Word> call() {
+                return getDataStore().getWordsAt(spellingListId, offset, limit);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to retrieve a single spelling list stat.
+     * @param id the id of the spelling list stat we're looking for
+     * @param callback called on the main thread with the stat, or null if the id is invalid.
+     * @return a Future for the same stat.
+     */
+    public Future<Objects.SpellingListStat> getSpellingListStat(final long id,
+            DataCallback<Objects.SpellingListStat> callback) {
+        return read(new Callable<Objects.SpellingListStat>() {
+            @Override
+            public Objects.SpellingListStat call() {
+                return getDataStore().getSpellingListStat(id);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to retrieve a single spelling list, given its id.
+     * @param listId  the id of the spelling list to be retrieved.
+     * @param callback called on the main thread with the list, or null if no list was found.
+     * @return a Future for the same list.
+     */
+    public Future<Objects.SpellingList> getSpellingList(final long listId,
+            DataCallback<Objects.SpellingList> callback) {
+        return read(new Callable<Objects.SpellingList>() {
+            @Override
+            public Objects.SpellingList call() {
+                return getDataStore().getSpellingList(listId);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to get the summary of every test taken on a spelling list.
+     * @param listId the id of the spelling list.
+     * @param callback called on the main thread with the summary.
+     * @return a Future for the same summary.
+     */
+    public Future<Objects.StatSummary> getListSummary(final long listId, DataCallback<Objects.StatSummary> callback) {
+        return read(new Callable<Objects.StatSummary>() {
+            @Override
+            public Objects.StatSummary call() {
+                return getDataStore().getListSummary(listId);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to get the summary of every test taken by a user.
+     * @param userId the id of the user.
+     * @param callback called on the main thread with the summary.
+     * @return a Future for the same summary.
+     */
+    public Future<Objects.StatSummary> getUserSummary(final long userId, DataCallback<Objects.StatSummary> callback) {
+        return read(new Callable<Objects.StatSummary>() {
+            @Override
+            public Objects.StatSummary call() {
+                return getDataStore().getUserSummary(userId);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to get a user's overall accuracy and number of tests taken.
+     * @param userId the id of the user.
+     * @param callback called on the main thread with the user's stats.
+     * @return a Future for the same stats.
+     */
+    public Future<Objects.UserStat> getUserStat(final long userId, DataCallback<Objects.UserStat> callback) {
+        return read(new Callable<Objects.UserStat>() {
+            @Override
+            public Objects.UserStat call() {
+                return getDataStore().getUserStat(userId);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to get the accuracy of every attempt at a word.
+     * @param wordId the id of the word.
+     * @param callback called on the main thread with the word's stats.
+     * @return a Future for the same stats.
+     */
+    public Future<Objects.WordStat> getWordStat(final long wordId, DataCallback<Objects.WordStat> callback) {
+        return read(new Callable<Objects.WordStat>() {
+            @Override
+            public Objects.WordStat call() {
+                return getDataStore().getWordStat(wordId);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to count the wrong answers to a word that sound right (eg "fone" for "phone").
+     * @param wordId the id of the word.
+     * @param callback called on the main thread with the count.
+     * @return a Future for the same count.
+     */
+    public Future<Long> countSoundsRightErrors(final long wordId, DataCallback<Long> callback) {
+        return read(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return getDataStore().countSoundsRightErrors(wordId);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to get the wrong answers to a word, grouped by how they sound.
+     * @param wordId the id of the word.
+     * @param callback called on the main thread with the groups (most common first).
+     * @return a Future for the same groups.
+     */
+    public Future<ArrayList<Objects.MisspellingGroup>> getMisspellingGroups(final long wordId,
+            DataCallback<ArrayList<Objects.MisspellingGroup>> callback) {
+        return read(new Callable<ArrayList<Objects.MisspellingGroup>>() {
+            @Override
+            public ArrayList<Objects.MisspellingGroup> call() {
+                return getDataStore().getMisspellingGroups(wordId);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to get the stats for every word in a spelling list that has been tested.
+     * @param listId the id of the spelling list.
+     * @param callback called on the main thread with the stats.
+     * @return a Future for the same stats.
+     */
+    public Future<ArrayList<Objects.WordStat>> getWordStats(final long listId,
+            DataCallback<ArrayList<Objects.WordStat>> callback) {
+        return read(new Callable<ArrayList<Objects.WordStat>>() {
+            @Override
+            public ArrayList<Objects.WordStat> call() {
+                return getDataStore().getWordStats(listId);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to get a user's accuracy on a single word.
+     * @param userId the id of the user.
+     * @param wordId the id of the word.
+     * @param callback called on the main thread with the stats.
+     * @return a Future for the same stats.
+     */
+    public Future<Objects.UserWordStat> getUserWordStat(final long userId, final long wordId,
+            DataCallback<Objects.UserWordStat> callback) {
+        return read(new Callable<Objects.UserWordStat>() {
+            @Override
+            public Objects.UserWordStat call() {
+                return getDataStore().getUserWordStat(userId, wordId);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to get a user's review schedules for the words in a spelling list.
+     * @param listId the id of the spelling list.
+     * @param userId the id of the user.
+     * @param callback called on the main thread with the schedules.
+     * @return a Future for the same schedules.
+     */
+    public Future<ArrayList<Objects.ReviewSchedule>> getReviewSchedules(final long listId, final long userId,
+            DataCallback<ArrayList<Objects.ReviewSchedule>> callback) {
+        return read(new Callable<ArrayList<Objects.ReviewSchedule>>() {
+            @Override
+            public ArrayList<Objects.ReviewSchedule> call() {
+                return getDataStore().getReviewSchedules(listId, userId);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to count the words a user has reviewed before that are now due again.
+     * @param userId the id of the user.
+     * @param now the current time.
+     * @param callback called on the main thread with the number of due words.
+     * @return a Future for the same count.
+     */
+    public Future<Long> countDueWords(final long userId, final long now, DataCallback<Long> callback) {
+        return read(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return getDataStore().countDueWords(userId, now);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to save a word's review schedule.
+     * @param schedule the schedule to save.  This shouldn't be changed afterwards.
+     * @param callback called on the main thread once the schedule has been saved.  This can be null.
+     * @return a Future that completes once the schedule has been saved.
+     */
+    public Future<Void> putReviewSchedule(final Objects.ReviewSchedule schedule, DataCallback<Void> callback) {
+        return write(new Callable<Void>() {
+            @Override
+            public Void call() {
+                getDataStore().putReviewSchedule(schedule);
+                return null;
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to check the list and user summaries against the stats table.
+     * @param callback called on the main thread with the number of mismatched summary rows.  This can be null.
+     * @return a Future for the same count.
+     */
+    public Future<Long> checkSummaries(DataCallback<Long> callback) {
+        return read(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return getDataStore().checkSummaries();
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to delete a user from the database.
+     * @param userId the id of the user to be deleted.
+     * @param callback called on the main thread once the user has been deleted.  This can be null.
+     * @return a Future that completes once the user has been deleted.
+     */
+    public Future<Void> deleteUser(final long userId, DataCallback<Void> callback) {
+        return write(new Callable<Void>() {
+            @Override
+            public Void call() {
+                getDataStore().deleteUser(userId);
+                return null;
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to delete a word from the database.
+     * @param wordId the id of the word to be deleted.
+     * @param callback called on the main thread once the word has been deleted.  This can be null.
+     * @return a Future that completes once the word has been deleted.
+     */
+    public Future<Void> deleteWord(final long wordId, DataCallback<Void> callback) {
+        return write(new Callable<Void>() {
+            @Override
+            public Void call() {
+                getDataStore().deleteWord(wordId);
+                return null;
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to change the order the words in a spelling list are tested in.
+     * @param listId the id of the spelling list.
+     * @param userId the id of the user who owns the list.
+     * @param wordOrder the new order (one of the WordOrder values).
+     * @param callback called on the main thread once the order has been saved.  This can be null.
+     * @return a Future that completes once the order has been saved.
+     */
+    public Future<Void> setWordOrder(final long listId, final long userId, final int wordOrder,
+            DataCallback<Void> callback) {
+        return write(new Callable<Void>() {
+            @Override
+            public Void call() {
+                getDataStore().setWordOrder(listId, userId, wordOrder);
+                return null;
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to add a new user to the database, or update a current user's information.
+     * @param user the User object containing the user's information.
+     * @param callback called on the main thread with the id of the user.  This can be null.
+     * @return a Future for the id of the user, or NULL_ROW_ID if the user was not added.
+     */
+    public Future<Long> putUser(final Objects.User user, DataCallback<Long> callback) {
+        return write(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return getDataStore().putUser(user);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to add a new spelling list to the database, or update a current list's information.
+     * @param list the SpellingList object containing the list information.
+     * @param callback called on the main thread with the id of the list.  This can be null.
+     * @return a Future for the id of the list, or NULL_ROW_ID if the list was not added.
+     */
+    public Future<Long> putSpellingList(final Objects.SpellingList list, DataCallback<Long> callback) {
+        return write(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return getDataStore().putSpellingList(list);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to add a new spelling word to the database, or update a current word's information.
+     * @param word the Word object containing the word information.
+     * @param callback called on the main thread with the id of the word.  This can be null.
+     * @return a Future for the id of the word, or NULL_ROW_ID if the word was not added.
+     */
+    public Future<Long> putWord(final Objects.Word word, DataCallback<Long> callback) {
+        return write(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return getDataStore().putWord(word);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to queue an edit to an existing word.  Rather than being written straight away,
+     * the edit is held in a write-behind buffer (where it replaces any earlier edit of the same word),
+     * and the buffer is written out in a single batch once enough edits are waiting, or shortly after
+     * the first one was made.  Reads through this class see the edit straight away.  This must be
+     * called on the main thread.
+     *
+     * @param word the edited word.  Its id must not be NULL_ROW_ID (use putWord() for new words).
+     */
+    public void queueWordEdit(Objects.Word word) {
+
+        int pending = mWordBuffer.put(word);
+
+        //Write everything now if the buffer is getting full - otherwise make sure the timer is running.
+        if (pending >= WORD_FLUSH_THRESHOLD) {
+            flushWords(null);
+        } else if (!mWordFlushScheduled) {
+            mWordFlushScheduled = true;
+            mMainHandler.postDelayed(mWordFlushTimer, WORD_FLUSH_DELAY);
+        }
+    }
+
+    /**
+     * Public method to write out all queued word edits now, in a single transaction.  Activities call
+     * this from onPause(), so no edits are left waiting when the app goes into the background.  This
+     * must be called on the main thread.
+     *
+     * @param callback called on the main thread with the number of words written.  This can be null.
+     * @return a Future for the number of words written.
+     */
+    public Future<Integer> flushWords(DataCallback<Integer> callback) {
+
+        //Stop the timer - everything is being written now.
+        mMainHandler.removeCallbacks(mWordFlushTimer);
+        mWordFlushScheduled = false;
+
+        return write(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return getDataStore().flushWords();
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to add (or update) a whole batch of words in a single transaction.
+     * @param words the Word objects to be saved.  Their id fields are set once the batch is saved.
+     * @param listener an optional listener for progress reports (called on the main thread).  This can be null.
+     * @param callback called on the main thread with the row ids of the words.  This can be null.
+     * @return a Future for the row ids of the words, in the same order as the collection.
+     */
+    public Future<long[]> putWords(final Collection<Objects.Word> words, DataStore.ProgressListener listener,
+            DataCallback<long[]> callback) {
+        final DataStore.ProgressListener progress = onMainThread(listener);
+        return write(new Callable<long[]>() {
+            @Override
+            public long[] call() {
+                return getDataStore().putWords(words, progress);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to replace all of the words in a spelling list in a single transaction.
+     * @param listId the id of the spelling list whose words are being replaced.
+     * @param words the new words for the list.
+     * @param listener an optional listener for progress reports (called on the main thread).  This can be null.
+     * @param callback called on the main thread with the row ids of the new words.  This can be null.
+     * @return a Future for the row ids of the new words, in the same order as the collection.
+     */
+    public Future<long[]> replaceWords(final long listId, final Collection<Objects.Word> words,
+            DataStore.ProgressListener listener, DataCallback<long[]> callback) {
+        final DataStore.ProgressListener progress = onMainThread(listener);
+        return write(new Callable<long[]>() {
+            @Override
+            public long[] call() {
+                return getDataStore().replaceWords(listId, words, progress);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to add a new spelling list, along with its initial words, in a single transaction.
+     * @param list the SpellingList object containing the new list information.
+     * @param words the initial words for the list.
+     * @param listener an optional listener for progress reports (called on the main thread).  This can be null.
+     * @param callback called on the main thread with the id of the new list.  This can be null.
+     * @return a Future for the id of the new list, or NULL_ROW_ID if the list was not added.
+     */
+    public Future<Long> putSpellingList(final Objects.SpellingList list, final Collection<Objects.Word> words,
+            DataStore.ProgressListener listener, DataCallback<Long> callback) {
+        final DataStore.ProgressListener progress = onMainThread(listener);
+        return write(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return getDataStore().putSpellingList(list, words, progress);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to add a new spelling list stat to the database.
+     * @param stat the SpellingListStat object containing the new stat information.
+     * @param callback called on the main thread with the id of the new stat.  This can be null.
+     * @return a Future for the id of the new stat, or NULL_ROW_ID if the stat was not added.
+     */
+    public Future<Long> putSpellingListStat(final Objects.SpellingListStat stat, DataCallback<Long> callback) {
+        return write(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return getDataStore().putSpellingListStat(stat);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to record a word attempt in the attempt log.  The attempt is held in memory and
+     * written along with others in a batch, either once enough attempts are waiting or a short time
+     * later.  This must be called on the main thread.
+     *
+     * @param sessionId identifies the test the attempt was made in.
+     * @param wordId the id of the word.
+     * @param typedText what the user typed.
+     * @param correct true if the word was spelled correctly.
+     * @param editDistance the edit distance from the spelling (see AnswerGrader).
+     * @param errorType the kind of mistake (one of the AnswerGrader.ERROR_ values).
+     * @param responseTime time (in ms) from the word being presented to the answer being submitted.
+     * @param timestamp the time the answer was submitted.
+     */
+    public void recordAttempt(long sessionId, long wordId, String typedText, boolean correct, int editDistance,
+                              int errorType, long responseTime, long timestamp) {
+
+        int pending = mAttemptBuffer.add(sessionId, wordId, typedText, correct, editDistance, errorType,
+                responseTime, timestamp);
+
+        //Start writing now if enough attempts are waiting (and a write isn't already queued) - otherwise
+        //make sure the timer is running.
+        if (pending >= ATTEMPT_FLUSH_THRESHOLD) {
+            if (mAttemptFlushQueued.compareAndSet(false, true)) {
+                write(mAttemptFlushTask, null);
+            }
+        } else if (!mAttemptFlushScheduled) {
+            mAttemptFlushScheduled = true;
+            mMainHandler.postDelayed(mAttemptFlushTimer, ATTEMPT_FLUSH_DELAY);
+        }
+    }
+
+    /**
+     * Public method to write all of the recorded word attempts now.  Since all writes are done in
+     * order, any write requested after this one will see the attempts in the database.  This must be
+     * called on the main thread.
+     *
+     * @param callback called on the main thread with the number of attempts written.  This can be null.
+     * @return a Future for the same count.
+     */
+    public Future<Integer> flushAttempts(DataCallback<Integer> callback) {
+
+        //Stop the timer - everything is being written now.
+        mMainHandler.removeCallbacks(mAttemptFlushTimer);
+        mAttemptFlushScheduled = false;
+
+        mAttemptFlushQueued.set(true);
+        return write(mAttemptFlushTask, callback);
+    }
+
+    /**
+     * Public method to re-work out the difficulty of every word from all of the recorded answers (see
+     * the DifficultyCalibrator class), and save it.  The counts are read and the model is fitted on a
+     * reader thread (the fit itself is spread over a fork/join pool with one thread per core), and only
+     * the final update goes through the writer, so other writes aren't held up while it runs.  If a
+     * calibration is already running, or nothing has been answered since the last one, this does nothing
+     * (so it is cheap to call every time the app starts).
+     *
+     * @param callback called on the main thread with the number of words updated (0 if a calibration was
+     *                 already running, or there were no new answers).  This can be null.
+     * @return a Future for the same count.
+     */
+    public Future<Integer> calibrateDifficulties(DataCallback<Integer> callback) {
+        return read(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+
+                if (!mCalibrating.compareAndSet(false, true)) return 0;
+                try {
+                    //Skip it if there are no new answers since the last calibration.
+                    final long lastAttemptId = getDataStore().getLastAttemptId();
+                    if (lastAttemptId == getDataStore().getReportProgress(DataStore.REPORT_DIFFICULTIES)) return 0;
+
+                    //Read the counts and fit the model.
+                    DifficultyCalibrator calibrator = new DifficultyCalibrator();
+                    getDataStore().forEachAttemptCount(calibrator);
+                    ForkJoinPool pool = new ForkJoinPool();
+                    try {
+                        calibrator.calibrate(pool);
+                    } finally {
+                        pool.shutdown();
+                    }
+
+                    //Save the results, and wait for them to be written.
+                    final long[] wordIds = new long[calibrator.getWordCount()];
+                    final int[] levels = new int[wordIds.length];
+                    final int count = calibrator.getLevels(wordIds, levels);
+                    write(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            getDataStore().putWordDifficulties(wordIds, levels, count, lastAttemptId);
+                            return null;
+                        }
+                    }, null).get();
+
+                    Log.i(TAG, "Calibrated " + count + " words from " + calibrator.getPairCount() +
+                            " user / word pairs in " + calibrator.getIterations() + " rounds");
+                    return count;
+                } finally {
+                    mCalibrating.set(false);
+                }
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to grade any attempts in the log that haven't been graded yet (ie those recorded before
+     * grading was added - see AnswerGrader).  The work is done on the writer thread, one chunk (and one
+     * short transaction) at a time, with each chunk queued behind any writes that came in meanwhile, so
+     * new attempts and edits aren't held up by a long history.  Only one grading runs at a time.
+     * @param callback called on the main thread with the number of chunks graded once there are none
+     *                 left (or 0 straight away, if a grading was already running).  This can be null.
+     */
+    public void gradeAttempts(final DataCallback<Integer> callback) {
+
+        if (!mGrading.compareAndSet(false, true)) {
+            if (callback != null) callback.onResult(0);
+            return;
+        }
+
+        final long start = SystemClock.elapsedRealtime();
+        write(new Callable<Void>() {
+            private long mLastId = 0;           //Last attempt graded so far.
+            private int mChunks = 0;            //Number of chunks graded so far.
+
+            @Override
+            public Void call() {
+                try {
+                    mLastId = getDataStore().gradeAttempts(mGrader, mLastId);
+                } catch (RuntimeException e) {
+                    mGrading.set(false);
+                    throw e;
+                }
+
+                //Queue the next chunk, or report back if that was the last one.
+                if (mLastId != DataStore.NULL_ROW_ID) {
+                    mChunks++;
+                    write(this, null);
+                    return null;
+                }
+                mGrading.set(false);
+                Log.i(TAG, "Graded " + mChunks + " chunks of the attempt history in " +
+                        (SystemClock.elapsedRealtime() - start) + " ms");
+                if (callback != null) {
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onResult(mChunks);
+                        }
+                    });
+                }
+                return null;
+            }
+        }, null);
+    }
+
+    /**
+     * Public method to bring the letter confusion counts (see ConfusionAnalyzer) up to date with the attempt
+     * log.  Only the attempts recorded since the last update are read (all of them, the first time).  They
+     * are read on a reader thread and lined up over a fork/join pool with one thread per core, and only the
+     * new counts go through the writer.  If an update is already running, this does nothing.
+     *
+     * @param callback called on the main thread with the number of wrong answers read (0 if an update was
+     *                 already running).  This can be null.
+     * @return a Future for the same count.
+     */
+    public Future<Long> refreshLetterConfusions(DataCallback<Long> callback) {
+        return read(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+
+                if (!mAnalyzing.compareAndSet(false, true)) return 0L;
+                try {
+                    //Count the mistakes in the answers since the last update.
+                    long start = SystemClock.elapsedRealtime();
+                    final long fromId = getDataStore().getReportProgress(DataStore.REPORT_LETTER_CONFUSIONS);
+                    ConfusionAnalyzer analyzer;
+                    final long toId;
+                    ForkJoinPool pool = new ForkJoinPool();
+                    try {
+                        analyzer = new ConfusionAnalyzer(pool);
+                        toId = getDataStore().forEachMisspelling(fromId, analyzer);
+                        analyzer.finish();
+                    } finally {
+                        pool.shutdown();
+                    }
+                    if (toId == fromId) return 0L;
+
+                    //Add them to the totals, and wait for them to be written.
+                    final long[] userIds = new long[analyzer.getCountSize()];
+                    final long[] keys = new long[userIds.length];
+                    final int[] counts = new int[userIds.length];
+                    final int count = analyzer.getCounts(userIds, keys, counts);
+                    boolean added = write(new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() {
+                            return getDataStore().addLetterConfusions(fromId, toId, userIds, keys, counts, count);
+                        }
+                    }, null).get();
+
+                    Log.i(TAG, "Letter confusions " + (added ? "updated" : "already updated") + " from " +
+                            analyzer.getAnswerCount() + " wrong answers (" + analyzer.getNearMissCount() +
+                            " near misses) by " + analyzer.getUserCount() + " users in " +
+                            (SystemClock.elapsedRealtime() - start) + " ms");
+                    return analyzer.getAnswerCount();
+                } finally {
+                    mAnalyzing.set(false);
+                }
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to get a user's most common letter confusions.
+     * @param userId the id of the user, or ConfusionAnalyzer.ALL_USERS for everyone's.
+     * @param limit the most to return.
+     * @param callback called on the main thread with the confusions (most common first).
+     * @return a Future for the same confusions.
+     */
+    public Future<ArrayList<Objects.LetterConfusion>> getLetterConfusions(final long userId, final int limit,
+            DataCallback<ArrayList<Objects.LetterConfusion>> callback) {
+        return read(new Callable<ArrayList<Objects.LetterConfusion>>() {
+            @Override
+            public ArrayList<Objects.LetterConfusion> call() {
+                return getDataStore().getLetterConfusions(userId, limit);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to get where in words a user's mistakes are.
+     * @param userId the id of the user, or ConfusionAnalyzer.ALL_USERS for everyone's.
+     * @param callback called on the main thread with the number of mistakes in each position band.
+     * @return a Future for the same counts.
+     */
+    public Future<int[]> getErrorPositions(final long userId, DataCallback<int[]> callback) {
+        return read(new Callable<int[]>() {
+            @Override
+            public int[] call() {
+                return getDataStore().getErrorPositions(userId);
+            }
+        }, callback);
+    }
+
+    /**
+     * Public method to recalculate the list and user summaries from scratch.
+     * @param callback called on the main thread once the summaries have been rebuilt.  This can be null.
+     * @return a Future that completes once the summaries have been rebuilt.
+     */
+    public Future<Void> rebuildSummaries(DataCallback<Void> callback) {
+        return write(new Callable<Void>() {
+            @Override
+            public Void call() {
+                getDataStore().rebuildSummaries();
+                return null;
+            }
+        }, callback);
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Filename:  AttemptRingBuffer.java
+ * Author:  Team SpellTest
+ * Date:  08 May 2019
+ *
+ * Purpose:  This class holds word attempts that have been recorded but not yet written to the
+ * attempt log in the database.  Attempts are added on the main thread as the user answers each
+ * word, and drained in batches by the database writer thread, which writes each batch in a single
+ * transaction.
+ *
+ * The buffer is a ring of pre-allocated WordAttempt objects:  adding an attempt just copies its
+ * values into the next free slot, and draining copies them out into the writer's own batch array,
+ * so no objects are created for each attempt.  If attempts ever come in faster than they can be
+ * written and the ring fills up, it doubles in size rather than dropping anything.  If writing a
+ * batch fails, the writer puts it back with restore(), so it is written again with the next batch.
+ *
+ * All methods in this class are thread-safe.
+ */
+
+package com.example.spelltest;
+
+public class AttemptRingBuffer {
+
+    //Instance variables
+    private Objects.WordAttempt[] mSlots;               //The ring of slots.  Its length is always a power of two.
+    private int mHead = 0;                              //Slot holding the oldest attempt.
+    private int mSize = 0;                              //Number of attempts in the buffer.
+
+    /**
+     * Class constructor.
+     * @param capacity the initial number of slots.  This is rounded up to a power of two.
+     */
+    public AttemptRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        mSlots = new Objects.WordAttempt[size];
+        fillSlots(0);
+    }
+
+    /**
+     * Public method to add an attempt to the buffer.
+     * @param sessionId identifies the test the attempt was made in.
+     * @param wordId the id of the word.
+     * @param typedText what the user typed.
+     * @param correct true if the word was spelled correctly.
+     * @param editDistance the edit distance from the spelling (see AnswerGrader).
+     * @param errorType the kind of mistake (one of the AnswerGrader.ERROR_ values).
+     * @param responseTime time (in ms) from the word being presented to the answer being submitted.
+     * @param timestamp the time the answer was submitted.
+     * @return the number of attempts now waiting to be written.
+     */
+    public synchronized int add(long sessionId, long wordId, String typedText, boolean correct,
+                                int editDistance, int errorType, long responseTime, long timestamp) {
+
+        if (mSize == mSlots.length) grow();
+
+        Objects.WordAttempt slot = mSlots[(mHead + mSize) & (mSlots.length - 1)];
+        slot.sessionId = sessionId;
+        slot.wordId = wordId;
+        slot.typedText = typedText;
+        slot.correct = correct;
+        slot.editDistance = editDistance;
+        slot.errorType = errorType;
+        slot.responseTime = responseTime;
+        slot.timestamp = timestamp;
+
+        return ++mSize;
+    }
+
+    /**
+     * Public method to take the oldest attempts out of the buffer.  The values are copied into the
+     * WordAttempt objects already in the output array (no new objects are created).
+     *
+     * @param out the array to copy attempts into.  Every element must be a WordAttempt object.
+     * @return the number of attempts copied (from the start of the array).  Zero if the buffer was empty.
+     */
+    public synchronized int drain(Objects.WordAttempt[] out) {
+
+        int count = Math.min(out.length, mSize);
+        int mask = mSlots.length - 1;
+
+        for (int i = 0; i < count; i++) {
+            Objects.WordAttempt slot = mSlots[(mHead + i) & mask];
+            Objects.WordAttempt attempt = out[i];
+            attempt.sessionId = slot.sessionId;
+            attempt.wordId = slot.wordId;
+            attempt.typedText = slot.typedText;
+            attempt.correct = slot.correct;
+            attempt.editDistance = slot.editDistance;
+            attempt.errorType = slot.errorType;
+            attempt.responseTime = slot.responseTime;
+            attempt.timestamp = slot.timestamp;
+            slot.typedText = null;                      //Don't hang on to the string.
+        }
+
+        mHead = (mHead + count) & mask;
+        mSize -= count;
+        return count;
+    }
+
+    /**
+     * Public method to put attempts that were drained, but couldn't be written, back into the buffer.
+     * They go back in front of any attempts added since, so the attempts are still written in order.
+     *
+     * @param attempts the array the attempts were drained into.  The values are copied back out of it.
+     * @param count the number of attempts to put back (from the start of the array).
+     */
+    public synchronized void restore(Objects.WordAttempt[] attempts, int count) {
+
+        while (mSize + count > mSlots.length) grow();
+
+        int mask = mSlots.length - 1;
+        mHead = (mHead - count) & mask;
+        for (int i = 0; i < count; i++) {
+            Objects.WordAttempt slot = mSlots[(mHead + i) & mask];
+            Objects.WordAttempt attempt = attempts[i];
+            slot.sessionId = attempt.sessionId;
+            slot.wordId = attempt.wordId;
+            slot.typedText = attempt.typedText;
+            slot.correct = attempt.correct;
+            slot.editDistance = attempt.editDistance;
+            slot.errorType = attempt.errorType;
+            slot.responseTime = attempt.responseTime;
+            slot.timestamp = attempt.timestamp;
+        }
+        mSize += count;
+    }
+
+    /**
+     * Public method to get the number of attempts waiting to be written.
+     * @return the number of attempts in the buffer.
+     */
+    public synchronized int size() {
+        return mSize;
+    }
+
+    /**
+     * Private method to double the number of slots.  The attempts are moved to the start of the new
+     * ring, oldest first.
+     */
+    private void grow() {
+        Objects.WordAttempt[] old = mSlots;
+        mSlots = new Objects.WordAttempt[old.length * 2];
+        for (int i = 0; i < old.length; i++) {
+            mSlots[i] = old[(mHead + i) & (old.length - 1)];
+        }
+        mHead = 0;
+        fillSlots(old.length);
+    }
+
+    /**
+     * Private method to create the WordAttempt objects for the empty slots.
+     * @param from the first slot to fill.
+     */
+    private void fillSlots(int from) {
+        for (int i = from; i < mSlots.length; i++) {
+            mSlots[i] = new Objects.WordAttempt(DataStore.NULL_ROW_ID, 0, DataStore.NULL_ROW_ID, null, false, 0, 0);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/**
+ * Filename:  AudioCache.java
+ * Author:  Team SpellTest
+ * Date:  17 May 2019
+ *
+ * Purpose:  This class keeps spoken words on disk, so that a word only has to be run through the
+ * text-to-speech engine once, and every later prompt (or replay) just plays a file.  Words are
+ * normally synthesized ahead of time (see prefetch()), as soon as a spelling list is loaded.
+ *
+ * The cache is content-addressed:  each file is named after a hash of everything that changes the
+ * sound (the text, the locale and the speech rate), so the same words in different lists share a file,
+ * and changing the locale or rate never plays stale audio.  Files are written under a temporary name and
+ * then renamed, so a half-written file is never played.
+ *
+ * The total size of the files is kept under a limit by throwing away the least recently played ones.
+ * The order is kept in memory, and each file's modified time is updated when it is played, so the order
+ * survives a restart.  The cache also counts hits, misses and evictions.
+ *
+ * All methods in this class are thread-safe.  The synthesis itself is done outside the lock, so
+ * lookups are never held up by it.  There is no Android code here, so the cache can be run on any JVM
+ * with a fake SpeechSynthesizer.
+ */
+
+package com.example.spelltest;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+public class AudioCache {
+
+    //Class variables
+    private static final String FILE_EXTENSION = ".wav";        //Extension of cached audio files.
+    private static final String TEMP_EXTENSION = ".tmp";        //Extension of files still being written.
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    //Instance variables
+    private final File mDirectory;                              //Where the files are kept.
+    private final long mMaxBytes;                               //Maximum total size of the files.
+    private final SpeechSynthesizer mSynthesizer;               //Makes the files.
+    private final LinkedHashMap<String, Long> mEntries =        //File size for each key, least recently played first.
+            new LinkedHashMap<>(16, 0.75f, true);
+    private long mSizeBytes = 0;                                //Total size of the files.
+    private long mHits = 0;                                     //Number of get() calls that found a file.
+    private long mMisses = 0;                                   //Number of get() calls that didn't.
+    private long mEvictions = 0;                                //Number of files thrown away to make room.
+    private long mSynthesisCount = 0;                           //Number of files made.
+    private long mSynthesisTime = 0;                            //Total time (in ms) spent making them.
+
+    /**
+     * Class constructor.  Any files already in the directory (eg from the last time the app ran) are
+     * picked up, and half-written ones are deleted.
+     * @param directory the directory to keep the files in.  It is created if it doesn't exist.
+     * @param maxBytes the maximum total size of the files.
+     * @param synthesizer makes the files.
+     */
+    public AudioCache(File directory, long maxBytes, SpeechSynthesizer synthesizer) {
+
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+        mSynthesizer = synthesizer;
+        mDirectory.mkdirs();
+
+        File[] files = mDirectory.listFiles();
+        if (files == null) return;
+
+        //Add the existing files oldest first, so the least recently played end up at the front.
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long difference = a.lastModified() - b.lastModified();
+                return (difference < 0) ? -1 : (difference > 0) ? 1 : 0;
+            }
+        });
+        synchronized (this) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(FILE_EXTENSION)) {
+                    long size = file.length();
+                    mEntries.put(name.substring(0, name.length() - FILE_EXTENSION.length()), size);
+                    mSizeBytes += size;
+                } else if (name.endsWith(TEMP_EXTENSION)) {
+                    file.delete();
+                }
+            }
+            trim(null);
+        }
+    }
+
+    /**
+     * Public static method to work out the key for some text.  This is the SHA-1 hash of the text,
+     * locale and rate, in hex.
+     * @param text the text.
+     * @param locale the language it is said in.
+     * @param rate the speech rate.
+     * @return the key.
+     */
+    public static String key(String text, Locale locale, float rate) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update((text + '\n' + locale.toLanguageTag() + '\n' + rate).getBytes("UTF-8"));
+            byte[] hash = digest.digest();
+
+            char[] hex = new char[hash.length * 2];
+            for (int i = 0; i < hash.length; i++) {
+                hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+                hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xf];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            //Every Java platform has to support both of these.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Public method to look up the audio for some text, for playing.  A hit moves the file to the back
+     * of the eviction order.
+     * @param text the text.
+     * @param locale the language it is said in.
+     * @param rate the speech rate.
+     * @return the audio file, or null if it isn't in the cache.
+     */
+    public File get(String text, Locale locale, float rate) {
+
+        String key = key(text, locale, rate);
+        File file = fileFor(key);
+
+        synchronized (this) {
+            Long size = mEntries.get(key);
+            if (size != null && !file.isFile()) {
+                //The file has gone (eg the system cleared the app's cache directory).
+                mEntries.remove(key);
+                mSizeBytes -= size;
+                size = null;
+            }
+            if (size == null) {
+                mMisses++;
+                return null;
+            }
+            mHits++;
+        }
+
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * Public method to make sure the audio for some text is in the cache, synthesizing it if it isn't.
+     * This doesn't count as a hit or a miss, or change the eviction order.  It waits for the synthesis,
+     * so it must not be called from the main thread.
+     * @param text the text.
+     * @param locale the language to say it in.
+     * @param rate the speech rate.
+     * @return true if the audio is now in the cache.
+     */
+    public boolean prefetch(String text, Locale locale, float rate) {
+
+        String key = key(text, locale, rate);
+        File file = fileFor(key);
+        synchronized (this) {
+            if (mEntries.containsKey(key) && file.isFile()) return true;
+        }
+
+        //Write to a temporary file (named for this thread, in case two threads are making the same
+        //file), and then move it into place.
+        File temp = new File(mDirectory, key + '.' + Thread.currentThread().getId() + TEMP_EXTENSION);
+        long start = System.nanoTime();
+        boolean success = mSynthesizer.synthesize(text, locale, rate, temp) && temp.length() > 0 &&
+                temp.renameTo(file);
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        if (!success) {
+            temp.delete();
+            return false;
+        }
+
+        synchronized (this) {
+            Long old = mEntries.put(key, file.length());
+            if (old != null) mSizeBytes -= old;
+            mSizeBytes += file.length();
+            mSynthesisCount++;
+            mSynthesisTime += elapsed;
+            trim(key);
+        }
+        return true;
+    }
+
+    /**
+     * Private method to throw away the least recently played files until the cache is back under its
+     * size limit.  This must be called with the lock held.
+     * @param keep a key that mustn't be thrown away (ie the file just added), or null.
+     */
+    private void trim(String keep) {
+        Iterator<Map.Entry<String, Long>> iterator = mEntries.entrySet().iterator();
+        while (mSizeBytes > mMaxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            if (entry.getKey().equals(keep)) continue;
+
+            fileFor(entry.getKey()).delete();
+            mSizeBytes -= entry.getValue();
+            iterator.remove();
+            mEvictions++;
+        }
+    }
+
+    /**
+     * Private method to get the file for a key.
+     * @param key the key.
+     * @return the file (which may not exist).
+     */
+    private File fileFor(String key) {
+        return new File(mDirectory, key + FILE_EXTENSION);
+    }
+
+    /**
+     * The following public methods return the cache metrics.
+     */
+    public synchronized long getHitCount() {
+        return mHits;
+    }
+
+    public synchronized long getMissCount() {
+        return mMisses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return mEvictions;
+    }
+
+    public synchronized int getFileCount() {
+        return mEntries.size();
+    }
+
+    public synchronized long getSizeBytes() {
+        return mSizeBytes;
+    }
+
+    public synchronized long getSynthesisCount() {
+        return mSynthesisCount;
+    }
+
+    /**
+     * Public method to get the mean time taken to synthesize a file.
+     * @return the mean time, in ms (0 if nothing has been synthesized yet).
+     */
+    public synchronized long getMeanSynthesisTime() {
+        return (mSynthesisCount == 0) ? 0 : mSynthesisTime / mSynthesisCount;
+    }
+}
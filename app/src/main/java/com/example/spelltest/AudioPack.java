@@ -0,0 +1,311 @@
+/**
+ * Filename:  AudioPack.java
+ * Author:  Team SpellTest
+ * Date:  19 May 2019
+ *
+ * Purpose:  This class reads a pack of pre-recorded word audio, so that words can be said on devices
+ * with no usable text-to-speech voice.  A pack is made by the AudioPackBuilder class (in the unit tests, and
+ * run on a desktop JVM with "./gradlew :app:audioPack"), and is two files:
+ *   - the archive (ARCHIVE_NAME), which is just the clips one after another, and
+ *   - the index (INDEX_NAME), which says where each clip is, sorted by normalized spelling.
+ *
+ * The index is memory-mapped rather than read in, so opening a pack takes the same (short) time however
+ * many words it has, and nothing is held on the heap for it.  Looking a word up is a binary search of the
+ * mapped index.  The clips themselves are never read by this class:  find() gives the offset and length of
+ * a clip in the archive, and the archive's file descriptor (see getFileDescriptor()) can be handed straight
+ * to the player along with them.
+ *
+ * Index layout (all numbers big-endian):
+ *   header:   magic (int), version (int), entry count (int), archive length (long)
+ *   entries:  for each word, in order of its spelling - spelling offset (int), spelling length (int),
+ *             clip offset (long), clip length (int).  Spelling offsets are from the start of the spellings.
+ *   spellings:  the normalized spellings, in UTF-8, with no separators.
+ * The spellings are sorted by their UTF-8 bytes (unsigned), which is the order compareKey() searches in.
+ *
+ * All methods in this class are thread-safe (the mapped index is only read with absolute gets).  The only
+ * Android code here is logging, so packs can be built and checked on any JVM.
+ */
+
+package com.example.spelltest;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.Normalizer;
+import java.util.Locale;
+
+public class AudioPack {
+
+    //Class variables
+    private static final String TAG = "AudioPack";              //Tag for app log entries (ie for debugging).
+    public static final String ARCHIVE_NAME = "words.pack";     //Name of the archive file.
+    public static final String INDEX_NAME = "words.idx";        //Name of the index file.
+    static final int MAGIC = 0x53504958;                        //First four bytes of an index ("SPIX").
+    static final int VERSION = 1;                               //Version of the index layout.
+    static final int HEADER_SIZE = 20;                          //Size of the index header, in bytes.
+    static final int ENTRY_SIZE = 20;                           //Size of each index entry, in bytes.
+    private static final String TEMP_EXTENSION = ".tmp";        //Extension of files still being copied in.
+    private static final int BAD_ENTRY = Integer.MIN_VALUE;     //compareKey() result for a corrupt entry.
+
+    //Instance variables
+    private final RandomAccessFile mArchive;                    //The archive (kept open for its file descriptor).
+    private final MappedByteBuffer mIndex;                      //The mapped index.
+    private final int mCount;                                   //Number of clips in the pack.
+    private final int mKeysStart;                               //Where the spellings start in the index.
+    private final long mArchiveLength;                          //Length of the archive, in bytes.
+
+    /**
+     * Class constructor, which opens a pack and checks that its index matches the archive.  The pack stays open
+     * until close() is called.
+     * @param archive the archive file.
+     * @param index the index file.
+     * @throws IOException if either file can't be read, or the index isn't valid for the archive.
+     */
+    public AudioPack(File archive, File index) throws IOException {
+
+        //Map the index.  The mapping stays valid after the channel is closed.
+        RandomAccessFile indexFile = new RandomAccessFile(index, "r");
+        try {
+            FileChannel channel = indexFile.getChannel();
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Bad index size: " + channel.size());
+            }
+            mIndex = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            indexFile.close();
+        }
+
+        //Check the header.
+        if (mIndex.getInt(0) != MAGIC || mIndex.getInt(4) != VERSION) {
+            throw new IOException("Not a version " + VERSION + " audio pack index: " + index);
+        }
+        mCount = mIndex.getInt(8);
+        long archiveLength = mIndex.getLong(12);
+        if (mCount < 0 || (long) mCount * ENTRY_SIZE > mIndex.capacity() - HEADER_SIZE) {
+            throw new IOException("Bad entry count: " + mCount);
+        }
+        mKeysStart = HEADER_SIZE + mCount * ENTRY_SIZE;
+        mArchiveLength = archiveLength;
+
+        //Check the archive is the one the index was built for.  The entries themselves aren't checked here
+        //(that would make opening a big pack slow) - each one is checked as it is found.
+        mArchive = new RandomAccessFile(archive, "r");
+        if (mArchive.length() != archiveLength) {
+            mArchive.close();
+            throw new IOException("Archive is " + archive.length() + " bytes, but the index expects " + archiveLength);
+        }
+    }
+
+    /**
+     * Public static method to put a spelling into the form used as the key in the index:  trimmed,
+     * composed (so accented letters match however they were typed) and in lower case.
+     * @param spelling the spelling.
+     * @return the normalized spelling.
+     */
+    public static String normalize(String spelling) {
+        return Normalizer.normalize(spelling.trim(), Normalizer.Form.NFC).toLowerCase(Locale.US);
+    }
+
+    /**
+     * Public static method to encode a spelling as it is stored in the index.
+     * @param spelling the spelling (normalized or not).
+     * @return the normalized spelling, in UTF-8.
+     */
+    public static byte[] encodeKey(String spelling) {
+        try {
+            return normalize(spelling).getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            //Every Java platform has to support UTF-8.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Public static method to compare two encoded spellings, in the order the index is sorted in (byte by
+     * byte, unsigned, with a shorter spelling before any longer one that starts the same way).
+     * @param a the first spelling.
+     * @param b the second spelling.
+     * @return less than, equal to or greater than zero as a comes before, is the same as or comes after b.
+     */
+    public static int compareKeys(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int difference = (a[i] & 0xff) - (b[i] & 0xff);
+            if (difference != 0) return difference;
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * Public method to look up a word in the pack.
+     * @param spelling the word (it is normalized first).
+     * @return the entry number of the word's clip (for getClipOffset() and getClipLength()), or -1 if the
+     *         word isn't in the pack.
+     */
+    public int find(String spelling) {
+
+        byte[] key = encodeKey(spelling);
+        int low = 0;
+        int high = mCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int order = compareKey(middle, key);
+            if (order == BAD_ENTRY) {
+                return -1;
+            } else if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                //Don't hand out a clip that runs off the end of the archive (ie a corrupt entry).
+                long offset = getClipOffset(middle);
+                int length = getClipLength(middle);
+                return (offset >= 0 && length >= 0 && offset + length <= mArchiveLength) ? middle : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Private method to compare the spelling of an entry in the index with a key, without copying it out.
+     * @param entry the entry number.
+     * @param key the encoded spelling.
+     * @return less than, equal to or greater than zero as the entry comes before, matches or comes after
+     *         the key, or BAD_ENTRY if the entry's spelling runs off the end of the index (ie a corrupt
+     *         entry, which is logged).
+     */
+    private int compareKey(int entry, byte[] key) {
+        int position = HEADER_SIZE + entry * ENTRY_SIZE;
+        int offset = mIndex.getInt(position);
+        int length = mIndex.getInt(position + 4);
+        if (offset < 0 || length < 0 || offset > mIndex.capacity() - mKeysStart - length) {
+            Log.e(TAG, "Bad audio pack index entry " + entry + " (spelling at " + offset + ", " + length + " bytes)");
+            return BAD_ENTRY;
+        }
+        int start = mKeysStart + offset;
+
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (mIndex.get(start + i) & 0xff) - (key[i] & 0xff);
+            if (difference != 0) return difference;
+        }
+        return length - key.length;
+    }
+
+    /**
+     * Public method to get where an entry's clip starts in the archive.
+     * @param entry the entry number (from find()).
+     * @return the offset, in bytes.
+     */
+    public long getClipOffset(int entry) {
+        return mIndex.getLong(HEADER_SIZE + entry * ENTRY_SIZE + 8);
+    }
+
+    /**
+     * Public method to get the length of an entry's clip.
+     * @param entry the entry number (from find()).
+     * @return the length, in bytes.
+     */
+    public int getClipLength(int entry) {
+        return mIndex.getInt(HEADER_SIZE + entry * ENTRY_SIZE + 16);
+    }
+
+    /**
+     * Public method to get the archive's file descriptor, so that clips can be played straight from it
+     * (eg with MediaPlayer.setDataSource(fd, offset, length)).  It must not be closed by the caller.
+     * @return the file descriptor.
+     * @throws IOException if the pack has been closed.
+     */
+    public FileDescriptor getFileDescriptor() throws IOException {
+        return mArchive.getFD();
+    }
+
+    /**
+     * Public method to get the number of clips in the pack.
+     * @return the number of clips.
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Public method to close the archive.  The index mapping is released once the pack is garbage collected.
+     */
+    public void close() {
+        try {
+            mArchive.close();
+        } catch (IOException e) {
+            //Nothing useful to do here - the file was only being read.
+        }
+    }
+
+    /**
+     * Public static method to import a pack (eg one copied onto the device) into the directory the app
+     * reads packs from.  The pack is checked before it is copied, and the copies are written under
+     * temporary names and then renamed, so a half-copied pack is never opened.  The source files are
+     * deleted once the pack has been imported.
+     * @param from the directory holding the new pack's ARCHIVE_NAME and INDEX_NAME files.
+     * @param to the directory to import it into.  Any pack already there is replaced.
+     * @return true if a pack was imported, false if there wasn't one to import.
+     * @throws IOException if the new pack isn't valid, or couldn't be copied.
+     */
+    public static boolean importPack(File from, File to) throws IOException {
+
+        File archive = new File(from, ARCHIVE_NAME);
+        File index = new File(from, INDEX_NAME);
+        if (!archive.isFile() || !index.isFile()) return false;
+
+        //Make sure the pack can be opened before replacing anything.
+        new AudioPack(archive, index).close();
+
+        to.mkdirs();
+        File archiveCopy = new File(to, ARCHIVE_NAME + TEMP_EXTENSION);
+        File indexCopy = new File(to, INDEX_NAME + TEMP_EXTENSION);
+        copy(archive, archiveCopy);
+        copy(index, indexCopy);
+
+        //Replace the index last, so an old index is never opened with the new archive (and if that
+        //happens anyway, the archive length check stops it being used).
+        if (!archiveCopy.renameTo(new File(to, ARCHIVE_NAME)) || !indexCopy.renameTo(new File(to, INDEX_NAME))) {
+            throw new IOException("Couldn't move the pack into " + to);
+        }
+        archive.delete();
+        index.delete();
+        return true;
+    }
+
+    /**
+     * Private static method to copy a file.  The copy is done by the file system where it can be.
+     * @param source the file to copy.
+     * @param destination the file to write.  Anything already in it is replaced.
+     * @throws IOException if the copy failed.
+     */
+    private static void copy(File source, File destination) throws IOException {
+        FileInputStream in = new FileInputStream(source);
+        try {
+            FileOutputStream out = new FileOutputStream(destination);
+            try {
+                FileChannel input = in.getChannel();
+                FileChannel output = out.getChannel();
+                long size = input.size();
+                long position = 0;
+                while (position < size) {
+                    position += input.transferTo(position, size - position, output);
+                }
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,452 @@
+/**
+ * Filename:  ConfusionAnalyzer.java
+ * Author:  Team SpellTest
+ * Date:  22 May 2019
+ *
+ * Purpose:  This class finds the letters each user mixes up, and where in words they go wrong, from their
+ * wrong answers.  Each near miss is lined up against the spelling (see AnswerGrader), and every error in
+ * it is counted as a "confusion":
+ *   - a wrong letter (eg "a/e" - an "a" was typed as an "e"),
+ *   - two letters swapped (eg "ie/ei"),
+ *   - a double letter typed as a single one (eg "ss/s"), or a single one doubled (eg "l/ll"),
+ *   - any other missing letter (eg "c/-") or extra letter (eg "-/k").
+ * The position of each error is counted as well, in POSITION_BUCKETS bands from the start to the end of
+ * the word.  Answers that aren't near misses are skipped - there is no telling which letters they meant.
+ *
+ * Each confusion (and position band) is a single long key - see key() - so the counts for a user are just
+ * a small map from key to count.  The counts are kept for every user, and for all users together (under
+ * the user id ALL_USERS).
+ *
+ * The answers come in through visit() (see DataStore.forEachMisspelling(), which reads them a chunk at a
+ * time).  They are collected into chunks of CHUNK_SIZE, and each full chunk is handed to a fork/join pool,
+ * which lines up each user's answers in a separate task, while the next chunk is being read.  Only two
+ * chunks are ever held at once, however long the history is, and since there is only ever one chunk being
+ * worked on (and each user is in one task), the counts need no locking.
+ *
+ * It has no Android code, so it can be run on any JVM.
+ */
+
+package com.example.spelltest;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+public class ConfusionAnalyzer implements DataStore.MisspellingVisitor {
+
+    //Class variables
+    public static final long ALL_USERS = 0;                 //User id the counts for all users are kept under.
+    public static final int POSITION_BUCKETS = 5;           //Number of bands the errors' positions are counted in.
+    private static final int CHUNK_SIZE = 4096;             //Number of answers handed to the pool at a time.
+    private static final int SPLIT_SIZE = 16;               //Fork/join tasks handle this many users without splitting.
+
+    //Kinds of confusion (the top bits of a key).  Confusions come before positions when the keys are sorted.
+    public static final int WRONG_LETTER = 1;
+    public static final int SWAPPED_LETTERS = 2;
+    public static final int MISSING_LETTER = 3;
+    public static final int EXTRA_LETTER = 4;
+    public static final int MISSING_DOUBLE = 5;
+    public static final int EXTRA_DOUBLE = 6;
+    public static final int POSITION = 7;
+
+    //Instance variables
+    private final ForkJoinPool mPool;                                   //Pool the chunks are worked on in.
+    private final HashMap<Long, Integer> mUserIndexes = new HashMap<>();    //User id -> user number.
+    private long[] mUserIds = new long[16];                             //User number -> user id.
+    private Counts[] mUserCounts = new Counts[16];                      //User number -> the user's counts.
+    private int mUserCount = 0;                                         //Number of different users seen.
+    private Chunk mFilling = new Chunk();                               //Chunk being filled by visit().
+    private Chunk mSpare = new Chunk();                                 //The other chunk (being worked on, if mWorking isn't null).
+    private ForkJoinTask<Void> mWorking;                                //Task working on the spare chunk (null if none).
+    private long mAnswerCount = 0;                                      //Number of answers visited.
+    private long mNearMissCount = 0;                                    //Number of those that were near misses (updated by finish()).
+    private Counts mAllCounts = new Counts();                           //Counts for all users (added up by finish()).
+
+    /**
+     * Class constructor.
+     * @param pool the fork/join pool to line up the answers in.
+     */
+    public ConfusionAnalyzer(ForkJoinPool pool) {
+        mPool = pool;
+    }
+
+    /**
+     * Public static method to build the key for a confusion.
+     * @param kind the kind of confusion (one of the kinds above).
+     * @param expected the letter that should have been typed (the first of a swapped pair; the band number
+     *                 for a POSITION).
+     * @param typed the letter that was typed instead (the second of a swapped pair; 0 if not used).
+     * @return the key.
+     */
+    public static long key(int kind, int expected, int typed) {
+        return ((long) kind << 32) | ((long) (expected & 0xffff) << 16) | (typed & 0xffff);
+    }
+
+    /**
+     * The following public static methods take a key apart again.
+     */
+    public static int getKind(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static char getExpected(long key) {
+        return (char) (key >>> 16);
+    }
+
+    public static char getTyped(long key) {
+        return (char) key;
+    }
+
+    /**
+     * Public static method to describe a confusion, as "what should have been typed / what was typed".
+     * @param key the key.
+     * @return the description (eg "ie/ei"), or the band for a POSITION (eg "40-60% of the way through").
+     */
+    public static String describe(long key) {
+        char expected = getExpected(key);
+        char typed = getTyped(key);
+        switch (getKind(key)) {
+            case WRONG_LETTER:
+                return expected + "/" + typed;
+            case SWAPPED_LETTERS:
+                return "" + expected + typed + "/" + typed + expected;
+            case MISSING_LETTER:
+                return expected + "/-";
+            case EXTRA_LETTER:
+                return "-/" + typed;
+            case MISSING_DOUBLE:
+                return "" + expected + expected + "/" + expected;
+            case EXTRA_DOUBLE:
+                return typed + "/" + typed + typed;
+            case POSITION:
+                return String.format(Locale.US, "%d-%d%% of the way through", 100 * expected / POSITION_BUCKETS,
+                        100 * (expected + 1) / POSITION_BUCKETS);
+            default:
+                return "?";
+        }
+    }
+
+    /**
+     * Method called by DataStore.forEachMisspelling() for each wrong answer.
+     * @param userId the id of the user who answered.
+     * @param typedText what they typed.
+     * @param spelling the correct spelling.
+     */
+    @Override
+    public void visit(long userId, String typedText, String spelling) {
+
+        Integer user = mUserIndexes.get(userId);
+        if (user == null) {
+            user = mUserCount++;
+            mUserIndexes.put(userId, user);
+            if (user == mUserIds.length) {
+                mUserIds = Arrays.copyOf(mUserIds, user * 2);
+                mUserCounts = Arrays.copyOf(mUserCounts, user * 2);
+            }
+            mUserIds[user] = userId;
+            mUserCounts[user] = new Counts();
+        }
+
+        mFilling.add(user, typedText, spelling);
+        mAnswerCount++;
+        if (mFilling.mCount == CHUNK_SIZE) submit();
+    }
+
+    /**
+     * Private method to hand the chunk being filled to the pool, once the last one has been finished, and
+     * start filling the other one.
+     */
+    private void submit() {
+        waitForChunk();
+        Chunk full = mFilling;
+        mFilling = mSpare;
+        mSpare = full;
+        full.prepare(mUserCount, mUserCounts);
+        mWorking = mPool.submit(new ChunkTask(full, 0, full.mUsersInChunk));
+    }
+
+    /**
+     * Private method to wait for the chunk being worked on (if any) to be finished.
+     */
+    private void waitForChunk() {
+        if (mWorking == null) return;
+        mWorking.join();
+        mWorking = null;
+        mNearMissCount += mSpare.mNearMisses;
+        mSpare.clear();
+    }
+
+    /**
+     * Public method to finish off the last chunk, once every answer has been visited, and add up the counts
+     * for all users.  The counts can then be read with getCounts().
+     */
+    public void finish() {
+        if (mFilling.mCount > 0) submit();
+        waitForChunk();
+
+        mAllCounts = new Counts();
+        for (int u = 0; u < mUserCount; u++) mUserCounts[u].addTo(mAllCounts);
+    }
+
+    /**
+     * Public method to get the number of counts getCounts() will return.
+     * @return the number of (user, key) pairs, including those for ALL_USERS.
+     */
+    public int getCountSize() {
+        int size = mAllCounts.mSize;
+        for (int u = 0; u < mUserCount; u++) size += mUserCounts[u].mSize;
+        return size;
+    }
+
+    /**
+     * Public method to copy out the counts (after finish()).
+     * @param userIds filled in with the user id of each count (ALL_USERS for the totals).
+     * @param keys filled in with the key of each count.
+     * @param counts filled in with the counts.  The arrays must have room for getCountSize() entries.
+     * @return the number of entries filled in.
+     */
+    public int getCounts(long[] userIds, long[] keys, int[] counts) {
+        int n = mAllCounts.copyTo(ALL_USERS, userIds, keys, counts, 0);
+        for (int u = 0; u < mUserCount; u++) n = mUserCounts[u].copyTo(mUserIds[u], userIds, keys, counts, n);
+        return n;
+    }
+
+    /**
+     * The following public methods return totals (after finish()).
+     */
+    public long getAnswerCount() {
+        return mAnswerCount;
+    }
+
+    public long getNearMissCount() {
+        return mNearMissCount;
+    }
+
+    public int getUserCount() {
+        return mUserCount;
+    }
+
+    /**
+     * Private static method to line up one answer against its spelling and count its errors.
+     * @param grader the grader to use (one per thread).
+     * @param answer what was typed.
+     * @param spelling the correct spelling.
+     * @param counts the counts to add to.
+     * @return true if the answer was a near miss (and so was counted).
+     */
+    private static boolean count(AnswerGrader grader, String answer, String spelling, Counts counts) {
+
+        //An empty spelling has no letters to mix up (or positions to count them in).
+        int length = spelling.length();
+        if (length == 0) return false;
+
+        int distance = grader.grade(answer, spelling);
+        if (distance == 0 || distance > grader.getMaxDistance()) return false;
+
+        for (int e = 0; e < distance; e++) {
+            int i = grader.getEditAnswerPosition(e);
+            int j = grader.getEditSpellingPosition(e);
+            long key;
+            switch (grader.getEditType(e)) {
+                case AnswerGrader.ERROR_SUBSTITUTION:
+                    key = key(WRONG_LETTER, lower(spelling, j), lower(answer, i));
+                    break;
+                case AnswerGrader.ERROR_TRANSPOSITION:
+                    key = key(SWAPPED_LETTERS, lower(spelling, j), lower(spelling, j + 1));
+                    break;
+                case AnswerGrader.ERROR_DELETION: {
+                    //A letter from the spelling is missing.  Was it half of a double letter?
+                    char c = lower(spelling, j);
+                    boolean doubled = (j > 0 && lower(spelling, j - 1) == c) || (j + 1 < length && lower(spelling, j + 1) == c);
+                    key = key(doubled ? MISSING_DOUBLE : MISSING_LETTER, c, 0);
+                    break;
+                }
+                default: {
+                    //An extra letter was typed.  Did it double up the letter next to it?
+                    char c = lower(answer, i);
+                    boolean doubled = (i > 0 && lower(answer, i - 1) == c) || (i + 1 < answer.length() && lower(answer, i + 1) == c);
+                    key = key(doubled ? EXTRA_DOUBLE : EXTRA_LETTER, 0, c);
+                    break;
+                }
+            }
+            counts.add(key, 1);
+            counts.add(key(POSITION, Math.min(POSITION_BUCKETS - 1, j * POSITION_BUCKETS / length), 0), 1);
+        }
+        return true;
+    }
+
+    /**
+     * Private static method to get a letter of a word, in lower case.
+     */
+    private static char lower(String word, int i) {
+        return Character.toLowerCase(word.charAt(i));
+    }
+
+    /**
+     * A chunk of answers, and (once prepare() has been called) the same answers grouped by user.
+     */
+    private static final class Chunk {
+
+        //Instance variables
+        final int[] mUsers = new int[CHUNK_SIZE];               //User number of each answer.
+        final String[] mAnswers = new String[CHUNK_SIZE];       //What was typed.
+        final String[] mSpellings = new String[CHUNK_SIZE];     //The correct spelling.
+        int mCount = 0;                                         //Number of answers in the chunk.
+        final int[] mOrder = new int[CHUNK_SIZE];               //Answer numbers, grouped by user (by prepare()).
+        final int[] mChunkUsers = new int[CHUNK_SIZE];          //User numbers of the users in the chunk...
+        final int[] mUserStart = new int[CHUNK_SIZE + 1];       //...and where each one's answers start in mOrder.
+        int mUsersInChunk = 0;                                  //Number of different users in the chunk.
+        int[] mFirst = new int[0];                              //Work array for prepare() (by user number).
+        Counts[] mCounts;                                       //Counts for each user number.
+        int mNearMisses = 0;                                    //Number of near misses found (set by the tasks).
+
+        void add(int user, String answer, String spelling) {
+            mUsers[mCount] = user;
+            mAnswers[mCount] = (answer != null) ? answer : "";
+            mSpellings[mCount] = (spelling != null) ? spelling : "";
+            mCount++;
+        }
+
+        /**
+         * Group the answers by user (a counting sort, in the order the users were first seen in the chunk).
+         */
+        void prepare(int userCount, Counts[] counts) {
+
+            mCounts = counts;
+            if (mFirst.length < userCount) mFirst = new int[Math.max(userCount, mFirst.length * 2)];
+            for (int a = 0; a < mCount; a++) mFirst[mUsers[a]] = -1;
+
+            //Number the users in the chunk, and count each one's answers.
+            mUsersInChunk = 0;
+            for (int a = 0; a < mCount; a++) {
+                int user = mUsers[a];
+                if (mFirst[user] < 0) {
+                    mFirst[user] = mUsersInChunk;
+                    mChunkUsers[mUsersInChunk] = user;
+                    mUserStart[++mUsersInChunk] = 0;
+                }
+                mUserStart[mFirst[user] + 1]++;
+            }
+            mUserStart[0] = 0;
+            for (int u = 0; u < mUsersInChunk; u++) mUserStart[u + 1] += mUserStart[u];
+
+            //Place each answer (mFirst is re-used as the next free slot for each user).
+            for (int u = 0; u < mUsersInChunk; u++) mFirst[mChunkUsers[u]] = mUserStart[u];
+            for (int a = 0; a < mCount; a++) mOrder[mFirst[mUsers[a]]++] = a;
+            mNearMisses = 0;
+        }
+
+        void clear() {
+            for (int a = 0; a < mCount; a++) {
+                mAnswers[a] = null;
+                mSpellings[a] = null;
+            }
+            mCount = 0;
+        }
+    }
+
+    /**
+     * Fork/join task that counts the errors of a range of the users in a chunk, splitting the range in half
+     * until it is small enough.
+     */
+    private static final class ChunkTask extends RecursiveAction {
+
+        //Class variables
+        private static final long serialVersionUID = 1L;
+
+        //Instance variables
+        private final Chunk mChunk;             //The chunk.
+        private final int mFrom;                //First user (numbered within the chunk).
+        private final int mTo;                  //One past the last user.
+
+        ChunkTask(Chunk chunk, int from, int to) {
+            mChunk = chunk;
+            mFrom = from;
+            mTo = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (mTo - mFrom > SPLIT_SIZE) {
+                int middle = (mFrom + mTo) >>> 1;
+                invokeAll(new ChunkTask(mChunk, mFrom, middle), new ChunkTask(mChunk, middle, mTo));
+                return;
+            }
+
+            AnswerGrader grader = new AnswerGrader();
+            int nearMisses = 0;
+            for (int u = mFrom; u < mTo; u++) {
+                Counts counts = mChunk.mCounts[mChunk.mChunkUsers[u]];
+                for (int k = mChunk.mUserStart[u]; k < mChunk.mUserStart[u + 1]; k++) {
+                    int a = mChunk.mOrder[k];
+                    if (count(grader, mChunk.mAnswers[a], mChunk.mSpellings[a], counts)) nearMisses++;
+                }
+            }
+            synchronized (mChunk) {
+                mChunk.mNearMisses += nearMisses;
+            }
+        }
+    }
+
+    /**
+     * A map from key to count, kept in two arrays (open addressing), so counting creates no objects.
+     */
+    private static final class Counts {
+
+        //Instance variables
+        long[] mKeys = new long[16];            //The keys (0 for an empty slot - no key is 0).
+        int[] mCounts = new int[16];            //The count for each key.
+        int mSize = 0;                          //Number of keys.
+
+        void add(long key, int count) {
+            int mask = mKeys.length - 1;
+            int slot = hash(key) & mask;
+            while (mKeys[slot] != 0 && mKeys[slot] != key) slot = (slot + 1) & mask;
+            if (mKeys[slot] == 0) {
+                mKeys[slot] = key;
+                if (++mSize * 2 > mKeys.length) {
+                    mCounts[slot] = count;
+                    grow();
+                    return;
+                }
+            }
+            mCounts[slot] += count;
+        }
+
+        private void grow() {
+            long[] keys = mKeys;
+            int[] counts = mCounts;
+            mKeys = new long[keys.length * 2];
+            mCounts = new int[keys.length * 2];
+            mSize = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) add(keys[i], counts[i]);
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32);
+        }
+
+        void addTo(Counts other) {
+            for (int i = 0; i < mKeys.length; i++) {
+                if (mKeys[i] != 0) other.add(mKeys[i], mCounts[i]);
+            }
+        }
+
+        int copyTo(long userId, long[] userIds, long[] keys, int[] counts, int n) {
+            for (int i = 0; i < mKeys.length; i++) {
+                if (mKeys[i] == 0) continue;
+                userIds[n] = userId;
+                keys[n] = mKeys[i];
+                counts[n] = mCounts[i];
+                n++;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * Filename:  DataCallback.java
+ * Author:  Team SpellTest
+ * Date:  20 April 2019
+ *
+ * Purpose:  This listener interface provides a means by which the AsyncDataStore class can hand the
+ * results of a database operation back to the activity (or adapter, or dialog box) that asked for
+ * it.  The database work itself happens on a background thread, but the method in this interface
+ * is always called on the main (UI) thread, so it is safe to update views from inside it.
+ */
+
+package com.example.spelltest;
+
+public interface DataCallback<T> {
+
+    /**
+     * Public method that is called on the main thread once a database operation has completed.
+     * @param result the value returned by the underlying DataStore method.  This can be null for
+     *               operations that don't return anything (or if nothing was found).
+     */
+    public void onResult(T result);
+}
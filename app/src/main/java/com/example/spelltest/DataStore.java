@@ -8,6 +8,15 @@
  * application occur through this class – no other classes are configured to access the database
  * directly.  The class provides methods to access the various application-specific objects (for
  * users, spelling lists, etc.) from the application’s database.
+ *
+ * Note that the methods in this class are synchronous, and should not be called from the main (UI)
+ * thread.  User-facing classes go through the AsyncDataStore class, which runs these methods on a
+ * dedicated background thread.
+ *
+ * Recently read users, spelling lists, stats and word lists are kept in small in-memory caches, so
+ * screens that ask for the same things over and over (eg every time they are shown) don't have to
+ * go back to the database each time.  Every write throws away exactly the cache entries it affects.
+ * Callers always get their own copies of cached objects, so they are free to change them.
  */
 
 package com.example.spelltest;
@@ -17,6 +26,8 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.CursorWrapper;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
 import com.example.database.*;
@@ -24,6 +35,8 @@ import com.example.database.DatabaseSchema.SpellingListTable;
 import com.example.database.DatabaseSchema.UserTable;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
 
 public class DataStore {
 
@@ -31,19 +44,326 @@ public class DataStore {
     private static DataStore sDataStore;                //A private reference to the app database.
     public static final long NULL_ROW_ID = -1;           //Null row ID value - referenced by other classes in the app.
     private static final String TAG = "DataStore";      //Tag for app log entries (ie for debugging).
-
+    private static final int PROGRESS_INTERVAL = 100;   //Number of words written between progress reports in bulk writes.
+    private static final int ATTEMPT_COUNT_CHUNK_SIZE = 4096;   //Rows read per query by forEachAttemptCount().
+    private static final int GRADE_CHUNK_SIZE = 1024;           //Attempts graded per transaction by gradeAttempts().
+    private static final int MISSPELLING_CHUNK_SIZE = 4096;     //Rows read per query by forEachMisspelling().
+    public static final String REPORT_LETTER_CONFUSIONS = "letter_confusions";     //Name of the letter confusion report's progress row.
+    public static final String REPORT_DIFFICULTIES = "difficulties";               //Name of the word difficulty calibration's progress row.
+
+    //Cache sizes (ie the maximum number of entries held in each cache).
+    private static final int USER_CACHE_SIZE = 1;           //Only one entry - the list of all users.
+    private static final int SPELLING_LIST_CACHE_SIZE = 64; //Spelling lists, by list id.
+    private static final int USER_LISTS_CACHE_SIZE = 16;    //The spelling lists for a user, by user id.
+    private static final int STAT_CACHE_SIZE = 32;          //Spelling list stats, by stat id.
+    private static final int WORD_LIST_CACHE_SIZE = 4;      //The words in a spelling list, by list id.
+    private static final int MAX_CACHED_WORDS = 1000;       //Word lists longer than this aren't cached.
+    private static final long ALL_USERS = 0;                //Key for the list of all users in the user cache.
+
+    //SQL for the statements that are run most often.  All values are passed as bound (?) arguments, so
+    //each of these is only compiled once (see StatementCache) and re-bound for every call.
+    private static final String SQL_INSERT_WORD = "INSERT INTO " + DatabaseSchema.WordTable.NAME + " (" +
+            DatabaseSchema.WordTable.Cols.ID + ", " +
+            DatabaseSchema.WordTable.Cols.LIST_ID + ", " +
+            DatabaseSchema.WordTable.Cols.SPELLING + ", " +
+            DatabaseSchema.WordTable.Cols.PHONETIC_KEY + ") VALUES (?, ?, ?, ?)";
+    private static final String SQL_UPDATE_WORD = "UPDATE " + DatabaseSchema.WordTable.NAME + " SET " +
+            DatabaseSchema.WordTable.Cols.LIST_ID + "=?, " +
+            DatabaseSchema.WordTable.Cols.SPELLING + "=?, " +
+            DatabaseSchema.WordTable.Cols.PHONETIC_KEY + "=? WHERE " + DatabaseSchema.WordTable.Cols.ID + "=?";
+    private static final String SQL_COUNT_WORDS = "SELECT COUNT(*) FROM " + DatabaseSchema.WordTable.NAME +
+            " WHERE " + DatabaseSchema.WordTable.Cols.LIST_ID + "=?";
+    private static final String SQL_GET_WORD_LIST_ID = "SELECT " + DatabaseSchema.WordTable.Cols.LIST_ID +
+            " FROM " + DatabaseSchema.WordTable.NAME + " WHERE " + DatabaseSchema.WordTable.Cols.ID + "=?";
+    private static final String SQL_INSERT_ATTEMPT = "INSERT INTO " + DatabaseSchema.WordAttemptTable.NAME + " (" +
+            DatabaseSchema.WordAttemptTable.Cols.SESSION_ID + ", " +
+            DatabaseSchema.WordAttemptTable.Cols.WORD_ID + ", " +
+            DatabaseSchema.WordAttemptTable.Cols.TYPED_TEXT + ", " +
+            DatabaseSchema.WordAttemptTable.Cols.CORRECT + ", " +
+            DatabaseSchema.WordAttemptTable.Cols.RESPONSE_TIME + ", " +
+            DatabaseSchema.WordAttemptTable.Cols.TIMESTAMP + ", " +
+            DatabaseSchema.WordAttemptTable.Cols.EDIT_DISTANCE + ", " +
+            DatabaseSchema.WordAttemptTable.Cols.ERROR_TYPE + ", " +
+            DatabaseSchema.WordAttemptTable.Cols.PHONETIC_KEY + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_DELETE_WORD = "DELETE FROM " + DatabaseSchema.WordTable.NAME +
+            " WHERE " + DatabaseSchema.WordTable.Cols.ID + "=?";
+    private static final String SQL_PUT_REVIEW_SCHEDULE = "INSERT OR REPLACE INTO " + DatabaseSchema.ReviewScheduleTable.NAME + " (" +
+            DatabaseSchema.ReviewScheduleTable.Cols.USER_ID + ", " +
+            DatabaseSchema.ReviewScheduleTable.Cols.WORD_ID + ", " +
+            DatabaseSchema.ReviewScheduleTable.Cols.DUE_TIME + ", " +
+            DatabaseSchema.ReviewScheduleTable.Cols.EASE_FACTOR + ", " +
+            DatabaseSchema.ReviewScheduleTable.Cols.INTERVAL_DAYS + ", " +
+            DatabaseSchema.ReviewScheduleTable.Cols.REPETITIONS + ") VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SQL_COUNT_DUE_WORDS = "SELECT COUNT(*) FROM " + DatabaseSchema.ReviewScheduleTable.NAME +
+            " WHERE " + DatabaseSchema.ReviewScheduleTable.Cols.USER_ID + "=? AND " +
+            DatabaseSchema.ReviewScheduleTable.Cols.DUE_TIME + "<=?";
+    private static final String SQL_SET_WORD_ORDER = "UPDATE " + SpellingListTable.NAME +
+            " SET " + SpellingListTable.Cols.WORD_ORDER + "=? WHERE " + SpellingListTable.Cols.ID + "=?";
+    private static final String SQL_SET_WORD_DIFFICULTY = "UPDATE " + DatabaseSchema.WordTable.NAME +
+            " SET " + DatabaseSchema.WordTable.Cols.DIFFICULTY_ID + "=? WHERE " + DatabaseSchema.WordTable.Cols.ID + "=?";
+    private static final String SQL_SET_ATTEMPT_GRADE = "UPDATE " + DatabaseSchema.WordAttemptTable.NAME +
+            " SET " + DatabaseSchema.WordAttemptTable.Cols.EDIT_DISTANCE + "=IFNULL(?, " + DatabaseSchema.WordAttemptTable.Cols.EDIT_DISTANCE + "), " +
+            DatabaseSchema.WordAttemptTable.Cols.ERROR_TYPE + "=IFNULL(?, " + DatabaseSchema.WordAttemptTable.Cols.ERROR_TYPE + "), " +
+            DatabaseSchema.WordAttemptTable.Cols.PHONETIC_KEY + "=? WHERE " + DatabaseSchema.WordAttemptTable.Cols.ID + "=?";
+    private static final String SQL_COUNT_SOUNDS_RIGHT_ERRORS = "SELECT COUNT(*) FROM " +
+            DatabaseSchema.WordTable.NAME + " w JOIN " + DatabaseSchema.WordAttemptTable.NAME + " a" +
+            " ON a." + DatabaseSchema.WordAttemptTable.Cols.WORD_ID + " = w." + DatabaseSchema.WordTable.Cols.ID +
+            " AND a." + DatabaseSchema.WordAttemptTable.Cols.PHONETIC_KEY + " = w." + DatabaseSchema.WordTable.Cols.PHONETIC_KEY +
+            " WHERE w." + DatabaseSchema.WordTable.Cols.ID + "=? AND a." + DatabaseSchema.WordAttemptTable.Cols.CORRECT + "=0";
+
+    private static final String SQL_GET_REPORT_PROGRESS = "SELECT IFNULL(MAX(" +
+            DatabaseSchema.ReportProgressTable.Cols.LAST_ATTEMPT_ID + "), 0) FROM " + DatabaseSchema.ReportProgressTable.NAME +
+            " WHERE " + DatabaseSchema.ReportProgressTable.Cols.REPORT + "=?";
+    private static final String SQL_GET_LAST_ATTEMPT_ID = "SELECT IFNULL(MAX(" +
+            DatabaseSchema.WordAttemptTable.Cols.ID + "), 0) FROM " + DatabaseSchema.WordAttemptTable.NAME;
+    private static final String SQL_PUT_REPORT_PROGRESS = "INSERT OR REPLACE INTO " + DatabaseSchema.ReportProgressTable.NAME + " (" +
+            DatabaseSchema.ReportProgressTable.Cols.REPORT + ", " +
+            DatabaseSchema.ReportProgressTable.Cols.LAST_ATTEMPT_ID + ") VALUES (?, ?)";
+    private static final String SQL_ADD_CONFUSION_ROW = "INSERT OR IGNORE INTO " + DatabaseSchema.LetterConfusionTable.NAME + " (" +
+            DatabaseSchema.LetterConfusionTable.Cols.USER_ID + ", " +
+            DatabaseSchema.LetterConfusionTable.Cols.CONFUSION + ", " +
+            DatabaseSchema.LetterConfusionTable.Cols.CONFUSION_COUNT + ") VALUES (?, ?, 0)";
+    private static final String SQL_ADD_CONFUSION_COUNT = "UPDATE " + DatabaseSchema.LetterConfusionTable.NAME +
+            " SET " + DatabaseSchema.LetterConfusionTable.Cols.CONFUSION_COUNT + " = " +
+            DatabaseSchema.LetterConfusionTable.Cols.CONFUSION_COUNT + " + ? WHERE " +
+            DatabaseSchema.LetterConfusionTable.Cols.USER_ID + "=? AND " + DatabaseSchema.LetterConfusionTable.Cols.CONFUSION + "=?";
+
+    //WHERE clauses for the cursor queries.  These never change, so SQLite can re-use the compiled query
+    //from its own per-connection statement cache rather than parsing a new SQL string for every id.
+    private static final String WHERE_USER_ID = UserTable.Cols.ID + "=?";
+    private static final String WHERE_LIST_ID = SpellingListTable.Cols.ID + "=?";
+    private static final String WHERE_LIST_USER_ID = SpellingListTable.Cols.USER_ID + "=?";
+    private static final String WHERE_STAT_ID = DatabaseSchema.SpellingListStatTable.Cols.ID + "=?";
+    private static final String WHERE_WORD_LIST_ID = DatabaseSchema.WordTable.Cols.LIST_ID + "=?";
+    private static final String WHERE_LIST_SUMMARY_ID = DatabaseSchema.ListSummaryTable.Cols.LIST_ID + "=?";
+    private static final String WHERE_USER_SUMMARY_ID = DatabaseSchema.UserSummaryTable.Cols.USER_ID + "=?";
+    private static final String WHERE_USER_STAT_USER_ID = DatabaseSchema.UserStatTable.Cols.USER_ID + "=?";
+    private static final String WHERE_WORD_STAT_WORD_ID = DatabaseSchema.WordStatTable.Cols.WORD_ID + "=?";
+    private static final String WHERE_WORD_LIST_ID_AFTER = DatabaseSchema.WordTable.Cols.LIST_ID + "=? AND " +
+            DatabaseSchema.WordTable.Cols.ID + ">?";
+
+
+    //Query for a user's accuracy on a single word.  The user_stat and word_stat rows are found through
+    //their unique user_id / word_id indexes, and the user_word_stat row through its (user, word) index.
+    private static final String SQL_GET_USER_WORD_STAT = "SELECT uws.* FROM " +
+            DatabaseSchema.UserWordStatTable.NAME + " uws JOIN " +
+            DatabaseSchema.UserStatTable.NAME + " us ON uws." + DatabaseSchema.UserWordStatTable.Cols.USER_STAT_ID +
+            " = us." + DatabaseSchema.UserStatTable.Cols.ID + " JOIN " +
+            DatabaseSchema.WordStatTable.NAME + " ws ON uws." + DatabaseSchema.UserWordStatTable.Cols.WORD_STAT_ID +
+            " = ws." + DatabaseSchema.WordStatTable.Cols.ID +
+            " WHERE us." + DatabaseSchema.UserStatTable.Cols.USER_ID + "=? AND ws." + DatabaseSchema.WordStatTable.Cols.WORD_ID + "=?";
+
+    //Query for the words in a list, sorted by the user's accuracy on each word (lowest first).  Words the
+    //user hasn't been tested on yet have no user_word_stat row, and count as 0.  The arguments are the
+    //user id and the list id.
+    private static final String SQL_GET_WORDS_WEAKEST_FIRST = "SELECT w." +
+            DatabaseSchema.WordTable.Cols.ID + ", w." +
+            DatabaseSchema.WordTable.Cols.LIST_ID + ", w." +
+            DatabaseSchema.WordTable.Cols.SPELLING +
+            " FROM " + DatabaseSchema.WordTable.NAME + " w" +
+            " LEFT JOIN " + DatabaseSchema.WordStatTable.NAME + " ws ON ws." + DatabaseSchema.WordStatTable.Cols.WORD_ID +
+            " = w." + DatabaseSchema.WordTable.Cols.ID +
+            " LEFT JOIN " + DatabaseSchema.UserWordStatTable.NAME + " uws ON uws." + DatabaseSchema.UserWordStatTable.Cols.WORD_STAT_ID +
+            " = ws." + DatabaseSchema.WordStatTable.Cols.ID +
+            " AND uws." + DatabaseSchema.UserWordStatTable.Cols.USER_STAT_ID + " = (SELECT " + DatabaseSchema.UserStatTable.Cols.ID +
+            " FROM " + DatabaseSchema.UserStatTable.NAME + " WHERE " + DatabaseSchema.UserStatTable.Cols.USER_ID + "=?)" +
+            " WHERE w." + DatabaseSchema.WordTable.Cols.LIST_ID + "=?" +
+            " ORDER BY IFNULL(uws." + DatabaseSchema.UserWordStatTable.Cols.USER_WORD_ACCURACY + ", 0), w." +
+            DatabaseSchema.WordTable.Cols.ID;
+
+    //Query for the stats of the words in a list.  The argument is the list id.
+    private static final String SQL_GET_WORD_STATS = "SELECT ws.* FROM " +
+            DatabaseSchema.WordTable.NAME + " w JOIN " + DatabaseSchema.WordStatTable.NAME + " ws" +
+            " ON ws." + DatabaseSchema.WordStatTable.Cols.WORD_ID + " = w." + DatabaseSchema.WordTable.Cols.ID +
+            " WHERE w." + DatabaseSchema.WordTable.Cols.LIST_ID + "=?";
+
+    //Query for one chunk of the user_word_stat table, with the user and word ids filled in, for
+    //forEachAttemptCount().  The arguments are the last user_word_stat id of the previous chunk (so each
+    //chunk starts straight from the primary key, however far through the table it is) and the chunk size.
+    private static final String SQL_GET_ATTEMPT_COUNTS = "SELECT uws." +
+            DatabaseSchema.UserWordStatTable.Cols.ID + ", us." +
+            DatabaseSchema.UserStatTable.Cols.USER_ID + ", ws." +
+            DatabaseSchema.WordStatTable.Cols.WORD_ID + ", uws." +
+            DatabaseSchema.UserWordStatTable.Cols.ATTEMPT_COUNT + ", uws." +
+            DatabaseSchema.UserWordStatTable.Cols.CORRECT_COUNT + " FROM " +
+            DatabaseSchema.UserWordStatTable.NAME + " uws JOIN " +
+            DatabaseSchema.UserStatTable.NAME + " us ON uws." + DatabaseSchema.UserWordStatTable.Cols.USER_STAT_ID +
+            " = us." + DatabaseSchema.UserStatTable.Cols.ID + " JOIN " +
+            DatabaseSchema.WordStatTable.NAME + " ws ON uws." + DatabaseSchema.UserWordStatTable.Cols.WORD_STAT_ID +
+            " = ws." + DatabaseSchema.WordStatTable.Cols.ID +
+            " WHERE uws." + DatabaseSchema.UserWordStatTable.Cols.ID + ">?" +
+            " ORDER BY uws." + DatabaseSchema.UserWordStatTable.Cols.ID + " LIMIT ?";
+
+    //Query for one chunk of the attempts that haven't been graded (and given a phonetic key) yet, with the
+    //spelling of each word, for gradeAttempts().  The arguments are the last attempt id of the previous
+    //chunk and the chunk size.  Only the attempts in the partial "unkeyed" index are looked at, so this
+    //never reads the attempts that are already done.  Attempts at words that have since been deleted have
+    //no spelling, so they only get a key.
+    private static final String SQL_GET_UNGRADED_ATTEMPTS = "SELECT a." +
+            DatabaseSchema.WordAttemptTable.Cols.ID + ", a." +
+            DatabaseSchema.WordAttemptTable.Cols.TYPED_TEXT + ", w." +
+            DatabaseSchema.WordTable.Cols.SPELLING + " FROM " +
+            DatabaseSchema.WordAttemptTable.NAME + " a INDEXED BY " + DatabaseSchema.WordAttemptTable.INDEX_UNKEYED +
+            " LEFT JOIN " + DatabaseSchema.WordTable.NAME + " w ON w." +
+            DatabaseSchema.WordTable.Cols.ID + " = a." + DatabaseSchema.WordAttemptTable.Cols.WORD_ID +
+            " WHERE a." + DatabaseSchema.WordAttemptTable.Cols.ID + ">? AND a." +
+            DatabaseSchema.WordAttemptTable.Cols.PHONETIC_KEY + " IS NULL" +
+            " ORDER BY a." + DatabaseSchema.WordAttemptTable.Cols.ID + " LIMIT ?";
+
+    //Query for one chunk of the wrong answers in the attempt log, with the user and spelling of each, for
+    //forEachMisspelling().  The arguments are the last attempt id of the previous chunk and the chunk size.
+    //Attempts at words that have since been deleted, or whose spelling is empty (or NULL - "<> ''" is never
+    //true for a NULL), are skipped, since there is nothing to line them up against.
+    private static final String SQL_GET_MISSPELLINGS = "SELECT a." +
+            DatabaseSchema.WordAttemptTable.Cols.ID + ", l." +
+            SpellingListTable.Cols.USER_ID + ", a." +
+            DatabaseSchema.WordAttemptTable.Cols.TYPED_TEXT + ", w." +
+            DatabaseSchema.WordTable.Cols.SPELLING + " FROM " +
+            DatabaseSchema.WordAttemptTable.NAME + " a JOIN " + DatabaseSchema.WordTable.NAME + " w ON w." +
+            DatabaseSchema.WordTable.Cols.ID + " = a." + DatabaseSchema.WordAttemptTable.Cols.WORD_ID +
+            " JOIN " + SpellingListTable.NAME + " l ON l." + SpellingListTable.Cols.ID + " = w." + DatabaseSchema.WordTable.Cols.LIST_ID +
+            " WHERE a." + DatabaseSchema.WordAttemptTable.Cols.ID + ">? AND a." + DatabaseSchema.WordAttemptTable.Cols.CORRECT + "=0" +
+            " AND w." + DatabaseSchema.WordTable.Cols.SPELLING + " <> ''" +
+            " ORDER BY a." + DatabaseSchema.WordAttemptTable.Cols.ID + " LIMIT ?";
+
+    //Queries for a user's letter confusions (most common first) and error positions.  Confusion keys sort
+    //before position keys (see ConfusionAnalyzer), so each is one range of the (user_id, confusion) index.
+    //The arguments are the user id and the first position key (and, for the confusions, the most to return).
+    private static final String SQL_GET_LETTER_CONFUSIONS = "SELECT " +
+            DatabaseSchema.LetterConfusionTable.Cols.CONFUSION + ", " +
+            DatabaseSchema.LetterConfusionTable.Cols.CONFUSION_COUNT + " FROM " + DatabaseSchema.LetterConfusionTable.NAME +
+            " WHERE " + DatabaseSchema.LetterConfusionTable.Cols.USER_ID + "=? AND " +
+            DatabaseSchema.LetterConfusionTable.Cols.CONFUSION + "<?" +
+            " ORDER BY " + DatabaseSchema.LetterConfusionTable.Cols.CONFUSION_COUNT + " DESC, " +
+            DatabaseSchema.LetterConfusionTable.Cols.CONFUSION + " LIMIT ?";
+    private static final String SQL_GET_ERROR_POSITIONS = "SELECT " +
+            DatabaseSchema.LetterConfusionTable.Cols.CONFUSION + ", " +
+            DatabaseSchema.LetterConfusionTable.Cols.CONFUSION_COUNT + " FROM " + DatabaseSchema.LetterConfusionTable.NAME +
+            " WHERE " + DatabaseSchema.LetterConfusionTable.Cols.USER_ID + "=? AND " +
+            DatabaseSchema.LetterConfusionTable.Cols.CONFUSION + ">=?";
+
+    //Query for the wrong answers to a word, grouped by their phonetic key (most common first), for
+    //getMisspellingGroups().  This is answered from the (word_id, phonetic_key, correct) index alone, in
+    //the order the index is already in.  The arguments are the word id (twice).
+    private static final String SQL_GET_MISSPELLING_GROUPS = "SELECT a." +
+            DatabaseSchema.WordAttemptTable.Cols.PHONETIC_KEY + ", COUNT(*), a." +
+            DatabaseSchema.WordAttemptTable.Cols.PHONETIC_KEY + " = (SELECT " + DatabaseSchema.WordTable.Cols.PHONETIC_KEY +
+            " FROM " + DatabaseSchema.WordTable.NAME + " WHERE " + DatabaseSchema.WordTable.Cols.ID + "=?) FROM " +
+            DatabaseSchema.WordAttemptTable.NAME + " a" +
+            " WHERE a." + DatabaseSchema.WordAttemptTable.Cols.WORD_ID + "=? AND a." +
+            DatabaseSchema.WordAttemptTable.Cols.PHONETIC_KEY + " IS NOT NULL AND a." +
+            DatabaseSchema.WordAttemptTable.Cols.CORRECT + "=0" +
+            " GROUP BY a." + DatabaseSchema.WordAttemptTable.Cols.PHONETIC_KEY +
+            " ORDER BY COUNT(*) DESC";
+
+    //Query for a user's review schedules for the words in a list.  The arguments are the list id and the user id.
+    private static final String SQL_GET_REVIEW_SCHEDULES = "SELECT rs.* FROM " +
+            DatabaseSchema.WordTable.NAME + " w JOIN " + DatabaseSchema.ReviewScheduleTable.NAME + " rs" +
+            " ON rs." + DatabaseSchema.ReviewScheduleTable.Cols.WORD_ID + " = w." + DatabaseSchema.WordTable.Cols.ID +
+            " WHERE w." + DatabaseSchema.WordTable.Cols.LIST_ID + "=? AND rs." + DatabaseSchema.ReviewScheduleTable.Cols.USER_ID + "=?";
+
+    //Columns read back for words and spelling lists.  These are the same columns held in the list_id /
+    //user_id indexes, so SQLite can answer these lookups from the index alone.
+    private static final String[] WORD_COLUMNS = {
+            DatabaseSchema.WordTable.Cols.ID,
+            DatabaseSchema.WordTable.Cols.LIST_ID,
+            DatabaseSchema.WordTable.Cols.SPELLING
+    };
+    private static final String[] SPELLING_LIST_COLUMNS = {
+            SpellingListTable.Cols.ID,
+            SpellingListTable.Cols.NAME,
+            SpellingListTable.Cols.USER_ID,
+            SpellingListTable.Cols.WORD_ORDER
+    };
 
     //Instance variables
     private SQLiteDatabase mDataBase;                   //The application database.
+    private WordWriteBuffer mWordBuffer;                //Word edits not yet written to the database (can be null).
+    private StatementCache mStatements;                 //Compiled statements for the SQL above.
+    private final long[] mDifficultyIds = new long[3];  //Ids of the Easy, Medium and Hard difficulties (indexed by DifficultyCalibrator level).
+
+    //Caches of recently read objects, and the lock used to keep them in step with the database.
+    private final Object mCacheLock = new Object();     //Lock held while changing the cache version.
+    private long mCacheVersion = 0;                     //Incremented every time cache entries are thrown away.
+    private final LongLruCache<ArrayList<Objects.User>> mUserCache = new LongLruCache<>(USER_CACHE_SIZE);
+    private final LongLruCache<Objects.SpellingList> mSpellingListCache = new LongLruCache<>(SPELLING_LIST_CACHE_SIZE);
+    private final LongLruCache<ArrayList<Objects.SpellingList>> mUserListsCache = new LongLruCache<>(USER_LISTS_CACHE_SIZE);
+    private final LongLruCache<Objects.SpellingListStat> mStatCache = new LongLruCache<>(STAT_CACHE_SIZE);
+    private final LongLruCache<ArrayList<Objects.Word>> mWordListCache = new LongLruCache<>(WORD_LIST_CACHE_SIZE);
+
+    /**
+     * Listener interface for bulk writes.  Calling classes can implement this to show progress
+     * while a large list of words is being saved.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Method called periodically during a bulk write (and once more at the end).
+         * @param done the number of items written so far.
+         * @param total the total number of items in the batch.
+         */
+        public void onProgress(int done, int total);
+    }
+
+    /**
+     * Listener interface used by forEachWord().  The same Word object is handed to every call, so
+     * implementations must copy anything they want to keep.
+     */
+    public interface WordVisitor {
+
+        /**
+         * Method called once for each word in the list.
+         * @param word the current word.  This object is re-used for the next word after this call returns.
+         */
+        public void visit(Objects.Word word);
+    }
+
+    /**
+     * Listener interface used by forEachAttemptCount().
+     */
+    public interface AttemptCountVisitor {
+
+        /**
+         * Method called once for each user / word pair that has recorded attempts.
+         * @param userId the id of the user.
+         * @param wordId the id of the word.
+         * @param attemptCount the number of times the user has attempted the word.
+         * @param correctCount the number of those attempts that were correct.
+         */
+        public void visit(long userId, long wordId, int attemptCount, int correctCount);
+    }
+
+    /**
+     * Listener interface used by forEachMisspelling().
+     */
+    public interface MisspellingVisitor {
+
+        /**
+         * Method called once for each wrong answer.
+         * @param userId the id of the user who answered.
+         * @param typedText what they typed (this can be null).
+         * @param spelling the correct spelling.
+         */
+        public void visit(long userId, String typedText, String spelling);
+    }
 
     /**
      * The following classes "wrap" the output cursors for queries on sqecific objects in the application.
      * The use of these wrapper classes (rather than just the direct use of Cursors) allow all of the
      * Cursor-To-Object creation code in this wrapper class, rather than having to be repeated multiple
      * times elsewhere in the code.
+     *
+     * Each wrapper looks up its column indexes once, when it is created, rather than once per row.
+     * Each one can also copy the current row into an existing object (rather than creating a new one),
+     * which lets callers re-use objects when reading large numbers of rows.
      */
     private class UserCursorWrapper extends CursorWrapper {
 
+        //Column indexes, looked up once per cursor.
+        private final int mIdIndex;
+        private final int mFirstNameIndex;
+        private final int mLastNameIndex;
+
         /**
          * Creates a cursor wrapper.
          *
@@ -51,6 +371,9 @@ public class DataStore {
          */
         public UserCursorWrapper(Cursor cursor) {
             super(cursor);
+            mIdIndex = getColumnIndexOrThrow(UserTable.Cols.ID);
+            mFirstNameIndex = getColumnIndexOrThrow(UserTable.Cols.FIRST_NAME);
+            mLastNameIndex = getColumnIndexOrThrow(UserTable.Cols.LAST_NAME);
         }
 
         /**
@@ -58,15 +381,30 @@ public class DataStore {
          * @return the User object representing the data at the current Cursor location.
          */
         public Objects.User getUser() {
-            int id = getInt(getColumnIndex(UserTable.Cols.ID));
-            String firstName = getString(getColumnIndex(UserTable.Cols.FIRST_NAME));
-            String lastName = getString(getColumnIndex(UserTable.Cols.LAST_NAME));
+            return getUser(new Objects.User(NULL_ROW_ID, null, null));
+        }
 
-            return new Objects.User(id, firstName, lastName);
+        /**
+         * Method to copy the data at the current cursor location into an existing User object.
+         * @param user the User object to fill in.
+         * @return the same User object.
+         */
+        public Objects.User getUser(Objects.User user) {
+            user.id = getLong(mIdIndex);
+            user.firstName = getString(mFirstNameIndex);
+            user.lastName = getString(mLastNameIndex);
+            return user;
         }
     }
 
     private class SpellingListCursorWrapper extends CursorWrapper {
+
+        //Column indexes, looked up once per cursor.
+        private final int mIdIndex;
+        private final int mNameIndex;
+        private final int mUserIdIndex;
+        private final int mWordOrderIndex;
+
         /**
          * Creates a cursor wrapper.
          *
@@ -74,6 +412,10 @@ public class DataStore {
          */
         public SpellingListCursorWrapper(Cursor cursor) {
             super(cursor);
+            mIdIndex = getColumnIndexOrThrow(SpellingListTable.Cols.ID);
+            mNameIndex = getColumnIndexOrThrow(SpellingListTable.Cols.NAME);
+            mUserIdIndex = getColumnIndexOrThrow(SpellingListTable.Cols.USER_ID);
+            mWordOrderIndex = getColumnIndexOrThrow(SpellingListTable.Cols.WORD_ORDER);
         }
 
         /**
@@ -81,15 +423,36 @@ public class DataStore {
          * @return the Spelling List object representing the data at the current Cursor location.
          */
         public Objects.SpellingList getSpellingList() {
-            int id = getInt(getColumnIndexOrThrow(SpellingListTable.Cols.ID));
-            String name = getString(getColumnIndex(SpellingListTable.Cols.NAME));
-            int userId = getInt(getColumnIndex(SpellingListTable.Cols.USER_ID));
+            return getSpellingList(new Objects.SpellingList(NULL_ROW_ID, null, NULL_ROW_ID));
+        }
 
-            return new Objects.SpellingList(id, name, userId);
+        /**
+         * Method to copy the data at the current cursor location into an existing Spelling List object.
+         * @param list the Spelling List object to fill in.
+         * @return the same Spelling List object.
+         */
+        public Objects.SpellingList getSpellingList(Objects.SpellingList list) {
+            list.id = getLong(mIdIndex);
+            list.name = getString(mNameIndex);
+            list.userId = getLong(mUserIdIndex);
+            list.wordOrder = getInt(mWordOrderIndex);
+            return list;
         }
     }
 
     private class SpellingListStatCursorWrapper extends CursorWrapper {
+
+        //Column indexes, looked up once per cursor.
+        private final int mIdIndex;
+        private final int mListIdIndex;
+        private final int mDateIndex;
+        private final int mElapsedTimeIndex;
+        private final int mNumberCorrectIndex;
+        private final int mNumberIncorrectIndex;
+        private final int mAbilityIndex;
+        private final int mAbilityStandardErrorIndex;
+        private final int mCreditIndex;
+
         /**
          * Creates a cursor wrapper.
          *
@@ -97,6 +460,15 @@ public class DataStore {
          */
         public SpellingListStatCursorWrapper(Cursor cursor) {
             super(cursor);
+            mIdIndex = getColumnIndexOrThrow(DatabaseSchema.SpellingListStatTable.Cols.ID);
+            mListIdIndex = getColumnIndexOrThrow(DatabaseSchema.SpellingListStatTable.Cols.LIST_ID);
+            mDateIndex = getColumnIndexOrThrow(DatabaseSchema.SpellingListStatTable.Cols.DATE);
+            mElapsedTimeIndex = getColumnIndexOrThrow(DatabaseSchema.SpellingListStatTable.Cols.ELAPSED_TIME);
+            mNumberCorrectIndex = getColumnIndexOrThrow(DatabaseSchema.SpellingListStatTable.Cols.NUMBER_CORRECT);
+            mNumberIncorrectIndex = getColumnIndexOrThrow(DatabaseSchema.SpellingListStatTable.Cols.NUMBER_INCORRECT);
+            mAbilityIndex = getColumnIndexOrThrow(DatabaseSchema.SpellingListStatTable.Cols.ABILITY);
+            mAbilityStandardErrorIndex = getColumnIndexOrThrow(DatabaseSchema.SpellingListStatTable.Cols.ABILITY_STANDARD_ERROR);
+            mCreditIndex = getColumnIndexOrThrow(DatabaseSchema.SpellingListStatTable.Cols.CREDIT);
         }
 
         /**
@@ -104,14 +476,257 @@ public class DataStore {
          * @return the Spelling List Stat object representing the data at the current Cursor location.
          */
         public Objects.SpellingListStat getSpellingListStat() {
-            long id = getLong(getColumnIndexOrThrow(DatabaseSchema.SpellingListStatTable.Cols.ID));
-            long listId = getLong(getColumnIndexOrThrow(DatabaseSchema.SpellingListStatTable.Cols.LIST_ID));
-            long date = getLong(getColumnIndexOrThrow(DatabaseSchema.SpellingListStatTable.Cols.DATE));
-            long elapsedTime = getLong(getColumnIndexOrThrow(DatabaseSchema.SpellingListStatTable.Cols.ELAPSED_TIME));
-            int numberCorrect = getInt(getColumnIndexOrThrow(DatabaseSchema.SpellingListStatTable.Cols.NUMBER_CORRECT));
-            int numberIncorrect = getInt(getColumnIndexOrThrow(DatabaseSchema.SpellingListStatTable.Cols.NUMBER_INCORRECT));
+            return getSpellingListStat(new Objects.SpellingListStat(NULL_ROW_ID, NULL_ROW_ID, 0, 0, 0, 0));
+        }
+
+        /**
+         * Method to copy the data at the current cursor location into an existing Spelling List Stat object.
+         * @param stat the Spelling List Stat object to fill in.
+         * @return the same Spelling List Stat object.
+         */
+        public Objects.SpellingListStat getSpellingListStat(Objects.SpellingListStat stat) {
+            stat.id = getLong(mIdIndex);
+            stat.listId = getLong(mListIdIndex);
+            stat.date = getLong(mDateIndex);
+            stat.elapsedTime = getLong(mElapsedTimeIndex);
+            stat.numberCorrect = getInt(mNumberCorrectIndex);
+            stat.numberIncorrect = getInt(mNumberIncorrectIndex);
+            stat.ability = isNull(mAbilityIndex) ? Double.NaN : getDouble(mAbilityIndex);
+            stat.abilityStandardError = isNull(mAbilityStandardErrorIndex) ? Double.NaN : getDouble(mAbilityStandardErrorIndex);
+            stat.credit = isNull(mCreditIndex) ? Double.NaN : getDouble(mCreditIndex);
+            return stat;
+        }
+    }
+
+    private class StatSummaryCursorWrapper extends CursorWrapper {
+
+        //Column indexes, looked up once per cursor.  Both summary tables use the same column names
+        //(apart from the key), so this wrapper works for either one.
+        private final int mIdIndex;
+        private final int mTestCountIndex;
+        private final int mTotalCorrectIndex;
+        private final int mTotalIncorrectIndex;
+        private final int mBestScoreIndex;
+        private final int mScoreSumIndex;
+        private final int mTotalElapsedTimeIndex;
+
+        /**
+         * Creates a cursor wrapper.
+         *
+         * @param cursor The underlying cursor to wrap.
+         * @param keyColumn The name of the summary table's key column.
+         */
+        public StatSummaryCursorWrapper(Cursor cursor, String keyColumn) {
+            super(cursor);
+            mIdIndex = getColumnIndexOrThrow(keyColumn);
+            mTestCountIndex = getColumnIndexOrThrow(DatabaseSchema.ListSummaryTable.Cols.TEST_COUNT);
+            mTotalCorrectIndex = getColumnIndexOrThrow(DatabaseSchema.ListSummaryTable.Cols.TOTAL_CORRECT);
+            mTotalIncorrectIndex = getColumnIndexOrThrow(DatabaseSchema.ListSummaryTable.Cols.TOTAL_INCORRECT);
+            mBestScoreIndex = getColumnIndexOrThrow(DatabaseSchema.ListSummaryTable.Cols.BEST_SCORE);
+            mScoreSumIndex = getColumnIndexOrThrow(DatabaseSchema.ListSummaryTable.Cols.SCORE_SUM);
+            mTotalElapsedTimeIndex = getColumnIndexOrThrow(DatabaseSchema.ListSummaryTable.Cols.TOTAL_ELAPSED_TIME);
+        }
+
+        /**
+         * Method to return a Stat Summary object from the current cursor location.
+         * @return the Stat Summary object representing the data at the current Cursor location.
+         */
+        public Objects.StatSummary getStatSummary() {
+            int testCount = getInt(mTestCountIndex);
+            return new Objects.StatSummary(
+                    getLong(mIdIndex),
+                    testCount,
+                    getInt(mTotalCorrectIndex),
+                    getInt(mTotalIncorrectIndex),
+                    getDouble(mBestScoreIndex),
+                    testCount > 0 ? getDouble(mScoreSumIndex) / testCount : 0,
+                    getLong(mTotalElapsedTimeIndex));
+        }
+    }
+
+    private class UserStatCursorWrapper extends CursorWrapper {
+
+        //Column indexes, looked up once per cursor.
+        private final int mIdIndex;
+        private final int mUserIdIndex;
+        private final int mOverallAccuracyIndex;
+        private final int mTotalTestsTakenIndex;
+        private final int mAttemptCountIndex;
+        private final int mCorrectCountIndex;
+
+        /**
+         * Creates a cursor wrapper.
+         *
+         * @param cursor The underlying cursor to wrap.
+         */
+        public UserStatCursorWrapper(Cursor cursor) {
+            super(cursor);
+            mIdIndex = getColumnIndexOrThrow(DatabaseSchema.UserStatTable.Cols.ID);
+            mUserIdIndex = getColumnIndexOrThrow(DatabaseSchema.UserStatTable.Cols.USER_ID);
+            mOverallAccuracyIndex = getColumnIndexOrThrow(DatabaseSchema.UserStatTable.Cols.OVERALL_ACCURACY);
+            mTotalTestsTakenIndex = getColumnIndexOrThrow(DatabaseSchema.UserStatTable.Cols.TOTAL_TESTS_TAKEN);
+            mAttemptCountIndex = getColumnIndexOrThrow(DatabaseSchema.UserStatTable.Cols.ATTEMPT_COUNT);
+            mCorrectCountIndex = getColumnIndexOrThrow(DatabaseSchema.UserStatTable.Cols.CORRECT_COUNT);
+        }
+
+        /**
+         * Method to return a User Stat object from the current cursor location.
+         * @return the User Stat object representing the data at the current Cursor location.
+         */
+        public Objects.UserStat getUserStat() {
+            return new Objects.UserStat(getLong(mIdIndex), getLong(mUserIdIndex), getDouble(mOverallAccuracyIndex),
+                    getInt(mTotalTestsTakenIndex), getInt(mAttemptCountIndex), getInt(mCorrectCountIndex));
+        }
+    }
+
+    private class WordStatCursorWrapper extends CursorWrapper {
+
+        //Column indexes, looked up once per cursor.
+        private final int mIdIndex;
+        private final int mWordIdIndex;
+        private final int mOverallAccuracyIndex;
+        private final int mAttemptCountIndex;
+        private final int mCorrectCountIndex;
+
+        /**
+         * Creates a cursor wrapper.
+         *
+         * @param cursor The underlying cursor to wrap.
+         */
+        public WordStatCursorWrapper(Cursor cursor) {
+            super(cursor);
+            mIdIndex = getColumnIndexOrThrow(DatabaseSchema.WordStatTable.Cols.ID);
+            mWordIdIndex = getColumnIndexOrThrow(DatabaseSchema.WordStatTable.Cols.WORD_ID);
+            mOverallAccuracyIndex = getColumnIndexOrThrow(DatabaseSchema.WordStatTable.Cols.OVERALL_ACCURACY);
+            mAttemptCountIndex = getColumnIndexOrThrow(DatabaseSchema.WordStatTable.Cols.ATTEMPT_COUNT);
+            mCorrectCountIndex = getColumnIndexOrThrow(DatabaseSchema.WordStatTable.Cols.CORRECT_COUNT);
+        }
+
+        /**
+         * Method to return a Word Stat object from the current cursor location.
+         * @return the Word Stat object representing the data at the current Cursor location.
+         */
+        public Objects.WordStat getWordStat() {
+            return new Objects.WordStat(getLong(mIdIndex), getLong(mWordIdIndex), getDouble(mOverallAccuracyIndex),
+                    getInt(mAttemptCountIndex), getInt(mCorrectCountIndex));
+        }
+    }
+
+    private class UserWordStatCursorWrapper extends CursorWrapper {
+
+        //Column indexes, looked up once per cursor.
+        private final int mIdIndex;
+        private final int mUserStatIdIndex;
+        private final int mWordStatIdIndex;
+        private final int mUserWordAccuracyIndex;
+        private final int mAttemptCountIndex;
+        private final int mCorrectCountIndex;
+
+        /**
+         * Creates a cursor wrapper.
+         *
+         * @param cursor The underlying cursor to wrap.
+         */
+        public UserWordStatCursorWrapper(Cursor cursor) {
+            super(cursor);
+            mIdIndex = getColumnIndexOrThrow(DatabaseSchema.UserWordStatTable.Cols.ID);
+            mUserStatIdIndex = getColumnIndexOrThrow(DatabaseSchema.UserWordStatTable.Cols.USER_STAT_ID);
+            mWordStatIdIndex = getColumnIndexOrThrow(DatabaseSchema.UserWordStatTable.Cols.WORD_STAT_ID);
+            mUserWordAccuracyIndex = getColumnIndexOrThrow(DatabaseSchema.UserWordStatTable.Cols.USER_WORD_ACCURACY);
+            mAttemptCountIndex = getColumnIndexOrThrow(DatabaseSchema.UserWordStatTable.Cols.ATTEMPT_COUNT);
+            mCorrectCountIndex = getColumnIndexOrThrow(DatabaseSchema.UserWordStatTable.Cols.CORRECT_COUNT);
+        }
+
+        /**
+         * Method to return a User Word Stat object from the current cursor location.
+         * @return the User Word Stat object representing the data at the current Cursor location.
+         */
+        public Objects.UserWordStat getUserWordStat() {
+            return new Objects.UserWordStat(getLong(mIdIndex), getLong(mUserStatIdIndex), getLong(mWordStatIdIndex),
+                    getDouble(mUserWordAccuracyIndex), getInt(mAttemptCountIndex), getInt(mCorrectCountIndex));
+        }
+    }
+
+    private class ReviewScheduleCursorWrapper extends CursorWrapper {
+
+        //Column indexes, looked up once per cursor.
+        private final int mIdIndex;
+        private final int mUserIdIndex;
+        private final int mWordIdIndex;
+        private final int mDueTimeIndex;
+        private final int mEaseFactorIndex;
+        private final int mIntervalDaysIndex;
+        private final int mRepetitionsIndex;
+
+        /**
+         * Creates a cursor wrapper.
+         *
+         * @param cursor The underlying cursor to wrap.
+         */
+        public ReviewScheduleCursorWrapper(Cursor cursor) {
+            super(cursor);
+            mIdIndex = getColumnIndexOrThrow(DatabaseSchema.ReviewScheduleTable.Cols.ID);
+            mUserIdIndex = getColumnIndexOrThrow(DatabaseSchema.ReviewScheduleTable.Cols.USER_ID);
+            mWordIdIndex = getColumnIndexOrThrow(DatabaseSchema.ReviewScheduleTable.Cols.WORD_ID);
+            mDueTimeIndex = getColumnIndexOrThrow(DatabaseSchema.ReviewScheduleTable.Cols.DUE_TIME);
+            mEaseFactorIndex = getColumnIndexOrThrow(DatabaseSchema.ReviewScheduleTable.Cols.EASE_FACTOR);
+            mIntervalDaysIndex = getColumnIndexOrThrow(DatabaseSchema.ReviewScheduleTable.Cols.INTERVAL_DAYS);
+            mRepetitionsIndex = getColumnIndexOrThrow(DatabaseSchema.ReviewScheduleTable.Cols.REPETITIONS);
+        }
+
+        /**
+         * Method to return a Review Schedule object from the current cursor location.
+         * @return the Review Schedule object representing the data at the current Cursor location.
+         */
+        public Objects.ReviewSchedule getReviewSchedule() {
+            return new Objects.ReviewSchedule(getLong(mIdIndex), getLong(mUserIdIndex), getLong(mWordIdIndex),
+                    getLong(mDueTimeIndex), getDouble(mEaseFactorIndex), getInt(mIntervalDaysIndex),
+                    getInt(mRepetitionsIndex));
+        }
+    }
+
+    private class WordCursorWrapper extends CursorWrapper {
+
+        //Column indexes, looked up once per cursor.
+        private final int mIdIndex;
+        private final int mListIdIndex;
+        private final int mSpellingIndex;
+        private final Map<Long, Objects.Word> mEdits;   //Word edits to apply to each row (can be null).
+
+        /**
+         * Creates a cursor wrapper.
+         *
+         * @param cursor The underlying cursor to wrap.
+         * @param edits the word edits taken (with getWordEdits()) before the query was made.  This can be null.
+         */
+        public WordCursorWrapper(Cursor cursor, Map<Long, Objects.Word> edits) {
+            super(cursor);
+            mEdits = edits;
+            mIdIndex = getColumnIndexOrThrow(DatabaseSchema.WordTable.Cols.ID);
+            mListIdIndex = getColumnIndexOrThrow(DatabaseSchema.WordTable.Cols.LIST_ID);
+            mSpellingIndex = getColumnIndexOrThrow(DatabaseSchema.WordTable.Cols.SPELLING);
+        }
+
+        /**
+         * Method to return a Word object from the current cursor location.
+         * @return the Word object representing the data at the current Cursor location.
+         */
+        public Objects.Word getWord() {
+            return getWord(new Objects.Word(NULL_ROW_ID, NULL_ROW_ID, null));
+        }
 
-            return new Objects.SpellingListStat(id, listId, date, elapsedTime, numberCorrect, numberIncorrect);
+        /**
+         * Method to copy the data at the current cursor location into an existing Word object.
+         * @param word the Word object to fill in.
+         * @return the same Word object.
+         */
+        public Objects.Word getWord(Objects.Word word) {
+            word.id = getLong(mIdIndex);
+            word.list_id = getLong(mListIdIndex);
+            word.spelling = getString(mSpellingIndex);
+
+            //If there's a newer edit of this word waiting to be written, show that instead.
+            return WordWriteBuffer.overlay(mEdits, word);
         }
     }
 
@@ -123,9 +738,24 @@ public class DataStore {
      * @param context is the Context to which the database instance will be attached.
      */
     private DataStore(Context context) {
+        this(new DatabaseHelper(context));
+    }
+
+    /**
+     * Class constructor for a DataStore on any database.  This is only used directly by the instrumented
+     * benchmarks, which each work on a database of their own (everything else goes through newInstance()).
+     * @param helper the helper for the database to open.
+     */
+    DataStore(DatabaseHelper helper) {
 
         //Just populate the database member variable.
-        mDataBase = new DatabaseHelper(context).getWritableDatabase();
+        mDataBase = helper.getWritableDatabase();
+        mStatements = new StatementCache(mDataBase);
+
+        //Hang on to the difficulty ids, for putWordDifficulties().
+        mDifficultyIds[DifficultyCalibrator.EASY] = helper.getEasyDifficultyId();
+        mDifficultyIds[DifficultyCalibrator.MEDIUM] = helper.getMediumDifficultyId();
+        mDifficultyIds[DifficultyCalibrator.HARD] = helper.getHardDifficultyId();
     }
 
 
@@ -139,7 +769,7 @@ public class DataStore {
      * @param context  the Context to which this database instance will be attached.
      * @return a reference to the single instance of this class.
      */
-    public static DataStore newInstance(Context context) {
+    public static synchronized DataStore newInstance(Context context) {
 
         //Check if the class variable holding the instance reference is null.  If so, an instance
         //of this class hasn't been created yet!  So, create it.
@@ -151,6 +781,41 @@ public class DataStore {
         return sDataStore;
     }
 
+    /**
+     * Public method to attach a write-behind buffer for word edits.  Once attached, every word read
+     * from the database is checked against the buffer, so reads see edits that haven't been written yet.
+     * @param buffer the buffer of pending word edits.
+     */
+    public void setWordWriteBuffer(WordWriteBuffer buffer) {
+        mWordBuffer = buffer;
+    }
+
+    /**
+     * Public method to write all of the pending word edits in the write-behind buffer to the database,
+     * in a single transaction.
+     * @return the number of words written.
+     */
+    public int flushWords() {
+
+        //Nothing to do if there's no buffer.
+        if (mWordBuffer == null) return 0;
+
+        //Take everything out of the buffer.  The edits stay visible to reads until endFlush() is called.
+        ArrayList<Objects.Word> batch = mWordBuffer.beginFlush();
+        if (batch.isEmpty()) return 0;
+
+        //Write the batch.  If the write fails, the edits go back into the buffer.
+        boolean success = false;
+        try {
+            putWords(batch, null);
+            success = true;
+        } finally {
+            mWordBuffer.endFlush(batch, success);
+        }
+
+        return batch.size();
+    }
+
     /**
      * Private convenience class to allow a query into the user table of the database.  Other methods
      * in this class will use this method to search users - this is done to prevent having to re-write
@@ -191,7 +856,7 @@ public class DataStore {
         //Perform the query on the Spelling List Table of the database, returning the values in a Cursor.
         Cursor cursor = mDataBase.query(
                 SpellingListTable.NAME,
-                null,
+                SPELLING_LIST_COLUMNS,
                 whereClause,
                 whereArgs,
                 null,
@@ -237,6 +902,11 @@ public class DataStore {
      */
     public ArrayList<Objects.User> getAllUsers() {
 
+        //Check the cache first.
+        ArrayList<Objects.User> cached = mUserCache.get(ALL_USERS);
+        if (cached != null) return copyUsers(cached);
+        long version = getCacheVersion();
+
         //Instantiate the ArrayList
         ArrayList<Objects.User> output = new ArrayList<>();
 
@@ -257,8 +927,9 @@ public class DataStore {
             cursor.close();                         //Close the cursor when done.
         }
 
-        //Return the ArrayList
-        return output;
+        //Keep a copy in the cache, and return the ArrayList
+        cachePut(mUserCache, ALL_USERS, output, version);
+        return copyUsers(output);
     }
 
     /**
@@ -268,14 +939,16 @@ public class DataStore {
      */
     public ArrayList<Objects.SpellingList> getSpellingLists(long userId) {
 
+        //Check the cache first.
+        ArrayList<Objects.SpellingList> cached = mUserListsCache.get(userId);
+        if (cached != null) return copySpellingLists(cached);
+        long version = getCacheVersion();
+
         //Instantiate the output ArrayList
         ArrayList<Objects.SpellingList> output = new ArrayList<>();
 
-        //Create the SQL WHERE clause (ie looking for a specific UserId)
-        String whereClause = SpellingListTable.Cols.USER_ID + "=" + userId;
-
-        //Do the query, and dump the results in a SpellingListCursorWrapper
-        SpellingListCursorWrapper cursor = querySpellingLists(whereClause, null);
+        //Do the query (ie looking for a specific UserId), and dump the results in a SpellingListCursorWrapper
+        SpellingListCursorWrapper cursor = querySpellingLists(WHERE_LIST_USER_ID, whereArgs(userId));
 
         //Step through each of the items in the cursor, obtain a SpellingList object from each line of the Cursor,
         //and add it to the ArrayList.  This is enclosed within a Try block to allow the cursor to be
@@ -291,141 +964,317 @@ public class DataStore {
             cursor.close();         //Close cursor when done.
         }
 
-        //Return the ArrayList
-        return output;
+        //Keep a copy in the cache, and return the ArrayList
+        cachePut(mUserListsCache, userId, output, version);
+        return copySpellingLists(output);
     }
 
     /**
-     * Public method to get all the words in a single spelling list.
+     * Private convenience class to allow a query into the word table of the database, for all of
+     * the words in a single spelling list.
+     *
      * @param spellingListId the id of the spelling list for which words are needed.
-     * @return  an ArrayList of Word objects, containing all the words in the spelling list.  This could be empty.
+     * @return a WordCursorWrapper containing the results of the database query.
      */
-    public ArrayList<Objects.Word> getWords(long spellingListId) {
-
-        Log.i(TAG, "In GetWords method, pulling cursor...");
+    private WordCursorWrapper queryWords(long spellingListId) {
 
-        //Instantiate the ArrayList for the output.
-        ArrayList<Objects.Word> output = new ArrayList<>();
+        //Take the word edits before the query, so an edit written while it runs can't be missed.
+        Map<Long, Objects.Word> edits = getWordEdits();
 
-        //Do the query, and return a Cursor with the results.  Note that we didn't create a CursorWrapper
-        //for words, since there's really only this method where we look for words.
-        Cursor wordCursor = mDataBase.query(
+        //Perform the query on the Word Table of the database, returning the values in a Cursor.  The words
+        //come back in the order they were added (this is the order of the list_id index, so costs nothing).
+        Cursor cursor = mDataBase.query(
                 DatabaseSchema.WordTable.NAME,
+                WORD_COLUMNS,
+                WHERE_WORD_LIST_ID,
+                whereArgs(spellingListId),
                 null,
-                DatabaseSchema.WordTable.Cols.LIST_ID + "=" + spellingListId,
                 null,
-                null,
-                null,
-                null
+                DatabaseSchema.WordTable.Cols.ID
         );
 
-        /**
-         * Step through each item in the Cursor, and (if we're not at the end of the list) create a
-         * new Word object using the data at the current Cursor location and add it to the ArrayList.
-         * Enclosing everything in a try block to ensure we close the Cursor when we're done with it.
-         */
-        try {
-
-            //Move the Cursor to the first thing on the list.
-            wordCursor.moveToFirst();
+        //Create a new WordCursorWrapper object from this cursor, and return it.
+        return new WordCursorWrapper(cursor, edits);
+    }
 
-            //If we're not at the end....
-            while (!wordCursor.isAfterLast()) {
+    /**
+     * Public method to get all the words in a single spelling list.
+     * @param spellingListId the id of the spelling list for which words are needed.
+     * @return  an ArrayList of Word objects, containing all the words in the spelling list.  This could be empty.
+     */
+    public ArrayList<Objects.Word> getWords(long spellingListId) {
 
-                //Extract all the info we need from the cursor.
-                int columnIndexId = wordCursor.getColumnIndex(DatabaseSchema.WordTable.Cols.ID);
-                int columnIndexSpelling = wordCursor.getColumnIndex(DatabaseSchema.WordTable.Cols.SPELLING);
-                int columnIndexListId = wordCursor.getColumnIndex(DatabaseSchema.WordTable.Cols.LIST_ID);
+        //Check the cache first (taking the word edits before looking, as for a query).
+        Map<Long, Objects.Word> edits = getWordEdits();
+        ArrayList<Objects.Word> cached = mWordListCache.get(spellingListId);
+        if (cached != null) return copyWords(cached, edits);
+        long version = getCacheVersion();
+
+        //Read the words, and keep a copy in the cache (as long as the list isn't too big).
+        ArrayList<Objects.Word> output = getWords(spellingListId, new ArrayList<Objects.Word>());
+        if (output.size() > MAX_CACHED_WORDS) return output;
+        cachePut(mWordListCache, spellingListId, output, version);
+        return copyWords(output, edits);
+    }
 
-                //Build a new Word object from the data retrieved from the Cursor.
-                Objects.Word word = new Objects.Word(
-                        wordCursor.getLong(columnIndexId),
-                        wordCursor.getLong(columnIndexListId),
-                        wordCursor.getString(columnIndexSpelling)
-                );
+    /**
+     * Public method to get all the words in a single spelling list, re-using the Word objects already
+     * in an existing ArrayList.  Existing objects are overwritten in order; new objects are only created
+     * if the list has more words than the ArrayList, and any left-over objects are removed.
+     *
+     * @param spellingListId the id of the spelling list for which words are needed.
+     * @param output the ArrayList to fill in.  Any Word objects already in it are re-used.
+     * @return the same ArrayList, now holding all the words in the spelling list.
+     */
+    public ArrayList<Objects.Word> getWords(long spellingListId, ArrayList<Objects.Word> output) {
 
-                //Add the newly-created Word object to the outout ArrayLIst
-                output.add(word);
+        //Do the query, and dump the results in a WordCursorWrapper.
+        WordCursorWrapper cursor = queryWords(spellingListId);
+        int count = 0;
 
-                //Move to the next item in the Cursor.
-                wordCursor.moveToNext();
+        //Step through each item in the Cursor, and (if we're not at the end of the list) copy the data
+        //at the current Cursor location into the next Word object in the ArrayList.  Enclosing everything
+        //in a try block to ensure we close the Cursor when we're done with it.
+        try {
+            output.ensureCapacity(cursor.getCount());
+            cursor.moveToFirst();
+            while (!cursor.isAfterLast()) {
+                if (count < output.size()) {
+                    cursor.getWord(output.get(count));      //Re-use an existing Word object...
+                } else {
+                    output.add(cursor.getWord());           //...or create a new one if we've run out.
+                }
+                count++;
+                cursor.moveToNext();
             }
         } finally {
+            cursor.close();
+        }
 
-            //Close the cursor when done.
-            wordCursor.close();
+        //Remove any left-over Word objects from the end of the ArrayList.
+        while (output.size() > count) {
+            output.remove(output.size() - 1);
         }
 
-        //Return the output Cursor.
         return output;
     }
 
     /**
-     * Public method to retrieve a single spelling list stat.
-     * @param id the id of the spelling list stat we're looking for
-     * @return  a SpellingListStat object associated with this id, or null if the id is invalid.
+     * Public method to get all the words in a single spelling list, with the words the user is weakest
+     * at first (see WordOrder.WEAKEST_FIRST).  The user's accuracy changes with every test, so these
+     * aren't cached.
+     *
+     * @param spellingListId the id of the spelling list.
+     * @param userId the id of the user taking the test.
+     * @return the words, sorted by the user's accuracy on each one (lowest first).
      */
-    public Objects.SpellingListStat getSpellingListStat(long id) {
-
-        //Instantiate the output SpellingListStat, and make it null (default if the query doesn't work.)
-        Objects.SpellingListStat stat = null;
+    public ArrayList<Objects.Word> getWordsWeakestFirst(long spellingListId, long userId) {
 
-        //Create the SQL WHERE clause for this search (ie looking for spelling list stat id
-        String whereClause = DatabaseSchema.SpellingListStatTable.Cols.ID + "=" + id;
-
-        //Perform the query, and dump the results into a SpellingListStatCursorWrapper.
-        SpellingListStatCursorWrapper cursor = querySpellingListStats(whereClause, null);
+        ArrayList<Objects.Word> output = new ArrayList<>();
+        Map<Long, Objects.Word> edits = getWordEdits();
+        WordCursorWrapper cursor = new WordCursorWrapper(mDataBase.rawQuery(SQL_GET_WORDS_WEAKEST_FIRST,
+                new String[] { Long.toString(userId), Long.toString(spellingListId) }), edits);
 
-        //Attempt to read the cursor.  We put this into a try block to ensure the cursor is closed after use.
         try {
-
-            //If we;re not at the end of the Cursor (ie we have a result), create a SpellingListStat object with the results.
-            if (cursor.moveToFirst()) {
-                stat = cursor.getSpellingListStat();
+            output.ensureCapacity(cursor.getCount());
+            cursor.moveToFirst();
+            while (!cursor.isAfterLast()) {
+                output.add(cursor.getWord());
+                cursor.moveToNext();
             }
-
         } finally {
-
-            //Close cursor when done.
             cursor.close();
         }
+        return output;
+    }
 
-        //Return the spelling list stat.  Note that this could be null if no stat was identified.
-        return stat;
+    /**
+     * Public method to count the words in a single spelling list.
+     * @param spellingListId the id of the spelling list.
+     * @return the number of words in the list.
+     */
+    public int countWords(long spellingListId) {
+        SQLiteStatement statement = mStatements.get(SQL_COUNT_WORDS);
+        synchronized (statement) {
+            statement.bindLong(1, spellingListId);
+            return (int) statement.simpleQueryForLong();
+        }
     }
 
     /**
-     * Public method to retrieve a single spelling list, given its id.
-     * @param listId  the id of the spelling list to be retrieved.
-     * @return a SpellingList object containing the list info, or null if no spelling list with that id was located.
+     * Public method to get one page of the words in a spelling list, in word id order.  Pages are
+     * found by key (ie "the next limit words after this word id") rather than by offset, so the cost
+     * of fetching a page doesn't depend on how far into the list it is.
+     *
+     * @param spellingListId the id of the spelling list.
+     * @param afterWordId only words with an id greater than this are returned.  Use NULL_ROW_ID for the first page.
+     * @param limit the maximum number of words to return.
+     * @return an ArrayList holding (at most) limit words.  This could be empty.
      */
-    public Objects.SpellingList getSpellingList(long listId) {
+    public ArrayList<Objects.Word> getWordsAfter(long spellingListId, long afterWordId, int limit) {
 
-        //Instantiate the spelling list output object, and set it to null (ie default value).
-        Objects.SpellingList list = null;
+        Map<Long, Objects.Word> edits = getWordEdits();
+        Cursor cursor = mDataBase.query(
+                DatabaseSchema.WordTable.NAME,
+                WORD_COLUMNS,
+                WHERE_WORD_LIST_ID_AFTER,
+                new String[] { Long.toString(spellingListId), Long.toString(afterWordId) },
+                null,
+                null,
+                DatabaseSchema.WordTable.Cols.ID,
+                Integer.toString(limit)
+        );
 
-        //Create the SQL WHERE clause (ie looking for a specific list id.)
-        String whereClause = SpellingListTable.Cols.ID + "=" + listId;
+        return readWords(new WordCursorWrapper(cursor, edits), limit);
+    }
 
-        //Perform the query, and dump the results into a SpellingListCursorWrapper
-        SpellingListCursorWrapper cursor = querySpellingLists(whereClause, null);
+    /**
+     * Public method to get one page of the words in a spelling list, in word id order, starting at a
+     * position in the list.  This has to step over all of the words before the offset, so it should
+     * only be used when the key of the previous page isn't known (see getWordsAfter()).
+     *
+     * @param spellingListId the id of the spelling list.
+     * @param offset the position in the list of the first word to return.
+     * @param limit the maximum number of words to return.
+     * @return an ArrayList holding (at most) limit words.  This could be empty.
+     */
+    public ArrayList<Objects.Word> getWordsAt(long spellingListId, int offset, int limit) {
 
-        //Attempt to pull the data out of the cursor.  Using a try block here to ensure cursor is closed after use.
-        try{
+        Map<Long, Objects.Word> edits = getWordEdits();
+        Cursor cursor = mDataBase.query(
+                DatabaseSchema.WordTable.NAME,
+                WORD_COLUMNS,
+                WHERE_WORD_LIST_ID,
+                whereArgs(spellingListId),
+                null,
+                null,
+                DatabaseSchema.WordTable.Cols.ID,
+                offset + "," + limit
+        );
 
-            //If we're not at the end of the cursor (ie cursor actually contains something). create a
-            //SpellingList object with the results.
-            if (cursor.moveToFirst()) {
-                list = cursor.getSpellingList();
+        return readWords(new WordCursorWrapper(cursor, edits), limit);
+    }
+
+    /**
+     * Private method to read every row of a WordCursorWrapper into a new ArrayList, and close the cursor.
+     * @param cursor the cursor to read.
+     * @param capacity the expected number of rows.
+     * @return an ArrayList of Word objects.
+     */
+    private ArrayList<Objects.Word> readWords(WordCursorWrapper cursor, int capacity) {
+
+        ArrayList<Objects.Word> output = new ArrayList<>(capacity);
+        try {
+            cursor.moveToFirst();
+            while (!cursor.isAfterLast()) {
+                output.add(cursor.getWord());
+                cursor.moveToNext();
             }
         } finally {
-
-            //Close the cursor when done.
             cursor.close();
         }
+        return output;
+    }
+
+    /**
+     * Public method to step through all the words in a single spelling list without creating a Word
+     * object for each one.  A single Word object is filled in for each row and handed to the visitor.
+     *
+     * @param spellingListId the id of the spelling list for which words are needed.
+     * @param visitor the WordVisitor that is called once for each word.
+     */
+    public void forEachWord(long spellingListId, WordVisitor visitor) {
+
+        WordCursorWrapper cursor = queryWords(spellingListId);
+        Objects.Word word = new Objects.Word(NULL_ROW_ID, NULL_ROW_ID, null);
 
-        //Return the SpellingList object.  Note that this can be null if no list with the desired id was found.
-        return list;
+        try {
+            cursor.moveToFirst();
+            while (!cursor.isAfterLast()) {
+                visitor.visit(cursor.getWord(word));
+                cursor.moveToNext();
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Public method to retrieve a single spelling list stat.
+     * @param id the id of the spelling list stat we're looking for
+     * @return  a SpellingListStat object associated with this id, or null if the id is invalid.
+     */
+    public Objects.SpellingListStat getSpellingListStat(long id) {
+
+        //Check the cache first.
+        Objects.SpellingListStat cached = mStatCache.get(id);
+        if (cached != null) return copySpellingListStat(cached);
+        long version = getCacheVersion();
+
+        //Instantiate the output SpellingListStat, and make it null (default if the query doesn't work.)
+        Objects.SpellingListStat stat = null;
+
+        //Perform the query (ie looking for spelling list stat id), and dump the results into a SpellingListStatCursorWrapper.
+        SpellingListStatCursorWrapper cursor = querySpellingListStats(WHERE_STAT_ID, whereArgs(id));
+
+        //Attempt to read the cursor.  We put this into a try block to ensure the cursor is closed after use.
+        try {
+
+            //If we;re not at the end of the Cursor (ie we have a result), create a SpellingListStat object with the results.
+            if (cursor.moveToFirst()) {
+                stat = cursor.getSpellingListStat();
+            }
+
+        } finally {
+
+            //Close cursor when done.
+            cursor.close();
+        }
+
+        //Return the spelling list stat (keeping a copy in the cache).  Note that this could be null if
+        //no stat was identified.
+        if (stat == null) return null;
+        cachePut(mStatCache, id, stat, version);
+        return copySpellingListStat(stat);
+    }
+
+    /**
+     * Public method to retrieve a single spelling list, given its id.
+     * @param listId  the id of the spelling list to be retrieved.
+     * @return a SpellingList object containing the list info, or null if no spelling list with that id was located.
+     */
+    public Objects.SpellingList getSpellingList(long listId) {
+
+        //Check the cache first.
+        Objects.SpellingList cached = mSpellingListCache.get(listId);
+        if (cached != null) return copySpellingList(cached);
+        long version = getCacheVersion();
+
+        //Instantiate the spelling list output object, and set it to null (ie default value).
+        Objects.SpellingList list = null;
+
+        //Perform the query (ie looking for a specific list id), and dump the results into a SpellingListCursorWrapper
+        SpellingListCursorWrapper cursor = querySpellingLists(WHERE_LIST_ID, whereArgs(listId));
+
+        //Attempt to pull the data out of the cursor.  Using a try block here to ensure cursor is closed after use.
+        try{
+
+            //If we're not at the end of the cursor (ie cursor actually contains something). create a
+            //SpellingList object with the results.
+            if (cursor.moveToFirst()) {
+                list = cursor.getSpellingList();
+            }
+        } finally {
+
+            //Close the cursor when done.
+            cursor.close();
+        }
+
+        //Return the SpellingList object (keeping a copy in the cache).  Note that this can be null if
+        //no list with the desired id was found.
+        if (list == null) return null;
+        cachePut(mSpellingListCache, listId, list, version);
+        return copySpellingList(list);
     }
 
 
@@ -439,8 +1288,15 @@ public class DataStore {
         //This line of code exectes the SQL query to delete that word (if it exists).
         mDataBase.delete(
                 DatabaseSchema.UserTable.NAME,
-                DatabaseSchema.UserTable.Cols.ID + "=" + Long.toString(userId),
-                null);
+                WHERE_USER_ID,
+                whereArgs(userId));
+
+        //Throw away the cached list of users, and the user's spelling lists.
+        synchronized (mCacheLock) {
+            mCacheVersion++;
+            mUserCache.remove(ALL_USERS);
+            mUserListsCache.remove(userId);
+        }
     }
 
     /**
@@ -449,11 +1305,37 @@ public class DataStore {
      */
     public void deleteWord(long wordId) {
 
-        //This line of code exectes the SQL query to delete that word (if it exists).
-        mDataBase.delete(
-                DatabaseSchema.WordTable.NAME,
-                DatabaseSchema.WordTable.Cols.ID + "=" + Long.toString(wordId),
-                null);
+        //Throw away any pending edit of this word first, so it can't be written back later.
+        if (mWordBuffer != null) mWordBuffer.discard(wordId);
+
+        //Find out which list the word is in, so we know which cached word list to throw away.
+        long listId = getWordListId(wordId);
+
+        //This code exectes the SQL query to delete that word (if it exists).
+        SQLiteStatement statement = mStatements.get(SQL_DELETE_WORD);
+        synchronized (statement) {
+            statement.bindLong(1, wordId);
+            statement.executeUpdateDelete();
+        }
+        invalidateWords(listId);
+    }
+
+    /**
+     * Private method to look up the spelling list a word belongs to.
+     * @param wordId the id of the word.
+     * @return the id of the word's spelling list, or NULL_ROW_ID if there's no such word.
+     */
+    private long getWordListId(long wordId) {
+
+        SQLiteStatement statement = mStatements.get(SQL_GET_WORD_LIST_ID);
+        synchronized (statement) {
+            statement.bindLong(1, wordId);
+            try {
+                return statement.simpleQueryForLong();
+            } catch (SQLiteDoneException e) {
+                return NULL_ROW_ID;             //No such word.
+            }
+        }
     }
 
     /**
@@ -480,8 +1362,13 @@ public class DataStore {
         values.put(UserTable.Cols.LAST_NAME, user.lastName);
 
 
-        //Add the item to the database, and return the row id for the database.
-        return mDataBase.replace(UserTable.NAME, null, values);
+        //Add the item to the database, throw away the cached list of users, and return the row id for the database.
+        long id = mDataBase.replace(UserTable.NAME, null, values);
+        synchronized (mCacheLock) {
+            mCacheVersion++;
+            mUserCache.remove(ALL_USERS);
+        }
+        return id;
 
     }
 
@@ -506,9 +1393,29 @@ public class DataStore {
         //Add the remaining user items to the CV object.
         values.put(SpellingListTable.Cols.NAME, list.name);
         values.put(SpellingListTable.Cols.USER_ID, list.userId);
+        values.put(SpellingListTable.Cols.WORD_ORDER, list.wordOrder);
 
         //Add the item to the database, and return the row id for the spelling list
-        return mDataBase.replace(SpellingListTable.NAME, null, values);
+        long id = mDataBase.replace(SpellingListTable.NAME, null, values);
+        invalidateSpellingList(id, list.userId);
+        return id;
+    }
+
+    /**
+     * Public method to change the order the words in a spelling list are tested in.
+     * @param listId the id of the spelling list.
+     * @param userId the id of the user who owns the list.
+     * @param wordOrder the new order (one of the WordOrder values).
+     */
+    public void setWordOrder(long listId, long userId, int wordOrder) {
+
+        SQLiteStatement statement = mStatements.get(SQL_SET_WORD_ORDER);
+        synchronized (statement) {
+            statement.bindLong(1, wordOrder);
+            statement.bindLong(2, listId);
+            statement.executeUpdateDelete();
+        }
+        invalidateSpellingList(listId, userId);
     }
 
     /**
@@ -519,22 +1426,226 @@ public class DataStore {
      */
     public long putWord(Objects.Word word) {
 
-        //Create a ContentValues object for transferring values to the database.
-        ContentValues values = new ContentValues();
+        Log.i(TAG, "in putWord with id=" + word.id + ", spelling = " + word.spelling);
 
-        //If the id field for the word is not null, then we want to transfer the word id as well (ie updating word info).
-        if (word.id != DataStore.NULL_ROW_ID) {
-            values.put(DatabaseSchema.WordTable.Cols.ID, word.id);
+        //Add (or update) the word using the cached statements, and return the row id for the spelling word
+        long id;
+        SQLiteStatement insert = mStatements.get(SQL_INSERT_WORD);
+        SQLiteStatement update = mStatements.get(SQL_UPDATE_WORD);
+        synchronized (insert) {
+            synchronized (update) {
+                id = writeWord(insert, update, word);
+            }
         }
+        invalidateWords(word.list_id);
+        return id;
+    }
 
-        //Add the remaining user items to the CV object.
-        values.put(DatabaseSchema.WordTable.Cols.LIST_ID, word.list_id);
-        values.put(DatabaseSchema.WordTable.Cols.SPELLING, word.spelling);
+    /**
+     * Public method to add (or update) a whole batch of words in the database.  All of the words are
+     * written in a single transaction using the same compiled statements, which is much faster than calling
+     * putWord() once per word.  On success, the id field of each Word object is set to its row id.
+     *
+     * @param words the Word objects to be saved.  New words should have an id of NULL_ROW_ID.
+     * @param listener an optional listener for progress reports.  This can be null.
+     * @return the row ids of the words, in the same order as the collection.
+     */
+    public long[] putWords(Collection<Objects.Word> words, ProgressListener listener) {
 
-        Log.i(TAG, "in putWord with id=" + word.id + ", spelling = " + word.spelling);
+        long[] ids;
+
+        //Write the whole batch in a single transaction.
+        mDataBase.beginTransaction();
+        try {
+            ids = writeWords(words, listener);
+            mDataBase.setTransactionSuccessful();
+        } finally {
+            mDataBase.endTransaction();
+            invalidateWords(words);
+        }
+
+        //Only hand the new ids back to the Word objects once the transaction has been committed.
+        assignWordIds(words, ids);
+        return ids;
+    }
+
+    /**
+     * Public method to replace all of the words in a spelling list with a new set of words.  The old
+     * words are deleted and the new words are written in a single transaction.
+     *
+     * @param listId the id of the spelling list whose words are being replaced.
+     * @param words the new words for the list.  The list_id of each word is set to listId.
+     * @param listener an optional listener for progress reports.  This can be null.
+     * @return the row ids of the new words, in the same order as the collection.
+     */
+    public long[] replaceWords(long listId, Collection<Objects.Word> words, ProgressListener listener) {
+
+        long[] ids;
+
+        //Make sure all of the words point at the list we're replacing, and throw away any pending
+        //edits of the old words.
+        for (Objects.Word word : words) {
+            word.list_id = listId;
+        }
+        if (mWordBuffer != null) mWordBuffer.discardList(listId);
+
+        //Delete the old words and write the new ones in a single transaction.
+        mDataBase.beginTransaction();
+        try {
+            mDataBase.delete(
+                    DatabaseSchema.WordTable.NAME,
+                    WHERE_WORD_LIST_ID,
+                    whereArgs(listId));
+            ids = writeWords(words, listener);
+            mDataBase.setTransactionSuccessful();
+        } finally {
+            mDataBase.endTransaction();
+            invalidateWords(listId);
+        }
+
+        assignWordIds(words, ids);
+        return ids;
+    }
+
+    /**
+     * Public method to add a new spelling list, along with its initial words, to the database.  The
+     * list and all of its words are written in a single transaction.
+     *
+     * @param list the SpellingList object containing the new list information.
+     * @param words the initial words for the list.  The list_id of each word is set to the new list id.
+     * @param listener an optional listener for progress reports.  This can be null.
+     * @return the ID of the new spelling list, or NULL_ROW_ID if the spelling list was not added.
+     */
+    public long putSpellingList(Objects.SpellingList list, Collection<Objects.Word> words, ProgressListener listener) {
+
+        long listId = NULL_ROW_ID;
+        long[] ids;
+
+        mDataBase.beginTransaction();
+        try {
+
+            //Add the list first, so we know the id to give the words.
+            listId = putSpellingList(list);
+            if (listId == NULL_ROW_ID) return NULL_ROW_ID;
+
+            for (Objects.Word word : words) {
+                word.list_id = listId;
+            }
+            ids = writeWords(words, listener);
+            mDataBase.setTransactionSuccessful();
+        } finally {
+            mDataBase.endTransaction();
+
+            //The cache entries were already thrown away by putSpellingList(), but another thread could
+            //have re-read the old data before the transaction was committed - so throw them away again.
+            invalidateSpellingList(listId, list.userId);
+            invalidateWords(listId);
+        }
+
+        assignWordIds(words, ids);
+        return listId;
+    }
+
+    /**
+     * Private method that does the actual work for the bulk word writes.  This must be called from
+     * inside a transaction.
+     *
+     * @param words the Word objects to be saved.
+     * @param listener an optional listener for progress reports.  This can be null.
+     * @return the row ids of the words, in the same order as the collection.
+     */
+    private long[] writeWords(Collection<Objects.Word> words, ProgressListener listener) {
+
+        int total = words.size();
+        long[] ids = new long[total];
+        int i = 0;
+
+        //Use the cached statements, re-binding them for every word.
+        SQLiteStatement insert = mStatements.get(SQL_INSERT_WORD);
+        SQLiteStatement update = mStatements.get(SQL_UPDATE_WORD);
+        synchronized (insert) {
+            synchronized (update) {
+                for (Objects.Word word : words) {
+                    ids[i++] = writeWord(insert, update, word);
+
+                    //Let the listener know how we're doing every so often.
+                    if (listener != null && i % PROGRESS_INTERVAL == 0) {
+                        listener.onProgress(i, total);
+                    }
+                }
+            }
+        }
+
+        //Final progress report.
+        if (listener != null) listener.onProgress(i, total);
+
+        return ids;
+    }
+
+    /**
+     * Private method to write a single word.  An existing word is updated in place, so the columns that
+     * aren't part of a Word object (eg its difficulty, see DifficultyCalibrator) are kept.  A new word, or
+     * one whose id isn't in the table any more, is inserted.  The caller must hold the locks on both
+     * statements (insert first).
+     *
+     * @param insert the compiled SQL_INSERT_WORD statement.
+     * @param update the compiled SQL_UPDATE_WORD statement.
+     * @param word the Word object to write.
+     * @return the row id of the word, or NULL_ROW_ID if it couldn't be written.
+     */
+    private static long writeWord(SQLiteStatement insert, SQLiteStatement update, Objects.Word word) {
+
+        if (word.id != NULL_ROW_ID) {
+            bindWord(update, word, 1);
+            update.bindLong(4, word.id);
+            if (update.executeUpdateDelete() > 0) return word.id;
+        }
+
+        //Bind the id only if there is one - otherwise let SQLite assign one.
+        if (word.id != NULL_ROW_ID) {
+            insert.bindLong(1, word.id);
+        } else {
+            insert.bindNull(1);
+        }
+        bindWord(insert, word, 2);
+        return insert.executeInsert();
+    }
 
-        //Add the item to the database, and return the row id for the spelling word
-        return mDataBase.replace(DatabaseSchema.WordTable.NAME, null, values);
+    /**
+     * Private method to bind the list id, spelling and phonetic key of a word to a statement.
+     * @param statement the compiled SQL_INSERT_WORD or SQL_UPDATE_WORD statement.
+     * @param word the Word object to bind.
+     * @param index the index of the list id argument (the spelling and phonetic key follow it).
+     */
+    private static void bindWord(SQLiteStatement statement, Objects.Word word, int index) {
+        statement.bindLong(index, word.list_id);
+        if (word.spelling != null) {
+            statement.bindString(index + 1, word.spelling);
+        } else {
+            statement.bindNull(index + 1);
+        }
+        statement.bindString(index + 2, PhoneticKey.encode(word.spelling));
+    }
+
+    /**
+     * Private method to build the bound arguments for a WHERE clause with a single id in it.
+     * @param id the id.
+     * @return the argument array.
+     */
+    private static String[] whereArgs(long id) {
+        return new String[] { Long.toString(id) };
+    }
+
+    /**
+     * Private method to copy the row ids from a bulk write back into the Word objects.
+     * @param words the Word objects that were saved.
+     * @param ids the row ids of the words, in the same order as the collection.
+     */
+    private void assignWordIds(Collection<Objects.Word> words, long[] ids) {
+        int i = 0;
+        for (Objects.Word word : words) {
+            word.id = ids[i++];
+        }
     }
 
     /**
@@ -555,8 +1666,809 @@ public class DataStore {
         values.put(DatabaseSchema.SpellingListStatTable.Cols.NUMBER_CORRECT, stat.numberCorrect);
         values.put(DatabaseSchema.SpellingListStatTable.Cols.NUMBER_INCORRECT, stat.numberIncorrect);
 
-        //Add the item to the database, and return the row id for the spelling list stat
-        return mDataBase.insert(DatabaseSchema.SpellingListStatTable.NAME, null, values);
+        //The ability estimate is only there for adaptive tests.  Otherwise it is left as NULL.
+        if (!Double.isNaN(stat.ability)) {
+            values.put(DatabaseSchema.SpellingListStatTable.Cols.ABILITY, stat.ability);
+            values.put(DatabaseSchema.SpellingListStatTable.Cols.ABILITY_STANDARD_ERROR, stat.abilityStandardError);
+        }
+        if (!Double.isNaN(stat.credit)) {
+            values.put(DatabaseSchema.SpellingListStatTable.Cols.CREDIT, stat.credit);
+        }
+
+        //Add the item to the database, and add it to the list and user summaries in the same transaction.
+        long id;
+        mDataBase.beginTransaction();
+        try {
+            id = mDataBase.insert(DatabaseSchema.SpellingListStatTable.NAME, null, values);
+            if (id != NULL_ROW_ID) addToSummaries(stat);
+            mDataBase.setTransactionSuccessful();
+        } finally {
+            mDataBase.endTransaction();
+        }
+
+        //Return the row id for the spelling list stat.  The stat is about to be shown on the stats
+        //screen, so put a copy straight into the cache.
+        if (id != NULL_ROW_ID) {
+            Objects.SpellingListStat cached = copySpellingListStat(stat);
+            cached.id = id;
+            synchronized (mCacheLock) {
+                mStatCache.put(id, cached);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Public method to append a batch of word attempts to the attempt log.  The whole batch is written
+     * in a single transaction, using one compiled statement.  The id field of the WordAttempt objects
+     * is not used or changed.
+     *
+     * @param attempts the attempts to write.
+     * @param count the number of attempts to write, from the start of the array.
+     */
+    public void putWordAttempts(Objects.WordAttempt[] attempts, int count) {
+
+        if (count == 0) return;
+
+        mDataBase.beginTransaction();
+        try {
+            SQLiteStatement statement = mStatements.get(SQL_INSERT_ATTEMPT);
+            synchronized (statement) {
+                for (int i = 0; i < count; i++) {
+                    Objects.WordAttempt attempt = attempts[i];
+                    statement.bindLong(1, attempt.sessionId);
+                    statement.bindLong(2, attempt.wordId);
+                    if (attempt.typedText != null) {
+                        statement.bindString(3, attempt.typedText);
+                    } else {
+                        statement.bindNull(3);
+                    }
+                    statement.bindLong(4, attempt.correct ? 1 : 0);
+                    statement.bindLong(5, attempt.responseTime);
+                    statement.bindLong(6, attempt.timestamp);
+                    //Attempts that haven't been graded are left without a phonetic key as well, so that
+                    //gradeAttempts() finds them.
+                    if (attempt.editDistance != AnswerGrader.UNGRADED) {
+                        statement.bindLong(7, attempt.editDistance);
+                        statement.bindLong(8, attempt.errorType);
+                        statement.bindString(9, PhoneticKey.encode(attempt.typedText));
+                    } else {
+                        statement.bindNull(7);
+                        statement.bindNull(8);
+                        statement.bindNull(9);
+                    }
+                    statement.executeInsert();
+                }
+            }
+            mDataBase.setTransactionSuccessful();
+        } finally {
+            mDataBase.endTransaction();
+        }
+    }
+
+    /**
+     * Private method to add a new stat to the per-list and per-user summary tables.  This must be
+     * called from inside the transaction that writes the stat.
+     * @param stat the new stat.
+     */
+    private void addToSummaries(Objects.SpellingListStat stat) {
+
+        double score = StatSummaries.score(stat.numberCorrect, stat.numberIncorrect);
+
+        SQLiteStatement statement = mStatements.get(StatSummaries.SQL_INSERT_LIST);
+        synchronized (statement) {
+            statement.bindLong(1, stat.listId);
+            statement.execute();
+        }
+        statement = mStatements.get(StatSummaries.SQL_UPDATE_LIST);
+        synchronized (statement) {
+            bindSummaryUpdate(statement, stat, score);
+            statement.execute();
+        }
+        statement = mStatements.get(StatSummaries.SQL_INSERT_USER);
+        synchronized (statement) {
+            statement.bindLong(1, stat.listId);
+            statement.execute();
+        }
+        statement = mStatements.get(StatSummaries.SQL_UPDATE_USER);
+        synchronized (statement) {
+            bindSummaryUpdate(statement, stat, score);
+            statement.execute();
+        }
+    }
+
+    /**
+     * Private method to bind a stat to one of the summary UPDATE statements.
+     * @param statement the compiled statement.
+     * @param stat the new stat.
+     * @param score the score for the stat.
+     */
+    private static void bindSummaryUpdate(SQLiteStatement statement, Objects.SpellingListStat stat, double score) {
+        statement.bindLong(1, stat.numberCorrect);
+        statement.bindLong(2, stat.numberIncorrect);
+        statement.bindDouble(3, score);
+        statement.bindDouble(4, score);
+        statement.bindLong(5, stat.elapsedTime);
+        statement.bindLong(6, stat.listId);
+    }
+
+    /**
+     * Public method to get the summary of every test taken on a spelling list.  This is a single row
+     * lookup, no matter how many tests have been taken.
+     * @param listId the id of the spelling list.
+     * @return the summary.  If no tests have been taken, all of its totals are zero.
+     */
+    public Objects.StatSummary getListSummary(long listId) {
+        return getSummary(DatabaseSchema.ListSummaryTable.NAME, DatabaseSchema.ListSummaryTable.Cols.LIST_ID,
+                WHERE_LIST_SUMMARY_ID, listId);
+    }
+
+    /**
+     * Public method to get the summary of every test taken by a user, across all of their spelling lists.
+     * This is a single row lookup, no matter how many tests have been taken.
+     * @param userId the id of the user.
+     * @return the summary.  If no tests have been taken, all of its totals are zero.
+     */
+    public Objects.StatSummary getUserSummary(long userId) {
+        return getSummary(DatabaseSchema.UserSummaryTable.NAME, DatabaseSchema.UserSummaryTable.Cols.USER_ID,
+                WHERE_USER_SUMMARY_ID, userId);
+    }
+
+    /**
+     * Private method to read a single row from one of the summary tables.
+     * @param table the name of the summary table.
+     * @param keyColumn the name of the table's key column.
+     * @param whereClause the WHERE clause to find the row by its key.
+     * @param id the key of the row.
+     * @return the summary, or an empty summary if there is no row.
+     */
+    private Objects.StatSummary getSummary(String table, String keyColumn, String whereClause, long id) {
+
+        StatSummaryCursorWrapper cursor = new StatSummaryCursorWrapper(
+                mDataBase.query(table, null, whereClause, whereArgs(id), null, null, null),
+                keyColumn);
+
+        try {
+            if (cursor.moveToFirst()) return cursor.getStatSummary();
+        } finally {
+            cursor.close();
+        }
+        return new Objects.StatSummary(id, 0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Public method to get a user's overall accuracy and number of tests taken.  These totals are kept
+     * up to date by database triggers as attempts and tests are recorded, so this is a single indexed
+     * lookup no matter how much history there is.
+     * @param userId the id of the user.
+     * @return the user's stats.  If the user hasn't taken any tests yet, all of the totals are zero.
+     */
+    public Objects.UserStat getUserStat(long userId) {
+
+        UserStatCursorWrapper cursor = new UserStatCursorWrapper(mDataBase.query(
+                DatabaseSchema.UserStatTable.NAME, null, WHERE_USER_STAT_USER_ID, whereArgs(userId), null, null, null));
+
+        try {
+            if (cursor.moveToFirst()) return cursor.getUserStat();
+        } finally {
+            cursor.close();
+        }
+        return new Objects.UserStat(NULL_ROW_ID, userId, 0, 0, 0, 0);
+    }
+
+    /**
+     * Public method to get the accuracy of every attempt (by any user) at a word.  This is a single
+     * indexed lookup, kept up to date by database triggers.
+     * @param wordId the id of the word.
+     * @return the word's stats.  If the word hasn't been tested yet, all of the totals are zero.
+     */
+    public Objects.WordStat getWordStat(long wordId) {
+
+        WordStatCursorWrapper cursor = new WordStatCursorWrapper(mDataBase.query(
+                DatabaseSchema.WordStatTable.NAME, null, WHERE_WORD_STAT_WORD_ID, whereArgs(wordId), null, null, null));
+
+        try {
+            if (cursor.moveToFirst()) return cursor.getWordStat();
+        } finally {
+            cursor.close();
+        }
+        return new Objects.WordStat(NULL_ROW_ID, wordId, 0, 0, 0);
+    }
+
+    /**
+     * Public method to get the stats for every word in a spelling list that has been tested.
+     * @param listId the id of the spelling list.
+     * @return the stats, in no particular order.  Words that have never been tested aren't included.
+     */
+    public ArrayList<Objects.WordStat> getWordStats(long listId) {
+
+        ArrayList<Objects.WordStat> output = new ArrayList<>();
+        WordStatCursorWrapper cursor = new WordStatCursorWrapper(mDataBase.rawQuery(SQL_GET_WORD_STATS, whereArgs(listId)));
+
+        try {
+            output.ensureCapacity(cursor.getCount());
+            cursor.moveToFirst();
+            while (!cursor.isAfterLast()) {
+                output.add(cursor.getWordStat());
+                cursor.moveToNext();
+            }
+        } finally {
+            cursor.close();
+        }
+        return output;
+    }
+
+    /**
+     * Public method to get a user's accuracy on a single word.  This is a few indexed lookups, kept
+     * up to date by database triggers.
+     * @param userId the id of the user.
+     * @param wordId the id of the word.
+     * @return the stats.  If the user hasn't been tested on the word yet, all of the totals are zero.
+     */
+    public Objects.UserWordStat getUserWordStat(long userId, long wordId) {
+
+        UserWordStatCursorWrapper cursor = new UserWordStatCursorWrapper(mDataBase.rawQuery(
+                SQL_GET_USER_WORD_STAT, new String[] { Long.toString(userId), Long.toString(wordId) }));
+
+        try {
+            if (cursor.moveToFirst()) return cursor.getUserWordStat();
+        } finally {
+            cursor.close();
+        }
+        return new Objects.UserWordStat(NULL_ROW_ID, NULL_ROW_ID, NULL_ROW_ID, 0, 0, 0);
+    }
+
+    /**
+     * Public method to get a user's review schedules for the words in a spelling list (see the ReviewQueue
+     * class).  Words that have never been reviewed have no schedule.
+     * @param listId the id of the spelling list.
+     * @param userId the id of the user.
+     * @return the schedules, in no particular order.
+     */
+    public ArrayList<Objects.ReviewSchedule> getReviewSchedules(long listId, long userId) {
+
+        ArrayList<Objects.ReviewSchedule> output = new ArrayList<>();
+        ReviewScheduleCursorWrapper cursor = new ReviewScheduleCursorWrapper(mDataBase.rawQuery(
+                SQL_GET_REVIEW_SCHEDULES, new String[] { Long.toString(listId), Long.toString(userId) }));
+
+        try {
+            output.ensureCapacity(cursor.getCount());
+            cursor.moveToFirst();
+            while (!cursor.isAfterLast()) {
+                output.add(cursor.getReviewSchedule());
+                cursor.moveToNext();
+            }
+        } finally {
+            cursor.close();
+        }
+        return output;
+    }
+
+    /**
+     * Public method to save a word's review schedule, replacing any schedule already saved for the
+     * same user and word.
+     * @param schedule the schedule to save.
+     */
+    public void putReviewSchedule(Objects.ReviewSchedule schedule) {
+
+        SQLiteStatement statement = mStatements.get(SQL_PUT_REVIEW_SCHEDULE);
+        synchronized (statement) {
+            statement.bindLong(1, schedule.userId);
+            statement.bindLong(2, schedule.wordId);
+            statement.bindLong(3, schedule.dueTime);
+            statement.bindDouble(4, schedule.easeFactor);
+            statement.bindLong(5, schedule.intervalDays);
+            statement.bindLong(6, schedule.repetitions);
+            statement.executeInsert();
+        }
+    }
+
+    /**
+     * Public method to count the words a user has reviewed before that are now due again.  This only
+     * looks at the user's due rows in the (user_id, due_time) index, however many words they have.
+     * @param userId the id of the user.
+     * @param now the current time.
+     * @return the number of due words.  Words that have never been reviewed aren't counted.
+     */
+    public long countDueWords(long userId, long now) {
+
+        SQLiteStatement statement = mStatements.get(SQL_COUNT_DUE_WORDS);
+        synchronized (statement) {
+            statement.bindLong(1, userId);
+            statement.bindLong(2, now);
+            return statement.simpleQueryForLong();
+        }
+    }
+
+    /**
+     * Public method to count the wrong answers to a word that sound right (ie have the same phonetic key as
+     * the word, like "fone" for "phone").  This is a single range of the (word_id, phonetic_key, correct)
+     * index, however many attempts there are.
+     * @param wordId the id of the word.
+     * @return the number of sounds-right answers.  Attempts that haven't been given a key yet (see
+     *         gradeAttempts()) aren't counted.
+     */
+    public long countSoundsRightErrors(long wordId) {
+
+        SQLiteStatement statement = mStatements.get(SQL_COUNT_SOUNDS_RIGHT_ERRORS);
+        synchronized (statement) {
+            statement.bindLong(1, wordId);
+            return statement.simpleQueryForLong();
+        }
+    }
+
+    /**
+     * Public method to get the wrong answers to a word, grouped by how they sound (ie by phonetic key).
+     * This is read from the (word_id, phonetic_key, correct) index alone.
+     * @param wordId the id of the word.
+     * @return the groups, most common first.  Attempts that haven't been given a key yet (see
+     *         gradeAttempts()) aren't included.
+     */
+    public ArrayList<Objects.MisspellingGroup> getMisspellingGroups(long wordId) {
+
+        ArrayList<Objects.MisspellingGroup> output = new ArrayList<>();
+        String id = Long.toString(wordId);
+        Cursor cursor = mDataBase.rawQuery(SQL_GET_MISSPELLING_GROUPS, new String[] { id, id });
+
+        try {
+            output.ensureCapacity(cursor.getCount());
+            //The columns are in the order they are listed in the query.
+            while (cursor.moveToNext()) {
+                output.add(new Objects.MisspellingGroup(cursor.getString(0), cursor.getInt(1), cursor.getInt(2) == 1));
+            }
+        } finally {
+            cursor.close();
+        }
+        return output;
+    }
+
+    /**
+     * Public method to step through every user's attempt and correct counts on every word they have been
+     * tested on (the user_word_stat table, which the database triggers keep up to date from the attempt
+     * log).  The rows are read a chunk at a time, each chunk in its own short query, so only one chunk is
+     * ever held in memory and writes don't have to wait for the whole table to be read.
+     *
+     * @param visitor the AttemptCountVisitor that is called once for each user / word pair.
+     * @return the number of pairs visited.
+     */
+    public long forEachAttemptCount(AttemptCountVisitor visitor) {
+
+        long lastId = 0;
+        long total = 0;
+        String[] args = { null, Integer.toString(ATTEMPT_COUNT_CHUNK_SIZE) };
+
+        while (true) {
+            args[0] = Long.toString(lastId);
+            Cursor cursor = mDataBase.rawQuery(SQL_GET_ATTEMPT_COUNTS, args);
+            int rows = 0;
+            try {
+                //The columns are in the order they are listed in the query.
+                while (cursor.moveToNext()) {
+                    lastId = cursor.getLong(0);
+                    visitor.visit(cursor.getLong(1), cursor.getLong(2), cursor.getInt(3), cursor.getInt(4));
+                    rows++;
+                }
+            } finally {
+                cursor.close();
+            }
+
+            total += rows;
+            if (rows < ATTEMPT_COUNT_CHUNK_SIZE) return total;
+        }
+    }
+
+    /**
+     * Public method to step through the wrong answers in the attempt log, in the order they were recorded.
+     * They are read a chunk at a time, each chunk in its own short query, so only one chunk is ever held in
+     * memory.
+     *
+     * @param afterId only attempts after this id are visited (0 to start from the beginning).
+     * @param visitor the MisspellingVisitor that is called once for each wrong answer.
+     * @return the id of the last attempt visited (afterId if there were none).
+     */
+    public long forEachMisspelling(long afterId, MisspellingVisitor visitor) {
+
+        long lastId = afterId;
+        String[] args = { null, Integer.toString(MISSPELLING_CHUNK_SIZE) };
+
+        while (true) {
+            args[0] = Long.toString(lastId);
+            Cursor cursor = mDataBase.rawQuery(SQL_GET_MISSPELLINGS, args);
+            int rows = 0;
+            try {
+                //The columns are in the order they are listed in the query.
+                while (cursor.moveToNext()) {
+                    lastId = cursor.getLong(0);
+                    visitor.visit(cursor.getLong(1), cursor.getString(2), cursor.getString(3));
+                    rows++;
+                }
+            } finally {
+                cursor.close();
+            }
+            if (rows < MISSPELLING_CHUNK_SIZE) return lastId;
+        }
+    }
+
+    /**
+     * Public method to get the last attempt a report has been brought up to date with.
+     * @param report the name of the report (eg REPORT_LETTER_CONFUSIONS).
+     * @return the attempt id, or 0 if the report hasn't been worked out yet.
+     */
+    public long getReportProgress(String report) {
+
+        SQLiteStatement statement = mStatements.get(SQL_GET_REPORT_PROGRESS);
+        synchronized (statement) {
+            statement.bindString(1, report);
+            return statement.simpleQueryForLong();
+        }
+    }
+
+    /**
+     * Public method to get the id of the last attempt in the log.
+     * @return the attempt id, or 0 if nothing has been answered yet.
+     */
+    public long getLastAttemptId() {
+
+        SQLiteStatement statement = mStatements.get(SQL_GET_LAST_ATTEMPT_ID);
+        synchronized (statement) {
+            return statement.simpleQueryForLong();
+        }
+    }
+
+    /**
+     * Private method to move a report on to the last attempt it has been brought up to date with.  This
+     * should be called inside the transaction that writes the report.
+     * @param report the name of the report (eg REPORT_LETTER_CONFUSIONS).
+     * @param attemptId the id of the last attempt the report includes.
+     */
+    private void putReportProgress(String report, long attemptId) {
+
+        SQLiteStatement statement = mStatements.get(SQL_PUT_REPORT_PROGRESS);
+        synchronized (statement) {
+            statement.bindString(1, report);
+            statement.bindLong(2, attemptId);
+            statement.executeInsert();
+        }
+    }
+
+    /**
+     * Public method to add a batch of new letter confusion counts (see ConfusionAnalyzer) to the totals, and
+     * move the report on to the last attempt they were counted from, in a single transaction.  Nothing is
+     * added if the report has moved on since fromId was read (ie the counts have already been added).
+     *
+     * @param fromId the attempt the counts start after (from getReportProgress()).
+     * @param toId the last attempt the counts include.
+     * @param userIds the user id of each count.
+     * @param keys the confusion key of each count.
+     * @param counts the number to add to each.
+     * @param count the number of counts, from the start of the arrays.
+     * @return true if the counts were added.
+     */
+    public boolean addLetterConfusions(long fromId, long toId, long[] userIds, long[] keys, int[] counts, int count) {
+
+        mDataBase.beginTransaction();
+        try {
+            if (getReportProgress(REPORT_LETTER_CONFUSIONS) != fromId) return false;
+
+            //Make sure each row exists, and then add to it.
+            SQLiteStatement insert = mStatements.get(SQL_ADD_CONFUSION_ROW);
+            SQLiteStatement update = mStatements.get(SQL_ADD_CONFUSION_COUNT);
+            synchronized (insert) {
+                synchronized (update) {
+                    for (int i = 0; i < count; i++) {
+                        insert.bindLong(1, userIds[i]);
+                        insert.bindLong(2, keys[i]);
+                        insert.executeInsert();
+
+                        update.bindLong(1, counts[i]);
+                        update.bindLong(2, userIds[i]);
+                        update.bindLong(3, keys[i]);
+                        update.executeUpdateDelete();
+                    }
+                }
+            }
+
+            putReportProgress(REPORT_LETTER_CONFUSIONS, toId);
+            mDataBase.setTransactionSuccessful();
+            return true;
+        } finally {
+            mDataBase.endTransaction();
+        }
+    }
+
+    /**
+     * Public method to get a user's most common letter confusions (see ConfusionAnalyzer).
+     * @param userId the id of the user, or ConfusionAnalyzer.ALL_USERS for everyone's.
+     * @param limit the most to return.
+     * @return the confusions, most common first.
+     */
+    public ArrayList<Objects.LetterConfusion> getLetterConfusions(long userId, int limit) {
+
+        ArrayList<Objects.LetterConfusion> output = new ArrayList<>();
+        Cursor cursor = mDataBase.rawQuery(SQL_GET_LETTER_CONFUSIONS, new String[] { Long.toString(userId),
+                Long.toString(ConfusionAnalyzer.key(ConfusionAnalyzer.POSITION, 0, 0)), Integer.toString(limit) });
+
+        try {
+            output.ensureCapacity(cursor.getCount());
+            while (cursor.moveToNext()) {
+                output.add(new Objects.LetterConfusion(cursor.getLong(0), cursor.getInt(1)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return output;
+    }
+
+    /**
+     * Public method to get where in words a user's mistakes are.
+     * @param userId the id of the user, or ConfusionAnalyzer.ALL_USERS for everyone's.
+     * @return the number of mistakes in each of the ConfusionAnalyzer.POSITION_BUCKETS bands, from the start
+     *         of the word to the end.
+     */
+    public int[] getErrorPositions(long userId) {
+
+        int[] output = new int[ConfusionAnalyzer.POSITION_BUCKETS];
+        Cursor cursor = mDataBase.rawQuery(SQL_GET_ERROR_POSITIONS, new String[] { Long.toString(userId),
+                Long.toString(ConfusionAnalyzer.key(ConfusionAnalyzer.POSITION, 0, 0)) });
+
+        try {
+            while (cursor.moveToNext()) {
+                int bucket = ConfusionAnalyzer.getExpected(cursor.getLong(0));
+                if (bucket < output.length) output[bucket] = cursor.getInt(1);
+            }
+        } finally {
+            cursor.close();
+        }
+        return output;
+    }
+
+    /**
+     * Public method to set the difficulty of a batch of words, and move the calibration on to the last
+     * attempt it was worked out from, in a single transaction.
+     * @param wordIds the ids of the words.
+     * @param levels the difficulty level of each word (DifficultyCalibrator.EASY, MEDIUM or HARD).
+     * @param count the number of words to set, from the start of the arrays.
+     * @param lastAttemptId the last attempt in the log when the calibration started (from getLastAttemptId()).
+     */
+    public void putWordDifficulties(long[] wordIds, int[] levels, int count, long lastAttemptId) {
+
+        mDataBase.beginTransaction();
+        try {
+            SQLiteStatement statement = mStatements.get(SQL_SET_WORD_DIFFICULTY);
+            synchronized (statement) {
+                for (int i = 0; i < count; i++) {
+                    statement.bindLong(1, mDifficultyIds[levels[i]]);
+                    statement.bindLong(2, wordIds[i]);
+                    statement.executeUpdateDelete();
+                }
+            }
+            putReportProgress(REPORT_DIFFICULTIES, lastAttemptId);
+            mDataBase.setTransactionSuccessful();
+        } finally {
+            mDataBase.endTransaction();
+        }
+    }
+
+    /**
+     * Public method to grade the next chunk of attempts in the log that haven't been graded yet (ie those
+     * recorded before grading was added), and work out the phonetic key of each answer (see PhoneticKey).
+     * The chunk is read and graded in a single transaction.  Call this again with the id it returns until
+     * it returns NULL_ROW_ID.
+     *
+     * @param grader the grader to use.
+     * @param afterId only attempts after this id are looked at (0 to start from the beginning).
+     * @return the id of the last attempt graded, or NULL_ROW_ID if there were none left.
+     */
+    public long gradeAttempts(AnswerGrader grader, long afterId) {
+
+        long lastId = NULL_ROW_ID;
+        String[] args = { Long.toString(afterId), Integer.toString(GRADE_CHUNK_SIZE) };
+
+        mDataBase.beginTransaction();
+        try {
+            Cursor cursor = mDataBase.rawQuery(SQL_GET_UNGRADED_ATTEMPTS, args);
+            try {
+                SQLiteStatement statement = mStatements.get(SQL_SET_ATTEMPT_GRADE);
+                synchronized (statement) {
+                    //The columns are in the order they are listed in the query.
+                    while (cursor.moveToNext()) {
+                        lastId = cursor.getLong(0);
+                        String typedText = cursor.isNull(1) ? "" : cursor.getString(1);
+                        if (!cursor.isNull(2)) {
+                            statement.bindLong(1, grader.grade(typedText, cursor.getString(2)));
+                            statement.bindLong(2, grader.getErrorType());
+                        } else {
+                            //The word has been deleted, so keep whatever grade the attempt already has.
+                            statement.bindNull(1);
+                            statement.bindNull(2);
+                        }
+                        statement.bindString(3, PhoneticKey.encode(typedText));
+                        statement.bindLong(4, lastId);
+                        statement.executeUpdateDelete();
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+            mDataBase.setTransactionSuccessful();
+        } finally {
+            mDataBase.endTransaction();
+        }
+        return lastId;
+    }
+
+    /**
+     * Public method to recalculate the list and user summaries from scratch, from the stats table.
+     * Only needed if checkSummaries() finds a problem.
+     */
+    public void rebuildSummaries() {
+        mDataBase.beginTransaction();
+        try {
+            StatSummaries.rebuild(mDataBase);
+            mDataBase.setTransactionSuccessful();
+        } finally {
+            mDataBase.endTransaction();
+        }
+    }
+
+    /**
+     * Public method to check the list and user summaries against the stats table.  This scans every
+     * stat, so it is meant for occasional checks rather than normal use.
+     * @return the number of summary rows that don't match the stats.  This should be zero.
+     */
+    public long checkSummaries() {
+        long mismatches = StatSummaries.countMismatches(mDataBase);
+        if (mismatches > 0) Log.w(TAG, "checkSummaries found " + mismatches + " mismatched summary rows");
+        return mismatches;
+    }
+
+    /**
+     * Public method to get the total number of cache hits (ie reads answered without going to the database).
+     * @return the number of cache hits since the app started.
+     */
+    public long getCacheHitCount() {
+        return mUserCache.getHitCount() + mSpellingListCache.getHitCount() + mUserListsCache.getHitCount() +
+                mStatCache.getHitCount() + mWordListCache.getHitCount();
+    }
+
+    /**
+     * Public method to get the total number of cache misses (ie reads that had to go to the database).
+     * @return the number of cache misses since the app started.
+     */
+    public long getCacheMissCount() {
+        return mUserCache.getMissCount() + mSpellingListCache.getMissCount() + mUserListsCache.getMissCount() +
+                mStatCache.getMissCount() + mWordListCache.getMissCount();
+    }
+
+    /**
+     * Private method to get the current cache version.  Read methods call this before going to the
+     * database, and pass the result to cachePut() afterwards.
+     * @return the current cache version.
+     */
+    private long getCacheVersion() {
+        synchronized (mCacheLock) {
+            return mCacheVersion;
+        }
+    }
+
+    /**
+     * Private method to add something that has just been read from the database to a cache.  Reads can
+     * run at the same time as writes, so if any cache entries have been thrown away since the read
+     * started (ie the cache version has changed), what was read could already be out of date, and it
+     * isn't cached.
+     *
+     * @param cache the cache.
+     * @param key the key of the entry.
+     * @param value the value read from the database.
+     * @param version the cache version from just before the read started.
+     */
+    private <V> void cachePut(LongLruCache<V> cache, long key, V value, long version) {
+        synchronized (mCacheLock) {
+            if (version == mCacheVersion) cache.put(key, value);
+        }
+    }
+
+    /**
+     * Private method to throw away the cache entries for a spelling list.  Spelling lists are never
+     * moved from one user to another, so only the list's current user is affected.
+     * @param listId the id of the spelling list.
+     * @param userId the id of the user the list belongs to.
+     */
+    private void invalidateSpellingList(long listId, long userId) {
+        synchronized (mCacheLock) {
+            mCacheVersion++;
+            mSpellingListCache.remove(listId);
+            mUserListsCache.remove(userId);
+        }
+    }
+
+    /**
+     * Private method to throw away the cached words for a spelling list.
+     * @param listId the id of the spelling list.
+     */
+    private void invalidateWords(long listId) {
+        synchronized (mCacheLock) {
+            mCacheVersion++;
+            mWordListCache.remove(listId);
+        }
+    }
+
+    /**
+     * Private method to throw away the cached words for every spelling list touched by a batch of words.
+     * Words are never moved from one list to another, so only each word's current list is affected.
+     * @param words the batch of words.
+     */
+    private void invalidateWords(Collection<Objects.Word> words) {
+        synchronized (mCacheLock) {
+            mCacheVersion++;
+
+            //Batches are nearly always for a single list, so only look up the cache when the list changes.
+            long lastListId = NULL_ROW_ID;
+            for (Objects.Word word : words) {
+                if (word.list_id != lastListId) {
+                    mWordListCache.remove(word.list_id);
+                    lastListId = word.list_id;
+                }
+            }
+        }
+    }
+
+    /**
+     * The following private methods copy objects on their way out of the caches, so that callers
+     * can't change what is held in the cache.
+     */
+    private static ArrayList<Objects.User> copyUsers(ArrayList<Objects.User> users) {
+        ArrayList<Objects.User> output = new ArrayList<>(users.size());
+        for (Objects.User user : users) {
+            output.add(new Objects.User(user.id, user.firstName, user.lastName));
+        }
+        return output;
+    }
+
+    private static Objects.SpellingList copySpellingList(Objects.SpellingList list) {
+        Objects.SpellingList copy = new Objects.SpellingList(list.id, list.name, list.userId);
+        copy.wordOrder = list.wordOrder;
+        return copy;
+    }
+
+    private static ArrayList<Objects.SpellingList> copySpellingLists(ArrayList<Objects.SpellingList> lists) {
+        ArrayList<Objects.SpellingList> output = new ArrayList<>(lists.size());
+        for (Objects.SpellingList list : lists) {
+            output.add(copySpellingList(list));
+        }
+        return output;
+    }
+
+    private static Objects.SpellingListStat copySpellingListStat(Objects.SpellingListStat stat) {
+        Objects.SpellingListStat copy = new Objects.SpellingListStat(stat.id, stat.listId, stat.date, stat.elapsedTime,
+                stat.numberCorrect, stat.numberIncorrect);
+        copy.ability = stat.ability;
+        copy.abilityStandardError = stat.abilityStandardError;
+        copy.credit = stat.credit;
+        return copy;
+    }
+
+    /**
+     * Private method to copy a cached word list.  Unlike the other copy methods, this also applies any
+     * word edits that have been made since the list was cached.
+     * @param edits the word edits, taken with getWordEdits() before the cache was checked.  This can be null.
+     */
+    private ArrayList<Objects.Word> copyWords(ArrayList<Objects.Word> words, Map<Long, Objects.Word> edits) {
+        ArrayList<Objects.Word> output = new ArrayList<>(words.size());
+        for (Objects.Word word : words) {
+            output.add(WordWriteBuffer.overlay(edits, new Objects.Word(word.id, word.list_id, word.spelling)));
+        }
+        return output;
+    }
+
+    /**
+     * Private method to take a snapshot of the word edits that haven't been written yet.  This must be
+     * called before the words are read (see WordWriteBuffer).
+     * @return the edits, by word id, or null if there aren't any.
+     */
+    private Map<Long, Objects.Word> getWordEdits() {
+        WordWriteBuffer buffer = mWordBuffer;
+        return (buffer != null) ? buffer.snapshot() : null;
     }
 
 
@@ -0,0 +1,326 @@
+/**
+ * Filename:  DifficultyCalibrator.java
+ * Author:  Team SpellTest
+ * Date:  16 May 2019
+ *
+ * Purpose:  This class works out how hard each word really is, from every answer recorded for it, and
+ * sorts the words into the Easy / Medium / Hard difficulties (the difficulty_id column of the word table).
+ *
+ * A word's raw accuracy is a poor measure on its own, since it depends on who happened to be tested on it:
+ * a word only ever given to strong spellers looks easy.  So this fits the Rasch model (the same model
+ * the AdaptiveTest class uses) to all of the users and words at once:  each user has an ability a, each
+ * word a difficulty b, and the chance of a correct answer is 1 / (1 + e^(b - a)).  The fit alternates
+ * between two steps until nothing moves any more:
+ *   - one Newton step on every user's ability, holding the word difficulties fixed, and then
+ *   - one Newton step on every word's difficulty, holding the abilities fixed.
+ * Both are pulled slightly towards 0 (a standard normal prior), so users and words with perfect (or
+ * zero) scores still get sensible values.  Within each step the users (or words) don't depend on each
+ * other, so each step is split up across a fork/join pool.
+ *
+ * The model only needs each user's attempt and correct counts on each word, not the attempts themselves,
+ * so the data comes in through visit() (see DataStore.forEachAttemptCount(), which reads it from the
+ * user_word_stat table a chunk at a time).  Once everything has been read, it is packed into flat arrays
+ * grouped by user and by word, so the fit itself creates no objects apart from the fork/join tasks.
+ *
+ * It has no Android code, so it can be run on any JVM (see DifficultyCalibratorTest and CalibrationBenchmark
+ * with the unit tests).
+ */
+
+package com.example.spelltest;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class DifficultyCalibrator implements DataStore.AttemptCountVisitor {
+
+    //Class variables
+    public static final int EASY = 0;                       //Difficulty levels, as returned by level().
+    public static final int MEDIUM = 1;
+    public static final int HARD = 2;
+    public static final double EASY_BELOW = -1;             //Words easier than this are Easy (an average user gets 73%+ right)...
+    public static final double HARD_ABOVE = 1;              //...and words harder than this are Hard (27% or less).
+    public static final int MINIMUM_ATTEMPTS = 10;          //Words with fewer attempts than this are left alone.
+    private static final int MAX_ITERATIONS = 100;          //Stop after this many rounds, even if the fit is still moving...
+    private static final double TOLERANCE = 0.001;          //...but normally stop once nothing moves more than this in a round.
+    private static final double MAX_STEP = 1;               //Largest change to any value in one round (keeps early rounds stable).
+    private static final int SPLIT_SIZE = 256;              //Fork/join tasks handle this many users (or words) without splitting.
+    private static final int INITIAL_CAPACITY = 1024;       //Starting size of the arrays that hold the counts.
+
+    //The counts, in the order they were visited.  Users and words are numbered from 0 in the order they are
+    //first seen.
+    private final HashMap<Long, Integer> mUserIndexes = new HashMap<>();    //User id -> user number.
+    private final HashMap<Long, Integer> mWordIndexes = new HashMap<>();    //Word id -> word number.
+    private long[] mWordIds = new long[INITIAL_CAPACITY];                   //Word number -> word id.
+    private int[] mPairUsers = new int[INITIAL_CAPACITY];                   //User number for each count.
+    private int[] mPairWords = new int[INITIAL_CAPACITY];                   //Word number for each count.
+    private int[] mPairAttempts = new int[INITIAL_CAPACITY];                //Number of attempts.
+    private int[] mPairCorrect = new int[INITIAL_CAPACITY];                 //Number of those that were correct.
+    private int mPairCount = 0;                                             //Number of counts visited.
+    private int mUserCount = 0;                                             //Number of different users seen.
+    private int mWordCount = 0;                                             //Number of different words seen.
+
+    //The counts again, grouped by user and by word (built by prepare()).  The counts for user u are at
+    //mUserStart[u] to mUserStart[u + 1] - 1 of the mUser... arrays, and the same for words.
+    private int[] mUserStart;                   //Start of each user's counts.
+    private int[] mUserOther;                   //Word number for each of a user's counts.
+    private int[] mUserAttempts;                //Attempts for each of a user's counts.
+    private int[] mWordStart;                   //Start of each word's counts.
+    private int[] mWordOther;                   //User number for each of a word's counts.
+    private int[] mWordAttempts;                //Attempts for each of a word's counts.
+    private int[] mUserCorrectTotals;           //Total correct answers for each user.
+    private int[] mWordCorrectTotals;           //Total correct answers for each word.
+    private int[] mWordAttemptTotals;           //Total attempts for each word.
+    private boolean mPrepared = false;          //True if the grouped arrays are up to date.
+
+    //The fit.
+    private double[] mAbilities;                //Ability of each user.
+    private double[] mDifficulties;             //Difficulty of each word.
+    private int mIterations = 0;                //Number of rounds the last fit took.
+
+    /**
+     * Method called once for each user / word pair with recorded attempts.  Each pair should only be
+     * visited once.
+     * @param userId the id of the user.
+     * @param wordId the id of the word.
+     * @param attemptCount the number of times the user has attempted the word.
+     * @param correctCount the number of those attempts that were correct.
+     */
+    @Override
+    public void visit(long userId, long wordId, int attemptCount, int correctCount) {
+
+        if (attemptCount <= 0) return;
+
+        //Make room.
+        if (mPairCount == mPairUsers.length) {
+            int capacity = mPairCount * 2;
+            mPairUsers = Arrays.copyOf(mPairUsers, capacity);
+            mPairWords = Arrays.copyOf(mPairWords, capacity);
+            mPairAttempts = Arrays.copyOf(mPairAttempts, capacity);
+            mPairCorrect = Arrays.copyOf(mPairCorrect, capacity);
+        }
+
+        //Look up (or hand out) the user and word numbers.
+        Integer user = mUserIndexes.get(userId);
+        if (user == null) {
+            user = mUserCount++;
+            mUserIndexes.put(userId, user);
+        }
+        Integer word = mWordIndexes.get(wordId);
+        if (word == null) {
+            word = mWordCount++;
+            mWordIndexes.put(wordId, word);
+            if (word == mWordIds.length) mWordIds = Arrays.copyOf(mWordIds, word * 2);
+            mWordIds[word] = wordId;
+        }
+
+        mPairUsers[mPairCount] = user;
+        mPairWords[mPairCount] = word;
+        mPairAttempts[mPairCount] = attemptCount;
+        mPairCorrect[mPairCount] = correctCount;
+        mPairCount++;
+        mPrepared = false;
+    }
+
+    /**
+     * Public method to fit the model to everything visited so far.  This can be called again (eg after
+     * visiting more counts), and starts from scratch each time.
+     * @param pool the fork/join pool to do the work in.
+     * @return the number of rounds it took.
+     */
+    public int calibrate(ForkJoinPool pool) {
+
+        if (!mPrepared) prepare();
+
+        mAbilities = new double[mUserCount];
+        mDifficulties = new double[mWordCount];
+
+        for (mIterations = 1; mIterations <= MAX_ITERATIONS; mIterations++) {
+            double change = pool.invoke(new UpdateTask(true, 0, mUserCount));
+            change = Math.max(change, pool.invoke(new UpdateTask(false, 0, mWordCount)));
+            if (change < TOLERANCE) break;
+        }
+        return Math.min(mIterations, MAX_ITERATIONS);
+    }
+
+    /**
+     * Public static method to sort a difficulty into one of the difficulty levels.
+     * @param difficulty the difficulty.
+     * @return EASY, MEDIUM or HARD.
+     */
+    public static int level(double difficulty) {
+        if (difficulty < EASY_BELOW) return EASY;
+        if (difficulty > HARD_ABOVE) return HARD;
+        return MEDIUM;
+    }
+
+    /**
+     * Public method to get the difficulty level of every word with enough attempts, after calibrate().
+     * @param wordIds filled in with the word ids.  This must have room for getWordCount() words.
+     * @param levels filled in with the difficulty level of each word (same index as wordIds).
+     * @return the number of words filled in.
+     */
+    public int getLevels(long[] wordIds, int[] levels) {
+        int count = 0;
+        for (int word = 0; word < mWordCount; word++) {
+            if (mWordAttemptTotals[word] < MINIMUM_ATTEMPTS) continue;
+            wordIds[count] = mWordIds[word];
+            levels[count] = level(mDifficulties[word]);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Public method to get the calibrated difficulty of a word, after calibrate().
+     * @param wordId the id of the word.
+     * @return the difficulty (0 is average), or NaN if the word hasn't been visited.
+     */
+    public double getDifficulty(long wordId) {
+        Integer word = mWordIndexes.get(wordId);
+        return (word == null) ? Double.NaN : mDifficulties[word];
+    }
+
+    /**
+     * Public method to get the number of different words visited.
+     * @return the number of words.
+     */
+    public int getWordCount() {
+        return mWordCount;
+    }
+
+    /**
+     * Public method to get the number of user / word pairs visited.
+     * @return the number of pairs.
+     */
+    public int getPairCount() {
+        return mPairCount;
+    }
+
+    /**
+     * Public method to get the number of rounds the last fit took.
+     * @return the number of rounds.
+     */
+    public int getIterations() {
+        return Math.min(mIterations, MAX_ITERATIONS);
+    }
+
+    /**
+     * Private method to group the counts by user and by word (a counting sort on each), and add up the
+     * totals that don't change during the fit.
+     */
+    private void prepare() {
+
+        mUserStart = new int[mUserCount + 1];
+        mWordStart = new int[mWordCount + 1];
+        mUserOther = new int[mPairCount];
+        mUserAttempts = new int[mPairCount];
+        mWordOther = new int[mPairCount];
+        mWordAttempts = new int[mPairCount];
+        mUserCorrectTotals = new int[mUserCount];
+        mWordCorrectTotals = new int[mWordCount];
+        mWordAttemptTotals = new int[mWordCount];
+
+        //Count the pairs for each user and word, and turn the counts into start positions.
+        for (int i = 0; i < mPairCount; i++) {
+            mUserStart[mPairUsers[i] + 1]++;
+            mWordStart[mPairWords[i] + 1]++;
+            mUserCorrectTotals[mPairUsers[i]] += mPairCorrect[i];
+            mWordCorrectTotals[mPairWords[i]] += mPairCorrect[i];
+            mWordAttemptTotals[mPairWords[i]] += mPairAttempts[i];
+        }
+        for (int u = 0; u < mUserCount; u++) mUserStart[u + 1] += mUserStart[u];
+        for (int w = 0; w < mWordCount; w++) mWordStart[w + 1] += mWordStart[w];
+
+        //Drop each pair into place.
+        int[] userNext = Arrays.copyOf(mUserStart, mUserCount);
+        int[] wordNext = Arrays.copyOf(mWordStart, mWordCount);
+        for (int i = 0; i < mPairCount; i++) {
+            int u = userNext[mPairUsers[i]]++;
+            mUserOther[u] = mPairWords[i];
+            mUserAttempts[u] = mPairAttempts[i];
+            int w = wordNext[mPairWords[i]]++;
+            mWordOther[w] = mPairUsers[i];
+            mWordAttempts[w] = mPairAttempts[i];
+        }
+
+        mPrepared = true;
+    }
+
+    /**
+     * Private method to take one Newton step on each user's ability (or each word's difficulty) in a range.
+     * Only the values in the range are changed, so ranges can be done at the same time.
+     * @param users true to update users, false to update words.
+     * @param from the first user (or word) number.
+     * @param to one past the last user (or word) number.
+     * @return the largest change made.
+     */
+    private double update(boolean users, int from, int to) {
+
+        int[] start = users ? mUserStart : mWordStart;
+        int[] other = users ? mUserOther : mWordOther;
+        int[] attempts = users ? mUserAttempts : mWordAttempts;
+        int[] correct = users ? mUserCorrectTotals : mWordCorrectTotals;
+        double[] values = users ? mAbilities : mDifficulties;
+        double[] others = users ? mDifficulties : mAbilities;
+
+        double largest = 0;
+        for (int i = from; i < to; i++) {
+            double value = values[i];
+
+            //Add up the expected number of correct answers, and how fast that changes (the information),
+            //over everything this user (or word) was tested on.
+            double expected = 0;
+            double information = 0;
+            for (int j = start[i]; j < start[i + 1]; j++) {
+                double ability = users ? value : others[other[j]];
+                double difficulty = users ? others[other[j]] : value;
+                double p = 1 / (1 + Math.exp(difficulty - ability));
+                expected += attempts[j] * p;
+                information += attempts[j] * p * (1 - p);
+            }
+
+            //More correct answers than expected means a higher ability, or a lower difficulty.  The prior
+            //adds -value to the slope and 1 to the information.
+            double slope = users ? correct[i] - expected : expected - correct[i];
+            double step = (slope - value) / (information + 1);
+            step = Math.max(-MAX_STEP, Math.min(MAX_STEP, step));
+            values[i] = value + step;
+            largest = Math.max(largest, Math.abs(step));
+        }
+        return largest;
+    }
+
+    /**
+     * Fork/join task that runs update() over a range of users (or words), splitting the range in half
+     * until it is small enough.
+     */
+    private final class UpdateTask extends RecursiveTask<Double> {
+
+        //Class variables
+        private static final long serialVersionUID = 1L;
+
+        //Instance variables
+        private final boolean mUsers;           //True to update users, false to update words.
+        private final int mFrom;                //First user (or word) number.
+        private final int mTo;                  //One past the last user (or word) number.
+
+        UpdateTask(boolean users, int from, int to) {
+            mUsers = users;
+            mFrom = from;
+            mTo = to;
+        }
+
+        @Override
+        protected Double compute() {
+            if (mTo - mFrom <= SPLIT_SIZE) return update(mUsers, mFrom, mTo);
+
+            int middle = (mFrom + mTo) >>> 1;
+            UpdateTask left = new UpdateTask(mUsers, mFrom, middle);
+            left.fork();
+            double right = new UpdateTask(mUsers, middle, mTo).compute();
+            return Math.max(left.join(), right);
+        }
+    }
+}
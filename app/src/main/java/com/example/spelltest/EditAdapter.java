@@ -23,33 +23,47 @@ import android.view.ViewGroup;
 import android.widget.EditText;
 import android.widget.ImageView;
 import com.example.myapplication.R;
-import java.util.ArrayList;
+import java.util.List;
 
 public class EditAdapter extends RecyclerView.Adapter {
 
     //Instance variables
-    private ArrayList<Objects.Word> mData;      //The backing data for this adapter (stored locally)
+    private PagedWordList mData;                //The backing data for this adapter (loaded a page at a time)
     private Context mContext;                   //The Context to which this adapter is attached (typically from the parent Activity).
-    private DataStore mDataStore;               //A reference to the application data store.
+    private AsyncDataStore mDataStore;          //A reference to the application data store.
 
     /**
      * Class constructor.  This overrides the parent constructor by adding some additional useful
-     * fields for this class.
+     * fields for this class.  The words in the list are loaded from the datastore a page at a time,
+     * as they are scrolled onto the screen.
      *
      * @param context the Context object to which this adapter is associated (should be a WordListBuilderActivity).
-     * @param data the initial backing array of words displayed by this adapter.
+     * @param listId the id of the spelling list whose words are displayed by this adapter.
      */
-    public EditAdapter (Context context, ArrayList<Objects.Word> data){
+    public EditAdapter (Context context, long listId){
 
         //Run the super constructor.
         super();
 
         //Save the incoming values for later use in the class.
-        mData = data;
         mContext = context;
 
         //Create and save a link to the application datastore.
-        mDataStore = DataStore.newInstance(context);
+        mDataStore = AsyncDataStore.newInstance(context);
+
+        //Create the backing data, and redraw the affected items whenever a page of words arrives.
+        mData = new PagedWordList(mDataStore, listId, new PagedWordList.Listener() {
+            @Override
+            public void onListChanged() {
+                notifyDataSetChanged();
+            }
+
+            @Override
+            public void onPageLoaded(int firstPosition, int count) {
+                notifyItemRangeChanged(firstPosition, count);
+            }
+        });
+        mData.load();
     }
 
     /**
@@ -87,8 +101,18 @@ public class EditAdapter extends RecyclerView.Adapter {
         //Cast the ViewHolder to be an EditViewHolder
         final EditViewHolder vh = (EditViewHolder)viewHolder;
 
+        //Get the word for this item.  If its page hasn't been loaded yet, show an empty item for now -
+        //it will be bound again once the page arrives.
+        final Objects.Word word = mData.get(i);
+        if (word == null) {
+            vh.mInputBox.setText("");
+            vh.mInputBox.setOnFocusChangeListener(null);
+            vh.mDeleteImage.setOnClickListener(null);
+            return;
+        }
+
         //Set the text in the EditView
-        vh.mInputBox.setText(mData.get(i).toString());
+        vh.mInputBox.setText(word.toString());
 
         //Set an onFocusChange listener for the input box
         vh.mInputBox.setOnFocusChangeListener(new View.OnFocusChangeListener() {
@@ -99,11 +123,11 @@ public class EditAdapter extends RecyclerView.Adapter {
                 if (!hasFocus){
 
                     //Obtain the current word in the adapter array, and change the spelling to match whatever the user typed in.
-                    Objects.Word currentWord = mData.get(i);
+                    Objects.Word currentWord = word;
                     currentWord.spelling = vh.mInputBox.getText().toString();
 
-                    //Update the application datastore with the revised word.
-                    mDataStore.putWord(currentWord);
+                    //Queue the revised word for the application datastore.  Edits are written in batches.
+                    mDataStore.queueWordEdit(currentWord);
 
                     //Notify the adapter that this item has changed, so it can show it properly.
                     notifyItemChanged(i);
@@ -116,18 +140,19 @@ public class EditAdapter extends RecyclerView.Adapter {
             @Override
             public void onClick(View v) {
 
-                //Obtain the Word object for the current word.
-                Objects.Word currentWord = mData.get(i);
-
                 //Delete the word from the application datastore...
-                mDataStore.deleteWord(currentWord.id);
-
-                //...then delete it from the adapter backing array.
-                mData.remove(i);
-
-                //Notify the adapter that the item has been removed, and that the range of data displayed has changed.
-                notifyItemRemoved(i);
-                notifyItemRangeChanged(i, mData.size());
+                mDataStore.deleteWord(word.id, new DataCallback<Void>() {
+                    @Override
+                    public void onResult(Void result) {
+
+                        //...then delete it from the adapter backing data.
+                        mData.remove(i);
+
+                        //Notify the adapter that the item has been removed, and that the range of data displayed has changed.
+                        notifyItemRemoved(i);
+                        notifyItemRangeChanged(i, mData.size());
+                    }
+                });
             }
         });
 
@@ -151,17 +176,49 @@ public class EditAdapter extends RecyclerView.Adapter {
      * whenever the user presses the Add New Word button (which is associated with the activity).
      * @param word the new Word object to be added to the backing array.
      */
-    public void addWord(Objects.Word word){
+    public void addWord(final Objects.Word word){
+
+        //Save the word to the application datastore.  Once it has been saved, reset the (empty) word
+        //id to be the assigned id and add the word to the adapter backing array as well.
+        mDataStore.putWord(word, new DataCallback<Long>() {
+            @Override
+            public void onResult(Long id) {
+                word.id = id;
+                mData.add(word);
+
+                //Notify the adapter that a new item has been added.
+                notifyItemInserted(mData.size()-1);
+            }
+        });
+    }
+
+    /**
+     * Public method to add several new words to the adapter and to the datastore at once.  The words
+     * are saved in a single batch (one transaction) rather than one at a time.
+     * @param words the new Word objects to be added to the backing array.
+     */
+    public void addWords(final List<Objects.Word> words){
 
-        //Save the word to the application datastore, and reset the (empty) word id to be the assigned id.
-        long id = mDataStore.putWord(word);
-        word.id = id;
+        //Adding a single word doesn't need the batch machinery.
+        if (words.size() == 1) {
+            addWord(words.get(0));
+            return;
+        }
 
-        //Add the word to the adapter backing array as well.
-        mData.add(word);
+        //Save the words to the application datastore.  Their ids are filled in by the batch write, so
+        //once it completes we just add them to the adapter backing array.
+        mDataStore.putWords(words, null, new DataCallback<long[]>() {
+            @Override
+            public void onResult(long[] ids) {
+                int start = mData.size();
+                for (Objects.Word word : words) {
+                    mData.add(word);
+                }
 
-        //Notify the adapter that a new item has been added.
-        notifyItemInserted(mData.size()-1);
+                //Notify the adapter that a range of new items has been added.
+                notifyItemRangeInserted(start, words.size());
+            }
+        });
     }
 
     /**
@@ -12,7 +12,9 @@
 
 package com.example.spelltest;
 
+import android.app.AlertDialog;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
@@ -86,6 +88,16 @@ public class ListSelectionActivity extends AppCompatActivity {
                 }
             });
 
+            //Set an onLongClick listener for the text view.  A long press lets the user choose the order
+            //the words in this list are tested in.
+            mTextView.setOnLongClickListener(new View.OnLongClickListener() {
+                @Override
+                public boolean onLongClick(View v) {
+                    showWordOrderDialog(mSpellingList);
+                    return true;
+                }
+            });
+
             //Set an onClick listener for the image view.  Note again that the mSpellingList variable will be
             //"bound" with this view via an onBindViewHolder call immediately before the activity is displayed.
             mEditImage.setOnClickListener(new View.OnClickListener() {
@@ -126,6 +138,29 @@ public class ListSelectionActivity extends AppCompatActivity {
     }
 
 
+    /**
+     * Private method to show a dialog for choosing the order the words in a spelling list are tested in.
+     * The new order is saved as soon as one is picked.
+     * @param list the spelling list.
+     */
+    private void showWordOrderDialog(final Objects.SpellingList list) {
+
+        new AlertDialog.Builder(ListSelectionActivity.this)
+                .setTitle("Test words in this order:")
+                .setSingleChoiceItems(WordOrder.NAMES, list.wordOrder, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+
+                        //Save the new order, and close the dialog.
+                        list.wordOrder = which;
+                        AsyncDataStore.newInstance(ListSelectionActivity.this)
+                                .setWordOrder(list.id, list.userId, which, null);
+                        dialog.dismiss();
+                    }
+                })
+                .show();
+    }
+
     /**
      * Private inner class for the DataAdapter for the parent RecyclerView.  This class is the "tool" used
      * by Android to attach data to each item in a RecyclerView.  Only one of these exists for each instance'
@@ -134,8 +169,8 @@ public class ListSelectionActivity extends AppCompatActivity {
     private class ListDataAdapter extends RecyclerView.Adapter {
 
         //Instance variables.
-        private ArrayList<Objects.SpellingList> mSpellingLists;     //An array of all the spelling list objects for the current user.
-        private DataStore mData;                                    //A reference to the main application datastore.
+        private ArrayList<Objects.SpellingList> mSpellingLists = new ArrayList<>();  //An array of all the spelling list objects for the current user.
+        private AsyncDataStore mData;                                               //A reference to the main application datastore.
 
 
         /**
@@ -145,7 +180,7 @@ public class ListSelectionActivity extends AppCompatActivity {
         public ListDataAdapter(Context context) {
 
             //Save the DataStore object reference for later use.
-            mData = DataStore.newInstance(context);
+            mData = AsyncDataStore.newInstance(context);
 
             //Populate the ArrayLIst object for this class (ie update the list of spelling lists for the current user.)
             refreshData();
@@ -158,7 +193,14 @@ public class ListSelectionActivity extends AppCompatActivity {
         private void refreshData(){
 
             //Update the list of spelling lists for the activity, by querying the list from the DataStore object.
-            mSpellingLists = mData.getSpellingLists(mUserId);
+            //Once the lists arrive, notify the adapter so it can show them.
+            mData.getSpellingLists(mUserId, new DataCallback<ArrayList<Objects.SpellingList>>() {
+                @Override
+                public void onResult(ArrayList<Objects.SpellingList> lists) {
+                    mSpellingLists = lists;
+                    notifyDataSetChanged();
+                }
+            });
         }
 
         /**
@@ -256,12 +298,10 @@ public class ListSelectionActivity extends AppCompatActivity {
                     @Override
                     public void onDialogPositiveClick(long listId) {
 
-                        //Update list in adapter.  Note that the dialog box will add the new list to the app database before this call occurs.
+                        //Update list in adapter.  Note that the dialog box will add the new list to the app database
+                        //before this call occurs.  The adapter will be notified once the new lists have been loaded.
                         mAdapter.refreshData();
 
-                        //Update the adapter that we have a new spelling list to include in the main list.
-                        mAdapter.notifyDataSetChanged();
-
                         //Show word list editor, by creating an intent for the word list editor activity.
                         Intent intent = new Intent(ListSelectionActivity.this, WordListBuilderActivity.class);
 
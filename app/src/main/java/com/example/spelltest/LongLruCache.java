@@ -0,0 +1,263 @@
+/**
+ * Filename:  LongLruCache.java
+ * Author:  Team SpellTest
+ * Date:  01 May 2019
+ *
+ * Purpose:  This class represents a fixed-size cache of objects keyed by database row ids.  When the
+ * cache is full, the least recently used entry is dropped to make room for a new one.  Keys are
+ * stored as primitive longs (no boxing), and all storage is allocated up front, so reading from
+ * or writing to the cache doesn't create any garbage.  The cache also counts hits and misses.
+ *
+ * Internally, entries live in fixed "slots".  An open-addressing hash table maps keys to slots,
+ * and the slots are chained together in a doubly-linked list in order of use (most recent first).
+ *
+ * All methods in this class are thread-safe.
+ */
+
+package com.example.spelltest;
+
+import java.util.Arrays;
+
+public class LongLruCache<V> {
+
+    //Class variables
+    private static final int NONE = -1;                 //Marker for "no slot" / "empty table entry".
+
+    //Instance variables
+    private final int mCapacity;                        //Maximum number of entries.
+    private final long[] mKeys;                         //Key held in each slot.
+    private final Object[] mValues;                     //Value held in each slot.
+    private final int[] mPrev;                          //Previous (more recently used) slot, for each slot.
+    private final int[] mNext;                          //Next (less recently used) slot, for each slot.  Also links the free slots.
+    private final int[] mTable;                         //Hash table of slot numbers.
+    private final int mMask;                            //Table size - 1 (the table size is a power of two).
+    private int mHead = NONE;                           //Most recently used slot.
+    private int mTail = NONE;                           //Least recently used slot.
+    private int mFree = NONE;                           //First free slot (freed slots are re-used before unused ones).
+    private int mUnused = 0;                            //First slot that has never been used.
+    private int mSize = 0;                              //Number of entries in the cache.
+    private long mHits = 0;                             //Number of get() calls that found an entry.
+    private long mMisses = 0;                           //Number of get() calls that didn't.
+
+    /**
+     * Class constructor.
+     * @param capacity the maximum number of entries in the cache.
+     * @throws IllegalArgumentException if the capacity is less than 1.
+     */
+    public LongLruCache(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Cache capacity must be at least 1: " + capacity);
+        mCapacity = capacity;
+        mKeys = new long[capacity];
+        mValues = new Object[capacity];
+        mPrev = new int[capacity];
+        mNext = new int[capacity];
+
+        //Keep the hash table no more than half full, so probe sequences stay short.
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        mTable = new int[tableSize];
+        mMask = tableSize - 1;
+        Arrays.fill(mTable, NONE);
+    }
+
+    /**
+     * Public method to look up an entry, marking it as the most recently used.
+     * @param key the key to look up.
+     * @return the value, or null if there is no entry for the key.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V get(long key) {
+        int index = find(key);
+        if (index == NONE) {
+            mMisses++;
+            return null;
+        }
+        mHits++;
+        int slot = mTable[index];
+        moveToFront(slot);
+        return (V) mValues[slot];
+    }
+
+    /**
+     * Public method to add (or replace) an entry.  If the cache is full, the least recently used entry
+     * is dropped first.
+     * @param key the key.
+     * @param value the value.  This can't be null.
+     */
+    public synchronized void put(long key, V value) {
+
+        //If there's already an entry for this key, just replace its value.
+        int index = find(key);
+        if (index != NONE) {
+            int slot = mTable[index];
+            mValues[slot] = value;
+            moveToFront(slot);
+            return;
+        }
+
+        //Make room if needed, by dropping the least recently used entry.
+        if (mSize == mCapacity) {
+            remove(mKeys[mTail]);
+        }
+
+        //Pick a slot - a freed one if there is one, otherwise the next unused one.
+        int slot;
+        if (mFree != NONE) {
+            slot = mFree;
+            mFree = mNext[slot];
+        } else {
+            slot = mUnused++;
+        }
+
+        //Fill in the slot, add it to the hash table, and put it at the front of the list.
+        mKeys[slot] = key;
+        mValues[slot] = value;
+        int i = hash(key);
+        while (mTable[i] != NONE) {
+            i = (i + 1) & mMask;
+        }
+        mTable[i] = slot;
+        linkFront(slot);
+        mSize++;
+    }
+
+    /**
+     * Public method to remove an entry.
+     * @param key the key of the entry to remove.
+     * @return true if there was an entry for the key.
+     */
+    public synchronized boolean remove(long key) {
+        int index = find(key);
+        if (index == NONE) return false;
+
+        int slot = mTable[index];
+        removeFromTable(index);
+        unlink(slot);
+        mValues[slot] = null;
+        mNext[slot] = mFree;
+        mFree = slot;
+        mSize--;
+        return true;
+    }
+
+    /**
+     * Public method to remove every entry.  The hit / miss counts are kept.
+     */
+    public synchronized void clear() {
+        Arrays.fill(mTable, NONE);
+        Arrays.fill(mValues, null);
+        mHead = NONE;
+        mTail = NONE;
+        mFree = NONE;
+        mUnused = 0;
+        mSize = 0;
+    }
+
+    /**
+     * Public method to get the number of entries in the cache.
+     * @return the number of entries.
+     */
+    public synchronized int size() {
+        return mSize;
+    }
+
+    /**
+     * Public method to get the number of get() calls that found an entry.
+     * @return the hit count.
+     */
+    public synchronized long getHitCount() {
+        return mHits;
+    }
+
+    /**
+     * Public method to get the number of get() calls that didn't find an entry.
+     * @return the miss count.
+     */
+    public synchronized long getMissCount() {
+        return mMisses;
+    }
+
+    /**
+     * Private method to find the hash table position of a key.
+     * @param key the key.
+     * @return the position in mTable, or NONE if the key isn't in the cache.
+     */
+    private int find(long key) {
+        int i = hash(key);
+        while (true) {
+            int slot = mTable[i];
+            if (slot == NONE) return NONE;
+            if (mKeys[slot] == key) return i;
+            i = (i + 1) & mMask;
+        }
+    }
+
+    /**
+     * Private method to work out the home position of a key in the hash table.
+     * @param key the key.
+     * @return the position in mTable.
+     */
+    private int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mMask;
+    }
+
+    /**
+     * Private method to clear a hash table position.  Any entries after it in the same probe sequence
+     * are shifted back, so that find() can still reach them.
+     * @param index the position in mTable to clear.
+     */
+    private void removeFromTable(int index) {
+        int gap = index;
+        int i = index;
+        while (true) {
+            mTable[gap] = NONE;
+            while (true) {
+                i = (i + 1) & mMask;
+                int slot = mTable[i];
+                if (slot == NONE) return;
+
+                //Leave the entry where it is if its home position lies (cyclically) after the gap.
+                int home = hash(mKeys[slot]);
+                boolean stays = gap <= i ? (gap < home && home <= i) : (gap < home || home <= i);
+                if (!stays) {
+                    mTable[gap] = slot;
+                    gap = i;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Private method to move a slot to the front of the list (ie mark it as the most recently used).
+     * @param slot the slot.
+     */
+    private void moveToFront(int slot) {
+        if (mHead == slot) return;
+        unlink(slot);
+        linkFront(slot);
+    }
+
+    /**
+     * Private method to add a slot to the front of the list.
+     * @param slot the slot.
+     */
+    private void linkFront(int slot) {
+        mPrev[slot] = NONE;
+        mNext[slot] = mHead;
+        if (mHead != NONE) mPrev[mHead] = slot;
+        mHead = slot;
+        if (mTail == NONE) mTail = slot;
+    }
+
+    /**
+     * Private method to take a slot out of the list.
+     * @param slot the slot.
+     */
+    private void unlink(int slot) {
+        int prev = mPrev[slot];
+        int next = mNext[slot];
+        if (prev != NONE) mNext[prev] = next; else mHead = next;
+        if (next != NONE) mPrev[next] = prev; else mTail = prev;
+    }
+}
@@ -32,6 +32,7 @@ public class Objects {
         public long id;
         public String name;
         public long userId;
+        public int wordOrder = WordOrder.SHUFFLED;  //The order the words are tested in (see the WordOrder class).
 
         public SpellingList (long id, String name, long userId) {
             this.id = id;
@@ -49,6 +50,9 @@ public class Objects {
         public int numberIncorrect;
         public long elapsedTime;
         public long date;
+        public double ability = Double.NaN;                 //Ability estimate, for adaptive tests (NaN for other tests).
+        public double abilityStandardError = Double.NaN;    //Standard error of the ability estimate (NaN if there isn't one).
+        public double credit = Double.NaN;                  //Total partial credit for the answers (NaN for old tests).
 
         public SpellingListStat(long id, long listId, long date, long elapsedTime, int numberCorrect, int numberIncorrect){
             this.id = id;
@@ -60,6 +64,147 @@ public class Objects {
         }
     }
 
+    public static class StatSummary {
+        public long id;                 //The id of the spelling list (or user) this summary is for.
+        public int testCount;
+        public int totalCorrect;
+        public int totalIncorrect;
+        public double bestScore;        //Scores are the fraction (0 - 1) of words spelled correctly.
+        public double meanScore;
+        public long totalElapsedTime;
+
+        public StatSummary(long id, int testCount, int totalCorrect, int totalIncorrect, double bestScore,
+                           double meanScore, long totalElapsedTime){
+            this.id = id;
+            this.testCount = testCount;
+            this.totalCorrect = totalCorrect;
+            this.totalIncorrect = totalIncorrect;
+            this.bestScore = bestScore;
+            this.meanScore = meanScore;
+            this.totalElapsedTime = totalElapsedTime;
+        }
+    }
+
+    public static class WordAttempt {
+        public long id;
+        public long sessionId;          //Identifies the test the attempt was made in (the test's start time).
+        public long wordId;
+        public String typedText;        //What the user actually typed.
+        public boolean correct;
+        public long responseTime;       //Time (in ms) from the word being presented to the answer being submitted.
+        public long timestamp;
+        public int editDistance = AnswerGrader.UNGRADED;    //Edit distance from the spelling (see AnswerGrader).
+        public int errorType = AnswerGrader.ERROR_NONE;     //Kind of mistake (one of the AnswerGrader.ERROR_ values).
+
+        public WordAttempt(long id, long sessionId, long wordId, String typedText, boolean correct,
+                           long responseTime, long timestamp){
+            this.id = id;
+            this.sessionId = sessionId;
+            this.wordId = wordId;
+            this.typedText = typedText;
+            this.correct = correct;
+            this.responseTime = responseTime;
+            this.timestamp = timestamp;
+        }
+    }
+
+    public static class MisspellingGroup {
+        public String phoneticKey;      //How the answers sound (see PhoneticKey).
+        public int count;               //Number of wrong answers that sound like this.
+        public boolean soundsRight;     //True if they sound like the word itself.
+
+        public MisspellingGroup(String phoneticKey, int count, boolean soundsRight){
+            this.phoneticKey = phoneticKey;
+            this.count = count;
+            this.soundsRight = soundsRight;
+        }
+    }
+
+    public static class LetterConfusion {
+        public long confusion;          //The kind of mistake (a ConfusionAnalyzer key).
+        public int count;               //Number of times it was made.
+
+        public LetterConfusion(long confusion, int count){
+            this.confusion = confusion;
+            this.count = count;
+        }
+
+        public String toString(){return ConfusionAnalyzer.describe(confusion);}
+    }
+
+    public static class UserStat {
+        public long id;
+        public long userId;
+        public double overallAccuracy;  //Fraction (0 - 1) of all the user's word attempts that were correct.
+        public int totalTestsTaken;
+        public int attemptCount;
+        public int correctCount;
+
+        public UserStat(long id, long userId, double overallAccuracy, int totalTestsTaken, int attemptCount, int correctCount){
+            this.id = id;
+            this.userId = userId;
+            this.overallAccuracy = overallAccuracy;
+            this.totalTestsTaken = totalTestsTaken;
+            this.attemptCount = attemptCount;
+            this.correctCount = correctCount;
+        }
+    }
+
+    public static class WordStat {
+        public long id;
+        public long wordId;
+        public double overallAccuracy;  //Fraction (0 - 1) of all attempts at this word that were correct.
+        public int attemptCount;
+        public int correctCount;
+
+        public WordStat(long id, long wordId, double overallAccuracy, int attemptCount, int correctCount){
+            this.id = id;
+            this.wordId = wordId;
+            this.overallAccuracy = overallAccuracy;
+            this.attemptCount = attemptCount;
+            this.correctCount = correctCount;
+        }
+    }
+
+    public static class UserWordStat {
+        public long id;
+        public long userStatId;
+        public long wordStatId;
+        public double userWordAccuracy; //Fraction (0 - 1) of this user's attempts at this word that were correct.
+        public int attemptCount;
+        public int correctCount;
+
+        public UserWordStat(long id, long userStatId, long wordStatId, double userWordAccuracy, int attemptCount, int correctCount){
+            this.id = id;
+            this.userStatId = userStatId;
+            this.wordStatId = wordStatId;
+            this.userWordAccuracy = userWordAccuracy;
+            this.attemptCount = attemptCount;
+            this.correctCount = correctCount;
+        }
+    }
+
+    public static class ReviewSchedule {
+        public long id;
+        public long userId;
+        public long wordId;
+        public long dueTime;            //Time the word is next due for review.
+        public double easeFactor;       //SM-2 ease factor (how quickly the interval grows).
+        public int intervalDays;        //Days between the last review and the next one.
+        public int repetitions;         //Number of correct reviews in a row.
+
+        public ReviewSchedule(long id, long userId, long wordId, long dueTime, double easeFactor,
+                              int intervalDays, int repetitions){
+            this.id = id;
+            this.userId = userId;
+            this.wordId = wordId;
+            this.dueTime = dueTime;
+            this.easeFactor = easeFactor;
+            this.intervalDays = intervalDays;
+            this.repetitions = repetitions;
+        }
+    }
+
     public static class Word {
         public long id;
         public long list_id;
@@ -0,0 +1,291 @@
+/**
+ * Filename:  PagedWordList.java
+ * Author:  Team SpellTest
+ * Date:  26 April 2019
+ *
+ * Purpose:  This class represents the words in a single spelling list, loaded from the datastore
+ * one page at a time as they are needed, rather than all at once.  It is the backing data for the
+ * EditAdapter class.  Only a small, fixed number of pages are kept in memory - the least recently
+ * used page is dropped when a new one is loaded - so memory use stays the same no matter how many
+ * words are in the list.
+ *
+ * Pages are fetched by key (ie "the next PAGE_SIZE words after word id X") rather than by offset.
+ * Each time a page is loaded, the id of its last word is remembered as the key for the next page,
+ * so scrolling through the list never has to step over the words before the current page.
+ *
+ * The words are loaded through the Loader interface (on the device, the AsyncDataStore), so the paging
+ * itself can be tested on a plain JVM.
+ */
+
+package com.example.spelltest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class PagedWordList {
+
+    //Class variables
+    public static final int PAGE_SIZE = 50;             //Number of words in each page.
+    private static final int MAX_RESIDENT_PAGES = 4;    //Maximum number of pages held in memory at once.
+    private static final int PREFETCH_DISTANCE = 10;    //Load the next page once we get this close to the end of the current one.
+    private static final long UNKNOWN_KEY = -2;         //Marker for a page whose key hasn't been found yet.
+
+    /**
+     * Listener interface, used to tell the adapter when words have been loaded (or the list has changed).
+     */
+    public interface Listener {
+
+        /**
+         * Method called (on the main thread) once the size of the list is known, or the list has
+         * changed in a way that the adapter needs to redraw everything.
+         */
+        public void onListChanged();
+
+        /**
+         * Method called (on the main thread) once a page of words has been loaded.
+         * @param firstPosition the position in the list of the first word in the page.
+         * @param count the number of words in the page.
+         */
+        public void onPageLoaded(int firstPosition, int count);
+    }
+
+    /**
+     * Interface for loading the words in the list (see the AsyncDataStore methods of the same names).  The
+     * results can come back later, but always on the main thread.
+     */
+    interface Loader {
+
+        void countWords(DataCallback<Integer> callback);
+
+        void getWordsAfter(long afterWordId, int limit, DataCallback<ArrayList<Objects.Word>> callback);
+
+        void getWordsAt(int offset, int limit, DataCallback<ArrayList<Objects.Word>> callback);
+    }
+
+    //Instance variables
+    private final Loader mLoader;                       //Loads the words.
+    private final Listener mListener;                   //The listener to tell when pages are loaded.
+    private int mSize = 0;                              //The number of words in the list.
+    private long[] mPageKeys = new long[1];             //For each page, the id of the last word in the page before it.
+    private final HashMap<Integer, Integer> mLoading = new HashMap<>();    //Pages currently being loaded, and the request number for each.
+    private int mNextRequest = 0;                       //Request number for the next page load.
+
+    //The pages held in memory, in least-recently-used order.  The eldest page is dropped when the map gets too big.
+    private final LinkedHashMap<Integer, ArrayList<Objects.Word>> mPages =
+            new LinkedHashMap<Integer, ArrayList<Objects.Word>>(MAX_RESIDENT_PAGES + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, ArrayList<Objects.Word>> eldest) {
+                    return size() > MAX_RESIDENT_PAGES;
+                }
+            };
+
+    /**
+     * Class constructor.  The list starts out empty - call load() to find the size of the list.
+     * @param dataStore a reference to the application datastore.
+     * @param listId the id of the spelling list.
+     * @param listener the listener to tell when words have been loaded.
+     */
+    public PagedWordList(final AsyncDataStore dataStore, final long listId, Listener listener) {
+        this(new Loader() {
+            @Override
+            public void countWords(DataCallback<Integer> callback) {
+                dataStore.countWords(listId, callback);
+            }
+
+            @Override
+            public void getWordsAfter(long afterWordId, int limit, DataCallback<ArrayList<Objects.Word>> callback) {
+                dataStore.getWordsAfter(listId, afterWordId, limit, callback);
+            }
+
+            @Override
+            public void getWordsAt(int offset, int limit, DataCallback<ArrayList<Objects.Word>> callback) {
+                dataStore.getWordsAt(listId, offset, limit, callback);
+            }
+        }, listener);
+    }
+
+    /**
+     * Package-private constructor, so the unit tests can load the words themselves.
+     * @param loader loads the words.
+     * @param listener the listener to tell when words have been loaded.
+     */
+    PagedWordList(Loader loader, Listener listener) {
+        mLoader = loader;
+        mListener = listener;
+        mPageKeys[0] = DataStore.NULL_ROW_ID;
+    }
+
+    /**
+     * Public method to (re)load the size of the list.  Any pages in memory are thrown away.
+     */
+    public void load() {
+        mLoader.countWords(new DataCallback<Integer>() {
+            @Override
+            public void onResult(Integer count) {
+                mSize = count;
+                invalidateFrom(0);
+                mListener.onListChanged();
+            }
+        });
+    }
+
+    /**
+     * Public method to get the number of words in the list.
+     * @return the number of words in the list.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Method to get the number of pages held in memory (for the unit tests).
+     * @return the number of pages, at most MAX_RESIDENT_PAGES.
+     */
+    int getResidentPageCount() {
+        return mPages.size();
+    }
+
+    /**
+     * Public method to get the word at a position in the list.  If the page holding that word isn't
+     * in memory, it is requested and null is returned; the listener is told once it has been loaded.
+     *
+     * @param position the position of the word in the list.
+     * @return the Word object, or null if it hasn't been loaded yet.
+     */
+    public Objects.Word get(int position) {
+
+        int page = position / PAGE_SIZE;
+        int index = position % PAGE_SIZE;
+
+        //If we're getting close to the end of this page, start loading the next one.
+        if (index >= PAGE_SIZE - PREFETCH_DISTANCE && (page + 1) * PAGE_SIZE < mSize) {
+            requestPage(page + 1);
+        }
+
+        ArrayList<Objects.Word> words = mPages.get(page);
+        if (words == null) {
+            requestPage(page);
+            return null;
+        }
+        return index < words.size() ? words.get(index) : null;
+    }
+
+    /**
+     * Public method to add a word (which has already been saved to the datastore) to the end of the list.
+     * New words always have the highest word id in the list, so they always belong on the last page.
+     * @param word the Word object to add.
+     */
+    public void add(Objects.Word word) {
+
+        int page = mSize / PAGE_SIZE;
+        mSize++;
+
+        //If the last page is in memory, add the word to it.  (If the page was full, the word starts a
+        //new page, which will be loaded when it is needed.)
+        ArrayList<Objects.Word> words = mPages.get(page);
+        if (words != null) {
+            words.add(word);
+        } else if (page > 0 && mPages.containsKey(page - 1)) {
+            ArrayList<Objects.Word> previous = mPages.get(page - 1);
+            setPageKey(page, previous.get(previous.size() - 1).id);
+        }
+    }
+
+    /**
+     * Public method to remove a word (which has already been deleted from the datastore) from the list.
+     * Every page from the one holding the word onwards has shifted, so those pages are thrown away and
+     * will be reloaded when they are needed.
+     *
+     * @param position the position of the word in the list.
+     */
+    public void remove(int position) {
+        mSize--;
+        invalidateFrom(position / PAGE_SIZE);
+    }
+
+    /**
+     * Private method to throw away every page (and page key) from a given page onwards.  The key for the
+     * given page itself is kept, since it only depends on the pages before it.
+     * @param page the first page to throw away.
+     */
+    private void invalidateFrom(int page) {
+
+        //Throw away the pages, and forget about any loads in progress for them.
+        for (Integer p : new ArrayList<>(mPages.keySet())) {
+            if (p >= page) mPages.remove(p);
+        }
+        for (Integer p : new ArrayList<>(mLoading.keySet())) {
+            if (p >= page) mLoading.remove(p);
+        }
+
+        //Throw away the keys for the pages after it.
+        for (int p = page + 1; p < mPageKeys.length; p++) {
+            mPageKeys[p] = UNKNOWN_KEY;
+        }
+    }
+
+    /**
+     * Private method to start loading a page, if it isn't already in memory (or being loaded).
+     * @param page the page to load.
+     */
+    private void requestPage(final int page) {
+
+        if (mPages.containsKey(page) || mLoading.containsKey(page)) return;
+        final int request = mNextRequest++;
+        mLoading.put(page, request);
+
+        DataCallback<ArrayList<Objects.Word>> callback = new DataCallback<ArrayList<Objects.Word>>() {
+            @Override
+            public void onResult(ArrayList<Objects.Word> words) {
+
+                //Ignore the result if the page has been thrown away since this load was started.
+                Integer current = mLoading.get(page);
+                if (current == null || current != request) return;
+                mLoading.remove(page);
+                mPages.put(page, words);
+
+                //Remember the key for the next page, so it can be loaded without an offset.
+                if (words.size() == PAGE_SIZE) {
+                    setPageKey(page + 1, words.get(words.size() - 1).id);
+                }
+
+                mListener.onPageLoaded(page * PAGE_SIZE, words.size());
+            }
+        };
+
+        //Use the key for this page if we have one.  Otherwise (ie if the user jumped straight to this
+        //page), fall back to an offset.
+        long key = getPageKey(page);
+        if (key != UNKNOWN_KEY) {
+            mLoader.getWordsAfter(key, PAGE_SIZE, callback);
+        } else {
+            mLoader.getWordsAt(page * PAGE_SIZE, PAGE_SIZE, callback);
+        }
+    }
+
+    /**
+     * Private method to get the key for a page.
+     * @param page the page.
+     * @return the id of the last word on the page before it, or UNKNOWN_KEY.
+     */
+    private long getPageKey(int page) {
+        return page < mPageKeys.length ? mPageKeys[page] : UNKNOWN_KEY;
+    }
+
+    /**
+     * Private method to save the key for a page, growing the array of keys if needed.
+     * @param page the page.
+     * @param key the id of the last word on the page before it.
+     */
+    private void setPageKey(int page, long key) {
+        if (page >= mPageKeys.length) {
+            int oldLength = mPageKeys.length;
+            mPageKeys = Arrays.copyOf(mPageKeys, Math.max(page + 1, oldLength * 2));
+            Arrays.fill(mPageKeys, oldLength, mPageKeys.length, UNKNOWN_KEY);
+        }
+        mPageKeys[page] = key;
+    }
+}
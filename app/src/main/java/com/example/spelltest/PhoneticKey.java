@@ -0,0 +1,188 @@
+/**
+ * Filename:  PhoneticKey.java
+ * Author:  Team SpellTest
+ * Date:  21 May 2019
+ *
+ * Purpose:  This class works out the phonetic key of a word, so that answers that sound right but are spelled
+ * wrong (eg "fone" for "phone") can be told apart from other mistakes.  Two spellings with the same key sound
+ * (roughly) the same.  The rules are Lawrence Philips' original Metaphone, with one change from Double
+ * Metaphone:  a vowel at the start of a word is always keyed as "A", so "ate" and "eight" match.
+ *
+ * The keys use the letters B, F, H, J, K, L, M, N, P, R, S, T, W, X ("sh"), Y and 0 ("th"), plus A for a
+ * first vowel.  Only letters count - anything else is ignored, and accents are dropped.  Keys aren't cut
+ * short, so long words don't all end up with the same key.
+ *
+ * The keys are stored with each word and each word attempt (see DataStore), so finding or counting the
+ * answers that sound like a word is an index lookup.  There is no Android code here, so it can be used
+ * on any JVM.
+ */
+
+package com.example.spelltest;
+
+import java.text.Normalizer;
+
+public class PhoneticKey {
+
+    /**
+     * Public static method to work out the phonetic key of a word.
+     * @param text the word (or answer).  This can be null.
+     * @return the key.  This is empty if the text has no letters in it.
+     */
+    public static String encode(CharSequence text) {
+
+        if (text == null) return "";
+
+        //Keep just the letters, in upper case.
+        int length = text.length();
+        char[] word = new char[length];
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 128) c = removeAccent(c);
+            if (c >= 'a' && c <= 'z') c -= 'a' - 'A';
+            if (c >= 'A' && c <= 'Z') word[n++] = c;
+        }
+
+        StringBuilder key = new StringBuilder(n);
+        int start = 0;
+
+        //Some first letters are silent, or sound like something else.
+        if (n >= 2) {
+            char first = word[0];
+            char second = word[1];
+            if ((first == 'A' && second == 'E') || (first == 'G' && second == 'N') || (first == 'K' && second == 'N') ||
+                    (first == 'P' && second == 'N') || (first == 'W' && second == 'R')) {
+                start = 1;
+            } else if (first == 'W' && second == 'H') {
+                key.append('W');
+                start = 2;
+            }
+        }
+        if (n >= 1 && word[0] == 'X') {
+            key.append('S');
+            start = 1;
+        }
+
+        for (int i = start; i < n; i++) {
+            char c = word[i];
+            char previous = (i > 0) ? word[i - 1] : 0;
+            char next = (i + 1 < n) ? word[i + 1] : 0;
+            char afterNext = (i + 2 < n) ? word[i + 2] : 0;
+
+            //A doubled letter sounds the same as a single one (except for "cc", as in "accept").
+            if (c == previous && c != 'C') continue;
+
+            switch (c) {
+                case 'A':
+                case 'E':
+                case 'I':
+                case 'O':
+                case 'U':
+                    //Vowels only count at the start of a word.
+                    if (i == start && key.length() == 0) key.append('A');
+                    break;
+                case 'B':
+                    //Silent in "-mb", as in "thumb".
+                    if (!(previous == 'M' && i == n - 1)) key.append('B');
+                    break;
+                case 'C':
+                    if (next == 'I' && afterNext == 'A') {
+                        key.append('X');                                //"-cia-", as in "special".
+                    } else if (next == 'H') {
+                        key.append(previous == 'S' ? 'K' : 'X');        //"sch" sounds like "sk".
+                    } else if (next == 'I' || next == 'E' || next == 'Y') {
+                        if (previous != 'S') key.append('S');           //Silent in "sci", "sce" and "scy".
+                    } else {
+                        key.append('K');
+                    }
+                    break;
+                case 'D':
+                    if (next == 'G' && (afterNext == 'E' || afterNext == 'Y' || afterNext == 'I')) {
+                        key.append('J');                                //"-dge-", as in "edge".
+                        i++;
+                    } else {
+                        key.append('T');
+                    }
+                    break;
+                case 'G':
+                    if (next == 'H' && i + 2 < n && !isVowel(afterNext)) {
+                        //Silent, as in "night".
+                    } else if (next == 'N' && (i + 2 == n ||
+                            (i + 4 == n && afterNext == 'E' && word[i + 3] == 'D'))) {
+                        //Silent, as in "sign" and "signed".
+                    } else if ((next == 'I' || next == 'E' || next == 'Y') && previous != 'G') {
+                        key.append('J');
+                    } else {
+                        key.append('K');
+                    }
+                    break;
+                case 'H':
+                    //Silent after a vowel (unless another follows), and after the letters it changes.
+                    if (!(isVowel(previous) && !isVowel(next)) && previous != 'C' && previous != 'S' &&
+                            previous != 'P' && previous != 'T' && previous != 'G') {
+                        key.append('H');
+                    }
+                    break;
+                case 'K':
+                    if (previous != 'C') key.append('K');
+                    break;
+                case 'P':
+                    key.append(next == 'H' ? 'F' : 'P');
+                    break;
+                case 'Q':
+                    key.append('K');
+                    break;
+                case 'S':
+                    if (next == 'H' || (next == 'I' && (afterNext == 'O' || afterNext == 'A'))) {
+                        key.append('X');
+                    } else {
+                        key.append('S');
+                    }
+                    break;
+                case 'T':
+                    if (next == 'I' && (afterNext == 'O' || afterNext == 'A')) {
+                        key.append('X');                                //"-tion", as in "nation".
+                    } else if (next == 'H') {
+                        key.append('0');
+                    } else if (!(next == 'C' && afterNext == 'H')) {
+                        key.append('T');                                //Silent in "-tch-".
+                    }
+                    break;
+                case 'V':
+                    key.append('F');
+                    break;
+                case 'W':
+                case 'Y':
+                    if (isVowel(next)) key.append(c);
+                    break;
+                case 'X':
+                    key.append("KS");
+                    break;
+                case 'Z':
+                    key.append('S');
+                    break;
+                default:
+                    //F, J, L, M, N and R sound like themselves.
+                    key.append(c);
+                    break;
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Private static method to check if a letter is a vowel.
+     */
+    private static boolean isVowel(char c) {
+        return c == 'A' || c == 'E' || c == 'I' || c == 'O' || c == 'U';
+    }
+
+    /**
+     * Private static method to take the accent off a letter (eg "é" to "e").
+     * @return the letter without its accent, or the letter as it was if it doesn't have one.
+     */
+    private static char removeAccent(char c) {
+        String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+        return decomposed.charAt(0);
+    }
+}
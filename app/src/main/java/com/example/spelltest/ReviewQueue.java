@@ -0,0 +1,227 @@
+/**
+ * Filename:  ReviewQueue.java
+ * Author:  Team SpellTest
+ * Date:  13 May 2019
+ *
+ * Purpose:  This class is the word source for review tests (see WordOrder.REVIEW).  Rather than testing
+ * every word in a list, a review only tests the words that are due, earliest first.  After each answer
+ * the word is rescheduled using the SM-2 spaced-repetition algorithm:  words the user gets right come
+ * back after longer and longer gaps (1 day, 6 days, then growing by the word's ease factor each time),
+ * while words the user gets wrong start again at 1 day, and their ease factor drops so they grow more
+ * slowly from then on.
+ *
+ * The words are held in a binary heap ordered by due time, so taking the next due word and putting a
+ * rescheduled word back are both O(log n).  Building the queue is O(n), and matches the schedules to the
+ * words through a HashMap (so it boxes every word id), and dueCount() scans the whole heap - both are
+ * meant to be done once, before the test starts.  Each reschedule() returns a new copy of the schedule,
+ * which should be saved with DataStore.putReviewSchedule().
+ *
+ * Like TestSession, this class is not thread-safe - all calls should be made from the main thread.
+ */
+
+package com.example.spelltest;
+
+import java.util.HashMap;
+import java.util.List;
+
+public class ReviewQueue implements TestSession.WordSource {
+
+    //Class variables
+    public static final double INITIAL_EASE_FACTOR = 2.5;      //SM-2 ease factor for a new word.
+    public static final double MINIMUM_EASE_FACTOR = 1.3;      //SM-2 ease factor never drops below this.
+    public static final long DAY = 24L * 60 * 60 * 1000;       //One day, in ms.
+    private static final long QUICK_ANSWER_TIME = 5000;        //Correct answers faster than this (in ms) count as easy...
+    private static final long SLOW_ANSWER_TIME = 15000;        //...and slower than this count as hard.
+
+    //Instance variables
+    private final TestSession.Clock mClock;                     //Source of the current time.
+    private final Objects.Word[] mWords;                        //All of the words in the list.
+    private final Objects.ReviewSchedule[] mSchedules;          //The schedule for each word (same index as mWords).
+    private final int[] mHeap;                                  //Indexes into mWords, as a min-heap on due time.
+    private int mHeapSize = 0;                                  //Number of words in the heap.
+    private int mCurrent = -1;                                  //Index of the word last handed out (or -1).
+
+    /**
+     * Class constructor.  Every word that is due is added to the queue.
+     * @param words the words in the spelling list.
+     * @param schedules the saved schedules for the words (from DataStore.getReviewSchedules()).  Words
+     *                  without a schedule are new, and are due straight away.
+     * @param userId the id of the user taking the test.
+     * @param clock the source of the current time.
+     */
+    public ReviewQueue(List<Objects.Word> words, List<Objects.ReviewSchedule> schedules, long userId,
+                       TestSession.Clock clock) {
+
+        mClock = clock;
+        mWords = words.toArray(new Objects.Word[words.size()]);
+        mSchedules = new Objects.ReviewSchedule[mWords.length];
+        mHeap = new int[mWords.length];
+
+        //Match each word up with its schedule.
+        HashMap<Long, Objects.ReviewSchedule> byWordId = new HashMap<>(schedules.size() * 2);
+        for (Objects.ReviewSchedule schedule : schedules) {
+            byWordId.put(schedule.wordId, schedule);
+        }
+
+        long now = clock.now();
+        for (int i = 0; i < mWords.length; i++) {
+            Objects.ReviewSchedule schedule = byWordId.get(mWords[i].id);
+            if (schedule == null) {
+                schedule = new Objects.ReviewSchedule(DataStore.NULL_ROW_ID, userId, mWords[i].id, 0,
+                        INITIAL_EASE_FACTOR, 0, 0);
+            }
+            mSchedules[i] = schedule;
+
+            //Only the words that are due go into the heap (these are the only ones this test can reach).
+            if (schedule.dueTime <= now) mHeap[mHeapSize++] = i;
+        }
+
+        //Turn the array into a heap.
+        for (int i = mHeapSize / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * Public method to get the number of words waiting to be reviewed.
+     * @return the number of words that are due now.
+     */
+    public int dueCount() {
+        long now = mClock.now();
+        int count = 0;
+        for (int i = 0; i < mHeapSize; i++) {
+            if (mSchedules[mHeap[i]].dueTime <= now) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Method to take the word that has been due longest.
+     * @return the word, or null if no more words are due.
+     */
+    @Override
+    public Objects.Word nextWord() {
+        if (mHeapSize == 0 || mSchedules[mHeap[0]].dueTime > mClock.now()) return null;
+
+        mCurrent = mHeap[0];
+        mHeapSize--;
+        if (mHeapSize > 0) {
+            mHeap[0] = mHeap[mHeapSize];
+            siftDown(0);
+        }
+        return mWords[mCurrent];
+    }
+
+    /**
+     * Public method to reschedule the word last handed out by nextWord(), once it has been answered.
+     * The word goes back into the queue at its new due time.
+     *
+     * @param correct true if the word was spelled correctly.
+     * @param responseTime time (in ms) the user took to answer.
+     * @param now the time the answer was given.
+     * @return a copy of the word's new schedule, to be saved.
+     * @throws IllegalStateException if no word has been handed out.
+     */
+    public Objects.ReviewSchedule reschedule(boolean correct, long responseTime, long now) {
+
+        if (mCurrent < 0) throw new IllegalStateException("No word to reschedule");
+
+        Objects.ReviewSchedule schedule = mSchedules[mCurrent];
+        review(schedule, quality(correct, responseTime), now);
+
+        //Put the word back in the heap.
+        mHeap[mHeapSize] = mCurrent;
+        siftUp(mHeapSize);
+        mHeapSize++;
+        mCurrent = -1;
+
+        return new Objects.ReviewSchedule(schedule.id, schedule.userId, schedule.wordId, schedule.dueTime,
+                schedule.easeFactor, schedule.intervalDays, schedule.repetitions);
+    }
+
+    /**
+     * Public static method to grade an answer on the SM-2 scale (0 - 5, where 3 and up is a pass).
+     * @param correct true if the word was spelled correctly.
+     * @param responseTime time (in ms) the user took to answer.
+     * @return the quality of the answer.
+     */
+    public static int quality(boolean correct, long responseTime) {
+        if (!correct) return 2;
+        if (responseTime <= QUICK_ANSWER_TIME) return 5;
+        if (responseTime <= SLOW_ANSWER_TIME) return 4;
+        return 3;
+    }
+
+    /**
+     * Public static method to apply one SM-2 review to a schedule.
+     * @param schedule the schedule to update.
+     * @param quality the quality of the answer (0 - 5).
+     * @param now the time of the review.
+     */
+    public static void review(Objects.ReviewSchedule schedule, int quality, long now) {
+
+        //Work out the gap until the next review.
+        if (quality >= 3) {
+            if (schedule.repetitions == 0) {
+                schedule.intervalDays = 1;
+            } else if (schedule.repetitions == 1) {
+                schedule.intervalDays = 6;
+            } else {
+                schedule.intervalDays = (int) Math.round(schedule.intervalDays * schedule.easeFactor);
+            }
+            schedule.repetitions++;
+        } else {
+            schedule.repetitions = 0;
+            schedule.intervalDays = 1;
+        }
+
+        //Adjust the ease factor - up for easy answers, down for hard or wrong ones.
+        int miss = 5 - quality;
+        schedule.easeFactor = Math.max(MINIMUM_EASE_FACTOR,
+                schedule.easeFactor + 0.1 - miss * (0.08 + miss * 0.02));
+
+        schedule.dueTime = now + schedule.intervalDays * DAY;
+    }
+
+    /**
+     * Private method to compare two heap entries.
+     * @return true if word a is due before word b (ties go to the word earlier in the list).
+     */
+    private boolean before(int a, int b) {
+        long dueA = mSchedules[a].dueTime;
+        long dueB = mSchedules[b].dueTime;
+        return dueA < dueB || (dueA == dueB && a < b);
+    }
+
+    /**
+     * Private method to move a heap entry up until its parent is due before it.
+     * @param position the position of the entry in the heap.
+     */
+    private void siftUp(int position) {
+        int entry = mHeap[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!before(entry, mHeap[parent])) break;
+            mHeap[position] = mHeap[parent];
+            position = parent;
+        }
+        mHeap[position] = entry;
+    }
+
+    /**
+     * Private method to move a heap entry down until both of its children are due after it.
+     * @param position the position of the entry in the heap.
+     */
+    private void siftDown(int position) {
+        int entry = mHeap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= mHeapSize) break;
+            if (child + 1 < mHeapSize && before(mHeap[child + 1], mHeap[child])) child++;
+            if (!before(mHeap[child], entry)) break;
+            mHeap[position] = mHeap[child];
+            position = child;
+        }
+        mHeap[position] = entry;
+    }
+}
@@ -0,0 +1,619 @@
+/**
+ * Filename:  SpeechService.java
+ * Author:  Team SpellTest
+ * Date:  18 May 2019
+ *
+ * Purpose:  This singleton class says words out loud for the whole app.  It owns the one Android
+ * text-to-speech engine, the on-disk audio cache (see the AudioCache class) and the MediaPlayer that
+ * plays from it.  Starting the engine takes a noticeable time, so it is started once per process (as
+ * early as possible - see SplashScreenActivity) and then kept, rather than being started and shut down
+ * by every screen that needs it.
+ *
+ * Requests made before the engine is ready are queued, and run as soon as it is:  words to be cached
+ * are all kept, but only the last word asked to be said is kept (there's no point saying a word the
+ * user has already moved past).  The time the engine took to start is kept as a metric.
+ *
+ * A word that is about to be said can be prepared ahead of time (see prepare()):  it is synthesized
+ * into the cache if it isn't there already, and loaded into the MediaPlayer, so that say() only has to
+ * start playback.  The cache is filled on a single background thread, and preparing a word jumps ahead
+ * of any list prefetching that is waiting.  The time from say() to the start of each word is logged and
+ * kept as a metric (for prepared words, cached words and words spoken live).
+ *
+ * Words in a pack of pre-recorded audio (see the AudioPack class) are played from the pack before anything
+ * else is tried, and these still work if the engine can't be started (eg on devices with no usable voice).
+ * A new pack is imported from the app's external files directory (where it can be copied onto the device)
+ * when the service starts.  Clips are played straight out of the pack's archive, without being copied.
+ *
+ * All of the public methods must be called from the main thread.
+ */
+
+package com.example.spelltest;
+
+import android.content.Context;
+import android.media.MediaPlayer;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.util.Log;
+import android.widget.Toast;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SpeechService {
+
+    //Class variables
+    private static SpeechService sSpeechService;                    //A private reference to the single instance of this class.
+    private static final String TAG = "SpeechService";              //Tag for app log entries (ie for debugging).
+    private static final String THREAD_NAME = "SpeechService-cache";    //Name of the thread that fills the cache.
+    public static final float SPEECH_RATE = 0.5f;                   //Rate at which words are spoken (1.0 = normal speed).
+    public static final Locale SPEECH_LOCALE = Locale.US;           //Language the words are spoken in.
+    private static final String CACHE_DIRECTORY = "speech";         //Audio cache directory (inside the app's cache directory).
+    private static final long CACHE_SIZE = 32L * 1024 * 1024;       //Maximum size of the audio cache (in bytes).
+    private static final String UTTERANCE_PREFIX = "say-";          //Start of the utterance id for each word spoken live.
+    private static final String PACK_DIRECTORY = "audio_pack";      //Audio pack directory (inside the app's files directory).
+
+    //Where a word was said from (for the prompt latency metrics).
+    public static final int SOURCE_PREPARED = 0;                    //Already loaded into the MediaPlayer by prepare().
+    public static final int SOURCE_CACHE = 1;                       //Loaded from the audio cache when it was asked for.
+    public static final int SOURCE_LIVE = 2;                        //Spoken live by the engine.
+    public static final int SOURCE_PACK = 3;                        //Loaded from the audio pack when it was asked for.
+    private static final String[] SOURCE_NAMES = { "prepared", "cached", "live", "pack" };
+
+    //Instance variables
+    private final Context mContext;                                 //Application context.
+    private final Handler mMainHandler;                             //Used to get results from the cache thread back onto the main thread.
+    private final TextToSpeech mTextToSpeech;                       //The text-to-speech engine.
+    private final SpeechSynthesizer mSynthesizer;                   //Fills the audio cache (null to use the engine).
+    private final ThreadPoolExecutor mCacheExecutor;                //Background thread that fills the audio cache (urgent jobs first).
+    private final long mInitStartTime;                              //When the engine was started (elapsed realtime, in ms).
+    private long mInitLatency = -1;                                 //Time (in ms) the engine took to start (-1 until it has).
+    private boolean mReady = false;                                 //True once the engine has started.
+    private boolean mFailed = false;                                //True if the engine couldn't be started.
+    private String mPendingText = null;                             //Word to say once the engine is ready (or null).
+    private final ArrayList<String> mPendingPrefetch = new ArrayList<>();  //Words to cache once the engine is ready.
+    private final ArrayList<Runnable> mStartListeners = new ArrayList<>(); //Run once the engine has started (or failed to).
+    private final AtomicInteger mPrefetchGeneration = new AtomicInteger(); //Incremented to cancel queued prefetches.
+    private long mJobCount = 0;                                     //Number of cache jobs queued (keeps jobs of equal priority in order).
+    private volatile AudioCache mAudioCache = null;                 //Spoken words saved on disk (null until it has been opened).
+    private volatile AudioPack mAudioPack = null;                   //Pre-recorded words (null if there's no pack, or until it has been opened).
+    private MediaPlayer mMediaPlayer = null;                        //Plays words from the audio cache (created on first use).
+    private String mPreparedText = null;                            //Word loaded into the MediaPlayer by prepare() (or null).
+    private int mSayCount = 0;                                      //Number of say() calls (so a word prepared too late doesn't cut one off).
+    private int mUtteranceCount = 0;                                //Number of words spoken live (used to make the utterance ids).
+    private volatile String mLiveUtteranceId = null;                //Utterance id of the word last spoken live.
+    private volatile String mLiveText = null;                       //The word last spoken live.
+    private volatile long mSayTime = 0;                             //When say() was last called (elapsed realtime, in ms).
+    private final long[] mPromptCounts = new long[SOURCE_NAMES.length];       //Number of words said from each source.
+    private final long[] mPromptLatencyTotals = new long[SOURCE_NAMES.length]; //Total prompt latency (in ms) for each source.
+    private final long[] mPromptLatencyMaxima = new long[SOURCE_NAMES.length]; //Longest prompt latency (in ms) for each source.
+
+    /**
+     * A job for the cache thread.  Urgent jobs (preparing the next word) are run before any others that
+     * are waiting; otherwise jobs are run in the order they were queued.
+     */
+    private static final class CacheJob implements Runnable, Comparable<CacheJob> {
+
+        //Instance variables
+        private final Runnable mWork;               //The work to do.
+        private final boolean mUrgent;              //True to run ahead of the jobs that aren't urgent.
+        private final long mSequence;               //Order the job was queued in.
+
+        CacheJob(Runnable work, boolean urgent, long sequence) {
+            mWork = work;
+            mUrgent = urgent;
+            mSequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            mWork.run();
+        }
+
+        @Override
+        public int compareTo(CacheJob other) {
+            if (mUrgent != other.mUrgent) return mUrgent ? -1 : 1;
+            return (mSequence < other.mSequence) ? -1 : (mSequence > other.mSequence) ? 1 : 0;
+        }
+    }
+
+    /**
+     * Class constructor.  We have made this private to preclude other classes from calling the
+     * constructor directly.  Instead, calling classes will need to use the newInstance() method
+     * to obtain a reference to the (single) instance of this class.  This starts the engine.
+     * @param context is the Context the engine is attached to (only its application context is kept).
+     */
+    private SpeechService(Context context) {
+        this(context, null);
+    }
+
+    /**
+     * Package-private constructor, so that the unit tests can fill the audio cache with a fake synthesizer
+     * (and start the service with onEngineStarted(), since there's no real engine on the JVM).
+     * @param context is the Context the engine is attached to (only its application context is kept).
+     * @param synthesizer fills the audio cache, or null to use the engine.
+     */
+    SpeechService(Context context, SpeechSynthesizer synthesizer) {
+
+        //Hang on to the application context (not the activity!) so we don't leak activities.
+        mContext = context.getApplicationContext();
+        mSynthesizer = synthesizer;
+        mMainHandler = new Handler(Looper.getMainLooper());
+
+        mCacheExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, THREAD_NAME);
+                        thread.setPriority(Thread.NORM_PRIORITY - 1);
+                        return thread;
+                    }
+                });
+
+        //Import and open the audio pack (if there is one) before anything else is done in the background.
+        final File importDirectory = mContext.getExternalFilesDir(null);
+        final File packDirectory = new File(mContext.getFilesDir(), PACK_DIRECTORY);
+        runInBackground(true, new Runnable() {
+            @Override
+            public void run() {
+                openAudioPack(importDirectory, packDirectory);
+            }
+        });
+
+        //Start the engine.  onInit() is called on the main thread once it's ready.
+        mInitStartTime = SystemClock.elapsedRealtime();
+        mTextToSpeech = new TextToSpeech(mContext, new TextToSpeech.OnInitListener() {
+            @Override
+            public void onInit(int status) {
+                onEngineStarted(status);
+            }
+        });
+    }
+
+    /**
+     * Method used to obtain the single instance of this class.  The first call starts the engine.
+     *
+     * @param context  the Context the engine is attached to.
+     * @return a reference to the single instance of this class.
+     */
+    public static synchronized SpeechService newInstance(Context context) {
+
+        //If an instance of this class hasn't been created yet, create it.
+        if (sSpeechService == null) {
+            sSpeechService = new SpeechService(context);
+        }
+
+        //Now that we know an instance of the class has been created, return a reference to it.
+        return sSpeechService;
+    }
+
+    /**
+     * Method called on the main thread once the engine has started (or failed to).
+     * @param status TextToSpeech.SUCCESS if the engine started.
+     */
+    void onEngineStarted(int status) {
+
+        mInitLatency = SystemClock.elapsedRealtime() - mInitStartTime;
+
+        if (status != TextToSpeech.SUCCESS) {
+            //If we get here, it means that TTS was not initialized properly.  Show a Toast in that case,
+            //unless there's an audio pack to fall back on (and try the last word again from the pack).
+            Log.e(TAG, "TTS initialization failed after " + mInitLatency + " ms");
+            mFailed = true;
+            mPendingPrefetch.clear();
+            if (mAudioPack == null) {
+                Toast.makeText(mContext, "TTS Initialization failed!", Toast.LENGTH_SHORT).show();
+            }
+            if (mPendingText != null) {
+                say(mPendingText);
+                mPendingText = null;
+            }
+            runStartListeners();
+            return;
+        }
+
+        //Set the language, and provide log errors in case it isn't available.
+        int ttsLang = mTextToSpeech.setLanguage(SPEECH_LOCALE);
+        if (ttsLang == TextToSpeech.LANG_MISSING_DATA || ttsLang == TextToSpeech.LANG_NOT_SUPPORTED) {
+            Log.e(TAG, "The Language is not supported!");
+        }
+        mTextToSpeech.setSpeechRate(SPEECH_RATE);
+        Log.i(TAG, "TTS initialized in " + mInitLatency + " ms");
+
+        //Open the audio cache (in the background, since it looks through the files already there).  The
+        //synthesizer passes on the progress of words spoken live, so we can tell when they start.
+        final File directory = new File(mContext.getCacheDir(), CACHE_DIRECTORY);
+        final SpeechSynthesizer synthesizer = (mSynthesizer != null) ? mSynthesizer :
+                new AndroidSpeechSynthesizer(mTextToSpeech, mLiveListener);
+        runInBackground(true, new Runnable() {
+            @Override
+            public void run() {
+                mAudioCache = new AudioCache(directory, CACHE_SIZE, synthesizer);
+            }
+        });
+
+        //Now run everything that was asked for while we were starting up.
+        mReady = true;
+        if (!mPendingPrefetch.isEmpty()) {
+            prefetch(new ArrayList<>(mPendingPrefetch));
+            mPendingPrefetch.clear();
+        }
+        if (mPendingText != null) {
+            say(mPendingText);
+            mPendingText = null;
+        }
+        runStartListeners();
+    }
+
+    /**
+     * Private method to run (and forget) everything waiting for the engine to start.
+     */
+    private void runStartListeners() {
+        for (Runnable listener : mStartListeners) {
+            listener.run();
+        }
+        mStartListeners.clear();
+    }
+
+    //Hears when words spoken live actually start (called on one of the engine's threads).
+    private final UtteranceProgressListener mLiveListener = new UtteranceProgressListener() {
+        @Override
+        public void onStart(String utteranceId) {
+            if (utteranceId.equals(mLiveUtteranceId)) {
+                recordPrompt(mLiveText, SOURCE_LIVE, SystemClock.elapsedRealtime() - mSayTime);
+            }
+        }
+
+        @Override
+        public void onDone(String utteranceId) {
+        }
+
+        @Override
+        public void onError(String utteranceId) {
+        }
+    };
+
+    /**
+     * Public method to say a word.  The word is played from the audio pack or the audio cache if it's
+     * there (straight away, if it has been prepared); otherwise it is spoken live by the engine, and added
+     * to the cache for next time.  Anything already being said is cut off.  If the engine isn't ready yet
+     * (and the word isn't in the pack), the word is said as soon as it is.
+     * @param text the word to say.
+     */
+    public void say(final String text) {
+
+        mSayTime = SystemClock.elapsedRealtime();
+        mSayCount++;
+
+        //If the word has been prepared, all we need to do is start it.
+        if (text.equals(mPreparedText)) {
+            mPreparedText = null;
+            mMediaPlayer.start();
+            recordPrompt(text, SOURCE_PREPARED, SystemClock.elapsedRealtime() - mSayTime);
+            return;
+        }
+        mPreparedText = null;
+
+        //Pre-recorded words come first (these don't need the engine at all).
+        if (loadClip(text)) {
+            mMediaPlayer.start();
+            recordPrompt(text, SOURCE_PACK, SystemClock.elapsedRealtime() - mSayTime);
+            return;
+        }
+
+        if (mFailed) return;
+        if (!mReady) {
+            mPendingText = text;
+            return;
+        }
+
+        //Otherwise play the word from the audio cache if it's there.
+        AudioCache cache = mAudioCache;
+        File file = (cache != null) ? cache.get(text, SPEECH_LOCALE, SPEECH_RATE) : null;
+        if (file != null && loadFile(file)) {
+            mMediaPlayer.start();
+            recordPrompt(text, SOURCE_CACHE, SystemClock.elapsedRealtime() - mSayTime);
+            return;
+        }
+
+        //Otherwise, use the speak() method to say the word, and add it to the cache for next time.
+        mLiveText = text;
+        mLiveUtteranceId = UTTERANCE_PREFIX + (++mUtteranceCount);
+        mTextToSpeech.speak(text, TextToSpeech.QUEUE_FLUSH, null, mLiveUtteranceId);
+        runInBackground(false, new Runnable() {
+            @Override
+            public void run() {
+                if (mAudioCache != null) mAudioCache.prefetch(text, SPEECH_LOCALE, SPEECH_RATE);
+            }
+        });
+    }
+
+    /**
+     * Public method to get a word ready to be said, so that the next say() for it starts straight away.
+     * The word is synthesized into the audio cache first if it isn't there (ahead of any list prefetching
+     * that's waiting), and then loaded into the MediaPlayer.  Anything that is playing when the word is
+     * loaded is cut off, so this should be called once the last word has finished.
+     *
+     * @param text the word.
+     * @param onReady run on the main thread once the word is ready, or once it's clear that it can't be
+     *                prepared (eg if the engine isn't ready yet).  In that case say() still works, but
+     *                won't start straight away.
+     */
+    public void prepare(final String text, final Runnable onReady) {
+
+        //Words in the audio pack can be loaded straight away.
+        if (loadClip(text)) {
+            mPreparedText = text;
+            mMainHandler.post(onReady);
+            return;
+        }
+        if (!mReady) {
+            mMainHandler.post(onReady);
+            return;
+        }
+
+        final int generation = mPrefetchGeneration.get();
+        final int sayCount = mSayCount;
+        runInBackground(true, new Runnable() {
+            @Override
+            public void run() {
+                final boolean cached = (mAudioCache != null) && mAudioCache.prefetch(text, SPEECH_LOCALE, SPEECH_RATE);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        //Load the word, unless stop() or say() has been called since.
+                        if (cached && generation == mPrefetchGeneration.get() && sayCount == mSayCount) {
+                            File file = mAudioCache.get(text, SPEECH_LOCALE, SPEECH_RATE);
+                            if (file != null && loadFile(file)) mPreparedText = text;
+                        }
+                        onReady.run();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Public method to synthesize some words into the audio cache, in the background.  Words already in
+     * the cache are skipped.  If the engine isn't ready yet, this is done as soon as it is.
+     * @param texts the words.
+     */
+    public void prefetch(List<String> texts) {
+
+        if (mFailed) return;
+        if (!mReady) {
+            mPendingPrefetch.addAll(texts);
+            return;
+        }
+
+        //Queue each word separately, so that prepare() can get in between them.
+        final int generation = mPrefetchGeneration.get();
+        for (final String text : texts) {
+            runInBackground(false, new Runnable() {
+                @Override
+                public void run() {
+                    if (mPrefetchGeneration.get() == generation && mAudioCache != null && !inAudioPack(text)) {
+                        mAudioCache.prefetch(text, SPEECH_LOCALE, SPEECH_RATE);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Public method to stop talking, and drop any requests that are still waiting (eg when the screen
+     * that asked for them is hidden).  The engine itself is kept running.
+     */
+    public void stop() {
+        mPendingText = null;
+        mPendingPrefetch.clear();
+        mPrefetchGeneration.incrementAndGet();
+        mPreparedText = null;
+
+        if (mMediaPlayer != null && mMediaPlayer.isPlaying()) mMediaPlayer.stop();
+        if (mReady) mTextToSpeech.stop();
+    }
+
+    /**
+     * Private method to queue a job for the cache thread.
+     * @param urgent true to run it ahead of any jobs that aren't urgent.
+     * @param work the job.
+     */
+    private void runInBackground(boolean urgent, Runnable work) {
+        mCacheExecutor.execute(new CacheJob(work, urgent, mJobCount++));
+    }
+
+    /**
+     * Private method (run on the cache thread) to import a new audio pack, if one has been copied onto the
+     * device, and then open the pack.  A pack that can't be imported or opened is logged and ignored.
+     * @param importDirectory where a new pack is copied to (can be null if there's no external storage).
+     * @param packDirectory where the app keeps its pack.
+     */
+    private void openAudioPack(File importDirectory, File packDirectory) {
+        try {
+            if (importDirectory != null && AudioPack.importPack(importDirectory, packDirectory)) {
+                Log.i(TAG, "Imported a new audio pack from " + importDirectory);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Couldn't import the audio pack from " + importDirectory, e);
+        }
+
+        File archive = new File(packDirectory, AudioPack.ARCHIVE_NAME);
+        File index = new File(packDirectory, AudioPack.INDEX_NAME);
+        if (!archive.isFile() || !index.isFile()) return;
+        try {
+            long start = SystemClock.elapsedRealtime();
+            mAudioPack = new AudioPack(archive, index);
+            Log.i(TAG, "Audio pack of " + mAudioPack.getCount() + " words opened in " +
+                    (SystemClock.elapsedRealtime() - start) + " ms");
+        } catch (IOException e) {
+            Log.e(TAG, "Couldn't open the audio pack", e);
+        }
+    }
+
+    /**
+     * Private method to check whether a word is in the audio pack.
+     * @param text the word.
+     * @return true if it is.
+     */
+    private boolean inAudioPack(String text) {
+        AudioPack pack = mAudioPack;
+        return pack != null && pack.find(text) >= 0;
+    }
+
+    /**
+     * Private method to load a word from the audio pack into the MediaPlayer, ready to start.  The clip is
+     * played straight from the pack's archive.
+     * @param text the word.
+     * @return true if the word is ready to play, false if it isn't in the pack (or couldn't be loaded).
+     */
+    private boolean loadClip(String text) {
+        AudioPack pack = mAudioPack;
+        int entry = (pack != null) ? pack.find(text) : -1;
+        if (entry < 0) return false;
+
+        try {
+            resetPlayer();
+            mMediaPlayer.setDataSource(pack.getFileDescriptor(), pack.getClipOffset(entry), pack.getClipLength(entry));
+            mMediaPlayer.prepare();
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Couldn't load \"" + text + "\" from the audio pack", e);
+            return false;
+        }
+    }
+
+    /**
+     * Private method to load a word from the audio cache into the MediaPlayer, ready to start.
+     * @param file the audio file.
+     * @return true if the file is ready to play, false if it couldn't be loaded.
+     */
+    private boolean loadFile(File file) {
+        try {
+            resetPlayer();
+            mMediaPlayer.setDataSource(file.getPath());
+            mMediaPlayer.prepare();
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Couldn't load " + file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Private method to get the MediaPlayer ready for a new word (creating it the first time).
+     */
+    private void resetPlayer() {
+        if (mMediaPlayer == null) {
+            mMediaPlayer = new MediaPlayer();
+        } else {
+            mMediaPlayer.reset();
+        }
+    }
+
+    /**
+     * Private method to record how long a word took to start.  This can be called from any thread.
+     * @param text the word.
+     * @param source where it was said from (one of the SOURCE_ values).
+     * @param latency the time (in ms) from say() to the word starting.
+     */
+    private void recordPrompt(String text, int source, long latency) {
+        synchronized (mPromptCounts) {
+            mPromptCounts[source]++;
+            mPromptLatencyTotals[source] += latency;
+            mPromptLatencyMaxima[source] = Math.max(mPromptLatencyMaxima[source], latency);
+        }
+        Log.i(TAG, "Prompt \"" + text + "\" started after " + latency + " ms (" + SOURCE_NAMES[source] + ")");
+    }
+
+    /**
+     * Public method to do something once the engine has finished starting up (eg to hold the splash screen
+     * until then).  If it already has, the callback is run straight away.
+     * @param callback run on the main thread once the engine has started, or failed to start.
+     */
+    public void whenStarted(Runnable callback) {
+        if (mReady || mFailed) {
+            callback.run();
+        } else {
+            mStartListeners.add(callback);
+        }
+    }
+
+    /**
+     * Public method to find out whether the engine has started.
+     * @return true if words are being said straight away, false if they are being queued (or dropped,
+     *         if the engine failed to start).
+     */
+    public boolean isReady() {
+        return mReady;
+    }
+
+    /**
+     * Public method to get the time the engine took to start.
+     * @return the time, in ms, or -1 if it hasn't started yet.
+     */
+    public long getInitLatency() {
+        return mInitLatency;
+    }
+
+    /**
+     * Public method to get the number of words said from a source.
+     * @param source one of the SOURCE_ values.
+     * @return the number of words.
+     */
+    public long getPromptCount(int source) {
+        synchronized (mPromptCounts) {
+            return mPromptCounts[source];
+        }
+    }
+
+    /**
+     * Public method to get the mean time from say() to the word starting, for a source.
+     * @param source one of the SOURCE_ values.
+     * @return the mean time, in ms (0 if no words have been said from that source).
+     */
+    public long getMeanPromptLatency(int source) {
+        synchronized (mPromptCounts) {
+            return (mPromptCounts[source] == 0) ? 0 : mPromptLatencyTotals[source] / mPromptCounts[source];
+        }
+    }
+
+    /**
+     * Public method to write the speech metrics (start-up time, prompt latencies and audio cache stats)
+     * to the log.
+     */
+    public void logMetrics() {
+        StringBuilder metrics = new StringBuilder("TTS init ").append(mInitLatency).append(" ms; prompts:");
+        synchronized (mPromptCounts) {
+            for (int source = 0; source < SOURCE_NAMES.length; source++) {
+                metrics.append(' ').append(SOURCE_NAMES[source]).append(' ').append(mPromptCounts[source])
+                        .append(" (mean ").append(getMeanPromptLatency(source))
+                        .append(" ms, max ").append(mPromptLatencyMaxima[source]).append(" ms)");
+            }
+        }
+
+        AudioPack pack = mAudioPack;
+        if (pack != null) metrics.append("; audio pack: ").append(pack.getCount()).append(" words");
+
+        AudioCache cache = mAudioCache;
+        if (cache != null) {
+            metrics.append("; audio cache: ").append(cache.getHitCount()).append(" hits, ")
+                    .append(cache.getMissCount()).append(" misses, ")
+                    .append(cache.getEvictionCount()).append(" evictions, ")
+                    .append(cache.getFileCount()).append(" files (").append(cache.getSizeBytes() / 1024).append(" KB), ")
+                    .append(cache.getMeanSynthesisTime()).append(" ms per synthesis");
+        }
+        Log.i(TAG, metrics.toString());
+    }
+}
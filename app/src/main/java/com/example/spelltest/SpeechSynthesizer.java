@@ -0,0 +1,29 @@
+/**
+ * Filename:  SpeechSynthesizer.java
+ * Author:  Team SpellTest
+ * Date:  17 May 2019
+ *
+ * Purpose:  This interface turns text into a spoken audio file.  The AudioCache class uses it to fill
+ * the cache; on the device it is the AndroidSpeechSynthesizer class (which wraps the Android
+ * text-to-speech engine), but anything that can write an audio file will do, so the cache can be
+ * run on a plain JVM with a fake one.
+ */
+
+package com.example.spelltest;
+
+import java.io.File;
+import java.util.Locale;
+
+public interface SpeechSynthesizer {
+
+    /**
+     * Method to say some text into an audio file.  This waits until the file has been written, so it
+     * must not be called from the main thread.
+     * @param text the text to say.
+     * @param locale the language to say it in.
+     * @param rate the speech rate (1.0 = normal speed).
+     * @param output the file to write.  Anything already in the file is replaced.
+     * @return true if the file was written, false if the text couldn't be said.
+     */
+    public boolean synthesize(String text, Locale locale, float rate, File output);
+}
@@ -4,8 +4,14 @@
  * Date:  05 April 2019
  *
  * Purpose:  This class represents the splash screen graphic for the application.  It appears on
- * initial application startup and remains there for a short period of time before sending
- * application control to the UserSelectionActivity class.
+ * initial application startup, and while it is showing the app warms up in the background:
+ *   - the database is opened (and created or upgraded, if needed),
+ *   - the list of users is loaded (so it is already cached when UserSelectionActivity asks for it), and
+ *   - the text-to-speech engine is started.
+ * These run at the same time (the users are loaded as soon as the database is open), and application
+ * control is sent to the UserSelectionActivity class as soon as they have all finished (or after
+ * MAX_SPLASH_SCREEN_DURATION, if the speech engine is slow - it carries on starting up in the
+ * background).  The time each stage took is written to the log, to keep an eye on cold-start times.
  *
  */
 
@@ -15,21 +21,48 @@ package com.example.spelltest;
 import android.content.Intent;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
+
+import java.util.ArrayList;
 
 public class SplashScreenActivity extends AppCompatActivity {
 
     //Class variables
-    private static final int SPLASH_SCREEN_DURATION = 1000;  //Duration of splash screen (in milliseconds).
-
-    //Instantiate a Handler and Runnable object.  These are used to automatically start the next activity
-    //(ie the UserActivity) after a brief pause after app startup.
+    private static final String TAG = "SplashScreenActivity";       //Tag for app log entries (ie for debugging).
+    private static final int MAX_SPLASH_SCREEN_DURATION = 3000;     //Longest the splash screen is shown for (in milliseconds).
+    private static final int STAGE_COUNT = 3;                       //Number of warm-up stages (database, users and speech).
+
+    //Instance variables
+    private long mStartTime;                            //When the splash screen was created (elapsed realtime, in ms).
+    private int mStagesDone = 0;                        //Number of warm-up stages finished so far.
+    private boolean mLeft = false;                      //True once we've moved on (or the user has left the app).
+    private final StringBuilder mTimings = new StringBuilder();     //Time each stage took, for the log.
+
+    //Instantiate a Handler and Runnable object.  These are used to start the next activity (ie the
+    //UserActivity) once the warm-up is done, or after the longest time the splash screen is shown for.
     private Handler mHandler = new Handler();
     private Runnable mTimer = new Runnable(){
         @Override
         //When fired, this Runnable fires an intent to show the next screen and kill this activity.
         public void run() {
 
+            if (mLeft) return;
+            mLeft = true;
+            mHandler.removeCallbacks(mTimer);
+            Log.i(TAG, "Startup: " + mTimings + (mStagesDone < STAGE_COUNT ? "timed out" : "done") +
+                    " after " + (SystemClock.elapsedRealtime() - mStartTime) + " ms");
+
+            //Re-work out the word difficulties from everything answered so far, if anything new has been
+            //answered since the last time.  This runs in the background (and carries on after the splash
+            //screen has gone).  It is only started now, so that it doesn't hold up the warm-up.
+            //Then grade any answers recorded before answers were graded (this only does anything the first
+            //time the app runs after an upgrade).
+            AsyncDataStore data = AsyncDataStore.newInstance(SplashScreenActivity.this);
+            data.calibrateDifficulties(null);
+            data.gradeAttempts(null);
+
             //Create a new Intent to start the UserActivity.
             Intent i = new Intent(SplashScreenActivity.this, UserSelectionActivity.class);
 
@@ -54,9 +87,49 @@ public class SplashScreenActivity extends AppCompatActivity {
 
         //Call the super class constructor.
         super.onCreate(savedInstanceState);
+        mStartTime = SystemClock.elapsedRealtime();
+
+        //Start the text-to-speech engine now, so it's ready by the time the first test starts.
+        final SpeechService speech = SpeechService.newInstance(this);
+        speech.whenStarted(new Runnable() {
+            @Override
+            public void run() {
+                stageDone("speech engine", speech.getInitLatency());
+            }
+        });
+
+        //Open the database (on the writer thread), and then load the users.  The user request waits for the
+        //database to be opened.
+        AsyncDataStore data = AsyncDataStore.newInstance(this);
+        data.open(new DataCallback<Long>() {
+            @Override
+            public void onResult(Long time) {
+                stageDone("database open", time);
+            }
+        });
+        final long usersStart = SystemClock.elapsedRealtime();
+        data.getAllUsers(new DataCallback<ArrayList<Objects.User>>() {
+            @Override
+            public void onResult(ArrayList<Objects.User> users) {
+                stageDone(users.size() + " users", SystemClock.elapsedRealtime() - usersStart);
+            }
+        });
+
+        //Don't wait any longer than this, whatever happens.
+        mHandler.postDelayed(mTimer, MAX_SPLASH_SCREEN_DURATION);
+    }
 
-        //Wait for defined time, then issue a Runnable to shut down the splash screen.
-        mHandler.postDelayed(mTimer, SPLASH_SCREEN_DURATION);
+    /**
+     * Private method called (on the main thread) when each warm-up stage has finished.  Once they all
+     * have, we move on.
+     * @param stage the name of the stage (for the log).
+     * @param time the time (in ms) the stage took (for the users, this includes waiting for the database).
+     */
+    private void stageDone(String stage, long time) {
+        mStagesDone++;
+        mTimings.append(stage).append(' ').append(time).append(" ms (done at ")
+                .append(SystemClock.elapsedRealtime() - mStartTime).append(" ms), ");
+        if (mStagesDone == STAGE_COUNT) mTimer.run();
     }
 
 
@@ -69,8 +142,10 @@ public class SplashScreenActivity extends AppCompatActivity {
     @Override
     protected void onPause() {
 
-        //Removes any Runnable instances in the Handler (ie, if the timer is still running!)
+        //Removes any Runnable instances in the Handler (ie, if the timer is still running!), and makes sure
+        //the warm-up stages that are still running don't move on either.
         mHandler.removeCallbacks(mTimer);
+        mLeft = true;
 
         //Call the Super class constructor.
         super.onPause();
@@ -0,0 +1,331 @@
+/**
+ * Filename:  TestSession.java
+ * Author:  Team SpellTest
+ * Date:  10 May 2019
+ *
+ * Purpose:  This class runs a single spelling test:  it picks each word in turn, checks the user's
+ * answers, keeps the score, and builds the spelling list stat at the end.  It has no Android code in
+ * it at all - the TesterActivity class just shows the current word, passes the user's answers in and
+ * decides when to move on, while the session does the rest.
+ *
+ * Everything the session needs from the outside world is passed in:
+ *   - a Clock, for the test and response times,
+ *   - a WordSource, which decides which word comes next (and can also listen for answers), and
+ *   - a ResultSink, which is told about every attempt and about the finished test.
+ * So a whole test can be run on a plain JVM (eg with a fake clock, to simulate a large number of
+ * tests quickly), and no objects are created per word.  A session can be started again once it has
+ * finished, to run another test with the same objects.
+ *
+ * Answers are graded by an AnswerGrader:  only an exact match (ignoring case) counts as correct, but near
+ * misses still earn partial credit, and every attempt is passed on with its edit distance and kind of error.
+ *
+ * Once a word has been answered, the next word can be picked early with peekNextWord() (eg so that it
+ * can be got ready while the result of the last one is being shown).  next() then moves on to that word.
+ *
+ * A session is not thread-safe - all calls should be made from the same thread (the main thread,
+ * in the app).
+ */
+
+package com.example.spelltest;
+
+public class TestSession {
+
+    /**
+     * Interface for the source of the current time.
+     */
+    public interface Clock {
+
+        /**
+         * Method to get the current time.
+         * @return the current time, in ms.
+         */
+        public long now();
+    }
+
+    /**
+     * Interface for the object that decides the order the words are tested in.
+     */
+    public interface WordSource {
+
+        /**
+         * Method to take the next word to be tested.  Each word should only be handed out once.
+         * @return the next word, or null if there are none left.
+         */
+        public Objects.Word nextWord();
+    }
+
+    /**
+     * Interface for a word source that needs to know how each word was answered (eg to choose the next
+     * word based on the answers so far).  If the word source passed to the session implements this,
+     * it is told about every answer before the next word is asked for.
+     */
+    public interface AnswerListener {
+
+        /**
+         * Method called every time an answer is submitted.
+         * @param word the word being tested.
+         * @param correct true if the word was spelled correctly.
+         * @param responseTime time (in ms) from the word being presented to the answer being submitted.
+         * @param timestamp the time the answer was submitted.
+         */
+        public void onAnswer(Objects.Word word, boolean correct, long responseTime, long timestamp);
+    }
+
+    /**
+     * Interface for the object that receives the results of the test.
+     */
+    public interface ResultSink {
+
+        /**
+         * Method called every time an answer is submitted.
+         * @param sessionId identifies the test (this is the time the test started).
+         * @param word the word being tested.
+         * @param typedText what the user typed.
+         * @param correct true if the word was spelled correctly.
+         * @param editDistance the edit distance from the spelling (see AnswerGrader.grade()).
+         * @param errorType the kind of mistake (one of the AnswerGrader.ERROR_ values).
+         * @param responseTime time (in ms) from the word being presented to the answer being submitted.
+         * @param timestamp the time the answer was submitted.
+         */
+        public void onAttempt(long sessionId, Objects.Word word, String typedText, boolean correct,
+                              int editDistance, int errorType, long responseTime, long timestamp);
+
+        /**
+         * Method called once, when the last word has been answered and the session moves on.
+         * @param stat the stats for the whole test (not yet saved, so its id is NULL_ROW_ID).
+         */
+        public void onFinished(Objects.SpellingListStat stat);
+    }
+
+    //The clock used in the app.
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long now() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    //Session states
+    private static final int STATE_NOT_STARTED = 0;     //start() hasn't been called yet.
+    private static final int STATE_AWAITING_ANSWER = 1; //The current word has been presented, but not answered.
+    private static final int STATE_ANSWERED = 2;        //The current word has been answered; waiting for next().
+    private static final int STATE_FINISHED = 3;        //All of the words have been answered.
+
+    //Instance variables
+    private final long mListId;                         //The id of the list being tested.
+    private final WordSource mWordSource;               //Decides which word comes next.
+    private final AnswerListener mAnswerListener;       //The word source, if it wants to hear about answers (otherwise null).
+    private final Clock mClock;                         //Source of the test and response times.
+    private final ResultSink mResultSink;               //Receives the attempts and the final stat.
+    private final AnswerGrader mGrader = new AnswerGrader();    //Grades the answers.
+    private int mState = STATE_NOT_STARTED;             //Where we are in the test (one of the STATE_ values).
+    private Objects.Word mCurrentWord = null;           //The word currently being tested.
+    private Objects.Word mNextWord = null;              //The next word, if it has been taken early by peekNextWord().
+    private boolean mNextWordTaken = false;             //True if mNextWord has been taken (it is null if there are none left).
+    private int mNumberCorrect = 0;                     //Number of correct answers given in this test.
+    private int mNumberWrong = 0;                       //Number of incorrect answers given in this test.
+    private double mCredit = 0;                         //Total credit for the answers given in this test (partial credit included).
+    private long mStartTime = 0L;                       //Start time of the test (also used as the session id).
+    private long mWordStartTime = 0L;                   //Time the current word was presented.
+
+    /**
+     * Class constructor.
+     * @param listId the id of the spelling list being tested.
+     * @param wordSource decides the order the words are tested in.
+     * @param clock the source of the current time.
+     * @param resultSink receives the results.
+     */
+    public TestSession(long listId, WordSource wordSource, Clock clock, ResultSink resultSink) {
+        mListId = listId;
+        mWordSource = wordSource;
+        mAnswerListener = (wordSource instanceof AnswerListener) ? (AnswerListener) wordSource : null;
+        mClock = clock;
+        mResultSink = resultSink;
+    }
+
+    /**
+     * Public method to start (or restart) the test, and present the first word.  Any previous score
+     * is thrown away.
+     * @return the first word, or null if there are no words to test (in which case the session is
+     *         finished straight away, and the result sink is told).
+     */
+    public Objects.Word start() {
+        mNumberCorrect = 0;
+        mNumberWrong = 0;
+        mCredit = 0;
+        mStartTime = mClock.now();
+        mNextWord = null;
+        mNextWordTaken = false;
+        return presentNextWord();
+    }
+
+    /**
+     * Public method to check the user's answer for the current word.  The answer is recorded with the
+     * result sink, and the session then waits for next() to be called.
+     *
+     * @param typedText what the user typed.  Leading and trailing white space is ignored.
+     * @return true if the word was spelled correctly.
+     * @throws IllegalStateException if the session isn't waiting for an answer (see isAwaitingAnswer()).
+     */
+    public boolean submit(String typedText) {
+
+        if (mState != STATE_AWAITING_ANSWER) {
+            throw new IllegalStateException("Not waiting for an answer");
+        }
+
+        //Grade the spelling (case doesn't matter).  Only an exact match is correct, but a near miss still
+        //earns some credit.
+        String answer = typedText.trim();
+        int distance = mGrader.grade(answer, mCurrentWord.spelling);
+        boolean correct = (distance == 0);
+        mCredit += mGrader.getCredit();
+
+        //Keep score, and record the attempt.
+        if (correct) {
+            mNumberCorrect++;
+        } else {
+            mNumberWrong++;
+        }
+        long now = mClock.now();
+        if (mAnswerListener != null) mAnswerListener.onAnswer(mCurrentWord, correct, now - mWordStartTime, now);
+        mResultSink.onAttempt(mStartTime, mCurrentWord, answer, correct, distance, mGrader.getErrorType(),
+                now - mWordStartTime, now);
+
+        mState = STATE_ANSWERED;
+        return correct;
+    }
+
+    /**
+     * Public method to move on from the word that has just been answered.
+     * @return the next word, or null if that was the last one (in which case the session is finished,
+     *         and the result sink is told).
+     * @throws IllegalStateException if the current word hasn't been answered yet.
+     */
+    public Objects.Word next() {
+
+        if (mState != STATE_ANSWERED) {
+            throw new IllegalStateException("The current word hasn't been answered");
+        }
+        return presentNextWord();
+    }
+
+    /**
+     * Public method to find out which word next() will move on to, without moving on.  The word is taken
+     * from the word source straight away (so a word source that listens for answers has already been
+     * told about the last one).
+     * @return the next word, or null if the word just answered was the last one.
+     * @throws IllegalStateException if the current word hasn't been answered yet.
+     */
+    public Objects.Word peekNextWord() {
+
+        if (mState != STATE_ANSWERED) {
+            throw new IllegalStateException("The current word hasn't been answered");
+        }
+        if (!mNextWordTaken) {
+            mNextWord = mWordSource.nextWord();
+            mNextWordTaken = true;
+        }
+        return mNextWord;
+    }
+
+    /**
+     * Public method to get the word currently being tested.
+     * @return the current word.  This is still the last word once the session has finished, and null
+     *         before it has started.
+     */
+    public Objects.Word getCurrentWord() {
+        return mCurrentWord;
+    }
+
+    /**
+     * Public method to check whether submit() can be called.
+     * @return true if the current word has been presented but not answered yet.
+     */
+    public boolean isAwaitingAnswer() {
+        return mState == STATE_AWAITING_ANSWER;
+    }
+
+    /**
+     * Public method to check whether every word has been answered.
+     * @return true if the test is over.
+     */
+    public boolean isFinished() {
+        return mState == STATE_FINISHED;
+    }
+
+    /**
+     * Public method to get the session id, which is also the time the test started.
+     * @return the session id.
+     */
+    public long getSessionId() {
+        return mStartTime;
+    }
+
+    /**
+     * Public method to get the number of correct answers given so far.
+     * @return the number of correct answers.
+     */
+    public int getNumberCorrect() {
+        return mNumberCorrect;
+    }
+
+    /**
+     * Public method to get the total credit for the answers given so far.
+     * @return the credit (1 for each correct answer, plus partial credit for near misses).
+     */
+    public double getCredit() {
+        return mCredit;
+    }
+
+    /**
+     * Public method to get the details of the last answer's grade (eg its kind of error).  These are only
+     * valid until the next answer is submitted.
+     * @return the grader.
+     */
+    public AnswerGrader getLastGrade() {
+        return mGrader;
+    }
+
+    /**
+     * Public method to get the number of incorrect answers given so far.
+     * @return the number of incorrect answers.
+     */
+    public int getNumberWrong() {
+        return mNumberWrong;
+    }
+
+    /**
+     * Private method to take the next word from the word source (unless peekNextWord() has already taken
+     * it).  If there are none left, the session
+     * is finished and the stat for the test is handed to the result sink.
+     * @return the next word, or null if the session is finished.
+     */
+    private Objects.Word presentNextWord() {
+
+        Objects.Word word = mNextWordTaken ? mNextWord : mWordSource.nextWord();
+        mNextWord = null;
+        mNextWordTaken = false;
+
+        if (word != null) {
+            mCurrentWord = word;
+            mWordStartTime = mClock.now();
+            mState = STATE_AWAITING_ANSWER;
+            return word;
+        }
+
+        //No words left, so the test is over.
+        mState = STATE_FINISHED;
+        long endTime = mClock.now();
+        Objects.SpellingListStat stat = new Objects.SpellingListStat(
+                DataStore.NULL_ROW_ID,
+                mListId,
+                endTime,
+                endTime - mStartTime,
+                mNumberCorrect,
+                mNumberWrong
+        );
+        stat.credit = mCredit;
+        mResultSink.onFinished(stat);
+        return null;
+    }
+}
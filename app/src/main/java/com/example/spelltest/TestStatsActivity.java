@@ -31,8 +31,9 @@ public class TestStatsActivity extends AppCompatActivity {
     public static final String EXTRA_TEST_STAT_ID = "com.example.spelltest.list_stat_id";  //used to pass Extras into this Activity.
 
     //Instance variables
-    private DataStore mData;
+    private AsyncDataStore mData;
     private long mStatId;
+    private long mUserId = DataStore.NULL_ROW_ID;   //Id of the user who took the test (filled in once the stat is loaded).
 
 
     /**
@@ -54,95 +55,138 @@ public class TestStatsActivity extends AppCompatActivity {
         mStatId = getIntent().getLongExtra(EXTRA_TEST_STAT_ID, DataStore.NULL_ROW_ID);
 
         //Obtain a link to the application datastore (to allow access to the stats for this activity.)
-       mData = DataStore.newInstance(this);
+       mData = AsyncDataStore.newInstance(this);
 
         //Enclosing the rest of the code in an if statement, in case someone ever starts this activity without
         //sending the stat id as an intent - screen will be blank, which is better than FC'ing the app due to errors.
         if (mStatId != DataStore.NULL_ROW_ID) {
 
-            //Obtain a reference to the stat object associated with the incoming stat id.
-            Objects.SpellingListStat stat = mData.getSpellingListStat(mStatId);
-
-            //Get references to each of the TextViews in the activity that need to be updated with real stat values.
-            TextView dateView = findViewById(R.id.activity_test_stat_test_date);
-            TextView elapsedTimeView = findViewById(R.id.activity_test_stat_elapsed_time);
-            TextView correctAnswerCountView = findViewById(R.id.activity_test_stat_correct_answers);
-            TextView incorrectAnswerCountView = findViewById(R.id.activity_test_stat_incorrect_answers);
-            TextView overallGradeView = findViewById(R.id.activity_test_stat_overall_grade);
-
-            //Populate the correct / incorrect answer counts.
-            correctAnswerCountView.setText(Integer.toString(stat.numberCorrect));
-            incorrectAnswerCountView.setText(Integer.toString(stat.numberIncorrect));
-
-            //Format the "date tested" line of the stats, and display that next.
-            DateFormat df = new SimpleDateFormat("MMM dd, yyyy", Locale.US);
-            dateView.setText(df.format(new Date(stat.date)));
-
-            //Format the "elapsed time" of the stats, and display that.
-            DateFormat tf = new SimpleDateFormat("mm:ss", Locale.US);
-            elapsedTimeView.setText(tf.format(new Date(stat.elapsedTime)));
-
-            //Calculate the % correct, and show that on the screen.  Note that this is integer division,
-            //so will not show decimals.
-            long overallGrade = 100*(stat.numberCorrect) / (stat.numberCorrect + stat.numberIncorrect);
-            overallGradeView.setText(overallGrade + "%");
-
-            //Obtain a link to the list id and associated user id (used to wire up buttons).
-            final long listId = stat.listId;
-            final long userId = mData.getSpellingList(listId).userId;
-
-            //Wire up the "try again" button, by getting a link to it and attaching an onClickListener.
-            Button tryAgainButton = findViewById(R.id.activity_test_stat_button_try_again);
-            tryAgainButton.setOnClickListener(new View.OnClickListener(){
-
-                @Override
-                public void onClick(View view) {
-
-                    //Create an intent for the test activity.
-                    Intent intent = new Intent(TestStatsActivity.this, TesterActivity.class);
-
-                    //Send the spelling list id as an Extra.
-                    intent.putExtra(TesterActivity.EXTRA_LIST_ID, listId);
-
-                    //Start the activity
-                    startActivity(intent);
-
-                    //Terminate this activity, so the user can't get here by hitting back button on device.
-                    finish();
-                }
-            });
-
-            //Wire up the "select new list" button, by getting a link to it and attaching an onClickListener.
-            Button selectNewListButton = findViewById(R.id.activity_test_stat_button_select_new_test);
-            selectNewListButton.setOnClickListener(new View.OnClickListener() {
+            //Obtain a reference to the stat object associated with the incoming stat id.  The screen is
+            //populated once the stat has been loaded.
+            mData.getSpellingListStat(mStatId, new DataCallback<Objects.SpellingListStat>() {
                 @Override
-                public void onClick(View v) {
-
-                    //Create an intent for the spelling list selection activity.
-                    Intent intent = new Intent(TestStatsActivity.this, ListSelectionActivity.class);
-
-                    //Send the current user's id as an Extra.
-                    intent.putExtra(ListSelectionActivity.EXTRA_USER_ID, userId);
-
-                    //Start the activity
-                    startActivity(intent);
+                public void onResult(Objects.SpellingListStat stat) {
 
-                    //Terminate this activity, so the user can't get here by hitting back button on device.
-                    finish();
+                    //Don't touch the screen if the user has already left it.
+                    if (isFinishing()) return;
+                    showStat(stat);
                 }
             });
+        }
+    }
 
-            //Wire up the "quit" button, by getting a link to it and attaching an onClickListener.
-            Button quitButton = findViewById(R.id.activity_test_stat_button_quit);
-            quitButton.setOnClickListener(new View.OnClickListener() {
-                @Override
-                public void onClick(View v) {
+    /**
+     * Private method to populate the screen with the values from a single stat, and to wire up the buttons.
+     * @param stat the SpellingListStat object to show.
+     */
+    private void showStat(Objects.SpellingListStat stat) {
+
+        //Get references to each of the TextViews in the activity that need to be updated with real stat values.
+        TextView dateView = findViewById(R.id.activity_test_stat_test_date);
+        TextView elapsedTimeView = findViewById(R.id.activity_test_stat_elapsed_time);
+        TextView correctAnswerCountView = findViewById(R.id.activity_test_stat_correct_answers);
+        TextView incorrectAnswerCountView = findViewById(R.id.activity_test_stat_incorrect_answers);
+        TextView overallGradeView = findViewById(R.id.activity_test_stat_overall_grade);
+
+        //Populate the correct / incorrect answer counts.
+        correctAnswerCountView.setText(Integer.toString(stat.numberCorrect));
+        incorrectAnswerCountView.setText(Integer.toString(stat.numberIncorrect));
+
+        //Format the "date tested" line of the stats, and display that next.
+        DateFormat df = new SimpleDateFormat("MMM dd, yyyy", Locale.US);
+        dateView.setText(df.format(new Date(stat.date)));
+
+        //Format the "elapsed time" of the stats, and display that.
+        DateFormat tf = new SimpleDateFormat("mm:ss", Locale.US);
+        elapsedTimeView.setText(tf.format(new Date(stat.elapsedTime)));
+
+        //Calculate the % correct, and show that on the screen.  Note that this is integer division,
+        //so will not show decimals.  (A test can be empty - eg a list with no words - so avoid dividing by 0.)
+        long overallGrade = 100*(stat.numberCorrect) / Math.max(stat.numberCorrect + stat.numberIncorrect, 1);
+
+        //Near misses earn partial credit (see AnswerGrader), so show that score too when it's different.
+        //Tests taken before answers were graded don't have one.
+        String creditText = "";
+        if (!Double.isNaN(stat.credit)) {
+            long creditGrade = Math.round(100 * stat.credit / Math.max(stat.numberCorrect + stat.numberIncorrect, 1));
+            if (creditGrade != overallGrade) creditText = " (" + creditGrade + "% with partial credit)";
+        }
 
-                    //Kill this application, and return the user to the device home screen.
-                    finishAffinity();
-                }
-            });
+        //An adaptive test picks words near the user's level, so the % correct is always around 50%.  Show
+        //the estimated level as well for those.
+        if (Double.isNaN(stat.ability)) {
+            overallGradeView.setText(overallGrade + "%" + creditText);
+        } else {
+            overallGradeView.setText(String.format(Locale.US, "%d%%%s (level %+.1f \u00b1 %.1f)",
+                    overallGrade, creditText, stat.ability, stat.abilityStandardError));
         }
+
+        //Get a link to the "select new list" button.  It needs the user id, so it stays disabled until that
+        //has been looked up.
+        final Button selectNewListButton = findViewById(R.id.activity_test_stat_button_select_new_test);
+        selectNewListButton.setEnabled(false);
+
+        //Obtain a link to the list id (used to wire up buttons), and look up the associated user id.
+        final long listId = stat.listId;
+        mData.getSpellingList(listId, new DataCallback<Objects.SpellingList>() {
+            @Override
+            public void onResult(Objects.SpellingList list) {
+                if (isFinishing() || list == null) return;
+                mUserId = list.userId;
+                selectNewListButton.setEnabled(true);
+            }
+        });
+
+        //Wire up the "try again" button, by getting a link to it and attaching an onClickListener.
+        Button tryAgainButton = findViewById(R.id.activity_test_stat_button_try_again);
+        tryAgainButton.setOnClickListener(new View.OnClickListener(){
+
+            @Override
+            public void onClick(View view) {
+
+                //Create an intent for the test activity.
+                Intent intent = new Intent(TestStatsActivity.this, TesterActivity.class);
+
+                //Send the spelling list id as an Extra.
+                intent.putExtra(TesterActivity.EXTRA_LIST_ID, listId);
+
+                //Start the activity
+                startActivity(intent);
+
+                //Terminate this activity, so the user can't get here by hitting back button on device.
+                finish();
+            }
+        });
+
+        //Wire up the "select new list" button, by attaching an onClickListener.
+        selectNewListButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+
+                //Create an intent for the spelling list selection activity.
+                Intent intent = new Intent(TestStatsActivity.this, ListSelectionActivity.class);
+
+                //Send the current user's id as an Extra.
+                intent.putExtra(ListSelectionActivity.EXTRA_USER_ID, mUserId);
+
+                //Start the activity
+                startActivity(intent);
+
+                //Terminate this activity, so the user can't get here by hitting back button on device.
+                finish();
+            }
+        });
+
+        //Wire up the "quit" button, by getting a link to it and attaching an onClickListener.
+        Button quitButton = findViewById(R.id.activity_test_stat_button_quit);
+        quitButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+
+                //Kill this application, and return the user to the device home screen.
+                finishAffinity();
+            }
+        });
     }
 
     /**
@@ -152,13 +196,20 @@ public class TestStatsActivity extends AppCompatActivity {
     @Override
     public void onBackPressed() {
 
+        //If there's no stat to show, there's no user to go back to - just close the screen.  Otherwise,
+        //ignore the button until the user id has been looked up.
+        if (mStatId == DataStore.NULL_ROW_ID) {
+            super.onBackPressed();
+            return;
+        }
+        if (mUserId == DataStore.NULL_ROW_ID) return;
+
         //Create an intent for the spelling list selection activity.
         Intent intent = new Intent(TestStatsActivity.this, ListSelectionActivity.class);
 
-        //Get the current user id, and add it to the Intent as an Extra.  The ListSelectionActivity will
-        //need this to show the correct list of spelling lists.
-        final long userId = mData.getSpellingList(mData.getSpellingListStat(mStatId).listId).userId;
-        intent.putExtra(ListSelectionActivity.EXTRA_USER_ID, userId);
+        //Add the current user id to the Intent as an Extra.  The ListSelectionActivity will need this to
+        //show the correct list of spelling lists.  (The user id was looked up when the stat was loaded.)
+        intent.putExtra(ListSelectionActivity.EXTRA_USER_ID, mUserId);
 
         //Start the activity
         startActivity(intent);
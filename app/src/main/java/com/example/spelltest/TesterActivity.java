@@ -8,6 +8,10 @@
  * type in a spelling word.  The class will emit the audio representation of a word and will verify
  * that a user’s entered spelling matches the spelling of that word stored in the application’s
  * persistent storage.
+ *
+ * The words are said by the app-wide SpeechService, which plays them from its on-disk audio cache when
+ * it can (this starts almost straight away).  The words in the list are synthesized into the cache in
+ * the background as soon as the list is loaded.
  */
 
 
@@ -19,7 +23,6 @@ import android.content.DialogInterface;
 import android.content.Intent;
 import android.graphics.Color;
 import android.os.Handler;
-import android.speech.tts.TextToSpeech;
 import android.support.design.widget.FloatingActionButton;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
@@ -31,79 +34,126 @@ import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
 import com.example.myapplication.R;
+
 import java.util.ArrayList;
-import java.util.Locale;
-import java.util.Random;
+import java.util.List;
 
 public class TesterActivity extends AppCompatActivity implements View.OnKeyListener {
 
     //Class variables
     public static final String EXTRA_LIST_ID = "com.example.spelltest.list_id"; //Extra tag for the list ID to be tested.
     private static final String TAG = "TesterActivity";                         //Tag for debug logs on this class.
-    private static final int DURATION_SHOW_WORD_RESULTS = 3000;                 //Time (in ms) to display correct/incorrect info before moving to next word
-    private static final float SPEECH_RATE = 0.5f;                              //Rate at which word is spoken (1.0 = normal speed).
+    private static final int DURATION_SHOW_CORRECT_RESULT = 1500;               //Time (in ms) to display a correct answer before moving to next word
+    private static final int DURATION_SHOW_WRONG_RESULT = 3000;                 //Time (in ms) to display a wrong answer (and the correct spelling)
+    private static final int MAX_PROMPT_WAIT = 2000;                            //Extra time (in ms) to wait for the next word to be ready to say
+    private static final int MAX_PREFETCH_WORDS = 100;                          //Lists longer than this aren't synthesized ahead of time.
     private static final int DURATION_CLOSE_ACTIVITY = 1000;                    //Time delay(in ms) to close activity, to allow time for dialogs to close first.
 
     //Instance variables
     private long mListId = DataStore.NULL_ROW_ID;       //The id of the list we're testing on.
     private EditText mWordView;                         //The input field in which the user enters the spelling of the word.
     private TextView mCorrectWordSpellingView;          //Display field for correct spelling (normally hidden from user)
-    private ArrayList<Objects.Word> mWords;             //List of words remaining to be tested.
-    private int mNumberCorrect = 0;                     //Number of correct answers given in this test.
-    private int mNumberWrong = 0;                       //Number of incorrect answers given in this test.
-    private Objects.Word mCurrentWord = null;           //Word object for the word currently being tested.
-    private Random mRandom = new Random();              //Random number generator
-    private TextToSpeech mTextToSpeech = null;          //Reference to the Android Text-To-Sppech instance for the class
-    private boolean mIsTtsInitialized = false;          //Flag to determine if the TTS element has been initialized.
-    private long mStartTime = 0L;                       //Start time of the test
+    private TestSession mSession = null;                //The test itself (word order, scoring and stats).  Null until the words are loaded.
+    private ReviewQueue mReviewQueue = null;            //The word source, for review tests (null for other tests).
+    private AdaptiveTest mAdaptiveTest = null;          //The word source, for adaptive tests (null for other tests).
+    private SpeechService mSpeech;                      //Says the words (shared by the whole app).
+    private List<Objects.Word> mWords = null;           //The words in the list (null until they are loaded).
     private AlertDialog mDialog;                        //Dialog box for when the user attempts to abort a test.
+    private int mAnswerCount = 0;                       //Number of answers submitted (so late callbacks for old words can be ignored).
+    private boolean mResultShown = false;               //True once the last answer has been shown for long enough.
+    private boolean mNextWordReady = false;             //True once the next word is ready to be said straight away.
 
-    //Timer / handler, to allow screen to be reset after correct / incorrect results are shown.
+    //Timer / handler, to allow screen to be reset after correct / incorrect results are shown.  We move on
+    //once the result has been shown for long enough AND the next word is ready to be said, or (if the
+    //speech service is slow) after waiting a while longer, in which case the word is spoken live.
     private Handler handler = new Handler();
+    private Runnable timerResultShown = new Runnable() {
+        @Override
+        public void run() {
+            if (isFinishing()) return;
+            mResultShown = true;
+            if (mNextWordReady) {
+                timerHandleNextWord.run();
+            } else {
+                handler.postDelayed(timerHandleNextWord, MAX_PROMPT_WAIT);
+            }
+        }
+    };
     private Runnable timerHandleNextWord = new Runnable(){
         @Override
         public void run() {
+            handler.removeCallbacks(timerHandleNextWord);
+            if (isFinishing()) return;
+            mResultShown = false;
+            mNextWordReady = false;
+
             //Reset input field color
             mWordView.setTextColor(Color.BLACK);
 
             //Hide the "correct spelling" view element (if showing - normally hidden unless user puts a wrong answer in)
             mCorrectWordSpellingView.setVisibility(View.GONE);
 
-            //If more words are lift, pick another one and show it.
-            if (mWords.size() > 0) {             //more words left
-                selectNextWord();
+            //If more words are left, move on to the next one and show it.  Otherwise the session is
+            //finished, and the result sink below saves the stat and shows it.
+            if (mSession.next() != null) {
+                showNextWord();
                 sayCurrentWord();
+            }
+        }
+    };
 
-                //Otherwise, terminate this activity and show stats.
-            } else {
+    //Receives the results from the test session.  Every attempt goes to the attempt log, and the stat is
+    //saved once the test is over.
+    private TestSession.ResultSink mResultSink = new TestSession.ResultSink() {
+        @Override
+        public void onAttempt(long sessionId, Objects.Word word, String typedText, boolean correct,
+                              int editDistance, int errorType, long responseTime, long timestamp) {
+            AsyncDataStore data = AsyncDataStore.newInstance(TesterActivity.this);
+            data.recordAttempt(sessionId, word.id, typedText, correct, editDistance, errorType, responseTime, timestamp);
+
+            //In a review test, work out when the word is next due, and save that.
+            if (mReviewQueue != null) {
+                data.putReviewSchedule(mReviewQueue.reschedule(correct, responseTime, timestamp), null);
+            }
+        }
+
+        @Override
+        public void onFinished(Objects.SpellingListStat stat) {
 
-                //Stop the test timer.
-                long endTime = System.currentTimeMillis();
+            //For an adaptive test, save the user's estimated level with the stat.
+            if (mAdaptiveTest != null) {
+                stat.ability = mAdaptiveTest.getAbility();
+                stat.abilityStandardError = mAdaptiveTest.getStandardError();
+            }
 
-                //Create a new spelling list stat object, with the stats from this list.
-                Objects.SpellingListStat stat = new Objects.SpellingListStat(
-                        DataStore.NULL_ROW_ID,
-                        mListId,
-                        System.currentTimeMillis(),
-                        endTime - mStartTime,
-                        mNumberCorrect,
-                        mNumberWrong
-                );
+            //Get a link to the app datastore, write out the attempts from this test (and then add their
+            //mistakes to the letter confusion counts), and add this stat to the list.  The stat activity is
+            //started once the stat has been saved (and we know its id).
+            final AsyncDataStore data = AsyncDataStore.newInstance(TesterActivity.this);
+            data.flushAttempts(new DataCallback<Integer>() {
+                @Override
+                public void onResult(Integer count) {
+                    data.refreshLetterConfusions(null);
+                }
+            });
+            data.putSpellingListStat(stat, new DataCallback<Long>() {
+                @Override
+                public void onResult(Long statId) {
 
-                //Get a link to the app datastore, and add this stat to the list.
-                DataStore data = DataStore.newInstance(TesterActivity.this);
-                long statId = data.putSpellingListStat(stat);
+                    //The stat is saved either way, but if the user has already left the test, stay where they went.
+                    if (isFinishing()) return;
 
-                //Create a new intent for the stat activity, and load the current stat id into it as an Extra.
-                Intent i = new Intent(TesterActivity.this, TestStatsActivity.class);
-                i.putExtra(TestStatsActivity.EXTRA_TEST_STAT_ID, statId);
+                    //Create a new intent for the stat activity, and load the current stat id into it as an Extra.
+                    Intent i = new Intent(TesterActivity.this, TestStatsActivity.class);
+                    i.putExtra(TestStatsActivity.EXTRA_TEST_STAT_ID, statId.longValue());
 
-                //Start the stat activity
-                startActivity(i);
+                    //Start the stat activity
+                    startActivity(i);
 
-                //Prevents user from coming back to this screen via back button
-                finish();
-            }
+                    //Prevents user from coming back to this screen via back button
+                    finish();
+                }
+            });
         }
     };
 
@@ -128,13 +178,12 @@ public class TesterActivity extends AppCompatActivity implements View.OnKeyListe
         //Inflate the view with this activity's layout, and attach the view to this activity.
         setContentView(R.layout.activity_tester);
 
+        //Get the speech service (this starts the text-to-speech engine, if nothing has started it yet).
+        mSpeech = SpeechService.newInstance(this);
+
         //Get the list ID from the extra that came with the intent
         mListId = getIntent().getLongExtra(this.EXTRA_LIST_ID, DataStore.NULL_ROW_ID);
 
-        //Obtain a link to the app datastore, and use it to get an ArrayList of words that make up the spelling list.
-        DataStore data = DataStore.newInstance(this);
-        mWords = data.getWords(mListId);
-
         //Obtain a link to the EditText, and set this activity as a listener to respond to clicks.
         mWordView = (EditText) findViewById(R.id.test_activity_input);
         mWordView.setOnKeyListener(this);
@@ -156,17 +205,81 @@ public class TesterActivity extends AppCompatActivity implements View.OnKeyListe
         });
 
 
-        //Pick the next available word and save it.
-        selectNextWord();
+        //Obtain a link to the app datastore, and use it to get the spelling list (for its word order) and then
+        //an ArrayList of the words that make up the list.  The test starts once the words have been loaded.
+        final AsyncDataStore data = AsyncDataStore.newInstance(this);
+        data.getSpellingList(mListId, new DataCallback<Objects.SpellingList>() {
+            @Override
+            public void onResult(final Objects.SpellingList list) {
+
+                //Don't start a test if the user has already left the screen.
+                if (isFinishing()) return;
+                final int wordOrder = (list != null) ? list.wordOrder : WordOrder.SHUFFLED;
+
+                //For a review, we also need the saved review schedules before we know which words are due.
+                if (wordOrder == WordOrder.REVIEW) {
+                    data.getWords(mListId, new DataCallback<ArrayList<Objects.Word>>() {
+                        @Override
+                        public void onResult(final ArrayList<Objects.Word> words) {
+                            data.getReviewSchedules(mListId, list.userId, new DataCallback<ArrayList<Objects.ReviewSchedule>>() {
+                                @Override
+                                public void onResult(ArrayList<Objects.ReviewSchedule> schedules) {
+                                    if (isFinishing()) return;
+                                    mReviewQueue = new ReviewQueue(words, schedules, list.userId, TestSession.SYSTEM_CLOCK);
+                                    if (mReviewQueue.dueCount() == 0) {
+                                        Toast.makeText(getApplicationContext(), "No words are due for review yet.", Toast.LENGTH_SHORT).show();
+                                        finish();
+                                    } else {
+                                        startTest(mReviewQueue, words);
+                                    }
+                                }
+                            });
+                        }
+                    });
+                    return;
+                }
 
-        //Start the test timer.
-        mStartTime = System.currentTimeMillis();
+                //For an adaptive test, we also need the word stats (to work out how hard each word is).
+                if (wordOrder == WordOrder.ADAPTIVE) {
+                    data.getWords(mListId, new DataCallback<ArrayList<Objects.Word>>() {
+                        @Override
+                        public void onResult(final ArrayList<Objects.Word> words) {
+                            data.getWordStats(mListId, new DataCallback<ArrayList<Objects.WordStat>>() {
+                                @Override
+                                public void onResult(ArrayList<Objects.WordStat> wordStats) {
+                                    if (isFinishing()) return;
+                                    mAdaptiveTest = new AdaptiveTest(words, wordStats,
+                                            AdaptiveTest.DEFAULT_TARGET_STANDARD_ERROR, AdaptiveTest.DEFAULT_MINIMUM_WORDS);
+                                    startTest(mAdaptiveTest, words);
+                                }
+                            });
+                        }
+                    });
+                    return;
+                }
+
+                DataCallback<ArrayList<Objects.Word>> startTest = new DataCallback<ArrayList<Objects.Word>>() {
+                    @Override
+                    public void onResult(ArrayList<Objects.Word> words) {
+                        if (isFinishing()) return;
+                        startTest(WordOrder.newWordSource(wordOrder, words, mListId), words);
+                    }
+                };
+
+                //For weakest-first, the database sorts the words by the user's accuracy on each one.
+                if (wordOrder == WordOrder.WEAKEST_FIRST) {
+                    data.getWordsWeakestFirst(mListId, list.userId, startTest);
+                } else {
+                    data.getWords(mListId, startTest);
+                }
+            }
+        });
 
     }
 
     /**
      * Method called by Android when the activity is being hidden (ie if another activity starts after this one.)
-     * In that case, we'd like to shut off the keyboard and stop the TTS object.
+     * In that case, we'd like to shut off the keyboard and stop talking.
      */
     @Override
     protected void onPause() {
@@ -176,12 +289,13 @@ public class TesterActivity extends AppCompatActivity implements View.OnKeyListe
         View view = this.getCurrentFocus();
         inputManager.hideSoftInputFromWindow(view.getWindowToken(),0);
 
-        //If the TTS object was instantiated, close it out.
-        if (mTextToSpeech != null) {
-            mTextToSpeech.stop();
-            mTextToSpeech.shutdown();
-            mIsTtsInitialized = false;
-        }
+        //Write out any attempts that are still waiting, in case the test is being abandoned.
+        AsyncDataStore.newInstance(this).flushAttempts(null);
+
+        //Stop talking (the speech service itself keeps running, ready for next time), and log how
+        //well the audio cache did.
+        mSpeech.stop();
+        mSpeech.logMetrics();
 
 
         //Call the super constructor.
@@ -191,7 +305,7 @@ public class TesterActivity extends AppCompatActivity implements View.OnKeyListe
     /**
      * Method called by Android right before the activity is displayed.  In that case, we'd like to
      * force the keyboard to be shown without waiting for the user to tough the edit box on the screen first.
-     * We will also use this to instantiate the TTS object.
+     * We will also use this to say the current word again.
      */
     @Override
     protected void onResume() {
@@ -199,43 +313,10 @@ public class TesterActivity extends AppCompatActivity implements View.OnKeyListe
         //Call the super constructor
         super.onResume();
 
-        //Instantiate the "text to speech" object for Android.  This is started in the (anonymous) OnInitListener object
-        mTextToSpeech = new TextToSpeech(getApplicationContext(), new TextToSpeech.OnInitListener() {
-            @Override
-            public void onInit(int status) {
-                if (status == TextToSpeech.SUCCESS) {
-
-                    //Set the locale to be US
-                    int ttsLang = mTextToSpeech.setLanguage(Locale.US);
-
-                    //Provide log errors in case the TTS cannot be started for some reason.
-                    if (ttsLang == TextToSpeech.LANG_MISSING_DATA
-                            || ttsLang == TextToSpeech.LANG_NOT_SUPPORTED) {
-                        Log.e("TTS", "The Language is not supported!");
-                    } else {
-                        Log.i("TTS", "Language Supported.");
-                    }
-                    Log.i("TTS", "Initialization success.");
-
-                    //Set speech speed
-                    mTextToSpeech.setSpeechRate(SPEECH_RATE);
-
-                    //Set flag that TTS has been initialized.  We use this in onPause to destroy the instance if we bail out of the app.
-                    mIsTtsInitialized = true;
-
-                    //Say the current word.
-                    sayCurrentWord();
-
-                } else {
-
-                    //If we get here, it means that TTS was not initialized properly.  Show a Toast in that case.
-                    Toast.makeText(getApplicationContext(), "TTS Initialization failed!", Toast.LENGTH_SHORT).show();
-                }
-
-
-            }
-        });
-
+        //Say the current word again (eg if we're coming back to the test), and carry on filling the audio
+        //cache.  If the speech service is still starting up, it does these once it's ready.
+        sayCurrentWord();
+        prefetchWords();
 
         //Obtain a link to the input method manager, and force the keyboard to display.
         InputMethodManager inputManager = (InputMethodManager) getSystemService(Context.INPUT_METHOD_SERVICE);
@@ -243,9 +324,25 @@ public class TesterActivity extends AppCompatActivity implements View.OnKeyListe
     }
 
     /**
-     * Private method to select and say the next word and set up input to receive word.
+     * Private method to start the test, which picks the first word, then show it and say it (if the speech
+     * service is still starting up, it says the word once it's ready).
+     * @param wordSource decides the order the words are tested in.
+     * @param words the words in the list (these are synthesized into the audio cache ahead of time).
      */
-    private void selectNextWord() {
+    private void startTest(TestSession.WordSource wordSource, List<Objects.Word> words) {
+        mWords = words;
+        prefetchWords();
+        mSession = new TestSession(mListId, wordSource, TestSession.SYSTEM_CLOCK, mResultSink);
+        if (mSession.start() != null) {
+            showNextWord();
+            sayCurrentWord();
+        }
+    }
+
+    /**
+     * Private method to set up input to receive the next word (the session has already picked it).
+     */
+    private void showNextWord() {
         Log.i(TAG, "In showNextWord, requesting focus for wordView");
 
         //Clear out the current word text.
@@ -253,15 +350,6 @@ public class TesterActivity extends AppCompatActivity implements View.OnKeyListe
 
         //Set the window focus to be the edit text at the top of the screen (ie user input field).
         mWordView.requestFocus();
-
-        //Get the size of the remaining word list
-        int size = mWords.size();
-
-        //If there are words left, grab the next random one, remove it from the word list, and save it as the current word.
-        if (size > 0) {
-            int currentWordIndex = mRandom.nextInt(size);
-            mCurrentWord = mWords.remove(currentWordIndex);
-        }
     }
 
     /**
@@ -269,12 +357,24 @@ public class TesterActivity extends AppCompatActivity implements View.OnKeyListe
      */
     private void sayCurrentWord() {
 
-        //Make sure the TTS object was initialized, and (if so) use the speak() method to say the word.
-        if (mIsTtsInitialized) {
-            mTextToSpeech.speak(mCurrentWord.spelling, TextToSpeech.QUEUE_FLUSH, null, null);
+        //Make sure the words have been loaded, and (if so) hand the word to the speech service.
+        if (mSession != null && mSession.getCurrentWord() != null) {
+            mSpeech.say(mSession.getCurrentWord().spelling);
         }
+    }
 
+    /**
+     * Private method to have the words in the list synthesized into the audio cache, in the background,
+     * so they can be played straight away.  Words already in the cache are skipped.
+     */
+    private void prefetchWords() {
+        if (mWords == null || mWords.size() > MAX_PREFETCH_WORDS) return;
 
+        ArrayList<String> texts = new ArrayList<>(mWords.size());
+        for (Objects.Word word : mWords) {
+            texts.add(word.spelling);
+        }
+        mSpeech.prefetch(texts);
     }
 
     /**
@@ -282,30 +382,74 @@ public class TesterActivity extends AppCompatActivity implements View.OnKeyListe
      */
     private void handleWordSubmitted() {
 
-        //Get the user input, and trim off the white space.
-        String userSpelling = mWordView.getText().toString().trim();
+        //Ignore submissions until the words have been loaded, and while the last answer is still being shown.
+        if (mSession == null || !mSession.isAwaitingAnswer()) return;
+
+        //Pass the user input to the session, which checks it, keeps score and logs the attempt.
+        boolean correct = mSession.submit(mWordView.getText().toString());
 
         //If the user got the correct answer...
-        if (userSpelling.equalsIgnoreCase(mCurrentWord.spelling)) {   //correct answer
-            mNumberCorrect++;                       //Increase the correct word count.
+        if (correct) {   //correct answer
             mWordView.setTextColor(Color.GREEN);    //Show the word colored as green.
 
         //If the user gets the wrong answer.....
         } else {
-            mNumberWrong++;                                                     //Increase the wrong answer county.
            mWordView.setTextColor(Color.RED);                                   //Show the user input as red (wrong)
-           mCorrectWordSpellingView.setText("(" + mCurrentWord.spelling+")");   //Show the correct word spelling) and unhide the correctly spelled word.
+           mCorrectWordSpellingView.setText("(" + mSession.getCurrentWord().spelling +       //Show the correct word spelling) and unhide the correctly spelled word.
+                   describeError(mSession.getLastGrade().getErrorType()) + ")");
            mCorrectWordSpellingView.setVisibility(View.VISIBLE);
 
 
         }
 
-        //Wait for a short period, and then initiate the timer code to decide what happens after the delay.
-        handler.postDelayed(timerHandleNextWord, DURATION_SHOW_WORD_RESULTS);
+        //While the result is shown, pick the next word and get it ready to say (so it can be said with no
+        //delay once we move on).
+        mResultShown = false;
+        mNextWordReady = false;
+        final int answerNumber = ++mAnswerCount;
+        Objects.Word upcoming = mSession.peekNextWord();
+        if (upcoming != null) {
+            mSpeech.prepare(upcoming.spelling, new Runnable() {
+                @Override
+                public void run() {
+                    if (answerNumber != mAnswerCount || isFinishing()) return;
+                    mNextWordReady = true;
+                    if (mResultShown) timerHandleNextWord.run();
+                }
+            });
+        } else {
+            mNextWordReady = true;
+        }
+
+        //Wait for a short period (longer for a wrong answer, so the correct spelling can be read), and then
+        //initiate the timer code to decide what happens after the delay.
+        handler.postDelayed(timerResultShown, correct ? DURATION_SHOW_CORRECT_RESULT : DURATION_SHOW_WRONG_RESULT);
 
 
     }
 
+    /**
+     * Private method to describe a near miss, to show after the correct spelling.
+     * @param errorType the kind of mistake (one of the AnswerGrader.ERROR_ values).
+     * @return the description (empty if the answer wasn't a near miss).
+     */
+    private static String describeError(int errorType) {
+        switch (errorType) {
+            case AnswerGrader.ERROR_INSERTION:
+                return " - close, but with an extra letter";
+            case AnswerGrader.ERROR_DELETION:
+                return " - close, but with a letter missing";
+            case AnswerGrader.ERROR_SUBSTITUTION:
+                return " - close, but with a wrong letter";
+            case AnswerGrader.ERROR_TRANSPOSITION:
+                return " - close, but with letters swapped";
+            case AnswerGrader.ERROR_MIXED:
+                return " - close";
+            default:
+                return "";
+        }
+    }
+
     /**
      * Method called by Android if the back button is pressed on the device.  We will use this to show a dialog if
      * the user tries to use the back button to bail out of the app.
@@ -324,19 +468,24 @@ public class TesterActivity extends AppCompatActivity implements View.OnKeyListe
 
                         //If the user his OK to stop test, get a link to teh DataStore and get the id
                         //of the current user.
-                        DataStore data = DataStore.newInstance(TesterActivity.this);
-                        Objects.SpellingList list = data.getSpellingList(mListId);
-                        long userId = list.userId;
-
-                        //Create an intent to show the ListSelectionActivity, and load it with the user ID as an extra
-                        Intent intent = new Intent(TesterActivity.this, ListSelectionActivity.class);
-                        intent.putExtra(ListSelectionActivity.EXTRA_USER_ID, userId);
-
-                        //Start the ListSelectionActivity
-                        startActivity(intent);
-
-                        //Wait for a short period to allow the dialog to close, then close this activity.
-                        handler.postDelayed(timerCloseTest, DURATION_CLOSE_ACTIVITY);
+                        AsyncDataStore data = AsyncDataStore.newInstance(TesterActivity.this);
+                        data.getSpellingList(mListId, new DataCallback<Objects.SpellingList>() {
+                            @Override
+                            public void onResult(Objects.SpellingList list) {
+                                if (isFinishing()) return;
+                                long userId = list.userId;
+
+                                //Create an intent to show the ListSelectionActivity, and load it with the user ID as an extra
+                                Intent intent = new Intent(TesterActivity.this, ListSelectionActivity.class);
+                                intent.putExtra(ListSelectionActivity.EXTRA_USER_ID, userId);
+
+                                //Start the ListSelectionActivity
+                                startActivity(intent);
+
+                                //Wait for a short period to allow the dialog to close, then close this activity.
+                                handler.postDelayed(timerCloseTest, DURATION_CLOSE_ACTIVITY);
+                            }
+                        });
 
                     }
                 })
@@ -109,11 +109,17 @@ public class UserNameFragment extends AppCompatDialogFragment
                 Objects.User user = new Objects.User(DataStore.NULL_ROW_ID, firstName, lastName);
 
                 //Get access to the application datastore, and save the new user information in the app datastore
-                DataStore data = DataStore.newInstance(getActivity().getApplicationContext());
-                long userId = data.putUser(user);
-
-                //If we have a listener, call the listener for this button to figure out what to do with the new user.
-                if (mListener != null) mListener.onDialogPositiveClick(userId);
+                AsyncDataStore data = AsyncDataStore.newInstance(getActivity().getApplicationContext());
+
+                //Once the user has been saved, call the listener for this button (if we have one) to figure out
+                //what to do with the new user.
+                final DialogListener listener = mListener;
+                data.putUser(user, new DataCallback<Long>() {
+                    @Override
+                    public void onResult(Long userId) {
+                        if (listener != null) listener.onDialogPositiveClick(userId);
+                    }
+                });
             }
 
         }
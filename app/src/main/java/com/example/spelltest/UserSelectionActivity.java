@@ -80,12 +80,15 @@ public class UserSelectionActivity extends AppCompatActivity  {
                 public void onClick(View v) {
 
                     //Get a link to the app datastore, and delete this list item's user
-                    DataStore data = DataStore.newInstance(UserSelectionActivity.this);
-                    data.deleteUser(mUser.id);
-
-                    //Notify the adapter that its data set has changed - time to refresh.
-                    mAdapter.refreshData();
-                    mAdapter.notifyDataSetChanged();
+                    AsyncDataStore data = AsyncDataStore.newInstance(UserSelectionActivity.this);
+                    data.deleteUser(mUser.id, new DataCallback<Void>() {
+                        @Override
+                        public void onResult(Void result) {
+
+                            //The adapter's data set has changed - time to refresh.
+                            mAdapter.refreshData();
+                        }
+                    });
                 }
             });
 
@@ -117,8 +120,8 @@ public class UserSelectionActivity extends AppCompatActivity  {
     private class UserDataAdapter extends RecyclerView.Adapter {
 
         //Instance variables.
-        private ArrayList<Objects.User> users;  //The list of all users to be displayed.
-        private DataStore mData;                //A reference to the main application datastore.
+        private ArrayList<Objects.User> users = new ArrayList<>();  //The list of all users to be displayed.
+        private AsyncDataStore mData;                               //A reference to the main application datastore.
 
 
         /**
@@ -128,7 +131,7 @@ public class UserSelectionActivity extends AppCompatActivity  {
         public UserDataAdapter(Context context) {
 
             //Save the DataStore object reference for later use.
-            mData = DataStore.newInstance(context);
+            mData = AsyncDataStore.newInstance(context);
 
             //Populate the ArrayLIst object for this class (ie update the list of all possible users in the application.)
             refreshData();
@@ -142,7 +145,14 @@ public class UserSelectionActivity extends AppCompatActivity  {
         public void refreshData(){
 
             //Update the list of users for the activity, by querying the list from the DataStore object.
-            users = mData.getAllUsers();
+            //Once the users arrive, notify the adapter so it can show them.
+            mData.getAllUsers(new DataCallback<ArrayList<Objects.User>>() {
+                @Override
+                public void onResult(ArrayList<Objects.User> result) {
+                    users = result;
+                    notifyDataSetChanged();
+                }
+            });
         }
 
         /**
@@ -232,11 +242,9 @@ public class UserSelectionActivity extends AppCompatActivity  {
                     @Override
                     public void onDialogPositiveClick(long id) {
 
-                        //Update list in adapter.  Note that the dialog box will add the new user to the app database before this call occurs.
+                        //Update list in adapter.  Note that the dialog box will add the new user to the app database
+                        //before this call occurs.  The adapter will be notified once the new users have been loaded.
                         mAdapter.refreshData();
-
-                        //Update the adapter that we have a new spelling list to include in the main list.
-                        mAdapter.notifyDataSetChanged();
                     }
 
                     @Override
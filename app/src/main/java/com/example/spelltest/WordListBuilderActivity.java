@@ -40,7 +40,7 @@ public class WordListBuilderActivity extends AppCompatActivity {
     private static final String TAG = "WordListBuilderActivity";                //Tag to identify class during debugging
     private RecyclerView mRecyclerView;                                         //Reference to the RecyclerView for this activity
     private EditAdapter mAdapter;                                               //Data adapter for the RecyclerView
-    private DataStore mData;                                                    //Reference to application datastore
+    private AsyncDataStore mData;                                               //Reference to application datastore
 
     /**
      * Method called by Android when the activity is first created.  We use this to inflate the layout
@@ -60,13 +60,13 @@ public class WordListBuilderActivity extends AppCompatActivity {
         mRecyclerView = (RecyclerView) findViewById(R.id.word_list_builder_recycler_view);
         mRecyclerView.setLayoutManager(new LinearLayoutManager(this));
 
-        //Get the list id (send from the ListSelectionActivity class), then get the list of spelling words from the DataStore
+        //Get the list id (send from the ListSelectionActivity class).
         mListId = getIntent().getLongExtra(EXTRA_LIST_ID, DataStore.NULL_ROW_ID);
-        mData = DataStore.newInstance(this);
-        ArrayList<Objects.Word> wordList = mData.getWords(mListId);
+        mData = AsyncDataStore.newInstance(this);
 
-        //Instantiate the adapter for the RecyclerView, and link it to the REcyclerView
-        mAdapter = new EditAdapter(this, wordList);
+        //Instantiate the adapter for the RecyclerView, and link it to the REcyclerView.  The adapter loads
+        //the spelling words from the DataStore a page at a time, as they are needed.
+        mAdapter = new EditAdapter(this, mListId);
         mRecyclerView.setAdapter(mAdapter);
 
         //Wire up the "add word" button
@@ -88,4 +88,22 @@ public class WordListBuilderActivity extends AppCompatActivity {
         });
 
     }
+
+    /**
+     * Method called by Android when the activity is being hidden.  Word edits are written to the
+     * datastore in batches, so we use this to make sure that none are left waiting.
+     */
+    @Override
+    protected void onPause() {
+
+        //Clear the focus from the word being edited (if any), so its edit gets queued...
+        View view = getCurrentFocus();
+        if (view != null) view.clearFocus();
+
+        //...then write out all of the queued edits.
+        mData.flushWords(null);
+
+        //Call the super constructor.
+        super.onPause();
+    }
 }
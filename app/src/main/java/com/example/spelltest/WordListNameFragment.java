@@ -132,13 +132,17 @@ public class WordListNameFragment extends AppCompatDialogFragment
                         mUserId);
 
                 //Get a reference to the application datastore
-                DataStore data = DataStore.newInstance(getActivity().getApplicationContext());
-
-                //Add the spelling list to the database.
-                long listId = data.putSpellingList(spellingList);
-
-                //Call the listener for the button, to figure out what to do with the new list.
-                if (mListener != null) mListener.onDialogPositiveClick(listId);
+                AsyncDataStore data = AsyncDataStore.newInstance(getActivity().getApplicationContext());
+
+                //Add the spelling list to the database.  Once it has been added, call the listener for the
+                //button, to figure out what to do with the new list.
+                final DialogListener listener = mListener;
+                data.putSpellingList(spellingList, new DataCallback<Long>() {
+                    @Override
+                    public void onResult(Long listId) {
+                        if (listener != null) listener.onDialogPositiveClick(listId);
+                    }
+                });
             }
 
         }
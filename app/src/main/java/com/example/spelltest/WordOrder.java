@@ -0,0 +1,146 @@
+/**
+ * Filename:  WordOrder.java
+ * Author:  Team SpellTest
+ * Date:  11 May 2019
+ *
+ * Purpose:  This class holds the different orders that the words in a spelling list can be tested in,
+ * and builds the word source (see TestSession.WordSource) for each of them.  The order is chosen per
+ * spelling list, and saved with the list.
+ *
+ *   SHUFFLED       - a new random order every test (the original behaviour).
+ *   SEQUENTIAL     - the order the words were added to the list.
+ *   WEAKEST_FIRST  - the words the user has got wrong most often come first.  Words the user hasn't
+ *                    been tested on yet count as weakest.  The words are sorted by the database when
+ *                    they are loaded (see DataStore.getWordsWeakestFirst()).
+ *   SEEDED         - a random order, but the same one every time the list is tested.
+ *   REVIEW         - only the words that are due for review, earliest first (spaced repetition).  The
+ *                    word source for this is a ReviewQueue, which needs the saved review schedules, so
+ *                    it isn't built by newWordSource().
+ *   ADAPTIVE       - the words that tell us most about the user's level, stopping as soon as we know it
+ *                    well enough (see the AdaptiveTest class).  This also needs the word stats, so it
+ *                    isn't built by newWordSource() either.
+ *
+ * Apart from the review queue and the adaptive test (both O(log n) per word), every word source hands
+ * out each word in constant time, however long the list is, and none of them create any objects after
+ * they have been built.
+ */
+
+package com.example.spelltest;
+
+import java.util.List;
+import java.util.Random;
+
+public class WordOrder {
+
+    //Word orders.  These values are stored in the database, so they must never change.
+    public static final int SHUFFLED = 0;
+    public static final int SEQUENTIAL = 1;
+    public static final int WEAKEST_FIRST = 2;
+    public static final int SEEDED = 3;
+    public static final int REVIEW = 4;
+    public static final int ADAPTIVE = 5;
+
+    //Names of the orders, for showing to the user.  Indexed by the values above.
+    public static final String[] NAMES = {
+            "Shuffled",
+            "In order",
+            "Weakest words first",
+            "Same shuffle every time",
+            "Words due for review",
+            "Adaptive (finds your level quickly)"
+    };
+
+    /**
+     * Public static method to create the word source for a test.
+     * @param order the word order (one of the values above, apart from REVIEW and ADAPTIVE).  Unknown values
+     *              (and REVIEW and ADAPTIVE) are treated as SHUFFLED.
+     * @param words the words to be tested.  For WEAKEST_FIRST, these must already be sorted weakest
+     *              first.  The list itself isn't changed.
+     * @param listId the id of the spelling list (used as the seed for SEEDED).
+     * @return the word source.
+     */
+    public static TestSession.WordSource newWordSource(int order, List<Objects.Word> words, long listId) {
+        switch (order) {
+            case SEQUENTIAL:
+            case WEAKEST_FIRST:
+                return new SequentialWordSource(words);
+            case SEEDED:
+                return new ShuffledWordSource(words, new Random(listId));
+            default:
+                return new ShuffledWordSource(words, new Random());
+        }
+    }
+
+    /**
+     * Word source that hands out the words in a random order.  Each call swaps a randomly chosen word
+     * to the end of the part of the array that hasn't been handed out yet (one step of a Fisher-Yates
+     * shuffle), so picking a word takes the same time however long the list is.
+     */
+    public static class ShuffledWordSource implements TestSession.WordSource {
+
+        //Instance variables
+        private final Objects.Word[] mWords;            //The words.  Those not handed out yet are at the front.
+        private final Random mRandom;                   //Random number generator.
+        private int mRemaining;                         //Number of words not handed out yet.
+
+        /**
+         * Class constructor.
+         * @param words the words to be tested.  The list itself isn't changed.
+         * @param random the random number generator to use.
+         */
+        public ShuffledWordSource(List<Objects.Word> words, Random random) {
+            mWords = words.toArray(new Objects.Word[words.size()]);
+            mRandom = random;
+            mRemaining = mWords.length;
+        }
+
+        @Override
+        public Objects.Word nextWord() {
+            if (mRemaining == 0) return null;
+
+            int index = mRandom.nextInt(mRemaining);
+            Objects.Word word = mWords[index];
+            mRemaining--;
+            mWords[index] = mWords[mRemaining];
+            mWords[mRemaining] = word;
+            return word;
+        }
+
+        /**
+         * Public method to make all of the words available again (eg to run another test).
+         */
+        public void reset() {
+            mRemaining = mWords.length;
+        }
+    }
+
+    /**
+     * Word source that hands out the words in the order they were given.
+     */
+    public static class SequentialWordSource implements TestSession.WordSource {
+
+        //Instance variables
+        private final Objects.Word[] mWords;            //The words, in the order they are handed out.
+        private int mNext = 0;                          //Index of the next word to hand out.
+
+        /**
+         * Class constructor.
+         * @param words the words to be tested, in order.  The list itself isn't changed.
+         */
+        public SequentialWordSource(List<Objects.Word> words) {
+            mWords = words.toArray(new Objects.Word[words.size()]);
+        }
+
+        @Override
+        public Objects.Word nextWord() {
+            return (mNext < mWords.length) ? mWords[mNext++] : null;
+        }
+
+        /**
+         * Public method to start handing out the words from the beginning again.
+         */
+        public void reset() {
+            mNext = 0;
+        }
+    }
+}
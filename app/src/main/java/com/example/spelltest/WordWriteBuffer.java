@@ -0,0 +1,166 @@
+/**
+ * Filename:  WordWriteBuffer.java
+ * Author:  Team SpellTest
+ * Date:  29 April 2019
+ *
+ * Purpose:  This class holds edits to existing words that have not been written to the database
+ * yet.  Rather than writing every edit as soon as it is made, the word list editor drops its edits
+ * in here, and the AsyncDataStore class writes them out in batches (a single transaction per
+ * batch).  Repeated edits to the same word are merged, so only the latest spelling is written.
+ *
+ * Edits stay visible until they have actually been written.  The DataStore class takes a snapshot()
+ * of the edits before it reads any words, and passes every word it reads through overlay() with that
+ * snapshot.  Taking the snapshot first matters:  an edit that is still held when the snapshot is taken
+ * is in the snapshot, and an edit that was written before then is already in the database when the
+ * read starts.  (Looking the edit up after the read instead could miss one that was written, and
+ * removed from here, in between.)
+ *
+ * All methods in this class are thread-safe - edits are added on the main thread, while batches
+ * are written (and reads are made) on the database threads.
+ */
+
+package com.example.spelltest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class WordWriteBuffer {
+
+    //Instance variables
+    private final LinkedHashMap<Long, Objects.Word> mPending = new LinkedHashMap<>();  //Edits waiting to be written, by word id.
+    private final HashMap<Long, Objects.Word> mInFlight = new HashMap<>();             //Edits in the batch currently being written.
+    private volatile int mCount = 0;                    //Total number of edits held (pending + in flight).
+
+    /**
+     * Public method to add an edit to the buffer.  A copy of the word is taken, so later changes to
+     * the Word object don't affect what is written.  Any earlier edit to the same word is replaced.
+     *
+     * @param word the edited word.  This must be an existing word (ie its id can't be NULL_ROW_ID).
+     * @return the number of edits now waiting to be written.
+     */
+    public synchronized int put(Objects.Word word) {
+        mPending.put(word.id, new Objects.Word(word.id, word.list_id, word.spelling));
+        updateCount();
+        return mPending.size();
+    }
+
+    /**
+     * Public method to start writing a batch.  All of the pending edits are moved into the batch,
+     * where they stay visible to overlay() until endFlush() is called.
+     *
+     * @return the batch of edits to write.  This could be empty.
+     */
+    public synchronized ArrayList<Objects.Word> beginFlush() {
+        ArrayList<Objects.Word> batch = new ArrayList<>(mPending.values());
+        for (Objects.Word word : batch) {
+            mInFlight.put(word.id, word);
+        }
+        mPending.clear();
+        updateCount();
+        return batch;
+    }
+
+    /**
+     * Public method to finish writing a batch.  If the write failed, the edits in the batch go back
+     * into the buffer (unless the word has been edited again, or discarded, since), so they aren't lost.
+     *
+     * @param batch the batch returned by beginFlush().
+     * @param success true if the batch was written to the database.
+     */
+    public synchronized void endFlush(List<Objects.Word> batch, boolean success) {
+        for (Objects.Word word : batch) {
+            if (mInFlight.get(word.id) != word) continue;   //Discarded while it was being written.
+            mInFlight.remove(word.id);
+            if (!success && !mPending.containsKey(word.id)) {
+                mPending.put(word.id, word);
+            }
+        }
+        updateCount();
+    }
+
+    /**
+     * Public method to throw away any edits to a word.  This must be called before a word is deleted,
+     * otherwise writing the edit later would bring the word back.
+     * @param wordId the id of the word.
+     */
+    public synchronized void discard(long wordId) {
+        mPending.remove(wordId);
+        mInFlight.remove(wordId);
+        updateCount();
+    }
+
+    /**
+     * Public method to throw away any edits to the words in a spelling list.
+     * @param listId the id of the spelling list.
+     */
+    public synchronized void discardList(long listId) {
+        discardList(mPending, listId);
+        discardList(mInFlight, listId);
+        updateCount();
+    }
+
+    /**
+     * Public method to take a copy of every edit held in the buffer (pending or in flight), to be
+     * applied with overlay() to words read from the database after this call.
+     * @return the edits, by word id, or null if the buffer is empty.
+     */
+    public Map<Long, Objects.Word> snapshot() {
+
+        //Skip the lock entirely in the (usual) case where there's nothing in the buffer.
+        if (mCount == 0) return null;
+
+        synchronized (this) {
+            HashMap<Long, Objects.Word> edits = new HashMap<>(mInFlight);
+            edits.putAll(mPending);                     //A pending edit is newer than one in flight.
+            return edits.isEmpty() ? null : edits;
+        }
+    }
+
+    /**
+     * Public static method to apply an edit from a snapshot to a word that has been read from the
+     * database.
+     * @param edits the edits returned by snapshot().  This can be null.
+     * @param word the word read from the database.  Its fields are updated in place.
+     * @return the same Word object.
+     */
+    public static Objects.Word overlay(Map<Long, Objects.Word> edits, Objects.Word word) {
+        if (edits == null) return word;
+        Objects.Word edit = edits.get(word.id);
+        if (edit != null) {
+            word.list_id = edit.list_id;
+            word.spelling = edit.spelling;
+        }
+        return word;
+    }
+
+    /**
+     * Public method to get the number of edits waiting to be written (not counting any batch in progress).
+     * @return the number of pending edits.
+     */
+    public synchronized int size() {
+        return mPending.size();
+    }
+
+    /**
+     * Private method to remove the edits for one spelling list from a map of edits.
+     * @param edits the map of edits.
+     * @param listId the id of the spelling list.
+     */
+    private static void discardList(HashMap<Long, Objects.Word> edits, long listId) {
+        Iterator<Objects.Word> iterator = edits.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().list_id == listId) iterator.remove();
+        }
+    }
+
+    /**
+     * Private method to update the count of edits held.  Must be called with the lock held.
+     */
+    private void updateCount() {
+        mCount = mPending.size() + mInFlight.size();
+    }
+}
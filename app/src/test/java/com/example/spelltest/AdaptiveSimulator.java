@@ -0,0 +1,155 @@
+/**
+ * Filename:  AdaptiveSimulator.java
+ * Author:  Team SpellTest
+ * Date:  15 May 2019
+ *
+ * Purpose:  This class measures how many words an adaptive test (see the AdaptiveTest class) saves
+ * compared with testing the whole list, and what that costs in accuracy.  It makes up a list of words
+ * with known difficulties and a set of pretend users with known abilities, who answer each word the
+ * way the Rasch model says they would.  Each user takes an adaptive test and a full test (every word),
+ * both run through a real TestSession with a fake clock.
+ *
+ * It lives with the unit tests, so it isn't built into the app.  AdaptiveSimulatorTest checks its results
+ * for a short list, and the main() method prints a report for lists of up to 10,000 words.
+ */
+
+package com.example.spelltest;
+
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+
+public class AdaptiveSimulator {
+
+    //Number of pretend attempts behind each made-up word stat.  With this many, the difficulty the
+    //adaptive test works out for each word is very close to the true one.
+    private static final int SIMULATED_ATTEMPTS = 100000;
+
+    /**
+     * The results of a simulation.
+     */
+    public static class Result {
+        public int wordCount;                   //Number of words in the list (ie the length of a full test).
+        public double meanAdaptiveWords;        //Mean number of words in an adaptive test.
+        public double adaptiveError;            //Root mean square error of the adaptive ability estimates.
+        public double fullError;                //Root mean square error of the full-test ability estimates.
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%d words: adaptive tests used %.1f words on average (%.1fx fewer), RMS error %.3f vs %.3f for the full test",
+                    wordCount, meanAdaptiveWords, wordCount / meanAdaptiveWords, adaptiveError, fullError);
+        }
+    }
+
+    /**
+     * Public static method to run a simulation.
+     * @param wordCount the number of words in the list.
+     * @param userCount the number of pretend users.
+     * @param targetStandardError the adaptive test stops once its standard error drops to this.
+     * @param minimumWords the adaptive test never stops before this many words.
+     * @param seed seed for the random number generator (the same seed gives the same results).
+     * @return the results.
+     */
+    public static Result simulate(int wordCount, int userCount, double targetStandardError, int minimumWords, long seed) {
+
+        final Random random = new Random(seed);
+
+        //Make up the words, each with a difficulty drawn from a normal distribution, and a word stat
+        //that gives that difficulty.
+        final ArrayList<Objects.Word> words = new ArrayList<>(wordCount);
+        final double[] difficulties = new double[wordCount];
+        ArrayList<Objects.WordStat> wordStats = new ArrayList<>(wordCount);
+        for (int i = 0; i < wordCount; i++) {
+            words.add(new Objects.Word(i, 1, "word" + i));
+            difficulties[i] = random.nextGaussian() * 1.2;
+            int correct = (int) Math.round(SIMULATED_ATTEMPTS * chanceCorrect(0, difficulties[i]));
+            wordStats.add(new Objects.WordStat(i, i, (double) correct / SIMULATED_ATTEMPTS, SIMULATED_ATTEMPTS, correct));
+        }
+
+        //The clock and result sink don't matter here, so they do nothing.
+        TestSession.Clock clock = new TestSession.Clock() {
+            @Override
+            public long now() {
+                return 0;
+            }
+        };
+        TestSession.ResultSink sink = new TestSession.ResultSink() {
+            @Override
+            public void onAttempt(long sessionId, Objects.Word word, String typedText, boolean correct,
+                                  int editDistance, int errorType, long responseTime, long timestamp) {
+            }
+
+            @Override
+            public void onFinished(Objects.SpellingListStat stat) {
+            }
+        };
+
+        Result result = new Result();
+        result.wordCount = wordCount;
+        long adaptiveWords = 0;
+        double adaptiveSquaredError = 0;
+        double fullSquaredError = 0;
+
+        for (int user = 0; user < userCount; user++) {
+            double ability = random.nextGaussian();
+
+            AdaptiveTest adaptive = new AdaptiveTest(words, wordStats, targetStandardError, minimumWords);
+            runTest(new TestSession(1, adaptive, clock, sink), ability, difficulties, random);
+            adaptiveWords += adaptive.getWordsAnswered();
+            adaptiveSquaredError += square(adaptive.getAbility() - ability);
+
+            //A target of 0 is never reached, so this tests every word.
+            AdaptiveTest full = new AdaptiveTest(words, wordStats, 0, wordCount);
+            runTest(new TestSession(1, full, clock, sink), ability, difficulties, random);
+            fullSquaredError += square(full.getAbility() - ability);
+        }
+
+        result.meanAdaptiveWords = (double) adaptiveWords / userCount;
+        result.adaptiveError = Math.sqrt(adaptiveSquaredError / userCount);
+        result.fullError = Math.sqrt(fullSquaredError / userCount);
+        return result;
+    }
+
+    /**
+     * Main method, which runs a simulation for a few list lengths and prints the results.
+     * @param args not used.
+     */
+    public static void main(String[] args) {
+        int[] wordCounts = { 20, 100, 1000, 10000 };
+        for (int wordCount : wordCounts) {
+            System.out.println(simulate(wordCount, 200, AdaptiveTest.DEFAULT_TARGET_STANDARD_ERROR,
+                    AdaptiveTest.DEFAULT_MINIMUM_WORDS, 1));
+        }
+    }
+
+    /**
+     * Private static method to take a whole test as a pretend user.
+     * @param session the test session.
+     * @param ability the user's true ability.
+     * @param difficulties the true difficulty of each word (indexed by word id).
+     * @param random random number generator.
+     */
+    private static void runTest(TestSession session, double ability, double[] difficulties, Random random) {
+        Objects.Word word = session.start();
+        while (word != null) {
+            boolean correct = random.nextDouble() < chanceCorrect(ability, difficulties[(int) word.id]);
+            session.submit(correct ? word.spelling : "");
+            word = session.next();
+        }
+    }
+
+    /**
+     * Private static method to work out the chance of a correct answer under the Rasch model.
+     * @param ability the user's ability.
+     * @param difficulty the word's difficulty.
+     * @return the chance (0 - 1).
+     */
+    private static double chanceCorrect(double ability, double difficulty) {
+        return 1 / (1 + Math.exp(difficulty - ability));
+    }
+
+    private static double square(double x) {
+        return x * x;
+    }
+}
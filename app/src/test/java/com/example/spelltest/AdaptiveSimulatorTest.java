@@ -0,0 +1,41 @@
+/**
+ * Filename:  AdaptiveSimulatorTest.java
+ * Author:  Team SpellTest
+ * Date:  25 May 2019
+ *
+ * Purpose:  Unit tests for adaptive tests (see the AdaptiveTest class), run through the AdaptiveSimulator.
+ * An adaptive test should get through far fewer words than a full test, while still estimating each pretend
+ * user's ability nearly as well.
+ */
+
+package com.example.spelltest;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveSimulatorTest {
+
+    @Test
+    public void adaptiveTestsUseFewerWords() {
+        AdaptiveSimulator.Result result = AdaptiveSimulator.simulate(100, 200,
+                AdaptiveTest.DEFAULT_TARGET_STANDARD_ERROR, AdaptiveTest.DEFAULT_MINIMUM_WORDS, 1);
+
+        assertTrue(result.toString(), result.meanAdaptiveWords >= AdaptiveTest.DEFAULT_MINIMUM_WORDS);
+        assertTrue(result.toString(), result.meanAdaptiveWords < result.wordCount / 2.0);
+
+        //Stopping early costs some accuracy, but not much.
+        assertTrue(result.toString(), result.adaptiveError < result.fullError * 2);
+        assertTrue(result.toString(), result.adaptiveError < 1);
+    }
+
+    @Test
+    public void sameSeedGivesSameResults() {
+        String first = AdaptiveSimulator.simulate(50, 20, AdaptiveTest.DEFAULT_TARGET_STANDARD_ERROR,
+                AdaptiveTest.DEFAULT_MINIMUM_WORDS, 7).toString();
+        String second = AdaptiveSimulator.simulate(50, 20, AdaptiveTest.DEFAULT_TARGET_STANDARD_ERROR,
+                AdaptiveTest.DEFAULT_MINIMUM_WORDS, 7).toString();
+        assertEquals(first, second);
+    }
+}
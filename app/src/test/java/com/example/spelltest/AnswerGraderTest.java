@@ -0,0 +1,222 @@
+/**
+ * Filename:  AnswerGraderTest.java
+ * Author:  Team SpellTest
+ * Date:  26 May 2019
+ *
+ * Purpose:  Unit tests for the AnswerGrader class.  As well as a few known answers, it fuzzes the grader
+ * against a plain, full-table version of the same edit distance:  random words (of up to 80 letters, so
+ * both the bit-parallel matcher and the row-by-row method are covered, along with exactly 64 letters) and
+ * answers made from them by random mistakes, over a small alphabet of mixed-case and non-ASCII letters so
+ * that matches and swaps are common.  The errors a grade reports are checked by re-applying them to the
+ * spelling, which should give back the answer.
+ */
+
+package com.example.spelltest;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class AnswerGraderTest {
+
+    //Class variables
+    private static final int FUZZ_COUNT = 20000;        //Number of random answers graded.
+    private static final int MAX_LENGTH = 80;           //Longest random word.
+    private static final String LETTERS = "abAiIİéÉß";
+
+    @Test
+    public void knownAnswers() {
+        AnswerGrader grader = new AnswerGrader();
+        assertEquals(0, grader.grade("Necessary", "necessary"));
+        assertEquals(AnswerGrader.ERROR_NONE, grader.getErrorType());
+
+        assertEquals(1, grader.grade("neccessary", "necessary"));
+        assertEquals(AnswerGrader.ERROR_INSERTION, grader.getErrorType());
+        assertEquals(1, grader.grade("necesary", "necessary"));
+        assertEquals(AnswerGrader.ERROR_DELETION, grader.getErrorType());
+        assertEquals(1, grader.grade("nesessary", "necessary"));
+        assertEquals(AnswerGrader.ERROR_SUBSTITUTION, grader.getErrorType());
+        assertEquals(1, grader.grade("neecssary", "necessary"));
+        assertEquals(AnswerGrader.ERROR_TRANSPOSITION, grader.getErrorType());
+        assertEquals(2, grader.grade("neecssaryy", "necessary"));
+        assertEquals(AnswerGrader.ERROR_MIXED, grader.getErrorType());
+
+        //Too far away is just "too far", and a blank answer is as far as the word is long.
+        assertEquals(grader.getMaxDistance() + 1, grader.grade("xyz", "necessary"));
+        assertEquals(AnswerGrader.ERROR_UNRELATED, grader.getErrorType());
+        assertEquals(0, grader.getCredit(), 0);
+        assertEquals(3, grader.distance("", "cat", 5));
+        assertEquals(3, grader.distance("cat", "", 5));
+    }
+
+    @Test
+    public void distanceMatchesTheFullTable() {
+        AnswerGrader grader = new AnswerGrader();
+        Random random = new Random(1);
+        for (int i = 0; i < FUZZ_COUNT; i++) {
+            String spelling = randomWord(random);
+            String answer = makeAnswer(random, spelling);
+            int expected = naiveDistance(answer, spelling);
+
+            int bound = random.nextInt(MAX_LENGTH / 4 + 2);
+            assertEquals(describe(answer, spelling) + " bound " + bound, Math.min(expected, bound + 1),
+                    grader.distance(answer, spelling, bound));
+            assertEquals(describe(answer, spelling), expected, grader.distance(answer, spelling, MAX_LENGTH * 2));
+        }
+    }
+
+    @Test
+    public void gradeMatchesTheFullTable() {
+        AnswerGrader grader = new AnswerGrader();
+        Random random = new Random(2);
+        for (int i = 0; i < FUZZ_COUNT; i++) {
+            String spelling = randomWord(random);
+            String answer = makeAnswer(random, spelling);
+            int expected = naiveDistance(answer, spelling);
+            int maxDistance = AnswerGrader.maxDistance(spelling.length());
+            String description = describe(answer, spelling);
+
+            int distance = grader.grade(answer, spelling);
+            assertEquals(description, Math.min(expected, maxDistance + 1), distance);
+            assertEquals(description, maxDistance, grader.getMaxDistance());
+            if (distance == 0 || distance > maxDistance) continue;
+
+            //Each error counts one towards the distance, and together they turn the spelling into the answer.
+            assertEquals(description, distance, grader.getInsertions() + grader.getDeletions() +
+                    grader.getSubstitutions() + grader.getTranspositions());
+            assertEquals(description, fold(answer), applyEdits(grader, answer, spelling));
+        }
+    }
+
+    /**
+     * Private static method to work out the optimal string alignment distance the plain way:  the whole
+     * table, with no bound, and the case folded up front.
+     */
+    private static int naiveDistance(String answer, String spelling) {
+        String a = fold(answer);
+        String s = fold(spelling);
+        int n = a.length();
+        int m = s.length();
+        int[][] table = new int[n + 1][m + 1];
+        for (int i = 0; i <= n; i++) table[i][0] = i;
+        for (int j = 0; j <= m; j++) table[0][j] = j;
+        for (int i = 1; i <= n; i++) {
+            for (int j = 1; j <= m; j++) {
+                int cost = (a.charAt(i - 1) == s.charAt(j - 1)) ? 0 : 1;
+                table[i][j] = Math.min(table[i - 1][j - 1] + cost, Math.min(table[i - 1][j], table[i][j - 1]) + 1);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == s.charAt(j - 2) && a.charAt(i - 2) == s.charAt(j - 1)) {
+                    table[i][j] = Math.min(table[i][j], table[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return table[n][m];
+    }
+
+    /**
+     * Private static method to turn the spelling into the answer using the errors from the last grade.  The
+     * letters between errors are copied from the spelling, and the answer positions are checked on the way.
+     * @return the answer that the errors give (with the case folded).
+     */
+    private static String applyEdits(AnswerGrader grader, String answer, String spelling) {
+        String a = fold(answer);
+        String s = fold(spelling);
+        int edits = grader.getInsertions() + grader.getDeletions() + grader.getSubstitutions() +
+                grader.getTranspositions();
+        StringBuilder result = new StringBuilder();
+        int i = 0;
+        int j = 0;
+        for (int edit = 0; edit < edits; edit++) {
+            int spellingPosition = grader.getEditSpellingPosition(edit);
+            while (j < spellingPosition) {
+                result.append(s.charAt(j++));
+                i++;
+            }
+            assertEquals("Answer position of edit " + edit, i, grader.getEditAnswerPosition(edit));
+            switch (grader.getEditType(edit)) {
+                case AnswerGrader.ERROR_INSERTION:
+                    result.append(a.charAt(i++));
+                    break;
+                case AnswerGrader.ERROR_DELETION:
+                    j++;
+                    break;
+                case AnswerGrader.ERROR_SUBSTITUTION:
+                    result.append(a.charAt(i++));
+                    j++;
+                    break;
+                case AnswerGrader.ERROR_TRANSPOSITION:
+                    result.append(s.charAt(j + 1)).append(s.charAt(j));
+                    i += 2;
+                    j += 2;
+                    break;
+                default:
+                    throw new AssertionError("Unknown edit type " + grader.getEditType(edit));
+            }
+        }
+        result.append(s, j, s.length());
+        return result.toString();
+    }
+
+    /**
+     * Private static method to fold the case of each letter, the way the grader does.
+     */
+    private static String fold(String text) {
+        StringBuilder folded = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) folded.append(Character.toLowerCase(text.charAt(i)));
+        return folded.toString();
+    }
+
+    /**
+     * Private static method to make up a word.  Most are short, but some are longer than the bit-parallel
+     * matcher handles, and some are exactly as long as it handles.
+     */
+    private static String randomWord(Random random) {
+        int kind = random.nextInt(10);
+        int length = (kind < 6) ? random.nextInt(16) : (kind < 8) ? random.nextInt(MAX_LENGTH + 1) :
+                (kind < 9) ? 64 : 63 + random.nextInt(3);
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) word.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        return word.toString();
+    }
+
+    /**
+     * Private static method to make up an answer to a word:  the word itself (perhaps with its case changed),
+     * another random word, or the word with some random mistakes.
+     */
+    private static String makeAnswer(Random random, String spelling) {
+        int kind = random.nextInt(10);
+        if (kind == 0) return spelling.toUpperCase();
+        if (kind == 1) return randomWord(random);
+
+        StringBuilder typed = new StringBuilder(spelling);
+        int mistakes = random.nextInt(2 + spelling.length() / 4);
+        for (int m = 0; m < mistakes; m++) {
+            int at = (typed.length() == 0) ? 0 : random.nextInt(typed.length());
+            char letter = LETTERS.charAt(random.nextInt(LETTERS.length()));
+            switch (random.nextInt(4)) {
+                case 0:
+                    typed.insert(at, letter);
+                    break;
+                case 1:
+                    if (typed.length() > 0) typed.deleteCharAt(at);
+                    break;
+                case 2:
+                    if (typed.length() > 0) typed.setCharAt(at, letter);
+                    break;
+                default:
+                    if (at + 1 < typed.length()) {
+                        char c = typed.charAt(at);
+                        typed.setCharAt(at, typed.charAt(at + 1));
+                        typed.setCharAt(at + 1, c);
+                    }
+                    break;
+            }
+        }
+        return typed.toString();
+    }
+
+    private static String describe(String answer, String spelling) {
+        return "\"" + answer + "\" for \"" + spelling + "\"";
+    }
+}
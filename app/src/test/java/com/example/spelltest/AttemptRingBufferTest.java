@@ -0,0 +1,121 @@
+/**
+ * Filename:  AttemptRingBufferTest.java
+ * Author:  Team SpellTest
+ * Date:  25 May 2019
+ *
+ * Purpose:  Unit tests for the AttemptRingBuffer class.  These check that attempts come out in the order they
+ * went in (including when the ring wraps around and grows), and that a batch that couldn't be written and is
+ * put back with restore() is written again, in order, ahead of anything added since.
+ */
+
+package com.example.spelltest;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AttemptRingBufferTest {
+
+    @Test
+    public void attemptsComeOutInOrder() {
+        AttemptRingBuffer buffer = new AttemptRingBuffer(4);
+        Objects.WordAttempt[] batch = newBatch(3);
+        long next = 0;
+
+        //Keep the ring part full, so it wraps around several times.
+        for (int i = 0; i < 10; i++) {
+            add(buffer, i * 2);
+            add(buffer, i * 2 + 1);
+            int count = buffer.drain(batch);
+            for (int j = 0; j < count; j++) assertEquals(next++, batch[j].wordId);
+        }
+        while (buffer.size() > 0) {
+            int count = buffer.drain(batch);
+            for (int j = 0; j < count; j++) assertEquals(next++, batch[j].wordId);
+        }
+        assertEquals(20, next);
+    }
+
+    @Test
+    public void fullRingGrows() {
+        AttemptRingBuffer buffer = new AttemptRingBuffer(2);
+        Objects.WordAttempt[] batch = newBatch(1);
+        add(buffer, 0);
+        buffer.drain(batch);                            //Move the head, so growing has to unwrap the ring.
+        for (int i = 1; i <= 100; i++) assertEquals(i, add(buffer, i));
+
+        Objects.WordAttempt[] all = newBatch(200);
+        assertEquals(100, buffer.drain(all));
+        for (int i = 0; i < 100; i++) assertEquals(i + 1, all[i].wordId);
+        assertEquals(0, buffer.drain(all));
+    }
+
+    @Test
+    public void drainCopiesAllTheValues() {
+        AttemptRingBuffer buffer = new AttemptRingBuffer(4);
+        buffer.add(7, 8, "wierd", false, 2, AnswerGrader.ERROR_NONE, 1500, 123456789L);
+        Objects.WordAttempt[] batch = newBatch(1);
+        assertEquals(1, buffer.drain(batch));
+
+        Objects.WordAttempt attempt = batch[0];
+        assertEquals(7, attempt.sessionId);
+        assertEquals(8, attempt.wordId);
+        assertEquals("wierd", attempt.typedText);
+        assertEquals(false, attempt.correct);
+        assertEquals(2, attempt.editDistance);
+        assertEquals(1500, attempt.responseTime);
+        assertEquals(123456789L, attempt.timestamp);
+    }
+
+    @Test
+    public void restoredBatchIsWrittenFirst() {
+        AttemptRingBuffer buffer = new AttemptRingBuffer(4);
+        for (int i = 0; i < 3; i++) add(buffer, i);
+        Objects.WordAttempt[] batch = newBatch(2);
+        assertEquals(2, buffer.drain(batch));
+
+        //The write fails, and more attempts come in before the batch is put back.
+        add(buffer, 3);
+        add(buffer, 4);
+        buffer.restore(batch, 2);
+        assertEquals(5, buffer.size());
+
+        Objects.WordAttempt[] all = newBatch(8);
+        assertEquals(5, buffer.drain(all));
+        for (int i = 0; i < 5; i++) assertEquals(i, all[i].wordId);
+    }
+
+    @Test
+    public void restoreGrowsTheRing() {
+        AttemptRingBuffer buffer = new AttemptRingBuffer(4);
+        for (int i = 0; i < 4; i++) add(buffer, i);
+        Objects.WordAttempt[] batch = newBatch(4);
+        assertEquals(4, buffer.drain(batch));
+
+        //The ring fills up again while the batch is being written, so there's no room to put it back.
+        for (int i = 4; i < 8; i++) add(buffer, i);
+        buffer.restore(batch, 4);
+        assertEquals(8, buffer.size());
+
+        Objects.WordAttempt[] all = newBatch(8);
+        assertEquals(8, buffer.drain(all));
+        for (int i = 0; i < 8; i++) assertEquals(i, all[i].wordId);
+        assertEquals(0, buffer.drain(all));
+    }
+
+    /**
+     * Private method to add an attempt, identified by its word id.
+     * @return the number of attempts in the buffer.
+     */
+    private static int add(AttemptRingBuffer buffer, long wordId) {
+        return buffer.add(1, wordId, "word" + wordId, true, 0, AnswerGrader.ERROR_NONE, 1000, wordId);
+    }
+
+    private static Objects.WordAttempt[] newBatch(int size) {
+        Objects.WordAttempt[] batch = new Objects.WordAttempt[size];
+        for (int i = 0; i < size; i++) {
+            batch[i] = new Objects.WordAttempt(DataStore.NULL_ROW_ID, 0, DataStore.NULL_ROW_ID, null, false, 0, 0);
+        }
+        return batch;
+    }
+}
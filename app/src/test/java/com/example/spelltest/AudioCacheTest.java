@@ -0,0 +1,165 @@
+/**
+ * Filename:  AudioCacheTest.java
+ * Author:  Team SpellTest
+ * Date:  26 May 2019
+ *
+ * Purpose:  Unit tests for the AudioCache class, with a fake synthesizer (see FakeSynthesizer) writing
+ * files of a fixed size, so the size limit works out to a whole number of files.
+ */
+
+package com.example.spelltest;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AudioCacheTest {
+
+    //Class variables
+    private static final int FILE_SIZE = 100;               //Size of each file the fake synthesizer writes.
+    private static final int MAX_FILES = 3;                 //Files that fit in the cache.
+    private static final Locale LOCALE = Locale.US;
+    private static final float RATE = 0.5f;
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    //Instance variables
+    private File mDirectory;
+    private FakeSynthesizer mSynthesizer;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = new File(mFolder.getRoot(), "speech");
+        mSynthesizer = new FakeSynthesizer(FILE_SIZE);
+    }
+
+    @Test
+    public void prefetchedWordsAreHits() {
+        AudioCache cache = newCache();
+        assertNull(cache.get("cat", LOCALE, RATE));
+
+        assertTrue(cache.prefetch("cat", LOCALE, RATE));
+        File file = cache.get("cat", LOCALE, RATE);
+        assertNotNull(file);
+        assertEquals(FILE_SIZE, file.length());
+
+        //A second prefetch finds the file, and doesn't synthesize it again.
+        assertTrue(cache.prefetch("cat", LOCALE, RATE));
+        assertEquals(Arrays.asList("cat"), mSynthesizer.getTexts());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getSynthesisCount());
+        assertEquals(1, cache.getFileCount());
+        assertEquals(FILE_SIZE, cache.getSizeBytes());
+    }
+
+    @Test
+    public void keyCoversLocaleAndRate() {
+        String key = AudioCache.key("cat", LOCALE, RATE);
+        assertEquals(key, AudioCache.key("cat", LOCALE, RATE));
+        assertNotEquals(key, AudioCache.key("cat", Locale.UK, RATE));
+        assertNotEquals(key, AudioCache.key("cat", LOCALE, 1.0f));
+        assertNotEquals(key, AudioCache.key("cats", LOCALE, RATE));
+
+        AudioCache cache = newCache();
+        cache.prefetch("cat", LOCALE, RATE);
+        assertNull(cache.get("cat", Locale.UK, RATE));
+        assertNull(cache.get("cat", LOCALE, 1.0f));
+    }
+
+    @Test
+    public void leastRecentlyPlayedIsEvicted() {
+        AudioCache cache = newCache();
+        cache.prefetch("a", LOCALE, RATE);
+        cache.prefetch("b", LOCALE, RATE);
+        cache.prefetch("c", LOCALE, RATE);
+        assertNotNull(cache.get("a", LOCALE, RATE));
+
+        //"b" is now the least recently played, so it makes room for "d".
+        cache.prefetch("d", LOCALE, RATE);
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(MAX_FILES, cache.getFileCount());
+        assertEquals(MAX_FILES * FILE_SIZE, cache.getSizeBytes());
+        assertNull(cache.get("b", LOCALE, RATE));
+        assertNotNull(cache.get("a", LOCALE, RATE));
+        assertNotNull(cache.get("c", LOCALE, RATE));
+        assertNotNull(cache.get("d", LOCALE, RATE));
+        assertEquals(MAX_FILES, mDirectory.list().length);
+    }
+
+    @Test
+    public void failedSynthesisLeavesNothingBehind() {
+        AudioCache cache = newCache();
+        mSynthesizer.setFailing(true);
+
+        assertFalse(cache.prefetch("cat", LOCALE, RATE));
+        assertNull(cache.get("cat", LOCALE, RATE));
+        assertEquals(0, cache.getFileCount());
+        assertEquals(0, cache.getSynthesisCount());
+        assertEquals(0, mDirectory.list().length);
+    }
+
+    @Test
+    public void deletedFileIsAMiss() {
+        AudioCache cache = newCache();
+        cache.prefetch("cat", LOCALE, RATE);
+        assertTrue(cache.get("cat", LOCALE, RATE).delete());
+
+        assertNull(cache.get("cat", LOCALE, RATE));
+        assertEquals(0, cache.getFileCount());
+        assertEquals(0, cache.getSizeBytes());
+
+        //So it is synthesized again next time.
+        assertTrue(cache.prefetch("cat", LOCALE, RATE));
+        assertNotNull(cache.get("cat", LOCALE, RATE));
+        assertEquals(2, cache.getSynthesisCount());
+    }
+
+    @Test
+    public void filesAreKeptForTheNextCache() throws IOException {
+        AudioCache cache = newCache();
+        cache.prefetch("a", LOCALE, RATE);
+        cache.prefetch("b", LOCALE, RATE);
+        cache.prefetch("c", LOCALE, RATE);
+
+        //Make "b" the most recently played, and leave a half-written file behind.
+        long now = System.currentTimeMillis();
+        cache.get("a", LOCALE, RATE).setLastModified(now - 30000);
+        cache.get("c", LOCALE, RATE).setLastModified(now - 20000);
+        cache.get("b", LOCALE, RATE).setLastModified(now - 10000);
+        File temp = new File(mDirectory, AudioCache.key("d", LOCALE, RATE) + ".1.tmp");
+        assertTrue(temp.createNewFile());
+
+        //A smaller cache keeps the most recently played files, and deletes the half-written one.
+        AudioCache reopened = new AudioCache(mDirectory, 2 * FILE_SIZE, mSynthesizer);
+        assertFalse(temp.exists());
+        assertEquals(2, reopened.getFileCount());
+        assertEquals(1, reopened.getEvictionCount());
+        assertNull(reopened.get("a", LOCALE, RATE));
+        assertNotNull(reopened.get("b", LOCALE, RATE));
+        assertNotNull(reopened.get("c", LOCALE, RATE));
+        assertTrue(reopened.prefetch("b", LOCALE, RATE));
+        assertEquals(0, reopened.getSynthesisCount());
+    }
+
+    /**
+     * Private method to make a cache with room for MAX_FILES files.
+     */
+    private AudioCache newCache() {
+        return new AudioCache(mDirectory, MAX_FILES * FILE_SIZE, mSynthesizer);
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * Filename:  AudioPackBuilder.java
+ * Author:  Team SpellTest
+ * Date:  19 May 2019
+ *
+ * Purpose:  This class builds a pack of pre-recorded word audio (see the AudioPack class for the layout).
+ * Clips are added one at a time, and then write() copies them into the archive and writes the sorted index.
+ * Two spellings that normalize to the same key can't both be added.
+ *
+ * It is a desktop tool (and is used by AudioPackTest), so it lives with the unit tests rather than in the
+ * app.  The main() method builds a pack from a directory of clips, each named after its word (eg
+ * "necessary.wav"), then opens the new pack and checks that every word can be found in it:
+ *
+ *     ./gradlew :app:audioPack -Pclips=<clip directory> -PpackDir=<output directory>
+ *
+ * The pack is then copied into the app's external files directory on the device, and SpeechService
+ * imports it the next time the app starts.
+ */
+
+package com.example.spelltest;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+public class AudioPackBuilder {
+
+    //A clip waiting to be written.
+    private static final class Clip {
+        final byte[] key;               //The normalized spelling, in UTF-8.
+        final File file;                //The audio file.
+
+        Clip(byte[] key, File file) {
+            this.key = key;
+            this.file = file;
+        }
+    }
+
+    //Instance variables
+    private final ArrayList<Clip> mClips = new ArrayList<>();                //The clips added so far.
+    private final HashMap<String, File> mFilesByKey = new HashMap<>();       //Audio file for each normalized spelling.
+
+    /**
+     * Public method to add a clip to the pack.
+     * @param spelling the word the clip says.
+     * @param file the audio file.  It isn't read until write() is called.
+     * @throws IllegalArgumentException if the spelling is empty, or a clip has already been added for it
+     *         (or for a spelling that normalizes to the same thing).
+     */
+    public void add(String spelling, File file) {
+
+        String key = AudioPack.normalize(spelling);
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("Empty spelling for " + file);
+        }
+        File existing = mFilesByKey.put(key, file);
+        if (existing != null) {
+            mFilesByKey.put(key, existing);
+            throw new IllegalArgumentException("\"" + spelling + "\" (" + file + ") is already in the pack as " + existing);
+        }
+        mClips.add(new Clip(AudioPack.encodeKey(key), file));
+    }
+
+    /**
+     * Public method to write the pack.  The clips are copied into the archive in order of their spelling,
+     * and then the index is written.
+     * @param directory where to write the AudioPack.ARCHIVE_NAME and AudioPack.INDEX_NAME files.  It is
+     *                  created if it doesn't exist, and any pack already there is replaced.
+     * @return the number of clips written.
+     * @throws IOException if a clip couldn't be read, or the pack couldn't be written.
+     */
+    public int write(File directory) throws IOException {
+
+        //Sort the clips into the order they are searched in.
+        ArrayList<Clip> clips = new ArrayList<>(mClips);
+        Collections.sort(clips, new Comparator<Clip>() {
+            @Override
+            public int compare(Clip a, Clip b) {
+                return AudioPack.compareKeys(a.key, b.key);
+            }
+        });
+
+        //Copy the clips into the archive, keeping track of where each one went.
+        directory.mkdirs();
+        int count = clips.size();
+        long[] offsets = new long[count];
+        int[] lengths = new int[count];
+        long archiveLength = 0;
+        FileOutputStream archive = new FileOutputStream(new File(directory, AudioPack.ARCHIVE_NAME));
+        try {
+            FileChannel output = archive.getChannel();
+            for (int i = 0; i < count; i++) {
+                FileInputStream in = new FileInputStream(clips.get(i).file);
+                try {
+                    FileChannel input = in.getChannel();
+                    long size = input.size();
+                    if (size > Integer.MAX_VALUE) throw new IOException("Clip too big: " + clips.get(i).file);
+                    long position = 0;
+                    while (position < size) {
+                        position += input.transferTo(position, size - position, output);
+                    }
+                    offsets[i] = archiveLength;
+                    lengths[i] = (int) size;
+                    archiveLength += size;
+                } finally {
+                    in.close();
+                }
+            }
+        } finally {
+            archive.close();
+        }
+
+        //Write the index:  the header, then an entry for each clip, then the spellings.
+        DataOutputStream index = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(new File(directory, AudioPack.INDEX_NAME))));
+        try {
+            index.writeInt(AudioPack.MAGIC);
+            index.writeInt(AudioPack.VERSION);
+            index.writeInt(count);
+            index.writeLong(archiveLength);
+
+            int keyOffset = 0;
+            for (int i = 0; i < count; i++) {
+                byte[] key = clips.get(i).key;
+                index.writeInt(keyOffset);
+                index.writeInt(key.length);
+                index.writeLong(offsets[i]);
+                index.writeInt(lengths[i]);
+                keyOffset += key.length;
+            }
+            for (int i = 0; i < count; i++) {
+                index.write(clips.get(i).key);
+            }
+        } finally {
+            index.close();
+        }
+        return count;
+    }
+
+    /**
+     * Main method, which builds a pack from a directory of clips and then checks it.
+     * @param args the clip directory and the output directory.
+     * @throws IOException if the pack couldn't be built.
+     */
+    public static void main(String[] args) throws IOException {
+
+        if (args.length != 2) {
+            System.err.println("Usage: AudioPackBuilder <clip directory> <output directory>");
+            System.exit(2);
+        }
+
+        //Add every file in the directory, named after its word (ie without the extension).
+        File[] files = new File(args[0]).listFiles();
+        if (files == null) throw new IOException("Can't list " + args[0]);
+        AudioPackBuilder builder = new AudioPackBuilder();
+        ArrayList<String> spellings = new ArrayList<>(files.length);
+        for (File file : files) {
+            String name = file.getName();
+            int dot = name.lastIndexOf('.');
+            if (!file.isFile() || dot <= 0) continue;
+
+            String spelling = name.substring(0, dot);
+            builder.add(spelling, file);
+            spellings.add(spelling);
+        }
+
+        long start = System.nanoTime();
+        File output = new File(args[1]);
+        int count = builder.write(output);
+        System.out.println(count + " clips written to " + output + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+
+        //Check that every word can be found, and that its clip is the right size.
+        AudioPack pack = new AudioPack(new File(output, AudioPack.ARCHIVE_NAME), new File(output, AudioPack.INDEX_NAME));
+        try {
+            for (String spelling : spellings) {
+                int entry = pack.find(spelling);
+                File file = builder.mFilesByKey.get(AudioPack.normalize(spelling));
+                if (entry < 0 || pack.getClipLength(entry) != file.length()) {
+                    throw new IOException("Pack check failed for \"" + spelling + "\"");
+                }
+            }
+        } finally {
+            pack.close();
+        }
+        System.out.println("All " + spellings.size() + " words found");
+    }
+}
@@ -0,0 +1,249 @@
+/**
+ * Filename:  AudioPackTest.java
+ * Author:  Team SpellTest
+ * Date:  26 May 2019
+ *
+ * Purpose:  Unit tests for building audio packs (see AudioPackBuilder) and reading them back with the
+ * AudioPack class, with made-up clips in a temporary directory.  A corrupt index should stop a pack being
+ * opened, or (for a corrupt entry) just stop that word being found.
+ */
+
+package com.example.spelltest;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AudioPackTest {
+
+    //Class variables
+    private static final String[] SPELLINGS = { "necessary", "Accommodate", "café", "naïve", "a", "aa", "rhythm",
+            "zoo", "définitely" };
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    //Instance variables
+    private File mClips;                                //Where the made-up clips are.
+    private File mPackDirectory;                        //Where the pack is written.
+
+    @Before
+    public void setUp() throws IOException {
+        mClips = mFolder.newFolder("clips");
+        mPackDirectory = new File(mFolder.getRoot(), "pack");
+    }
+
+    @Test
+    public void everyWordIsFound() throws IOException {
+        assertEquals(SPELLINGS.length, buildPack());
+
+        AudioPack pack = openPack();
+        try {
+            assertEquals(SPELLINGS.length, pack.getCount());
+            RandomAccessFile archive = new RandomAccessFile(new File(mPackDirectory, AudioPack.ARCHIVE_NAME), "r");
+            try {
+                for (String spelling : SPELLINGS) {
+                    int entry = pack.find(spelling);
+                    assertTrue(spelling, entry >= 0);
+
+                    //The entry points at this word's clip.
+                    byte[] clip = new byte[pack.getClipLength(entry)];
+                    archive.seek(pack.getClipOffset(entry));
+                    archive.readFully(clip);
+                    assertArrayEquals(spelling, clipFor(spelling), clip);
+                }
+            } finally {
+                archive.close();
+            }
+        } finally {
+            pack.close();
+        }
+    }
+
+    @Test
+    public void spellingsAreNormalized() throws IOException {
+        buildPack();
+        AudioPack pack = openPack();
+        try {
+            assertEquals(pack.find("accommodate"), pack.find("  ACCOMMODATE "));
+            //"café" with the accent typed as a separate combining mark.
+            assertEquals(pack.find("caf\u00e9"), pack.find("cafe\u0301"));
+            assertEquals(-1, pack.find("cafe"));
+            assertEquals(-1, pack.find("necessar"));
+            assertEquals(-1, pack.find("necessaryy"));
+            assertEquals(-1, pack.find(""));
+        } finally {
+            pack.close();
+        }
+    }
+
+    @Test
+    public void emptyPackFindsNothing() throws IOException {
+        assertEquals(0, new AudioPackBuilder().write(mPackDirectory));
+        AudioPack pack = openPack();
+        try {
+            assertEquals(0, pack.getCount());
+            assertEquals(-1, pack.find("necessary"));
+        } finally {
+            pack.close();
+        }
+    }
+
+    @Test
+    public void duplicateSpellingsAreRejected() throws IOException {
+        AudioPackBuilder builder = new AudioPackBuilder();
+        builder.add("Rhythm", writeClip("rhythm"));
+        try {
+            builder.add(" rhythm", writeClip("rhythm"));
+            fail("Duplicate spelling was added");
+        } catch (IllegalArgumentException e) {
+            //Expected.
+        }
+        try {
+            builder.add("  ", writeClip("rhythm"));
+            fail("Empty spelling was added");
+        } catch (IllegalArgumentException e) {
+            //Expected.
+        }
+        assertEquals(1, builder.write(mPackDirectory));
+    }
+
+    @Test
+    public void corruptEntriesAreNotFound() throws IOException {
+        buildPack();
+        AudioPack clean = openPack();
+        int spellingEntry = clean.find("necessary");
+        int clipEntry = clean.find("zoo");
+        clean.close();
+
+        //Point one entry's spelling past the end of the index, and another's clip past the end of the archive.
+        RandomAccessFile index = new RandomAccessFile(new File(mPackDirectory, AudioPack.INDEX_NAME), "rw");
+        try {
+            index.seek(AudioPack.HEADER_SIZE + spellingEntry * AudioPack.ENTRY_SIZE);
+            index.writeInt(Integer.MAX_VALUE - 2);
+            index.seek(AudioPack.HEADER_SIZE + clipEntry * AudioPack.ENTRY_SIZE + 8);
+            index.writeLong(Long.MAX_VALUE - 2);
+        } finally {
+            index.close();
+        }
+
+        AudioPack pack = openPack();
+        try {
+            assertEquals(-1, pack.find("necessary"));
+            assertEquals(-1, pack.find("zoo"));
+        } finally {
+            pack.close();
+        }
+    }
+
+    @Test
+    public void badPacksAreNotOpened() throws IOException {
+        buildPack();
+        File archive = new File(mPackDirectory, AudioPack.ARCHIVE_NAME);
+        File index = new File(mPackDirectory, AudioPack.INDEX_NAME);
+
+        //An archive that isn't the one the index was built for.
+        FileOutputStream out = new FileOutputStream(archive, true);
+        out.write(1);
+        out.close();
+        assertNotOpened();
+
+        //An index with too many entries for its size.
+        buildPack();
+        RandomAccessFile file = new RandomAccessFile(index, "rw");
+        file.seek(8);
+        file.writeInt(SPELLINGS.length * 100);
+        file.close();
+        assertNotOpened();
+
+        //Something that isn't an index at all.
+        buildPack();
+        file = new RandomAccessFile(index, "rw");
+        file.writeInt(0);
+        file.close();
+        assertNotOpened();
+    }
+
+    @Test
+    public void importReplacesThePack() throws IOException {
+        buildPack();
+        File installed = new File(mFolder.getRoot(), "installed");
+        assertTrue(AudioPack.importPack(mPackDirectory, installed));
+
+        //The copied-in files are gone, and the imported pack opens.
+        assertFalse(new File(mPackDirectory, AudioPack.ARCHIVE_NAME).exists());
+        assertFalse(new File(mPackDirectory, AudioPack.INDEX_NAME).exists());
+        assertFalse(AudioPack.importPack(mPackDirectory, installed));
+        AudioPack pack = new AudioPack(new File(installed, AudioPack.ARCHIVE_NAME),
+                new File(installed, AudioPack.INDEX_NAME));
+        try {
+            assertTrue(pack.find("rhythm") >= 0);
+        } finally {
+            pack.close();
+        }
+    }
+
+    /**
+     * Private method to build a pack of all the SPELLINGS.
+     * @return the number of clips written.
+     */
+    private int buildPack() throws IOException {
+        AudioPackBuilder builder = new AudioPackBuilder();
+        for (String spelling : SPELLINGS) {
+            builder.add(spelling, writeClip(spelling));
+        }
+        return builder.write(mPackDirectory);
+    }
+
+    private AudioPack openPack() throws IOException {
+        return new AudioPack(new File(mPackDirectory, AudioPack.ARCHIVE_NAME),
+                new File(mPackDirectory, AudioPack.INDEX_NAME));
+    }
+
+    private void assertNotOpened() {
+        try {
+            openPack().close();
+            fail("A bad pack was opened");
+        } catch (IOException e) {
+            //Expected.
+        }
+    }
+
+    /**
+     * Private method to write a made-up clip for a word.
+     * @return the clip file.
+     */
+    private File writeClip(String spelling) throws IOException {
+        File file = File.createTempFile("clip", ".wav", mClips);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(clipFor(spelling));
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    /**
+     * Private static method to make up the contents of a word's clip.  Each word's clip is different, and
+     * they are different lengths.
+     */
+    private static byte[] clipFor(String spelling) {
+        StringBuilder clip = new StringBuilder("RIFF");
+        for (int i = 0; i < spelling.length(); i++) clip.append(spelling);
+        return clip.toString().getBytes(Charset.forName("UTF-8"));
+    }
+}
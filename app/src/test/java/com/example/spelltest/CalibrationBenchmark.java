@@ -0,0 +1,116 @@
+/**
+ * Filename:  CalibrationBenchmark.java
+ * Author:  Team SpellTest
+ * Date:  16 May 2019
+ *
+ * Purpose:  JMH benchmark for how the difficulty calibration (see the DifficultyCalibrator class) scales
+ * with the number of cores.  It makes up an answer history for a set of pretend users with known abilities
+ * and words with known difficulties (answered the way the Rasch model says they would be), feeds the counts
+ * to a calibrator once, and then times the whole fit with fork/join pools of 1, 2, 4 and 8 threads.  How
+ * close the fit gets to the true difficulties is checked by DifficultyCalibratorTest.
+ *
+ * Run it with "./gradlew :app:jmh -Pjmh=CalibrationBenchmark".
+ */
+
+package com.example.spelltest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class CalibrationBenchmark {
+
+    //Size of the made-up history:  every user is tested on WORDS_PER_USER of the words, ATTEMPTS_PER_WORD
+    //times each, so this comes to 10 million attempts.
+    private static final int USER_COUNT = 20000;
+    private static final int WORD_COUNT = 5000;
+    private static final int WORDS_PER_USER = 100;
+    private static final int ATTEMPTS_PER_WORD = 5;
+
+    //Number of threads in the fork/join pool.
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    //Instance variables
+    private DifficultyCalibrator mCalibrator;
+    private ForkJoinPool mPool;
+
+    @Setup
+    public void setUp() {
+        mCalibrator = new DifficultyCalibrator();
+        makeHistory(mCalibrator, USER_COUNT, WORD_COUNT, WORDS_PER_USER, ATTEMPTS_PER_WORD, new Random(1));
+        mPool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mPool.shutdown();
+    }
+
+    /**
+     * The benchmark itself:  one whole fit (calibrate() starts again from scratch every time).
+     * @return the number of rounds the fit took.
+     */
+    @Benchmark
+    public int calibrate() {
+        return mCalibrator.calibrate(mPool);
+    }
+
+    /**
+     * Static method to make up an answer history and feed it to a calibrator.  Each user is given a random
+     * set of words (one step of a shuffle per word), and answers each of them a few times.
+     * @param calibrator the calibrator to feed the counts to.
+     * @param userCount the number of users.
+     * @param wordCount the number of words.
+     * @param wordsPerUser the number of words each user is tested on.
+     * @param attemptsPerWord the number of times each user answers each of their words.
+     * @param random the random number generator.
+     * @return the true difficulty of each word (indexed by word id).
+     */
+    static double[] makeHistory(DifficultyCalibrator calibrator, int userCount, int wordCount, int wordsPerUser,
+                                int attemptsPerWord, Random random) {
+
+        double[] abilities = new double[userCount];
+        double[] difficulties = new double[wordCount];
+        for (int i = 0; i < userCount; i++) abilities[i] = random.nextGaussian();
+        for (int i = 0; i < wordCount; i++) difficulties[i] = random.nextGaussian() * 1.2;
+
+        int[] words = new int[wordCount];
+        for (int i = 0; i < wordCount; i++) words[i] = i;
+        for (int user = 0; user < userCount; user++) {
+            for (int i = 0; i < wordsPerUser; i++) {
+                int pick = i + random.nextInt(wordCount - i);
+                int word = words[pick];
+                words[pick] = words[i];
+                words[i] = word;
+
+                double chance = 1 / (1 + Math.exp(difficulties[word] - abilities[user]));
+                int correct = 0;
+                for (int a = 0; a < attemptsPerWord; a++) {
+                    if (random.nextDouble() < chance) correct++;
+                }
+                calibrator.visit(user, word, attemptsPerWord, correct);
+            }
+        }
+        return difficulties;
+    }
+}
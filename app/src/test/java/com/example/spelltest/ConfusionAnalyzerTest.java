@@ -0,0 +1,136 @@
+/**
+ * Filename:  ConfusionAnalyzerTest.java
+ * Author:  Team SpellTest
+ * Date:  26 May 2019
+ *
+ * Purpose:  Unit tests for the ConfusionAnalyzer class:  the confusions found in a few known answers, the
+ * totals for all users, answers that can't be lined up (unrelated answers and empty spellings), and enough
+ * answers to fill several chunks.
+ */
+
+package com.example.spelltest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ConfusionAnalyzerTest {
+
+    //Instance variables
+    private ForkJoinPool mPool;
+
+    @Before
+    public void setUp() {
+        mPool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        mPool.shutdown();
+    }
+
+    @Test
+    public void knownConfusionsAreCounted() {
+        ConfusionAnalyzer analyzer = new ConfusionAnalyzer(mPool);
+        analyzer.visit(1, "recieve", "receive");
+        analyzer.visit(1, "Neccessary", "necessary");
+        analyzer.visit(2, "recieve", "receive");
+        analyzer.visit(2, "definately", "definitely");
+        analyzer.visit(2, "xyz", "definitely");
+        analyzer.finish();
+
+        assertEquals(5, analyzer.getAnswerCount());
+        assertEquals(4, analyzer.getNearMissCount());
+        assertEquals(2, analyzer.getUserCount());
+
+        HashMap<String, Integer> counts = getCounts(analyzer);
+        long swapped = ConfusionAnalyzer.key(ConfusionAnalyzer.SWAPPED_LETTERS, 'e', 'i');
+        long doubled = ConfusionAnalyzer.key(ConfusionAnalyzer.EXTRA_DOUBLE, 0, 'c');
+        long wrong = ConfusionAnalyzer.key(ConfusionAnalyzer.WRONG_LETTER, 'i', 'a');
+        assertEquals("ei/ie", ConfusionAnalyzer.describe(swapped));
+        assertEquals("c/cc", ConfusionAnalyzer.describe(doubled));
+        assertEquals("i/a", ConfusionAnalyzer.describe(wrong));
+
+        assertEquals(Integer.valueOf(1), counts.get(name(1, swapped)));
+        assertEquals(Integer.valueOf(1), counts.get(name(1, doubled)));
+        assertNull(counts.get(name(1, wrong)));
+        assertEquals(Integer.valueOf(1), counts.get(name(2, swapped)));
+        assertEquals(Integer.valueOf(1), counts.get(name(2, wrong)));
+        assertEquals(Integer.valueOf(2), counts.get(name(ConfusionAnalyzer.ALL_USERS, swapped)));
+        assertEquals(Integer.valueOf(1), counts.get(name(ConfusionAnalyzer.ALL_USERS, wrong)));
+
+        //"ei" in "receive" (3 letters into 7) and the "i" in "definitely" (5 into 10) are in the middle band,
+        //and the extra "c" in "necessary" (3 into 9) is in the one before.
+        long middle = ConfusionAnalyzer.key(ConfusionAnalyzer.POSITION, 2, 0);
+        long early = ConfusionAnalyzer.key(ConfusionAnalyzer.POSITION, 1, 0);
+        assertEquals(Integer.valueOf(3), counts.get(name(ConfusionAnalyzer.ALL_USERS, middle)));
+        assertEquals(Integer.valueOf(1), counts.get(name(ConfusionAnalyzer.ALL_USERS, early)));
+    }
+
+    @Test
+    public void emptySpellingsAreSkipped() {
+        ConfusionAnalyzer analyzer = new ConfusionAnalyzer(mPool);
+        analyzer.visit(1, "a", "");
+        analyzer.visit(1, "", "");
+        analyzer.visit(1, "a", null);
+        analyzer.visit(1, null, "cat");
+        analyzer.finish();
+
+        assertEquals(4, analyzer.getAnswerCount());
+        assertEquals(0, analyzer.getNearMissCount());
+        assertEquals(0, analyzer.getCountSize());
+    }
+
+    @Test
+    public void manyChunksAddUp() {
+        ConfusionAnalyzer analyzer = new ConfusionAnalyzer(mPool);
+        int answers = 10000;                    //Enough for a few chunks.
+        int users = 50;
+        for (int i = 0; i < answers; i++) {
+            analyzer.visit(100 + i % users, (i % 2 == 0) ? "recieve" : "receve", "receive");
+        }
+        analyzer.finish();
+
+        assertEquals(answers, analyzer.getAnswerCount());
+        assertEquals(answers, analyzer.getNearMissCount());
+        assertEquals(users, analyzer.getUserCount());
+
+        HashMap<String, Integer> counts = getCounts(analyzer);
+        long swapped = ConfusionAnalyzer.key(ConfusionAnalyzer.SWAPPED_LETTERS, 'e', 'i');
+        long missing = ConfusionAnalyzer.key(ConfusionAnalyzer.MISSING_LETTER, 'i', 0);
+        assertEquals(Integer.valueOf(answers / 2), counts.get(name(ConfusionAnalyzer.ALL_USERS, swapped)));
+        assertEquals(Integer.valueOf(answers / 2), counts.get(name(ConfusionAnalyzer.ALL_USERS, missing)));
+        //Users with even ids only swapped letters, and the others only left one out.
+        assertEquals(Integer.valueOf(answers / users), counts.get(name(100, swapped)));
+        assertNull(counts.get(name(100, missing)));
+        assertEquals(Integer.valueOf(answers / users), counts.get(name(101, missing)));
+    }
+
+    /**
+     * Private static method to copy the counts out of an analyzer.
+     * @return the count for each user and key (see name()).
+     */
+    private static HashMap<String, Integer> getCounts(ConfusionAnalyzer analyzer) {
+        int size = analyzer.getCountSize();
+        long[] userIds = new long[size];
+        long[] keys = new long[size];
+        int[] counts = new int[size];
+        assertEquals(size, analyzer.getCounts(userIds, keys, counts));
+
+        HashMap<String, Integer> map = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            assertNull("Key counted twice", map.put(name(userIds[i], keys[i]), counts[i]));
+        }
+        return map;
+    }
+
+    private static String name(long userId, long key) {
+        return userId + ":" + key;
+    }
+}
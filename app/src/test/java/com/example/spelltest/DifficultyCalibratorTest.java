@@ -0,0 +1,90 @@
+/**
+ * Filename:  DifficultyCalibratorTest.java
+ * Author:  Team SpellTest
+ * Date:  25 May 2019
+ *
+ * Purpose:  Unit tests for the DifficultyCalibrator class, on a made-up answer history (see
+ * CalibrationBenchmark.makeHistory()).  The fit should come close to the true difficulties, and splitting
+ * it across more threads shouldn't change the answer.
+ */
+
+package com.example.spelltest;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DifficultyCalibratorTest {
+
+    //Class variables
+    private static final int USER_COUNT = 2000;
+    private static final int WORD_COUNT = 200;
+
+    @Test
+    public void fitFindsTheTrueDifficulties() {
+        DifficultyCalibrator calibrator = new DifficultyCalibrator();
+        double[] difficulties = CalibrationBenchmark.makeHistory(calibrator, USER_COUNT, WORD_COUNT, 50, 5,
+                new Random(1));
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            calibrator.calibrate(pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(WORD_COUNT, calibrator.getWordCount());
+        double correlation = correlation(calibrator, difficulties);
+        assertTrue("Correlation " + correlation, correlation > 0.95);
+    }
+
+    @Test
+    public void threadsDontChangeTheFit() {
+        DifficultyCalibrator calibrator = new DifficultyCalibrator();
+        CalibrationBenchmark.makeHistory(calibrator, USER_COUNT, WORD_COUNT, 50, 5, new Random(2));
+
+        double[] single = fit(calibrator, 1);
+        double[] several = fit(calibrator, 4);
+        for (int i = 0; i < WORD_COUNT; i++) {
+            assertEquals(single[i], several[i], 1e-9);
+        }
+    }
+
+    /**
+     * Private method to run the fit with a pool of some number of threads.
+     * @return the difficulty of each word (indexed by word id).
+     */
+    private static double[] fit(DifficultyCalibrator calibrator, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            calibrator.calibrate(pool);
+        } finally {
+            pool.shutdown();
+        }
+        double[] difficulties = new double[WORD_COUNT];
+        for (int i = 0; i < WORD_COUNT; i++) difficulties[i] = calibrator.getDifficulty(i);
+        return difficulties;
+    }
+
+    /**
+     * Private static method to work out the correlation between the calibrated and true difficulties.
+     * @return the correlation (1 is perfect).
+     */
+    private static double correlation(DifficultyCalibrator calibrator, double[] difficulties) {
+        double sumX = 0, sumY = 0, sumXX = 0, sumYY = 0, sumXY = 0;
+        int n = difficulties.length;
+        for (int i = 0; i < n; i++) {
+            double x = calibrator.getDifficulty(i);
+            double y = difficulties[i];
+            sumX += x;
+            sumY += y;
+            sumXX += x * x;
+            sumYY += y * y;
+            sumXY += x * y;
+        }
+        return (n * sumXY - sumX * sumY) / Math.sqrt((n * sumXX - sumX * sumX) * (n * sumYY - sumY * sumY));
+    }
+}
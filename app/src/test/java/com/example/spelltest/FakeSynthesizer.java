@@ -0,0 +1,104 @@
+/**
+ * Filename:  FakeSynthesizer.java
+ * Author:  Team SpellTest
+ * Date:  26 May 2019
+ *
+ * Purpose:  A SpeechSynthesizer for the unit tests.  Instead of saying anything, it writes a file of a fixed
+ * size that starts with the text, and it keeps a list of the texts it was asked for, in order.  It can be
+ * told to fail, or to hold up every call until it is released (so the tests can queue work up behind it).
+ */
+
+package com.example.spelltest;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class FakeSynthesizer implements SpeechSynthesizer {
+
+    //Class variables
+    private static final long TIMEOUT = 5000;                   //Longest wait for a call (in ms).
+
+    //Instance variables
+    private final int mFileSize;                                //Size of each file written (in bytes).
+    private final ArrayList<String> mTexts = new ArrayList<>(); //Texts asked for so far, in order.
+    private volatile boolean mFailing = false;                  //True to fail every call.
+    private volatile CountDownLatch mGate = null;               //Holds up every call until released (or null).
+
+    FakeSynthesizer(int fileSize) {
+        mFileSize = fileSize;
+    }
+
+    @Override
+    public boolean synthesize(String text, Locale locale, float rate, File output) {
+
+        synchronized (this) {
+            mTexts.add(text);
+            notifyAll();
+        }
+
+        CountDownLatch gate = mGate;
+        try {
+            if (gate != null && !gate.await(TIMEOUT, TimeUnit.MILLISECONDS)) return false;
+        } catch (InterruptedException e) {
+            return false;
+        }
+        if (mFailing) return false;
+
+        byte[] bytes = Arrays.copyOf(text.getBytes(Charset.forName("UTF-8")), mFileSize);
+        try (FileOutputStream stream = new FileOutputStream(output)) {
+            stream.write(bytes);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    void setFailing(boolean failing) {
+        mFailing = failing;
+    }
+
+    /**
+     * Method to hold up every call (once it has been counted) until release() is called.
+     */
+    void block() {
+        mGate = new CountDownLatch(1);
+    }
+
+    void release() {
+        CountDownLatch gate = mGate;
+        mGate = null;
+        if (gate != null) gate.countDown();
+    }
+
+    /**
+     * Method to get the texts asked for so far.
+     * @return a copy of the list, in the order they were asked for.
+     */
+    synchronized List<String> getTexts() {
+        return new ArrayList<>(mTexts);
+    }
+
+    /**
+     * Method to wait until a number of texts have been asked for.  This doesn't wait for the files to be
+     * written.
+     * @param count the number of texts.
+     * @return the texts asked for so far (this is shorter than count if the wait timed out).
+     */
+    synchronized List<String> awaitTexts(int count) throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (mTexts.size() < count) {
+            long left = end - System.currentTimeMillis();
+            if (left <= 0) break;
+            wait(left);
+        }
+        return new ArrayList<>(mTexts);
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Filename:  GradingBenchmark.java
+ * Author:  Team SpellTest
+ * Date:  20 May 2019
+ *
+ * Purpose:  JMH benchmark for how fast the AnswerGrader grades answers, which is what limits how long
+ * re-grading the whole attempt history takes (see DataStore.gradeAttempts()).  It makes up words and answers
+ * to them (some right, most with a few typing mistakes, and some nothing like the word), and times grading
+ * them, both for ordinary words (handled by the bit-parallel matcher) and for very long ones (more than 64
+ * letters, which fall back to the row-by-row method).  The score is the time per answer.  That the grader
+ * gets the right answers is checked by AnswerGraderTest.
+ *
+ * Run it with "./gradlew :app:jmh -Pjmh=GradingBenchmark".
+ */
+
+package com.example.spelltest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GradingBenchmark {
+
+    //Class variables
+    private static final int PAIR_COUNT = 10000;        //Number of made-up answers of each kind.
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    //Instance variables
+    private final AnswerGrader mGrader = new AnswerGrader();    //Graders aren't thread-safe, so each thread has one.
+    private String[][] mShortPairs;                     //Answers to words of 3-15 letters.
+    private String[][] mLongPairs;                      //Answers to words of 65-120 letters.
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        mShortPairs = makePairs(random, 3, 15);
+        mLongPairs = makePairs(random, 65, 120);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIR_COUNT)
+    public int shortWords() {
+        return gradeAll(mGrader, mShortPairs);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIR_COUNT)
+    public int longWords() {
+        return gradeAll(mGrader, mLongPairs);
+    }
+
+    /**
+     * Private static method to grade every answer once.
+     * @param grader the grader.
+     * @param pairs the answers and spellings.
+     * @return the number of answers that were wrong, but near enough to get some credit (returned so the
+     *         work can't be optimized away).
+     */
+    private static int gradeAll(AnswerGrader grader, String[][] pairs) {
+        int nearMisses = 0;
+        for (String[] pair : pairs) {
+            int distance = grader.grade(pair[0], pair[1]);
+            if (distance > 0 && distance <= grader.getMaxDistance()) nearMisses++;
+        }
+        return nearMisses;
+    }
+
+    /**
+     * Private static method to make up words, and an answer to each.  A fifth of the answers are right, a
+     * tenth are random letters, and the rest have between one and three random mistakes.
+     * @param random the random number generator.
+     * @param minLength the shortest word.
+     * @param maxLength the longest word.
+     * @return the answers and spellings, in pairs.
+     */
+    private static String[][] makePairs(Random random, int minLength, int maxLength) {
+
+        String[][] pairs = new String[PAIR_COUNT][];
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            String spelling = randomWord(random, minLength + random.nextInt(maxLength - minLength + 1));
+            String answer;
+            int kind = random.nextInt(10);
+            if (kind < 2) {
+                answer = spelling;
+            } else if (kind < 3) {
+                answer = randomWord(random, spelling.length());
+            } else {
+                StringBuilder typed = new StringBuilder(spelling);
+                int mistakes = 1 + random.nextInt(3);
+                for (int m = 0; m < mistakes; m++) addMistake(random, typed);
+                answer = typed.toString();
+            }
+            pairs[i] = new String[] {answer, spelling};
+        }
+        return pairs;
+    }
+
+    /**
+     * Private static method to make a random typing mistake:  an extra letter, a missing letter, a wrong
+     * letter or two letters swapped.
+     * @param random the random number generator.
+     * @param typed the answer so far (changed in place).
+     */
+    private static void addMistake(Random random, StringBuilder typed) {
+        int at = random.nextInt(typed.length());
+        switch (random.nextInt(4)) {
+            case 0:
+                typed.insert(at, randomLetter(random));
+                break;
+            case 1:
+                if (typed.length() > 1) typed.deleteCharAt(at);
+                break;
+            case 2:
+                typed.setCharAt(at, randomLetter(random));
+                break;
+            default:
+                if (at + 1 < typed.length()) {
+                    char c = typed.charAt(at);
+                    typed.setCharAt(at, typed.charAt(at + 1));
+                    typed.setCharAt(at + 1, c);
+                }
+                break;
+        }
+    }
+
+    private static String randomWord(Random random, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) word.append(randomLetter(random));
+        return word.toString();
+    }
+
+    private static char randomLetter(Random random) {
+        return LETTERS.charAt(random.nextInt(LETTERS.length()));
+    }
+}
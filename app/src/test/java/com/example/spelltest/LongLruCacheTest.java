@@ -0,0 +1,180 @@
+/**
+ * Filename:  LongLruCacheTest.java
+ * Author:  Team SpellTest
+ * Date:  27 May 2019
+ *
+ * Purpose:  Unit tests for the LongLruCache class.  As well as a few known cases, it fuzzes the cache
+ * against a LinkedHashMap in access order (trimmed to the same capacity), for every capacity from 1 to 16,
+ * with keys from a small range so that the same keys come back, and probe chains are long and often broken
+ * up by removes.
+ */
+
+package com.example.spelltest;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LongLruCacheTest {
+
+    //Class variables
+    private static final int FUZZ_STEPS = 20000;        //Operations for each capacity.
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        LongLruCache<String> cache = new LongLruCache<>(3);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.put(3, "three");
+        assertEquals("one", cache.get(1));
+
+        //2 is now the least recently used.
+        cache.put(4, "four");
+        assertEquals(3, cache.size());
+        assertNull(cache.get(2));
+
+        //Replacing a value counts as a use, so 1 goes next, rather than 3.
+        cache.put(3, "THREE");
+        cache.put(5, "five");
+        assertNull(cache.get(1));
+        assertEquals("THREE", cache.get(3));
+        assertEquals("four", cache.get(4));
+        assertEquals("five", cache.get(5));
+    }
+
+    @Test
+    public void removeKeepsTheRestOfTheProbeChain() {
+        //Find four keys that all start from the same place in the table, so they form one probe chain.
+        LongLruCache<String> cache = new LongLruCache<>(4);
+        long[] keys = sameHome(4, 8);
+        for (long key : keys) cache.put(key, "v" + key);
+
+        //Removing the first (and then a middle one) mustn't cut off the keys further along the chain.
+        assertTrue(cache.remove(keys[0]));
+        assertFalse(cache.remove(keys[0]));
+        assertNull(cache.get(keys[0]));
+        assertEquals("v" + keys[1], cache.get(keys[1]));
+        assertEquals("v" + keys[2], cache.get(keys[2]));
+        assertEquals("v" + keys[3], cache.get(keys[3]));
+        assertTrue(cache.remove(keys[2]));
+        assertEquals("v" + keys[3], cache.get(keys[3]));
+        assertEquals(2, cache.size());
+
+        //The freed slots are used again.
+        cache.put(keys[0], "again");
+        cache.put(keys[2], "again");
+        assertEquals(4, cache.size());
+        assertEquals("again", cache.get(keys[0]));
+        assertEquals("v" + keys[1], cache.get(keys[1]));
+    }
+
+    @Test
+    public void clearEmptiesTheCacheButKeepsTheCounts() {
+        LongLruCache<String> cache = new LongLruCache<>(4);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.get(1);
+        cache.get(3);
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertNull(cache.get(1));
+        assertNull(cache.get(2));
+
+        //It still works (and holds its full capacity) afterwards.
+        for (long key = 10; key < 14; key++) cache.put(key, "v" + key);
+        assertEquals(4, cache.size());
+        assertEquals("v10", cache.get(10));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    public void capacityMustBePositive() {
+        try {
+            new LongLruCache<String>(0);
+            fail("A cache with no room was made");
+        } catch (IllegalArgumentException e) {
+            //Expected.
+        }
+        LongLruCache<String> cache = new LongLruCache<>(1);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        assertEquals(1, cache.size());
+        assertNull(cache.get(1));
+        assertEquals("two", cache.get(2));
+    }
+
+    @Test
+    public void matchesALinkedHashMap() {
+        for (int capacity = 1; capacity <= 16; capacity++) {
+            Random random = new Random(capacity);
+            LongLruCache<Long> cache = new LongLruCache<>(capacity);
+            LinkedHashMap<Long, Long> expected = new LinkedHashMap<>(16, 0.75f, true);
+            long hits = 0;
+            long misses = 0;
+            int keyRange = capacity * 3;
+
+            for (int step = 0; step < FUZZ_STEPS; step++) {
+                long key = random.nextInt(keyRange) - capacity;
+                String where = "capacity " + capacity + ", step " + step + ", key " + key;
+                int operation = random.nextInt(10);
+                if (operation < 4) {
+                    Long value = expected.get(key);
+                    if (value == null) misses++; else hits++;
+                    assertEquals(where, value, cache.get(key));
+                } else if (operation < 8) {
+                    long value = random.nextLong();
+                    expected.put(key, value);
+                    if (expected.size() > capacity) {
+                        Iterator<Long> eldest = expected.keySet().iterator();
+                        eldest.next();
+                        eldest.remove();
+                    }
+                    cache.put(key, value);
+                } else if (operation < 9) {
+                    assertEquals(where, expected.remove(key) != null, cache.remove(key));
+                } else if (random.nextInt(50) == 0) {
+                    expected.clear();
+                    cache.clear();
+                }
+                assertEquals(where, expected.size(), cache.size());
+            }
+
+            //Every entry left matches (checked oldest first, so the order of use doesn't change).
+            for (Long key : new LinkedHashMap<>(expected).keySet()) {
+                assertEquals(expected.get(key), cache.get(key));
+                hits++;
+            }
+            assertEquals(hits, cache.getHitCount());
+            assertEquals(misses, cache.getMissCount());
+        }
+    }
+
+    /**
+     * Private static method to find keys that all hash to the same place in a table of a given size (the
+     * same hash as LongLruCache uses).
+     * @param count the number of keys.
+     * @param tableSize the size of the cache's table.
+     * @return the keys.
+     */
+    private static long[] sameHome(int count, int tableSize) {
+        long[] keys = new long[count];
+        int found = 0;
+        for (long key = 1; found < count; key++) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            if (((int) (h ^ (h >>> 32)) & (tableSize - 1)) == 0) keys[found++] = key;
+        }
+        return keys;
+    }
+}
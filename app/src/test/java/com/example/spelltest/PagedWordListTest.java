@@ -0,0 +1,310 @@
+/**
+ * Filename:  PagedWordListTest.java
+ * Author:  Team SpellTest
+ * Date:  27 May 2019
+ *
+ * Purpose:  Unit tests for the PagedWordList class, with a fake loader that holds each request until the
+ * test hands back its result (as the AsyncDataStore would, later, on the main thread).  The word ids go up
+ * in steps of 3, so a page fetched by key and one fetched by offset can be told apart.
+ */
+
+package com.example.spelltest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PagedWordListTest {
+
+    //Class variables
+    private static final int PAGE = PagedWordList.PAGE_SIZE;
+
+    //Instance variables
+    private FakeLoader mLoader;
+    private PagedWordList mList;
+    private final ArrayList<int[]> mLoadedPages = new ArrayList<>();    //First position and count of each page loaded.
+    private int mChangeCount = 0;                                       //Number of onListChanged() calls.
+
+    @Before
+    public void setUp() {
+        mLoader = new FakeLoader();
+        mList = new PagedWordList(mLoader, new PagedWordList.Listener() {
+            @Override
+            public void onListChanged() {
+                mChangeCount++;
+            }
+
+            @Override
+            public void onPageLoaded(int firstPosition, int count) {
+                mLoadedPages.add(new int[] {firstPosition, count});
+            }
+        });
+    }
+
+    @Test
+    public void firstPageIsLoadedByKey() {
+        load(3 * PAGE);
+        assertEquals(3 * PAGE, mList.size());
+        assertEquals(1, mChangeCount);
+
+        assertNull(mList.get(0));
+        Request request = mLoader.take();
+        assertEquals(DataStore.NULL_ROW_ID, request.mAfterId);
+        request.finish();
+
+        assertEquals(1, mLoadedPages.size());
+        assertEquals(0, mLoadedPages.get(0)[0]);
+        assertEquals(PAGE, mLoadedPages.get(0)[1]);
+        assertEquals(idAt(0), mList.get(0).id);
+        assertEquals(idAt(PAGE - 11), mList.get(PAGE - 11).id);
+        assertTrue(mLoader.mRequests.isEmpty());
+    }
+
+    @Test
+    public void nextPageIsPrefetchedByKey() {
+        load(3 * PAGE);
+        loadPage(0);
+
+        //Getting close to the end of the page starts loading the next one, after the last word seen.
+        assertNotNull(mList.get(PAGE - 5));
+        Request request = mLoader.take();
+        assertEquals(idAt(PAGE - 1), request.mAfterId);
+        request.finish();
+        assertEquals(idAt(PAGE), mList.get(PAGE).id);
+    }
+
+    @Test
+    public void jumpingFallsBackToAnOffset() {
+        load(20 * PAGE);
+        assertNull(mList.get(10 * PAGE + 3));
+        Request request = mLoader.take();
+        assertEquals(-1, request.mAfterId);
+        assertEquals(10 * PAGE, request.mOffset);
+        request.finish();
+        assertEquals(idAt(10 * PAGE + 3), mList.get(10 * PAGE + 3).id);
+
+        //The page after it is then loaded by key.
+        assertNull(mList.get(11 * PAGE));
+        assertEquals(idAt(11 * PAGE - 1), mLoader.take().mAfterId);
+    }
+
+    @Test
+    public void removeThrowsAwayTheLaterPages() {
+        load(3 * PAGE);
+        loadPage(0);
+        loadPage(1);
+        loadPage(2);
+
+        //Remove a word on page 1:  page 0 is kept, page 1 is reloaded by its key, and page 2 (whose key
+        //has moved) by offset.
+        mLoader.removeAt(PAGE + 5);
+        mList.remove(PAGE + 5);
+        assertEquals(3 * PAGE - 1, mList.size());
+        assertEquals(idAt(0), mList.get(0).id);
+        assertTrue(mLoader.mRequests.isEmpty());
+
+        assertNull(mList.get(PAGE + 5));
+        assertEquals(idAt(PAGE - 1), mLoader.take().mAfterId);
+        assertNull(mList.get(2 * PAGE));
+        Request request = mLoader.take();
+        assertEquals(-1, request.mAfterId);
+        assertEquals(2 * PAGE, request.mOffset);
+    }
+
+    @Test
+    public void addGoesOnTheLastPage() {
+        load(PAGE - 1);
+        loadPage(0);
+
+        //The last page has room, so the word is added to it.
+        Objects.Word first = mLoader.append();
+        mList.add(first);
+        assertEquals(PAGE, mList.size());
+        assertEquals(first.id, mList.get(PAGE - 1).id);
+
+        //The page is now full, so the next word starts a new page, which is loaded after the last word.
+        Objects.Word second = mLoader.append();
+        mList.add(second);
+        assertEquals(PAGE + 1, mList.size());
+        assertNull(mList.get(PAGE));
+        Request request = mLoader.take();
+        assertEquals(first.id, request.mAfterId);
+        request.finish();
+        assertEquals(second.id, mList.get(PAGE).id);
+    }
+
+    @Test
+    public void staleResultsAreIgnored() {
+        load(3 * PAGE);
+        loadPage(0);
+        assertNull(mList.get(PAGE));
+        Request stale = mLoader.take();
+
+        //The list changes before the page arrives, so it has to be asked for again.
+        mLoader.removeAt(3);
+        mList.remove(3);
+        stale.finish();
+        assertEquals(1, mLoadedPages.size());
+
+        assertNull(mList.get(0));
+        Request fresh = mLoader.take();
+        fresh.finish();
+        assertEquals(idAt(4), mList.get(3).id);
+        assertEquals(2, mLoadedPages.size());
+    }
+
+    @Test
+    public void onlyFourPagesAreKept() {
+        load(10 * PAGE);
+        for (int page = 0; page < 6; page++) loadPage(page);
+        assertEquals(4, mList.getResidentPageCount());
+
+        //The least recently used pages (0 and 1) were dropped.
+        assertNotNull(mList.get(2 * PAGE));
+        assertNull(mList.get(0));
+        assertEquals(DataStore.NULL_ROW_ID, mLoader.take().mAfterId);
+    }
+
+    @Test
+    public void scrollingAHugeListStaysInFourPages() {
+        int size = 1000000;
+        load(size);
+
+        //Scroll through the whole list.  Every page after the first is prefetched by key, so no page is ever
+        //asked for by offset, and no more than four are ever held.
+        int pages = 0;
+        for (int position = 0; position < size; position++) {
+            Objects.Word word = mList.get(position);
+            while (!mLoader.mRequests.isEmpty()) {
+                Request request = mLoader.take();
+                assertEquals(-1, request.mOffset);
+                request.finish();
+                pages++;
+            }
+            if (word == null) word = mList.get(position);
+            assertEquals(idAt(position), word.id);
+            assertTrue(mList.getResidentPageCount() <= 4);
+        }
+        assertEquals(size / PAGE, pages);
+    }
+
+    /**
+     * Private method to give the list a number of words, and load its size.
+     */
+    private void load(int size) {
+        mLoader.fill(size);
+        mList.load();
+        mLoader.take().finish();
+    }
+
+    /**
+     * Private method to load a page (and anything it prefetches) all the way.
+     */
+    private void loadPage(int page) {
+        mList.get(page * PAGE);
+        while (!mLoader.mRequests.isEmpty()) mLoader.take().finish();
+        assertNotNull(mList.get(page * PAGE));
+    }
+
+    private static long idAt(int position) {
+        return 3L * position + 1;
+    }
+
+    /**
+     * A request held by the fake loader:  where it starts (by key or by offset), and its callback.
+     */
+    private static final class Request {
+
+        final long mAfterId;                        //Key of the request (-1 if it is by offset).
+        final int mOffset;                          //Offset of the request (-1 if it is by key).
+        final Runnable mFinish;                     //Hands back the result.
+
+        Request(long afterId, int offset, Runnable finish) {
+            mAfterId = afterId;
+            mOffset = offset;
+            mFinish = finish;
+        }
+
+        void finish() {
+            mFinish.run();
+        }
+    }
+
+    /**
+     * A loader that keeps the word ids in a list (in order), and holds on to each request until it is
+     * finished.
+     */
+    private static final class FakeLoader implements PagedWordList.Loader {
+
+        final ArrayList<Long> mIds = new ArrayList<>();
+        final ArrayList<Request> mRequests = new ArrayList<>();
+        long mNextId = 1;
+
+        void fill(int size) {
+            for (int i = 0; i < size; i++) append();
+        }
+
+        Objects.Word append() {
+            long id = mNextId;
+            mNextId += 3;
+            mIds.add(id);
+            return new Objects.Word(id, 1, "word" + id);
+        }
+
+        void removeAt(int position) {
+            mIds.remove(position);
+        }
+
+        Request take() {
+            assertTrue("No request was made", !mRequests.isEmpty());
+            return mRequests.remove(0);
+        }
+
+        @Override
+        public void countWords(final DataCallback<Integer> callback) {
+            mRequests.add(new Request(-1, -1, new Runnable() {
+                @Override
+                public void run() {
+                    callback.onResult(mIds.size());
+                }
+            }));
+        }
+
+        @Override
+        public void getWordsAfter(final long afterWordId, final int limit,
+                                  final DataCallback<ArrayList<Objects.Word>> callback) {
+            mRequests.add(new Request(afterWordId, -1, new Runnable() {
+                @Override
+                public void run() {
+                    int start = Collections.binarySearch(mIds, afterWordId);
+                    callback.onResult(words((start >= 0) ? start + 1 : -start - 1, limit));
+                }
+            }));
+        }
+
+        @Override
+        public void getWordsAt(final int offset, final int limit, final DataCallback<ArrayList<Objects.Word>> callback) {
+            mRequests.add(new Request(-1, offset, new Runnable() {
+                @Override
+                public void run() {
+                    callback.onResult(words(offset, limit));
+                }
+            }));
+        }
+
+        private ArrayList<Objects.Word> words(int start, int limit) {
+            ArrayList<Objects.Word> words = new ArrayList<>();
+            for (int i = start; i < Math.min(mIds.size(), start + limit); i++) {
+                words.add(new Objects.Word(mIds.get(i), 1, "word" + mIds.get(i)));
+            }
+            return words;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Filename:  PhoneticKeyTest.java
+ * Author:  Team SpellTest
+ * Date:  28 May 2019
+ *
+ * Purpose:  Unit tests for the PhoneticKey class:  misspellings that sound like the word should get the
+ * word's key, each of the Metaphone rules should give the key it is meant to, and vowels at the start,
+ * empty text and accented letters should be handled the way the class doc says.
+ */
+
+package com.example.spelltest;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PhoneticKeyTest {
+
+    @Test
+    public void soundAlikesMatch() {
+        assertSameKey("FN", "phone", "fone");
+        assertSameKey("NT", "knight", "night");
+        assertSameKey("AJ", "edge", "ej");
+        assertSameKey("SNS", "science", "sience");
+        assertSameKey("RT", "write", "rite");
+        assertSameKey("SKL", "school", "skool");
+        assertSameKey("KST", "ghost", "gost");
+    }
+
+    @Test
+    public void rulesGiveTheirKeys() {
+        //Silent and changed first letters.
+        assertEquals("NM", PhoneticKey.encode("gnome"));
+        assertEquals("NMNK", PhoneticKey.encode("pneumonic"));
+        assertEquals("WX", PhoneticKey.encode("which"));
+        assertEquals("SLFN", PhoneticKey.encode("xylophone"));
+
+        //B, C and D.
+        assertEquals("0M", PhoneticKey.encode("thumb"));
+        assertEquals("SPXL", PhoneticKey.encode("special"));
+        assertEquals("AKSPT", PhoneticKey.encode("accept"));
+        assertEquals("KK", PhoneticKey.encode("quick"));
+        assertEquals("JJ", PhoneticKey.encode("judge"));
+        assertEquals("TK", PhoneticKey.encode("dog"));
+
+        //G and H.
+        assertEquals("SN", PhoneticKey.encode("sign"));
+        assertEquals("SNT", PhoneticKey.encode("signed"));
+        assertEquals("JM", PhoneticKey.encode("gem"));
+        assertEquals("HT", PhoneticKey.encode("hat"));
+        assertEquals("AHT", PhoneticKey.encode("ahead"));
+
+        //S, T and the rest.
+        assertEquals("NXN", PhoneticKey.encode("nation"));
+        assertEquals("FXN", PhoneticKey.encode("fusion"));
+        assertEquals("MX", PhoneticKey.encode("match"));
+        assertEquals("BKS", PhoneticKey.encode("box"));
+        assertEquals("FS", PhoneticKey.encode("vase"));
+        assertEquals("S", PhoneticKey.encode("zoo"));
+        assertEquals("YS", PhoneticKey.encode("yes"));
+        assertEquals("T", PhoneticKey.encode("toy"));
+        assertEquals("LTR", PhoneticKey.encode("letter"));
+    }
+
+    @Test
+    public void firstVowelIsAlwaysA() {
+        assertSameKey("AT", "ate", "eight");
+        assertSameKey("AT", "oat", "ought");
+        assertEquals("AN", PhoneticKey.encode("aeon"));
+        assertEquals("A", PhoneticKey.encode("a"));
+        assertEquals("A", PhoneticKey.encode("I"));
+        assertEquals("ANT", PhoneticKey.encode("Uneat"));
+    }
+
+    @Test
+    public void emptyTextHasAnEmptyKey() {
+        assertEquals("", PhoneticKey.encode(null));
+        assertEquals("", PhoneticKey.encode(""));
+        assertEquals("", PhoneticKey.encode("  123 -!"));
+        assertEquals("KT", PhoneticKey.encode(" c-a-t! "));
+    }
+
+    @Test
+    public void accentsAreDropped() {
+        assertSameKey("KF", "café", "cafe");
+        assertSameKey("NF", "naïve", "naive");
+        assertSameKey("ABR", "Über", "uber");
+        assertSameKey("NN", "Ñoño", "nono");
+        assertSameKey("KRS", "Çrès", "cress");
+
+        //Letters with no plain letter under them are ignored, like anything else that isn't a letter.
+        assertEquals("STR", PhoneticKey.encode("straße"));
+        assertEquals("", PhoneticKey.encode("ßøæ"));
+    }
+
+    /**
+     * Private static method to check that two spellings both have the key given.
+     */
+    private static void assertSameKey(String key, String spelling, String soundAlike) {
+        assertEquals(spelling, key, PhoneticKey.encode(spelling));
+        assertEquals(soundAlike, key, PhoneticKey.encode(soundAlike));
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Filename:  ReviewQueueBenchmark.java
+ * Author:  Team SpellTest
+ * Date:  28 May 2019
+ *
+ * Purpose:  JMH benchmark for the ReviewQueue class with 300 thousand words.  Each operation is one answer in
+ * a review test:  nextWord() takes the word that has been due longest, and reschedule() works out its new
+ * schedule and puts it back in the heap.  The clock is set far in the future, so every word is always due
+ * and the queue never runs dry, and the answers (about 70% right, at a mix of speeds) are made up up front,
+ * so the score is just the queue's own time per answer.  That the queue gets the schedules right is checked
+ * by ReviewQueueTest.
+ *
+ * Run it with "./gradlew :app:jmh -Pjmh=ReviewQueueBenchmark".
+ */
+
+package com.example.spelltest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReviewQueueBenchmark {
+
+    //Class variables
+    private static final int WORD_COUNT = 300000;       //Words in the queue.
+    private static final int ANSWER_COUNT = 4096;       //Made-up answers, used in turn (a power of 2).
+
+    //Instance variables
+    private ReviewQueue mQueue;
+    private boolean[] mCorrect;                         //Whether each made-up answer is right...
+    private long[] mResponseTimes;                      //...and how long it took.
+    private int mAnswer = 0;                            //The next made-up answer to use.
+    private long mNow = 0;                              //Time of the next answer.
+
+    @Setup
+    public void setUp() {
+        ArrayList<Objects.Word> words = new ArrayList<>(WORD_COUNT);
+        for (int i = 0; i < WORD_COUNT; i++) {
+            words.add(new Objects.Word(i, 1, "spelling" + i));
+        }
+        TestSession.Clock farFuture = new TestSession.Clock() {
+            @Override
+            public long now() {
+                return Long.MAX_VALUE / 2;
+            }
+        };
+        mQueue = new ReviewQueue(words, new ArrayList<Objects.ReviewSchedule>(), 1, farFuture);
+
+        Random random = new Random(1);
+        mCorrect = new boolean[ANSWER_COUNT];
+        mResponseTimes = new long[ANSWER_COUNT];
+        for (int i = 0; i < ANSWER_COUNT; i++) {
+            mCorrect[i] = random.nextInt(10) < 7;
+            mResponseTimes[i] = 1000 + random.nextInt(20000);
+        }
+    }
+
+    @Benchmark
+    public Objects.ReviewSchedule nextAndReschedule() {
+        mQueue.nextWord();
+        int answer = mAnswer;
+        mAnswer = (answer + 1) & (ANSWER_COUNT - 1);
+        return mQueue.reschedule(mCorrect[answer], mResponseTimes[answer], mNow++);
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Filename:  ReviewQueueTest.java
+ * Author:  Team SpellTest
+ * Date:  28 May 2019
+ *
+ * Purpose:  Unit tests for the ReviewQueue class:  the SM-2 steps in review() (the 1 day, 6 day and then
+ * growing intervals, starting again after a miss, and the ease factor's floor), and the queue itself, which
+ * should only hand out the words that are due, earliest first, with a fake clock.
+ */
+
+package com.example.spelltest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReviewQueueTest {
+
+    //Class variables
+    private static final long DAY = ReviewQueue.DAY;
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void intervalsGrowByTheEaseFactor() {
+        Objects.ReviewSchedule schedule = newSchedule(1);
+        long now = 1000;
+
+        //Easy answers:  1 day, then 6, then the last interval times the ease factor (which goes up 0.1 each
+        //time, after the interval has been worked out).
+        ReviewQueue.review(schedule, 5, now);
+        assertSchedule(schedule, 1, 1, 2.6, now);
+        ReviewQueue.review(schedule, 5, now);
+        assertSchedule(schedule, 6, 2, 2.7, now);
+        ReviewQueue.review(schedule, 5, now);
+        assertSchedule(schedule, 16, 3, 2.8, now);          //6 * 2.7 = 16.2
+        ReviewQueue.review(schedule, 5, now);
+        assertSchedule(schedule, 45, 4, 2.9, now);          //16 * 2.8 = 44.8
+
+        //A good answer leaves the ease factor alone, and a hard one lowers it (but both still pass).
+        ReviewQueue.review(schedule, 4, now);
+        assertSchedule(schedule, 131, 5, 2.9, now);         //45 * 2.9 = 130.5
+        ReviewQueue.review(schedule, 3, now);
+        assertSchedule(schedule, 380, 6, 2.76, now);        //131 * 2.9 = 379.9
+    }
+
+    @Test
+    public void missStartsAgainAtOneDay() {
+        Objects.ReviewSchedule schedule = newSchedule(1);
+        for (int i = 0; i < 3; i++) ReviewQueue.review(schedule, 5, 0);
+        assertSchedule(schedule, 16, 3, 2.8, 0);
+
+        ReviewQueue.review(schedule, 2, 5 * DAY);
+        assertSchedule(schedule, 1, 0, 2.48, 5 * DAY);
+
+        //The next right answer starts the gaps again from 1 day, then 6, with the lower ease factor.
+        ReviewQueue.review(schedule, 5, 6 * DAY);
+        assertSchedule(schedule, 1, 1, 2.58, 6 * DAY);
+        ReviewQueue.review(schedule, 5, 7 * DAY);
+        assertSchedule(schedule, 6, 2, 2.68, 7 * DAY);
+    }
+
+    @Test
+    public void easeFactorStopsAtTheMinimum() {
+        Objects.ReviewSchedule schedule = newSchedule(1);
+        for (int i = 0; i < 10; i++) {
+            ReviewQueue.review(schedule, 0, 0);
+            assertTrue(schedule.easeFactor >= ReviewQueue.MINIMUM_EASE_FACTOR);
+        }
+        assertEquals(ReviewQueue.MINIMUM_EASE_FACTOR, schedule.easeFactor, 0);
+
+        //Hard answers don't push it lower either, and the interval still grows (slowly).
+        for (int i = 0; i < 3; i++) ReviewQueue.review(schedule, 3, 0);
+        assertSchedule(schedule, 8, 3, ReviewQueue.MINIMUM_EASE_FACTOR, 0);     //6 * 1.3 = 7.8
+    }
+
+    @Test
+    public void answersAreGradedBySpeed() {
+        assertEquals(2, ReviewQueue.quality(false, 1000));
+        assertEquals(5, ReviewQueue.quality(true, 5000));
+        assertEquals(4, ReviewQueue.quality(true, 5001));
+        assertEquals(4, ReviewQueue.quality(true, 15000));
+        assertEquals(3, ReviewQueue.quality(true, 15001));
+    }
+
+    @Test
+    public void onlyDueWordsComeOutEarliestFirst() {
+        FakeClock clock = new FakeClock(10 * DAY);
+        ArrayList<Objects.Word> words = new ArrayList<>();
+        ArrayList<Objects.ReviewSchedule> schedules = new ArrayList<>();
+        long[] dueTimes = {9 * DAY, 12 * DAY, 2 * DAY, 10 * DAY, 11 * DAY, 2 * DAY};
+        for (int i = 0; i < dueTimes.length; i++) {
+            words.add(new Objects.Word(i, 1, "word" + i));
+            Objects.ReviewSchedule schedule = newSchedule(i);
+            schedule.dueTime = dueTimes[i];
+            schedules.add(schedule);
+        }
+        words.add(new Objects.Word(6, 1, "new word"));          //No schedule, so due straight away.
+
+        ReviewQueue queue = new ReviewQueue(words, schedules, 1, clock);
+        assertEquals(5, queue.dueCount());
+
+        //The new word is due at time 0, and words due at the same time come out in list order.
+        assertEquals(6, queue.nextWord().id);
+        assertEquals(2, queue.nextWord().id);
+        assertEquals(5, queue.nextWord().id);
+        assertEquals(0, queue.nextWord().id);
+        assertEquals(3, queue.nextWord().id);
+        assertNull(queue.nextWord());
+        assertEquals(0, queue.dueCount());
+    }
+
+    @Test
+    public void rescheduledWordsComeBackWhenDue() {
+        FakeClock clock = new FakeClock(DAY);
+        ArrayList<Objects.Word> words = new ArrayList<>();
+        for (int i = 0; i < 3; i++) words.add(new Objects.Word(i, 1, "word" + i));
+        ReviewQueue queue = new ReviewQueue(words, new ArrayList<Objects.ReviewSchedule>(), 7, clock);
+
+        try {
+            queue.reschedule(true, 1000, clock.now());
+            fail("A word was rescheduled before one was handed out");
+        } catch (IllegalStateException e) {
+            //Expected.
+        }
+
+        //Word 0 is missed, and the others are right, so all three are due again in a day.
+        assertEquals(0, queue.nextWord().id);
+        Objects.ReviewSchedule saved = queue.reschedule(false, 1000, clock.now());
+        assertEquals(7, saved.userId);
+        assertEquals(0, saved.wordId);
+        assertEquals(2 * DAY, saved.dueTime);
+        assertEquals(1, queue.nextWord().id);
+        queue.reschedule(true, 1000, clock.now() + 1);
+        assertEquals(2, queue.nextWord().id);
+        queue.reschedule(true, 20000, clock.now() + 2);
+        assertNull(queue.nextWord());
+
+        //The copy that was returned is the caller's to change.
+        saved.dueTime = 0;
+        assertNull(queue.nextWord());
+
+        clock.advance(DAY + 1);
+        assertEquals(2, queue.dueCount());
+        assertEquals(0, queue.nextWord().id);
+        assertEquals(1, queue.nextWord().id);
+        assertNull(queue.nextWord());
+        clock.advance(1);
+        assertEquals(2, queue.nextWord().id);
+    }
+
+    private static Objects.ReviewSchedule newSchedule(long wordId) {
+        return new Objects.ReviewSchedule(DataStore.NULL_ROW_ID, 1, wordId, 0, ReviewQueue.INITIAL_EASE_FACTOR, 0, 0);
+    }
+
+    private static void assertSchedule(Objects.ReviewSchedule schedule, int intervalDays, int repetitions,
+                                       double easeFactor, long now) {
+        assertEquals(intervalDays, schedule.intervalDays);
+        assertEquals(repetitions, schedule.repetitions);
+        assertEquals(easeFactor, schedule.easeFactor, DELTA);
+        assertEquals(now + intervalDays * DAY, schedule.dueTime);
+    }
+
+    /**
+     * A clock that only moves when it is told to.
+     */
+    private static final class FakeClock implements TestSession.Clock {
+
+        private long mTime;
+
+        FakeClock(long time) {
+            mTime = time;
+        }
+
+        @Override
+        public long now() {
+            return mTime;
+        }
+
+        void advance(long time) {
+            mTime += time;
+        }
+    }
+}
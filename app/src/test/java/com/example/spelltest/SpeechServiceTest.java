@@ -0,0 +1,140 @@
+/**
+ * Filename:  SpeechServiceTest.java
+ * Author:  Team SpellTest
+ * Date:  26 May 2019
+ *
+ * Purpose:  Unit tests for how the SpeechService class fills the audio cache, with a fake synthesizer (see
+ * FakeSynthesizer) in place of the engine.  There's no engine on the JVM, so each test starts the service
+ * itself with onEngineStarted().  Callbacks posted to the main thread are never run here, so the tests watch
+ * what the synthesizer is asked for (and in what order) instead.
+ */
+
+package com.example.spelltest;
+
+import android.content.ContextWrapper;
+import android.speech.tts.TextToSpeech;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SpeechServiceTest {
+
+    //Class variables
+    private static final Runnable NOTHING = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    //Instance variables
+    private FakeSynthesizer mSynthesizer;
+    private SpeechService mService;
+
+    @Before
+    public void setUp() {
+        mSynthesizer = new FakeSynthesizer(100);
+        mService = new SpeechService(new FakeContext(mFolder.getRoot()), mSynthesizer);
+    }
+
+    @Test
+    public void prefetchWaitsForTheEngine() throws InterruptedException {
+        mService.prefetch(Arrays.asList("cat", "dog"));
+        assertFalse(mService.isReady());
+        assertTrue(mSynthesizer.getTexts().isEmpty());
+
+        mService.onEngineStarted(TextToSpeech.SUCCESS);
+        assertTrue(mService.isReady());
+        assertEquals(Arrays.asList("cat", "dog"), mSynthesizer.awaitTexts(2));
+    }
+
+    @Test
+    public void prepareJumpsAheadOfPrefetching() throws InterruptedException {
+        mService.onEngineStarted(TextToSpeech.SUCCESS);
+
+        //Hold up the first word, so the rest wait in the queue.
+        mSynthesizer.block();
+        mService.prefetch(Arrays.asList("a", "b", "c"));
+        assertEquals(1, mSynthesizer.awaitTexts(1).size());
+        mService.prepare("next", NOTHING);
+        mSynthesizer.release();
+
+        assertEquals(Arrays.asList("a", "next", "b", "c"), mSynthesizer.awaitTexts(4));
+    }
+
+    @Test
+    public void stopDropsWaitingPrefetches() throws InterruptedException {
+        mService.onEngineStarted(TextToSpeech.SUCCESS);
+
+        mSynthesizer.block();
+        mService.prefetch(Arrays.asList("a", "b", "c"));
+        assertEquals(1, mSynthesizer.awaitTexts(1).size());
+        mService.stop();
+        mService.prefetch(Collections.singletonList("d"));
+        mSynthesizer.release();
+
+        //The words are done in order, so once "d" is asked for, "b" and "c" have been dropped.
+        assertEquals(Arrays.asList("a", "d"), mSynthesizer.awaitTexts(2));
+    }
+
+    @Test
+    public void wordsSpokenLiveAreCachedForNextTime() throws InterruptedException {
+        mService.onEngineStarted(TextToSpeech.SUCCESS);
+
+        mService.say("cat");
+        assertEquals(0, mService.getPromptCount(SpeechService.SOURCE_CACHE));
+
+        //Once "dog" is asked for, "cat" has been written (the cache is filled on one thread, in order).
+        mService.prefetch(Collections.singletonList("dog"));
+        assertEquals(Arrays.asList("cat", "dog"), mSynthesizer.awaitTexts(2));
+
+        mService.say("cat");
+        assertEquals(1, mService.getPromptCount(SpeechService.SOURCE_CACHE));
+        assertEquals(2, mSynthesizer.getTexts().size());
+    }
+
+    /**
+     * A context with its own files and cache directories, and no external storage.
+     */
+    private static final class FakeContext extends ContextWrapper {
+
+        private final File mRoot;
+
+        FakeContext(File root) {
+            super(null);
+            mRoot = root;
+        }
+
+        @Override
+        public ContextWrapper getApplicationContext() {
+            return this;
+        }
+
+        @Override
+        public File getFilesDir() {
+            return new File(mRoot, "files");
+        }
+
+        @Override
+        public File getCacheDir() {
+            return new File(mRoot, "cache");
+        }
+
+        @Override
+        public File getExternalFilesDir(String type) {
+            return null;
+        }
+    }
+}
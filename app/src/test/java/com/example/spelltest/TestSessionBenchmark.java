@@ -0,0 +1,162 @@
+/**
+ * Filename:  TestSessionBenchmark.java
+ * Author:  Team SpellTest
+ * Date:  25 May 2019
+ *
+ * Purpose:  JMH benchmark for the TestSession class on its own, with a fake clock, a fixed word source and a
+ * result sink that throws the results away - so it measures just the session (including grading each
+ * answer), which is what limits how many tests can be simulated a second.  Each operation is a whole test:
+ *   - session:  a 20-word list in order, with a mix of right answers, near misses and wrong answers, and
+ *   - adaptiveSession:  the same, but with the words picked by an AdaptiveTest from a 100-word list.
+ * The same session objects are re-used for every test (as the simulations do), so the score is tests a
+ * second.
+ *
+ * Run it with "./gradlew :app:jmh -Pjmh=TestSessionBenchmark".
+ */
+
+package com.example.spelltest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TestSessionBenchmark {
+
+    //Class variables
+    private static final int WORD_COUNT = 20;           //Words in the ordinary test.
+    private static final int ADAPTIVE_WORD_COUNT = 100; //Words in the list the adaptive test picks from.
+
+    //Instance variables
+    private final FakeClock mClock = new FakeClock();
+    private final TestSession.ResultSink mSink = new TestSession.ResultSink() {
+        @Override
+        public void onAttempt(long sessionId, Objects.Word word, String typedText, boolean correct,
+                              int editDistance, int errorType, long responseTime, long timestamp) {
+        }
+
+        @Override
+        public void onFinished(Objects.SpellingListStat stat) {
+        }
+    };
+    private ListSource mSource;                         //Hands out the ordinary test's words in order.
+    private TestSession mSession;                       //The ordinary test.
+    private String[] mAnswers;                          //The answer to each word (indexed by word id).
+    private ArrayList<Objects.Word> mAdaptiveWords;
+    private ArrayList<Objects.WordStat> mAdaptiveStats;
+    private String[] mAdaptiveAnswers;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+
+        ArrayList<Objects.Word> words = new ArrayList<>(WORD_COUNT);
+        mAnswers = new String[WORD_COUNT];
+        for (int i = 0; i < WORD_COUNT; i++) {
+            words.add(new Objects.Word(i, 1, "spelling" + i));
+            mAnswers[i] = makeAnswer(random, words.get(i).spelling);
+        }
+        mSource = new ListSource(words);
+        mSession = new TestSession(1, mSource, mClock, mSink);
+
+        mAdaptiveWords = new ArrayList<>(ADAPTIVE_WORD_COUNT);
+        mAdaptiveStats = new ArrayList<>(ADAPTIVE_WORD_COUNT);
+        mAdaptiveAnswers = new String[ADAPTIVE_WORD_COUNT];
+        for (int i = 0; i < ADAPTIVE_WORD_COUNT; i++) {
+            mAdaptiveWords.add(new Objects.Word(i, 2, "spelling" + i));
+            mAdaptiveAnswers[i] = makeAnswer(random, mAdaptiveWords.get(i).spelling);
+            int correct = 10 + random.nextInt(80);
+            mAdaptiveStats.add(new Objects.WordStat(i, i, correct / 100.0, 100, correct));
+        }
+    }
+
+    @Benchmark
+    public int session() {
+        mSource.reset();
+        return runTest(mSession, mAnswers);
+    }
+
+    @Benchmark
+    public int adaptiveSession() {
+        AdaptiveTest test = new AdaptiveTest(mAdaptiveWords, mAdaptiveStats,
+                AdaptiveTest.DEFAULT_TARGET_STANDARD_ERROR, AdaptiveTest.DEFAULT_MINIMUM_WORDS);
+        return runTest(new TestSession(2, test, mClock, mSink), mAdaptiveAnswers);
+    }
+
+    /**
+     * Private method to take a whole test, answering each word a couple of seconds after it is shown.
+     * @return the number of correct answers (so the work can't be optimized away).
+     */
+    private int runTest(TestSession session, String[] answers) {
+        Objects.Word word = session.start();
+        while (word != null) {
+            mClock.advance(2000);
+            session.submit(answers[(int) word.id]);
+            word = session.next();
+        }
+        return session.getNumberCorrect();
+    }
+
+    /**
+     * Private static method to make up an answer to a word:  half are right, a third have a letter
+     * missing, and the rest are nothing like the word.
+     */
+    private static String makeAnswer(Random random, String spelling) {
+        int kind = random.nextInt(6);
+        if (kind < 3) return spelling;
+        if (kind < 5) return spelling.substring(0, 2) + spelling.substring(3);
+        return "xyz";
+    }
+
+    /**
+     * A clock that only moves when it is told to.
+     */
+    private static final class FakeClock implements TestSession.Clock {
+
+        private long mTime = 0;
+
+        @Override
+        public long now() {
+            return mTime;
+        }
+
+        void advance(long time) {
+            mTime += time;
+        }
+    }
+
+    /**
+     * A word source that hands out the words in a list in order, and can be started again.
+     */
+    private static final class ListSource implements TestSession.WordSource {
+
+        private final ArrayList<Objects.Word> mWords;
+        private int mNext = 0;
+
+        ListSource(ArrayList<Objects.Word> words) {
+            mWords = words;
+        }
+
+        void reset() {
+            mNext = 0;
+        }
+
+        @Override
+        public Objects.Word nextWord() {
+            return (mNext < mWords.size()) ? mWords.get(mNext++) : null;
+        }
+    }
+}
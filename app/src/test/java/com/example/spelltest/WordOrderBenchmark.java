@@ -0,0 +1,80 @@
+/**
+ * Filename:  WordOrderBenchmark.java
+ * Author:  Team SpellTest
+ * Date:  28 May 2019
+ *
+ * Purpose:  JMH benchmark for handing out words (see the WordOrder class), with lists of 100, 10 thousand and
+ * 1 million words.  Each operation is a single nextWord() call, and the source is reset whenever it runs out,
+ * so the time per word should stay the same however long the list is:
+ *   - shuffled:  one step of the Fisher-Yates shuffle (the SHUFFLED and SEEDED orders), and
+ *   - sequential:  the next word in order (the SEQUENTIAL and WEAKEST_FIRST orders).
+ * The largest list doesn't fit in the CPU caches, so the shuffled source (which reads the array at random)
+ * may be a little slower on it, but it shouldn't grow with the list the way a search or a copy would.
+ *
+ * Run it with "./gradlew :app:jmh -Pjmh=WordOrderBenchmark".
+ */
+
+package com.example.spelltest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordOrderBenchmark {
+
+    //Number of words in the list.
+    @Param({"100", "10000", "1000000"})
+    public int listSize;
+
+    //Instance variables
+    private WordOrder.ShuffledWordSource mShuffled;
+    private WordOrder.SequentialWordSource mSequential;
+
+    @Setup
+    public void setUp() {
+        ArrayList<Objects.Word> words = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            words.add(new Objects.Word(i, 1, "spelling" + i));
+        }
+        mShuffled = new WordOrder.ShuffledWordSource(words, new Random(1));
+        mSequential = new WordOrder.SequentialWordSource(words);
+    }
+
+    @Benchmark
+    public Objects.Word shuffled() {
+        Objects.Word word = mShuffled.nextWord();
+        if (word == null) {
+            mShuffled.reset();
+            word = mShuffled.nextWord();
+        }
+        return word;
+    }
+
+    @Benchmark
+    public Objects.Word sequential() {
+        Objects.Word word = mSequential.nextWord();
+        if (word == null) {
+            mSequential.reset();
+            word = mSequential.nextWord();
+        }
+        return word;
+    }
+}
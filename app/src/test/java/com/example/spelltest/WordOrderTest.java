@@ -0,0 +1,112 @@
+/**
+ * Filename:  WordOrderTest.java
+ * Author:  Team SpellTest
+ * Date:  28 May 2019
+ *
+ * Purpose:  Unit tests for the word sources built by the WordOrder class:  every shuffled order hands out
+ * each word exactly once (and again after a reset), the seeded order is the same every time for the same
+ * list, and the sequential orders keep the order they were given.
+ */
+
+package com.example.spelltest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class WordOrderTest {
+
+    //Class variables
+    private static final int[] SIZES = {0, 1, 2, 3, 100, 1000};
+
+    @Test
+    public void shuffledHandsOutEveryWordOnce() {
+        for (int size : SIZES) {
+            ArrayList<Objects.Word> words = makeWords(size);
+            for (int order : new int[] {WordOrder.SHUFFLED, WordOrder.SEEDED, -1}) {
+                String where = "order " + order + ", size " + size;
+                TestSession.WordSource source = WordOrder.newWordSource(order, words, 42);
+                assertEachOnce(where, source, size);
+
+                //A reset makes every word available again.
+                ((WordOrder.ShuffledWordSource) source).reset();
+                assertEachOnce(where + " after reset", source, size);
+            }
+
+            //The list itself isn't changed.
+            assertArrayEquals(idsOf(makeWords(size)), idsOf(words));
+        }
+    }
+
+    @Test
+    public void seededIsTheSameEveryTime() {
+        ArrayList<Objects.Word> words = makeWords(100);
+        long[] first = drain(WordOrder.newWordSource(WordOrder.SEEDED, words, 7));
+        long[] second = drain(WordOrder.newWordSource(WordOrder.SEEDED, words, 7));
+        assertArrayEquals(first, second);
+
+        //It is still a shuffle, and another list gets another one.
+        assertFalse(Arrays.equals(idsOf(words), first));
+        assertFalse(Arrays.equals(first, drain(WordOrder.newWordSource(WordOrder.SEEDED, words, 8))));
+    }
+
+    @Test
+    public void sequentialKeepsTheOrder() {
+        for (int size : SIZES) {
+            ArrayList<Objects.Word> words = makeWords(size);
+            for (int order : new int[] {WordOrder.SEQUENTIAL, WordOrder.WEAKEST_FIRST}) {
+                TestSession.WordSource source = WordOrder.newWordSource(order, words, 42);
+                assertArrayEquals(idsOf(words), drain(source));
+                assertNull(source.nextWord());
+
+                ((WordOrder.SequentialWordSource) source).reset();
+                assertArrayEquals(idsOf(words), drain(source));
+            }
+        }
+    }
+
+    /**
+     * Private static method to check that a source hands out each word id from 0 to size - 1 exactly once,
+     * and then nothing.
+     */
+    private static void assertEachOnce(String where, TestSession.WordSource source, int size) {
+        boolean[] seen = new boolean[size];
+        long[] ids = drain(source);
+        assertEquals(where, size, ids.length);
+        for (long id : ids) {
+            assertFalse(where + ", word " + id + " handed out twice", seen[(int) id]);
+            seen[(int) id] = true;
+        }
+        assertNull(where, source.nextWord());
+    }
+
+    /**
+     * Private static method to take every word from a source.
+     * @return the ids of the words, in the order they were handed out.
+     */
+    private static long[] drain(TestSession.WordSource source) {
+        ArrayList<Long> ids = new ArrayList<>();
+        for (Objects.Word word = source.nextWord(); word != null; word = source.nextWord()) ids.add(word.id);
+        long[] result = new long[ids.size()];
+        for (int i = 0; i < result.length; i++) result[i] = ids.get(i);
+        return result;
+    }
+
+    private static ArrayList<Objects.Word> makeWords(int size) {
+        ArrayList<Objects.Word> words = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) words.add(new Objects.Word(i, 1, "word" + i));
+        return words;
+    }
+
+    private static long[] idsOf(ArrayList<Objects.Word> words) {
+        long[] ids = new long[words.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = words.get(i).id;
+        return ids;
+    }
+}
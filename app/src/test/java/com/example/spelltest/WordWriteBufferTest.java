@@ -0,0 +1,238 @@
+/**
+ * Filename:  WordWriteBufferTest.java
+ * Author:  Team SpellTest
+ * Date:  25 May 2019
+ *
+ * Purpose:  Unit tests for the WordWriteBuffer class.  These check that repeated edits are merged, that
+ * edits stay visible while they are being written, and that no edit is ever lost - whether a write fails,
+ * a word is edited again while its batch is being written, or editors and a writer run at the same time.
+ */
+
+package com.example.spelltest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class WordWriteBufferTest {
+
+    //Class variables
+    private static final long LIST_ID = 1;
+
+    @Test
+    public void repeatedEditsAreMerged() {
+        WordWriteBuffer buffer = new WordWriteBuffer();
+        buffer.put(word(1, "frist"));
+        buffer.put(word(1, "first"));
+        buffer.put(word(2, "second"));
+        assertEquals(2, buffer.size());
+
+        ArrayList<Objects.Word> batch = buffer.beginFlush();
+        assertEquals(2, batch.size());
+        assertEquals("first", batch.get(0).spelling);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void laterChangesToTheWordAreNotBuffered() {
+        WordWriteBuffer buffer = new WordWriteBuffer();
+        Objects.Word word = word(1, "first");
+        buffer.put(word);
+        word.spelling = "changed";
+        assertEquals("first", buffer.beginFlush().get(0).spelling);
+    }
+
+    @Test
+    public void editsAreVisibleUntilWritten() {
+        WordWriteBuffer buffer = new WordWriteBuffer();
+        assertNull(buffer.snapshot());
+        buffer.put(word(1, "edited"));
+        assertEquals("edited", read(buffer, "old").spelling);
+
+        //Still visible while the batch is being written...
+        ArrayList<Objects.Word> batch = buffer.beginFlush();
+        assertEquals("edited", read(buffer, "old").spelling);
+
+        //...but not once it has been.
+        buffer.endFlush(batch, true);
+        assertNull(buffer.snapshot());
+        assertEquals("old", read(buffer, "old").spelling);
+    }
+
+    @Test
+    public void failedWriteKeepsTheEdits() {
+        WordWriteBuffer buffer = new WordWriteBuffer();
+        buffer.put(word(1, "first"));
+        buffer.put(word(2, "second"));
+
+        buffer.endFlush(buffer.beginFlush(), false);
+        assertEquals(2, buffer.size());
+
+        ArrayList<Objects.Word> batch = buffer.beginFlush();
+        assertEquals(2, batch.size());
+        buffer.endFlush(batch, true);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void editDuringWriteIsKept() {
+        WordWriteBuffer buffer = new WordWriteBuffer();
+        buffer.put(word(1, "older"));
+        ArrayList<Objects.Word> batch = buffer.beginFlush();
+
+        //The word is edited again while its batch is being written.  The newer edit is the one read...
+        buffer.put(word(1, "newer"));
+        assertEquals("newer", read(buffer, "old").spelling);
+
+        //...and it isn't replaced by the older one, whether or not the write works.
+        buffer.endFlush(batch, false);
+        assertEquals(1, buffer.size());
+        ArrayList<Objects.Word> next = buffer.beginFlush();
+        assertEquals("newer", next.get(0).spelling);
+        buffer.endFlush(next, true);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void discardedEditsAreNotWritten() {
+        WordWriteBuffer buffer = new WordWriteBuffer();
+        buffer.put(word(1, "first"));
+        buffer.put(new Objects.Word(2, LIST_ID + 1, "other list"));
+        ArrayList<Objects.Word> batch = buffer.beginFlush();
+        buffer.put(word(3, "third"));
+
+        buffer.discard(3);
+        buffer.discardList(LIST_ID);
+        buffer.endFlush(batch, false);
+
+        ArrayList<Objects.Word> next = buffer.beginFlush();
+        assertEquals(1, next.size());
+        assertEquals(2, next.get(0).id);
+    }
+
+    @Test
+    public void snapshotIsNotChangedByLaterEdits() {
+        WordWriteBuffer buffer = new WordWriteBuffer();
+        buffer.put(word(1, "first"));
+        Map<Long, Objects.Word> edits = buffer.snapshot();
+        buffer.put(word(1, "second"));
+        buffer.endFlush(buffer.beginFlush(), true);
+
+        Objects.Word word = word(1, "old");
+        assertSame(word, WordWriteBuffer.overlay(edits, word));
+        assertEquals("first", word.spelling);
+    }
+
+    /**
+     * Several editors keep editing words while a writer keeps writing batches to a fake database (some of
+     * the writes fail), and readers keep reading.  At the end, the database must hold the last edit made
+     * to every word, and no reader may ever see a word go back to an older edit.
+     */
+    @Test
+    public void noEditIsLostWithConcurrentWriter() throws InterruptedException {
+
+        final int editors = 4;
+        final int wordsPerEditor = 50;
+        final int editsPerWord = 200;
+        final WordWriteBuffer buffer = new WordWriteBuffer();
+        final Map<Long, Objects.Word> database = new HashMap<>();
+        final AtomicBoolean editing = new AtomicBoolean(true);
+        final AtomicBoolean wentBack = new AtomicBoolean(false);
+        final CountDownLatch done = new CountDownLatch(editors);
+
+        //The editors.  Each one owns its own words, and numbers its edits, so older and newer can be told apart.
+        Thread[] threads = new Thread[editors];
+        for (int e = 0; e < editors; e++) {
+            final int editor = e;
+            threads[e] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int edit = 1; edit <= editsPerWord; edit++) {
+                        for (int w = 0; w < wordsPerEditor; w++) {
+                            buffer.put(word(editor * wordsPerEditor + w, Integer.toString(edit)));
+                        }
+                    }
+                    done.countDown();
+                }
+            });
+        }
+
+        //The writer.  Every third batch fails.
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int batches = 0;
+                while (editing.get() || buffer.size() > 0) {
+                    ArrayList<Objects.Word> batch = buffer.beginFlush();
+                    boolean success = (++batches % 3 != 0);
+                    if (success) {
+                        synchronized (database) {
+                            for (Objects.Word word : batch) database.put(word.id, word);
+                        }
+                    }
+                    buffer.endFlush(batch, success);
+                }
+            }
+        });
+
+        //A reader, which takes a snapshot before each read (as DataStore does), and checks that the edit
+        //number it sees for a word never goes down.
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int[] seen = new int[editors * wordsPerEditor];
+                while (editing.get()) {
+                    Map<Long, Objects.Word> edits = buffer.snapshot();
+                    ArrayList<Objects.Word> read = new ArrayList<>();
+                    synchronized (database) {
+                        for (Objects.Word word : database.values()) {
+                            read.add(new Objects.Word(word.id, word.list_id, word.spelling));
+                        }
+                    }
+                    for (Objects.Word word : read) {
+                        int edit = Integer.parseInt(WordWriteBuffer.overlay(edits, word).spelling);
+                        if (edit < seen[(int) word.id]) wentBack.set(true);
+                        seen[(int) word.id] = edit;
+                    }
+                }
+            }
+        });
+
+        writer.start();
+        reader.start();
+        for (Thread thread : threads) thread.start();
+        done.await();
+        editing.set(false);
+        writer.join();
+        reader.join();
+
+        assertEquals(0, buffer.size());
+        assertNull(buffer.snapshot());
+        assertEquals(editors * wordsPerEditor, database.size());
+        for (Objects.Word word : database.values()) {
+            assertEquals("Edit lost for word " + word.id, Integer.toString(editsPerWord), word.spelling);
+        }
+        assertTrue("A read saw an older edit", !wentBack.get());
+    }
+
+    /**
+     * Private method to read a word from an empty "database", with the buffer's edits applied.
+     */
+    private static Objects.Word read(WordWriteBuffer buffer, String spelling) {
+        Map<Long, Objects.Word> edits = buffer.snapshot();
+        return WordWriteBuffer.overlay(edits, word(1, spelling));
+    }
+
+    private static Objects.Word word(long id, String spelling) {
+        return new Objects.Word(id, LIST_ID, spelling);
+    }
+}